@@ -0,0 +1,78 @@
+package dev.pekelund.pklnd.benchmarks;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import dev.pekelund.pklnd.firestore.FirestoreUserService;
+import dev.pekelund.pklnd.firestore.ReceiptExtractionService;
+import dev.pekelund.pklnd.firestore.TagService;
+import dev.pekelund.pklnd.web.DashboardStatisticsService;
+import dev.pekelund.pklnd.web.DashboardStatisticsService.DashboardStatistics;
+import dev.pekelund.pklnd.web.ReceiptOwnerResolver;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+/**
+ * Dashboard aggregation (personal counts, monthly totals and the yearly breakdowns) for a regular user, with
+ * the receipt service returning synthetic receipts from memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DashboardStatisticsBenchmark {
+
+    @Param({"100", "1000"})
+    public int receipts;
+
+    @Param({"25"})
+    public int itemsPerReceipt;
+
+    private DashboardStatisticsService statisticsService;
+    private final Authentication authentication = new UsernamePasswordAuthenticationToken(
+        SyntheticReceipts.OWNER.id(), null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+    @Setup
+    public void setUp() {
+        FirestoreUserService userService = mock(FirestoreUserService.class, withSettings().stubOnly());
+        when(userService.isEnabled()).thenReturn(true);
+        when(userService.countUsers()).thenReturn(12L);
+
+        ReceiptExtractionService extractionService = mock(ReceiptExtractionService.class, withSettings().stubOnly());
+        when(extractionService.isEnabled()).thenReturn(true);
+        when(extractionService.listReceiptsForOwner(SyntheticReceipts.OWNER))
+            .thenReturn(SyntheticReceipts.generate(receipts, itemsPerReceipt));
+
+        ReceiptOwnerResolver ownerResolver = mock(ReceiptOwnerResolver.class, withSettings().stubOnly());
+        when(ownerResolver.resolve(any())).thenReturn(SyntheticReceipts.OWNER);
+
+        TagService tagService = mock(TagService.class, withSettings().stubOnly());
+        when(tagService.isEnabled()).thenReturn(true);
+        when(tagService.listTags()).thenReturn(List.of());
+
+        statisticsService = new DashboardStatisticsService(userService, extractionService, ownerResolver, tagService);
+    }
+
+    @Benchmark
+    public DashboardStatistics loadStatistics() {
+        return statisticsService.loadStatistics(authentication);
+    }
+}
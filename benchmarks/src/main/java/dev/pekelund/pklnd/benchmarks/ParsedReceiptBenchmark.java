@@ -0,0 +1,52 @@
+package dev.pekelund.pklnd.benchmarks;
+
+import dev.pekelund.pklnd.firestore.ParsedReceipt;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Builds the display rows of a receipt, which the receipt view, search and statistics all do per receipt on
+ * every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsedReceiptBenchmark {
+
+    @Param({"10", "40", "150"})
+    public int items;
+
+    private ParsedReceipt receipt;
+
+    @Setup
+    public void setUp() {
+        receipt = SyntheticReceipts.generate(1, items).get(0);
+    }
+
+    @Benchmark
+    public List<?> displayItems() {
+        return receipt.displayItems();
+    }
+
+    @Benchmark
+    public void displayItemsWithDiscounts(Blackhole blackhole) {
+        for (var item : receipt.displayItems()) {
+            blackhole.consume(ParsedReceipt.calculateItemDiscountTotal(item));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package dev.pekelund.pklnd.benchmarks;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import dev.pekelund.pklnd.firestore.ReceiptRepository;
+import dev.pekelund.pklnd.firestore.ReceiptSearchService;
+import dev.pekelund.pklnd.firestore.SearchItemResult;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Item search over an owner's receipts with the repository returning synthetic data from memory, so the
+ * numbers cover matching and result building rather than Firestore latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiptSearchBenchmark {
+
+    @Param({"100", "1000"})
+    public int receipts;
+
+    @Param({"25"})
+    public int itemsPerReceipt;
+
+    @Param({"mjölk", "kvist", "zzz"})
+    public String query;
+
+    private ReceiptSearchService searchService;
+
+    @Setup
+    public void setUp() {
+        ReceiptRepository repository = mock(ReceiptRepository.class, withSettings().stubOnly());
+        when(repository.isEnabled()).thenReturn(true);
+        when(repository.listReceiptsForOwner(SyntheticReceipts.OWNER))
+            .thenReturn(SyntheticReceipts.generate(receipts, itemsPerReceipt));
+        searchService = new ReceiptSearchService(repository);
+    }
+
+    @Benchmark
+    public List<SearchItemResult> searchItemsByName() {
+        return searchService.searchItemsByName(query, SyntheticReceipts.OWNER, false);
+    }
+}
@@ -0,0 +1,161 @@
+package dev.pekelund.pklnd.benchmarks;
+
+import dev.pekelund.pklnd.firestore.ParsedReceipt;
+import dev.pekelund.pklnd.storage.ReceiptOwner;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates parsed receipts shaped like the ones the receipt processor stores: Swedish grocery item names,
+ * valid EAN-13 codes, weighed and counted quantities, and the occasional item discount. A fixed seed keeps
+ * the data identical between runs so results from different commits stay comparable.
+ */
+public final class SyntheticReceipts {
+
+    public static final ReceiptOwner OWNER = new ReceiptOwner("bench-owner", "Bench Owner", "bench@example.com");
+
+    private static final String[] STORES = {
+        "ICA Kvantum Emporia", "ICA Maxi Stormarknad Malmö", "Coop Forum Hyllie", "Willys Mobilia", "Lidl Värnhem"
+    };
+
+    private static final String[] COUNTED_ITEMS = {
+        "Mellanmjölk 1,5% 1l", "Lättfil 0,5% 1l", "Smör Normalsaltat 500g", "Ägg 12-p Frigående", "Kaffe Mellanrost 450g",
+        "Knäckebröd Råg 520g", "Falukorv Skivad 800g", "Fläskfilé ca 600g", "Kycklingfilé Fryst 900g", "Havregryn 1,5kg",
+        "Krossade Tomater 400g", "Pasta Penne 500g", "Jasminris 1kg", "Lingonsylt 400g", "Kalles Kaviar 300g",
+        "Ost Hushåll 17% 1,1kg", "Grädde 36% 5dl", "Gräddfil 12% 3dl", "Yoghurt Turkisk 10% 1kg", "Apelsinjuice 1,75l",
+        "Kanelbullar 6-p", "Korv Stroganoff Färdigrätt", "Toalettpapper 8-p", "Diskmedel Citron 500ml", "Kattmat Lax 85g"
+    };
+
+    private static final String[] WEIGHED_ITEMS = {
+        "Bananer Eko", "Gurka Svensk", "Tomater Kvist", "Potatis Fast", "Äpplen Ingrid Marie", "Päron Conference",
+        "Morötter Lösvikt", "Lök Gul", "Paprika Röd", "Vindruvor Gröna", "Lax Färsk Filé", "Räkor Handskalade"
+    };
+
+    private SyntheticReceipts() {
+    }
+
+    /**
+     * Returns {@code receiptCount} receipts with {@code itemsPerReceipt} items each, spread over the last two years.
+     */
+    public static List<ParsedReceipt> generate(int receiptCount, int itemsPerReceipt) {
+        return generate(OWNER, receiptCount, itemsPerReceipt);
+    }
+
+    /**
+     * Same as {@link #generate(int, int)} for another owner; each owner gets different receipts.
+     */
+    public static List<ParsedReceipt> generate(ReceiptOwner owner, int receiptCount, int itemsPerReceipt) {
+        Random random = new Random(42L * receiptCount + itemsPerReceipt + owner.id().hashCode());
+        LocalDate today = LocalDate.of(2025, 6, 30);
+        Instant now = Instant.parse("2025-06-30T12:00:00Z");
+        List<ParsedReceipt> receipts = new ArrayList<>(receiptCount);
+        for (int i = 0; i < receiptCount; i++) {
+            LocalDate receiptDate = today.minusDays(random.nextInt(730));
+            String id = "receipt-" + i;
+            List<Map<String, Object>> items = new ArrayList<>(itemsPerReceipt);
+            BigDecimal total = BigDecimal.ZERO;
+            for (int j = 0; j < itemsPerReceipt; j++) {
+                Map<String, Object> item = item(random);
+                total = total.add(new BigDecimal((String) item.get("totalPrice")));
+                items.add(item);
+            }
+
+            Map<String, Object> general = new LinkedHashMap<>();
+            general.put("storeName", STORES[random.nextInt(STORES.length)]);
+            general.put("receiptDate", receiptDate.toString());
+            general.put("totalAmount", total.toPlainString());
+            general.put("fileName", id + ".pdf");
+            general.put("reconciliationStatus", random.nextInt(10) == 0 ? "MISMATCH" : "COMPLETE");
+
+            receipts.add(new ParsedReceipt(
+                id,
+                "bench-bucket",
+                id + ".pdf",
+                "gs://bench-bucket/" + id + ".pdf",
+                owner,
+                random.nextInt(50) == 0 ? "FAILED" : "COMPLETED",
+                null,
+                now.minus(i, ChronoUnit.MINUTES),
+                general,
+                items,
+                null,
+                List.of(),
+                List.of(),
+                List.of(),
+                null,
+                null,
+                null,
+                null
+            ));
+        }
+        return List.copyOf(receipts);
+    }
+
+    private static Map<String, Object> item(Random random) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        boolean weighed = random.nextInt(4) == 0;
+        BigDecimal unitPrice;
+        BigDecimal totalPrice;
+        if (weighed) {
+            item.put("name", WEIGHED_ITEMS[random.nextInt(WEIGHED_ITEMS.length)]);
+            BigDecimal weight = BigDecimal.valueOf(100 + random.nextInt(1900), 3);
+            unitPrice = BigDecimal.valueOf(1990 + random.nextInt(18000), 2);
+            totalPrice = unitPrice.multiply(weight).setScale(2, RoundingMode.HALF_UP);
+            item.put("quantity", weight.toPlainString().replace('.', ',') + " kg");
+        } else {
+            item.put("name", COUNTED_ITEMS[random.nextInt(COUNTED_ITEMS.length)]);
+            int count = 1 + (random.nextInt(5) == 0 ? random.nextInt(4) : 0);
+            unitPrice = BigDecimal.valueOf(990 + random.nextInt(9000), 2);
+            totalPrice = unitPrice.multiply(BigDecimal.valueOf(count));
+            item.put("quantity", count + " st");
+        }
+        item.put("eanCode", ean13((String) item.get("name")));
+        item.put("unitPrice", unitPrice.toPlainString());
+        item.put("totalPrice", totalPrice.toPlainString());
+        if (random.nextInt(8) == 0) {
+            BigDecimal amount = totalPrice.multiply(new BigDecimal("0.20")).setScale(2, RoundingMode.HALF_UP);
+            item.put("discounts", List.of(Map.of("description", "Medlemspris", "amount", amount.negate().toPlainString())));
+        }
+        return item;
+    }
+
+    /**
+     * Distinct EAN codes used by the generated items.
+     */
+    public static List<String> eanCodes() {
+        List<String> codes = new ArrayList<>();
+        for (String name : COUNTED_ITEMS) {
+            codes.add(ean13(name));
+        }
+        for (String name : WEIGHED_ITEMS) {
+            codes.add(ean13(name));
+        }
+        return List.copyOf(codes);
+    }
+
+    /**
+     * Returns a Swedish-prefixed EAN-13 with a correct check digit, the same for every item with this name so
+     * price history and item pages group purchases the way real data does.
+     */
+    static String ean13(String name) {
+        Random random = new Random(name.hashCode());
+        StringBuilder digits = new StringBuilder("73");
+        while (digits.length() < 12) {
+            digits.append(random.nextInt(10));
+        }
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int digit = digits.charAt(i) - '0';
+            sum += i % 2 == 0 ? digit : digit * 3;
+        }
+        return digits.append((10 - sum % 10) % 10).toString();
+    }
+}
@@ -0,0 +1,94 @@
+package dev.pekelund.pklnd.config;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rate limiter throughput when many request threads hit the same client bucket (one busy client
+ * behind a proxy) and when they hit distinct buckets, against the previous synchronised fixed-window
+ * counter. Lives in the web package because {@link LocalRateLimitStore} is package-private. Run with
+ * {@code scripts/run_benchmarks.sh RateLimitStoreBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class RateLimitStoreBenchmark {
+
+    private static final int CLIENTS = 1_024;
+
+    private final RateLimitPolicy policy = new RateLimitPolicy("bench", 1_000_000, Duration.ofSeconds(1));
+    private final String[] clientKeys = new String[CLIENTS];
+
+    private LocalRateLimitStore store;
+    private final Map<String, SynchronizedWindowCounter> windowCounters = new ConcurrentHashMap<>();
+
+    @Setup
+    public void setUp() {
+        store = new LocalRateLimitStore(CLIENTS * 2L);
+        for (int i = 0; i < CLIENTS; i++) {
+            clientKeys[i] = "bench|10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @Benchmark
+    public boolean tokenBucketSingleClient() {
+        return store.tryAcquire(clientKeys[0], policy);
+    }
+
+    @Benchmark
+    public boolean tokenBucketManyClients() {
+        return store.tryAcquire(clientKeys[ThreadLocalRandom.current().nextInt(CLIENTS)], policy);
+    }
+
+    @Benchmark
+    public boolean synchronizedWindowSingleClient() {
+        return windowCounter(clientKeys[0]).tryIncrement(policy.capacity(), 1_000L);
+    }
+
+    @Benchmark
+    public boolean synchronizedWindowManyClients() {
+        return windowCounter(clientKeys[ThreadLocalRandom.current().nextInt(CLIENTS)])
+            .tryIncrement(policy.capacity(), 1_000L);
+    }
+
+    private SynchronizedWindowCounter windowCounter(String key) {
+        return windowCounters.computeIfAbsent(key, ignored -> new SynchronizedWindowCounter());
+    }
+
+    /**
+     * The fixed-window counter the token bucket replaced, looked up the same way, kept as the baseline.
+     */
+    static final class SynchronizedWindowCounter {
+
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile long windowStart = System.currentTimeMillis();
+
+        synchronized boolean tryIncrement(int maxRequests, long windowMs) {
+            long now = System.currentTimeMillis();
+            if (now - windowStart > windowMs) {
+                count.set(0);
+                windowStart = now;
+            }
+            return count.incrementAndGet() <= maxRequests;
+        }
+    }
+}
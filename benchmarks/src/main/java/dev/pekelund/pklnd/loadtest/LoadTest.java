@@ -0,0 +1,228 @@
+package dev.pekelund.pklnd.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dev.pekelund.pklnd.benchmarks.SyntheticReceipts;
+import dev.pekelund.pklnd.storage.ReceiptOwner;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Open-model load test for the web module. Seeds the Firestore emulator, logs in every seeded user, then
+ * fires requests at a fixed rate regardless of how fast the server answers, one virtual thread per request,
+ * spreading them over the users and the scenario mix. Reports p50/p90/p99 latency per scenario and the
+ * Firestore reads each request cost, taken from the instance's own metrics.
+ *
+ * <p>Usually started through {@code scripts/run_load_test.sh}; see {@link LoadTestOptions#USAGE} for the
+ * options.
+ */
+public final class LoadTest {
+
+    private static final List<String> SEARCH_TERMS = List.of("mjölk", "bananer", "ost", "kaffe", "lax", "tomater");
+
+    private final LoadTestOptions options;
+    private final List<String> eanCodes = SyntheticReceipts.eanCodes();
+    private final List<Upload> uploads = new ArrayList<>();
+    private final List<LoadTestSession> sessions = new ArrayList<>();
+
+    private LoadTest(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (List.of(args).contains("--help")) {
+            System.out.println(LoadTestOptions.USAGE);
+            return;
+        }
+        new LoadTest(LoadTestOptions.parse(args)).run();
+    }
+
+    private void run() throws Exception {
+        if (options.seed()) {
+            new LoadTestSeeder(options).seed();
+        }
+        if (options.mix().containsKey(Scenario.UPLOAD)) {
+            loadUploads();
+        }
+        login();
+        LoadTestSession admin = new LoadTestSession(options.baseUrl(), LoadTestSeeder.ADMIN_EMAIL);
+        admin.login(options.password());
+        LoadTestMetrics metrics = new LoadTestMetrics(admin);
+
+        Scenario[] schedule = schedule();
+        if (!options.warmup().isZero()) {
+            System.out.printf("Warming up for %ss at %.1f req/s%n", options.warmup().toSeconds(), options.targetRps());
+            runPhase(options.warmup(), schedule, new LoadTestResults());
+        }
+
+        LoadTestMetrics.Snapshot before = metrics.snapshot();
+        System.out.printf("Measuring for %ss at %.1f req/s%n", options.duration().toSeconds(), options.targetRps());
+        LoadTestResults results = new LoadTestResults();
+        long started = System.nanoTime();
+        runPhase(options.duration(), schedule, results);
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+        LoadTestMetrics.Snapshot after = metrics.snapshot();
+
+        report(results, before, after, elapsedSeconds);
+    }
+
+    private void login() throws Exception {
+        List<ReceiptOwner> users = LoadTestSeeder.users(options);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<LoadTestSession>> logins = new ArrayList<>();
+            for (ReceiptOwner user : users) {
+                logins.add(executor.submit(() -> {
+                    LoadTestSession session = new LoadTestSession(options.baseUrl(), user.email());
+                    session.login(options.password());
+                    return session;
+                }));
+            }
+            for (Future<LoadTestSession> login : logins) {
+                sessions.add(login.get());
+            }
+        }
+        System.out.printf("Logged in %d users%n", sessions.size());
+    }
+
+    private void loadUploads() throws IOException {
+        if (!Files.isDirectory(options.receiptsDirectory())) {
+            throw new IOException("Upload fixtures not found in " + options.receiptsDirectory()
+                + "; set --receipts-dir or drop upload from --mix");
+        }
+        try (Stream<Path> files = Files.list(options.receiptsDirectory())) {
+            for (Path file : files.filter(path -> path.toString().toLowerCase().endsWith(".pdf")).sorted().toList()) {
+                uploads.add(new Upload(file.getFileName().toString(), Files.readAllBytes(file)));
+            }
+        }
+        if (uploads.isEmpty()) {
+            throw new IOException("No PDFs in " + options.receiptsDirectory());
+        }
+    }
+
+    /**
+     * Expands the weighted mix into a shuffled cycle, so every stretch of the run sees the same proportions.
+     */
+    private Scenario[] schedule() {
+        List<Scenario> cycle = new ArrayList<>();
+        options.mix().forEach((scenario, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                cycle.add(scenario);
+            }
+        });
+        Collections.shuffle(cycle, new Random(42));
+        return cycle.toArray(Scenario[]::new);
+    }
+
+    private void runPhase(Duration length, Scenario[] schedule, LoadTestResults results) {
+        long interval = (long) (1_000_000_000L / options.targetRps());
+        long start = System.nanoTime();
+        long end = start + length.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long scheduledAt = start + i * interval;
+                if (scheduledAt >= end) {
+                    break;
+                }
+                long wait = scheduledAt - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Scenario scenario = schedule[(int) (i % schedule.length)];
+                LoadTestSession session = sessions.get(ThreadLocalRandom.current().nextInt(sessions.size()));
+                executor.execute(() -> execute(scenario, session, scheduledAt, results));
+            }
+        }
+    }
+
+    private void execute(Scenario scenario, LoadTestSession session, long scheduledAt, LoadTestResults results) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            HttpResponse<String> response = switch (scenario) {
+                case DASHBOARD -> session.get("/dashboard");
+                case RECEIPTS -> session.get("/receipts");
+                case OVERVIEW -> session.getJson("/receipts/overview/data");
+                case SEARCH -> session.get("/receipts/search?q="
+                    + LoadTestSession.encode(SEARCH_TERMS.get(random.nextInt(SEARCH_TERMS.size()))));
+                case ITEM -> session.get("/receipts/items/" + eanCodes.get(random.nextInt(eanCodes.size())));
+                case UPLOAD -> {
+                    Upload upload = uploads.get(random.nextInt(uploads.size()));
+                    yield session.upload("/receipts/upload", upload.fileName(), upload.content());
+                }
+            };
+            results.record(scenario, System.nanoTime() - scheduledAt, response.statusCode());
+        } catch (IOException ex) {
+            results.recordFailure(scenario, System.nanoTime() - scheduledAt);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void report(LoadTestResults results, LoadTestMetrics.Snapshot before, LoadTestMetrics.Snapshot after,
+        double elapsedSeconds) throws IOException {
+        long requests = results.requests();
+        double achievedRps = requests / elapsedSeconds;
+        Double totalReadsPerRequest = requests > 0 ? (after.totalReads() - before.totalReads()) / requests : null;
+
+        System.out.printf("%n%-10s %9s %7s %9s %9s %9s %9s %11s%n",
+            "scenario", "requests", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms", "reads/req");
+        Map<String, Object> scenarios = new LinkedHashMap<>();
+        results.summaries().forEach((scenario, summary) -> {
+            Double reads = after.readsPerRequest(before, scenario);
+            System.out.printf("%-10s %9d %7d %9.1f %9.1f %9.1f %9.1f %11s%n", scenario.key(), summary.requests(),
+                summary.errors(), summary.p50(), summary.p90(), summary.p99(), summary.max(),
+                reads != null ? String.format("%.1f", reads) : "-");
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("route", scenario.route());
+            entry.put("requests", summary.requests());
+            entry.put("errors", summary.errors());
+            entry.put("statuses", summary.statuses());
+            entry.put("p50Ms", summary.p50());
+            entry.put("p90Ms", summary.p90());
+            entry.put("p99Ms", summary.p99());
+            entry.put("maxMs", summary.max());
+            entry.put("firestoreReadsPerRequest", reads);
+            scenarios.put(scenario.key(), entry);
+        });
+        System.out.printf("%nTarget %.1f req/s, achieved %.1f req/s; %s Firestore reads per request overall%n",
+            options.targetRps(), achievedRps,
+            totalReadsPerRequest != null ? String.format("%.1f", totalReadsPerRequest) : "-");
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("finishedAt", Instant.now().toString());
+        report.put("baseUrl", options.baseUrl().toString());
+        report.put("users", options.users());
+        report.put("receiptsPerUser", options.receiptsPerUser());
+        report.put("itemsPerReceipt", options.itemsPerReceipt());
+        report.put("targetRps", options.targetRps());
+        report.put("achievedRps", achievedRps);
+        report.put("durationSeconds", options.duration().toSeconds());
+        report.put("firestoreReadsPerRequest", totalReadsPerRequest);
+        report.put("scenarios", scenarios);
+
+        Path output = options.output();
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), report);
+        System.out.println("Report written to " + output);
+    }
+
+    private record Upload(String fileName, byte[] content) {
+    }
+}
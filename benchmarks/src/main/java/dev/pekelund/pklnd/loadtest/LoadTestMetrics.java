@@ -0,0 +1,71 @@
+package dev.pekelund.pklnd.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Reads the web module's Firestore read metrics through {@code /actuator/metrics} with an admin session:
+ * the {@code firestore.reads.total} counter and the per-route {@code firestore.request.reads} histogram.
+ */
+final class LoadTestMetrics {
+
+    private final LoadTestSession admin;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    LoadTestMetrics(LoadTestSession admin) {
+        this.admin = admin;
+    }
+
+    Snapshot snapshot() throws IOException, InterruptedException {
+        Map<Scenario, Reads> routes = new EnumMap<>(Scenario.class);
+        for (Scenario scenario : Scenario.values()) {
+            JsonNode metric = metric("firestore.request.reads?tag=" + LoadTestSession.encode("uri:" + scenario.route()));
+            routes.put(scenario, new Reads(statistic(metric, "COUNT"), statistic(metric, "TOTAL")));
+        }
+        return new Snapshot(statistic(metric("firestore.reads.total"), "COUNT"), routes);
+    }
+
+    private JsonNode metric(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = admin.getJson("/actuator/metrics/" + path);
+        if (response.statusCode() == 404) {
+            // The meter is registered on first use.
+            return null;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Reading /actuator/metrics/" + path + " failed with " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private static double statistic(JsonNode metric, String name) {
+        if (metric == null) {
+            return 0;
+        }
+        for (JsonNode measurement : metric.path("measurements")) {
+            if (name.equals(measurement.path("statistic").asText())) {
+                return measurement.path("value").asDouble();
+            }
+        }
+        return 0;
+    }
+
+    record Reads(double requests, double reads) {
+    }
+
+    record Snapshot(double totalReads, Map<Scenario, Reads> routes) {
+
+        /**
+         * Average reads per handled request of {@code scenario} between {@code before} and this snapshot.
+         */
+        Double readsPerRequest(Snapshot before, Scenario scenario) {
+            Reads now = routes.get(scenario);
+            Reads then = before.routes().get(scenario);
+            double requests = now.requests() - then.requests();
+            return requests > 0 ? (now.reads() - then.reads()) / requests : null;
+        }
+    }
+}
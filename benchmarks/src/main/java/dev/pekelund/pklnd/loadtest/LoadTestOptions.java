@@ -0,0 +1,110 @@
+package dev.pekelund.pklnd.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings for one load test run, read from {@code --name=value} arguments. Durations use the
+ * Spring style ({@code 30s}, {@code 2m}).
+ */
+record LoadTestOptions(
+    URI baseUrl,
+    boolean seed,
+    String emulatorHost,
+    String projectId,
+    String databaseId,
+    int users,
+    int receiptsPerUser,
+    int itemsPerReceipt,
+    String password,
+    double targetRps,
+    Duration warmup,
+    Duration duration,
+    Map<Scenario, Integer> mix,
+    Path receiptsDirectory,
+    Path output
+) {
+
+    static final String USAGE = """
+        Options (all optional):
+          --base-url=http://localhost:8080   web instance under test
+          --seed=true                        write users and receipts to the emulator before the run
+          --emulator-host=localhost:8085     Firestore emulator used for seeding
+          --project-id=pklnd-local --database-id=receipts-db
+          --users=20 --receipts-per-user=50 --items-per-receipt=25
+          --rps=20                           target request rate, spread over all users
+          --warmup=15s --duration=60s
+          --mix=dashboard:3,receipts:3,overview:2,search:2,item:2,upload:1
+          --receipts-dir=local/receipts      PDFs used by the upload scenario
+          --output=loadtest.json             JSON report
+        """;
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Unexpected argument " + arg + "\n" + USAGE);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        return new LoadTestOptions(
+            URI.create(stripTrailingSlash(values.getOrDefault("base-url", "http://localhost:8080"))),
+            Boolean.parseBoolean(values.getOrDefault("seed", "true")),
+            values.getOrDefault("emulator-host", env("FIRESTORE_EMULATOR_HOST", "localhost:8085")),
+            values.getOrDefault("project-id", env("FIRESTORE_PROJECT_ID", "pklnd-local")),
+            values.getOrDefault("database-id", env("FIRESTORE_DATABASE_ID", "receipts-db")),
+            Integer.parseInt(values.getOrDefault("users", "20")),
+            Integer.parseInt(values.getOrDefault("receipts-per-user", "50")),
+            Integer.parseInt(values.getOrDefault("items-per-receipt", "25")),
+            values.getOrDefault("password", "loadtest-password"),
+            Double.parseDouble(values.getOrDefault("rps", "20")),
+            duration(values.getOrDefault("warmup", "15s")),
+            duration(values.getOrDefault("duration", "60s")),
+            mix(values.getOrDefault("mix", "dashboard:3,receipts:3,overview:2,search:2,item:2,upload:1")),
+            Path.of(values.getOrDefault("receipts-dir", "local/receipts")),
+            Path.of(values.getOrDefault("output", "loadtest.json"))
+        );
+    }
+
+    private static Map<Scenario, Integer> mix(String value) {
+        Map<Scenario, Integer> weights = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+            if (weight > 0) {
+                weights.put(Scenario.fromKey(parts[0]), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("--mix must name at least one scenario");
+        }
+        return weights;
+    }
+
+    private static Duration duration(String value) {
+        String trimmed = value.trim();
+        long amount = Long.parseLong(trimmed.replaceAll("[a-z]+$", ""));
+        if (trimmed.endsWith("ms")) {
+            return Duration.ofMillis(amount);
+        }
+        if (trimmed.endsWith("m")) {
+            return Duration.ofMinutes(amount);
+        }
+        return Duration.ofSeconds(amount);
+    }
+
+    private static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value != null && !value.isBlank() ? value : fallback;
+    }
+
+    private static String stripTrailingSlash(String value) {
+        return value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+    }
+}
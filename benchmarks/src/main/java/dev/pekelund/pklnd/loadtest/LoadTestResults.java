@@ -0,0 +1,86 @@
+package dev.pekelund.pklnd.loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latencies and status codes per scenario. Latency is measured from the moment a request was scheduled,
+ * not from when it was sent, so a server that falls behind shows up in the percentiles instead of
+ * silently lowering the request rate.
+ */
+final class LoadTestResults {
+
+    private final Map<Scenario, Samples> samples = new EnumMap<>(Scenario.class);
+
+    LoadTestResults() {
+        for (Scenario scenario : Scenario.values()) {
+            samples.put(scenario, new Samples());
+        }
+    }
+
+    void record(Scenario scenario, long latencyNanos, int status) {
+        samples.get(scenario).add(latencyNanos, status);
+    }
+
+    void recordFailure(Scenario scenario, long latencyNanos) {
+        samples.get(scenario).add(latencyNanos, -1);
+    }
+
+    long requests() {
+        return samples.values().stream().mapToLong(Samples::count).sum();
+    }
+
+    Map<Scenario, Summary> summaries() {
+        Map<Scenario, Summary> summaries = new LinkedHashMap<>();
+        samples.forEach((scenario, values) -> {
+            if (values.count() > 0) {
+                summaries.put(scenario, values.summary());
+            }
+        });
+        return summaries;
+    }
+
+    /**
+     * Latency percentiles in milliseconds, and how many requests failed or answered with anything but 2xx.
+     */
+    record Summary(long requests, long errors, double p50, double p90, double p99, double max,
+                   Map<String, Long> statuses) {
+    }
+
+    private static final class Samples {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private final Map<String, Long> statuses = new LinkedHashMap<>();
+
+        synchronized void add(long latencyNanos, int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            statuses.merge(status < 0 ? "failed" : Integer.toString(status), 1L, Long::sum);
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        synchronized Summary summary() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            long errors = statuses.entrySet().stream()
+                .filter(entry -> !entry.getKey().startsWith("2"))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+            return new Summary(count, errors, percentile(sorted, 0.50), percentile(sorted, 0.90),
+                percentile(sorted, 0.99), sorted[sorted.length - 1] / 1_000_000.0, Map.copyOf(statuses));
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+        }
+    }
+}
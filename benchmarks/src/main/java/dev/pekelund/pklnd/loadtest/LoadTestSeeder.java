@@ -0,0 +1,124 @@
+package dev.pekelund.pklnd.loadtest;
+
+import com.google.cloud.NoCredentials;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import dev.pekelund.pklnd.benchmarks.SyntheticReceipts;
+import dev.pekelund.pklnd.firestore.ParsedReceipt;
+import dev.pekelund.pklnd.receiptparser.ReceiptExtractionRepository;
+import dev.pekelund.pklnd.receiptparser.ReceiptExtractionResult;
+import dev.pekelund.pklnd.receipts.ReceiptItemConstants;
+import dev.pekelund.pklnd.storage.ReceiptOwner;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+
+/**
+ * Writes load test users and their receipts to the Firestore emulator. Receipts go through the receipt
+ * processor's {@link ReceiptExtractionRepository}, so items, item stats and price history look exactly like
+ * parsed uploads. A user whose receipts were seeded with the same shape before is left alone, which keeps
+ * repeated runs from inflating the item statistics.
+ */
+final class LoadTestSeeder {
+
+    static final String ADMIN_ID = "loadtest-admin";
+    static final String ADMIN_EMAIL = "loadtest-admin@example.com";
+
+    private static final String USERS_COLLECTION = "users";
+    private static final String SEED_FIELD = "loadtestSeed";
+    private static final String BUCKET = "loadtest";
+
+    private final LoadTestOptions options;
+
+    LoadTestSeeder(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    static List<ReceiptOwner> users(LoadTestOptions options) {
+        List<ReceiptOwner> users = new ArrayList<>(options.users());
+        for (int i = 1; i <= options.users(); i++) {
+            users.add(new ReceiptOwner("loadtest-user-" + i, "Load Test " + i, "loadtest-" + i + "@example.com"));
+        }
+        return users;
+    }
+
+    void seed() throws Exception {
+        String passwordHash = PasswordEncoderFactories.createDelegatingPasswordEncoder().encode(options.password());
+        String shape = options.receiptsPerUser() + "x" + options.itemsPerReceipt();
+        Firestore firestore = FirestoreOptions.newBuilder()
+            .setProjectId(options.projectId())
+            .setDatabaseId(options.databaseId())
+            .setHost(options.emulatorHost())
+            .setCredentials(NoCredentials.getInstance())
+            .build()
+            .getService();
+
+        try (firestore; ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            ReceiptExtractionRepository repository = new ReceiptExtractionRepository(firestore,
+                ReceiptItemConstants.DEFAULT_RECEIPTS_COLLECTION,
+                ReceiptItemConstants.DEFAULT_RECEIPT_ITEMS_COLLECTION,
+                ReceiptItemConstants.DEFAULT_ITEM_STATS_COLLECTION,
+                ReceiptItemConstants.DEFAULT_RECEIPT_DATA_VERSIONS_COLLECTION,
+                ReceiptItemConstants.DEFAULT_RECEIPT_PAYLOADS_COLLECTION,
+                ReceiptItemConstants.DEFAULT_PRICE_HISTORY_COLLECTION);
+
+            writeUser(firestore, new ReceiptOwner(ADMIN_ID, "Load Test Admin", ADMIN_EMAIL), passwordHash,
+                List.of("ROLE_USER", "ROLE_ADMIN"), null);
+
+            int seeded = 0;
+            for (ReceiptOwner user : users(options)) {
+                DocumentReference userDocument = firestore.collection(USERS_COLLECTION).document(user.id());
+                DocumentSnapshot existing = userDocument.get().get();
+                if (shape.equals(existing.getString(SEED_FIELD))) {
+                    continue;
+                }
+                writeUser(firestore, user, passwordHash, List.of("ROLE_USER"), null);
+
+                List<Future<?>> writes = new ArrayList<>();
+                List<ParsedReceipt> receipts = SyntheticReceipts.generate(user, options.receiptsPerUser(),
+                    options.itemsPerReceipt());
+                for (ParsedReceipt receipt : receipts) {
+                    writes.add(executor.submit(() -> repository.saveExtraction(BUCKET,
+                        user.id() + "/" + receipt.objectName(), user,
+                        new ReceiptExtractionResult(structuredData(receipt), null), "Seeded by the load test")));
+                }
+                for (Future<?> write : writes) {
+                    write.get();
+                }
+                // Marked last, so an interrupted seed is redone on the next run.
+                writeUser(firestore, user, passwordHash, List.of("ROLE_USER"), shape);
+                seeded++;
+            }
+            System.out.printf("Seeded receipts for %d of %d users (%s receipts x items)%n",
+                seeded, options.users(), shape);
+        }
+    }
+
+    private static void writeUser(Firestore firestore, ReceiptOwner user, String passwordHash, List<String> roles,
+        String seedShape) throws Exception {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("email", user.email());
+        document.put("fullName", user.displayName());
+        document.put("passwordHash", passwordHash);
+        document.put("roles", roles);
+        document.put(SEED_FIELD, seedShape);
+        firestore.collection(USERS_COLLECTION).document(user.id()).set(document).get();
+    }
+
+    private static Map<String, Object> structuredData(ParsedReceipt receipt) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("general", receipt.general());
+        data.put("items", receipt.items());
+        data.put("vats", List.of());
+        data.put("generalDiscounts", List.of());
+        data.put("errors", List.of());
+        return data;
+    }
+}
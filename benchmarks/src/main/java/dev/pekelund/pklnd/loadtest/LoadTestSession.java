@@ -0,0 +1,108 @@
+package dev.pekelund.pklnd.loadtest;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One logged-in browser session: its own cookie jar and the CSRF token of the authenticated session.
+ */
+final class LoadTestSession {
+
+    private static final Pattern CSRF_INPUT = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+    private static final Pattern CSRF_META = Pattern.compile("<meta name=\"_csrf\" content=\"([^\"]+)\"");
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI baseUrl;
+    private final String email;
+    private final HttpClient client;
+    private String csrfToken;
+
+    LoadTestSession(URI baseUrl, String email) {
+        this.baseUrl = baseUrl;
+        this.email = email;
+        this.client = HttpClient.newBuilder()
+            .cookieHandler(new CookieManager())
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    }
+
+    String email() {
+        return email;
+    }
+
+    /**
+     * Logs in with the form login and reads the CSRF token of the new session from the dashboard.
+     */
+    void login(String password) throws IOException, InterruptedException {
+        String loginPage = get("/login").body();
+        String form = "email=" + encode(email) + "&password=" + encode(password)
+            + "&_csrf=" + encode(match(CSRF_INPUT, loginPage, "/login"));
+        HttpResponse<String> response = client.send(request("/login")
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(form))
+            .build(), HttpResponse.BodyHandlers.ofString());
+        String location = response.headers().firstValue("Location").orElse("");
+        if (response.statusCode() != 302 || location.contains("error")) {
+            throw new IOException("Login failed for " + email + " (" + response.statusCode() + " " + location + ")");
+        }
+        csrfToken = match(CSRF_META, get("/dashboard").body(), "/dashboard");
+    }
+
+    HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return client.send(request(path).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    HttpResponse<String> getJson(String path) throws IOException, InterruptedException {
+        return client.send(request(path).header("Accept", "application/json").GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Posts one file to a multipart endpoint as the upload form does, asking for the JSON response.
+     */
+    HttpResponse<String> upload(String path, String fileName, byte[] content) throws IOException, InterruptedException {
+        String boundary = "----pklnd-loadtest-" + UUID.randomUUID();
+        byte[] head = ("--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"files\"; filename=\"" + fileName + "\"\r\n"
+            + "Content-Type: application/pdf\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] body = new byte[head.length + content.length + tail.length];
+        System.arraycopy(head, 0, body, 0, head.length);
+        System.arraycopy(content, 0, body, head.length, content.length);
+        System.arraycopy(tail, 0, body, head.length + content.length, tail.length);
+
+        return client.send(request(path)
+            .header("Accept", "application/json")
+            .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+            .header("X-CSRF-TOKEN", csrfToken)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(baseUrl.resolve(path)).timeout(REQUEST_TIMEOUT);
+    }
+
+    private static String match(Pattern pattern, String html, String page) throws IOException {
+        Matcher matcher = pattern.matcher(html);
+        if (!matcher.find()) {
+            throw new IOException("No CSRF token found on " + page);
+        }
+        return matcher.group(1);
+    }
+
+    static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,40 @@
+package dev.pekelund.pklnd.loadtest;
+
+/**
+ * Endpoints the load test drives. {@code route} is the Spring MVC pattern the web module tags its
+ * {@code firestore.request.reads} histogram with.
+ */
+enum Scenario {
+
+    DASHBOARD("dashboard", "/dashboard"),
+    RECEIPTS("receipts", "/receipts"),
+    OVERVIEW("overview", "/receipts/overview/data"),
+    SEARCH("search", "/receipts/search"),
+    ITEM("item", "/receipts/items/{eanCode}"),
+    UPLOAD("upload", "/receipts/upload");
+
+    private final String key;
+    private final String route;
+
+    Scenario(String key, String route) {
+        this.key = key;
+        this.route = route;
+    }
+
+    String key() {
+        return key;
+    }
+
+    String route() {
+        return route;
+    }
+
+    static Scenario fromKey(String key) {
+        for (Scenario scenario : values()) {
+            if (scenario.key.equalsIgnoreCase(key.trim())) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scenario " + key);
+    }
+}
@@ -0,0 +1,101 @@
+package dev.pekelund.pklnd.receiptparser.legacy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parses the sample receipts in {@code local/receipts}. {@code codexParse} measures line parsing alone on text
+ * extracted once during setup; {@code legacyExtract} covers the full upload path including PDF text extraction
+ * and the JSON payload. Each operation processes every fixture once. Point {@code -Dpklnd.bench.receipts}
+ * at another directory to use different PDFs. Lives in the parser package because {@link StandardFormatParser}
+ * is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReceiptParserBenchmark {
+
+    private final CodexParser codexParser = new CodexParser();
+    private final ReceiptFormatDetector formatDetector = new ReceiptFormatDetector();
+    private final LegacyPdfReceiptExtractor extractor = new LegacyPdfReceiptExtractor(
+        new PdfParser(List.of(new CodexParser(), new StandardFormatParser()), new ReceiptFormatDetector()),
+        new ObjectMapper());
+
+    private final List<Fixture> fixtures = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        try (Stream<Path> files = Files.list(receiptsDirectory())) {
+            for (Path file : files.filter(path -> path.toString().toLowerCase().endsWith(".pdf")).sorted().toList()) {
+                byte[] bytes = Files.readAllBytes(file);
+                String[] lines = readLines(bytes);
+                fixtures.add(new Fixture(file.getFileName().toString(), bytes, lines, formatDetector.detectFormat(lines)));
+            }
+        }
+        if (fixtures.isEmpty()) {
+            throw new IllegalStateException("No PDF fixtures found in " + receiptsDirectory());
+        }
+    }
+
+    @Benchmark
+    public void codexParse(Blackhole blackhole) {
+        for (Fixture fixture : fixtures) {
+            blackhole.consume(codexParser.parse(fixture.lines(), fixture.format()));
+        }
+    }
+
+    @Benchmark
+    public void legacyExtract(Blackhole blackhole) {
+        for (Fixture fixture : fixtures) {
+            blackhole.consume(extractor.extract(fixture.pdf(), fixture.fileName()));
+        }
+    }
+
+    private static Path receiptsDirectory() {
+        String configured = System.getProperty("pklnd.bench.receipts");
+        if (configured != null) {
+            return Path.of(configured);
+        }
+        for (String candidate : List.of("local/receipts", "../local/receipts")) {
+            Path path = Path.of(candidate);
+            if (Files.isDirectory(path)) {
+                return path;
+            }
+        }
+        throw new IllegalStateException("Run from the repository root or set -Dpklnd.bench.receipts");
+    }
+
+    private static String[] readLines(byte[] pdf) {
+        try (PDDocument document = PDDocument.load(pdf)) {
+            return new PDFTextStripper().getText(document).split("\\r?\\n");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private record Fixture(String fileName, byte[] pdf, String[] lines, ReceiptFormat format) {
+    }
+}
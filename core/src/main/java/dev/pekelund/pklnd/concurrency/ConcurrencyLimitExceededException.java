@@ -0,0 +1,11 @@
+package dev.pekelund.pklnd.concurrency;
+
+/**
+ * Thrown when a call to a downstream service could not get a permit before the limiter's acquire timeout.
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+    public ConcurrencyLimitExceededException(String message) {
+        super(message);
+    }
+}
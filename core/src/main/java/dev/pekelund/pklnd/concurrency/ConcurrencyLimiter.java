@@ -0,0 +1,86 @@
+package dev.pekelund.pklnd.concurrency;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds how many calls to one downstream service (Cloud Storage, Firestore, Gemini) are in flight at once.
+ * Requests are handled on virtual threads, so the servlet thread pool no longer caps concurrency; this
+ * semaphore does, per dependency. A caller that cannot get a permit within the acquire timeout fails with
+ * {@link ConcurrencyLimitExceededException} rather than queueing behind a slow dependency indefinitely.
+ *
+ * <p>Use with try-with-resources so the permit is returned on every path:
+ * <pre>{@code
+ * try (ConcurrencyLimiter.Permit permit = limiter.acquire()) {
+ *     storage.create(blobInfo, content);
+ * }
+ * }</pre>
+ * A limit of zero or less disables the bound.
+ */
+public final class ConcurrencyLimiter {
+
+    private static final Permit UNLIMITED_PERMIT = () -> { };
+
+    private final String name;
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+
+    public ConcurrencyLimiter(String name, int limit, Duration acquireTimeout) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.permits = limit > 0 ? new Semaphore(limit, true) : null;
+        this.acquireTimeoutNanos = Objects.requireNonNull(acquireTimeout, "acquireTimeout").toNanos();
+    }
+
+    public static ConcurrencyLimiter unlimited(String name) {
+        return new ConcurrencyLimiter(name, 0, Duration.ZERO);
+    }
+
+    /**
+     * Waits up to the acquire timeout for a permit. Interrupting the waiting thread also fails the call,
+     * with the interrupt flag restored.
+     */
+    public Permit acquire() {
+        if (permits == null) {
+            return UNLIMITED_PERMIT;
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new ConcurrencyLimitExceededException("Too many concurrent " + name + " calls");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyLimitExceededException("Interrupted while waiting for a " + name + " permit");
+        }
+        return new SemaphorePermit(permits);
+    }
+
+    /**
+     * A held permit. Closing it more than once has no further effect.
+     */
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    private static final class SemaphorePermit implements Permit {
+
+        private final Semaphore semaphore;
+        private boolean released;
+
+        private SemaphorePermit(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                semaphore.release();
+            }
+        }
+    }
+}
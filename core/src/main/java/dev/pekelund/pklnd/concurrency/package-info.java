@@ -0,0 +1,4 @@
+@ApplicationModule(displayName = "Downstream concurrency limits", type = ApplicationModule.Type.OPEN)
+package dev.pekelund.pklnd.concurrency;
+
+import org.springframework.modulith.ApplicationModule;
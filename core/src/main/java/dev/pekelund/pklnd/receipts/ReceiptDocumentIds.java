@@ -0,0 +1,40 @@
+package dev.pekelund.pklnd.receipts;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Derives the Firestore document identifiers used for parsed receipts. The
+ * receipt processor writes documents under these identifiers and the web
+ * frontend uses the same derivation to address a receipt directly from its
+ * Cloud Storage location.
+ */
+public final class ReceiptDocumentIds {
+
+    private ReceiptDocumentIds() {
+    }
+
+    /**
+     * Returns the receipt document id for the object stored at
+     * {@code gs://bucket/objectName}.
+     */
+    public static String receiptId(String bucket, String objectName) {
+        Objects.requireNonNull(bucket, "bucket");
+        Objects.requireNonNull(objectName, "objectName");
+        String value = bucket + ":" + objectName;
+        UUID uuid = UUID.nameUUIDFromBytes(value.getBytes(StandardCharsets.UTF_8));
+        return uuid.toString().replace("-", "");
+    }
+
+    /**
+     * Returns the receipt item document id for the item at {@code index} of a
+     * receipt. The id stays the same across reparses as long as the item keeps
+     * its position and EAN, so unchanged items need not be rewritten.
+     */
+    public static String itemId(String receiptId, int index, String normalizedEan) {
+        Objects.requireNonNull(receiptId, "receiptId");
+        Objects.requireNonNull(normalizedEan, "normalizedEan");
+        return receiptId + "-" + index + "-" + normalizedEan;
+    }
+}
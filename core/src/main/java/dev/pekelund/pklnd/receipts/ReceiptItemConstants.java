@@ -21,6 +21,33 @@ public final class ReceiptItemConstants {
      */
     public static final String DEFAULT_ITEM_STATS_COLLECTION = "receiptItemStats";
 
+    /**
+     * Default Firestore collection holding a change counter per receipt owner
+     * (plus one under {@link #GLOBAL_OWNER_ID}). Every write that changes an
+     * owner's receipts increments the counter so readers can cheaply detect
+     * whether anything changed.
+     */
+    public static final String DEFAULT_RECEIPT_DATA_VERSIONS_COLLECTION = "receiptDataVersions";
+
+    /**
+     * Default Firestore collection holding the compressed raw model response
+     * and OCR text of each receipt, keyed by the receipt document id. Kept
+     * apart so that reading a receipt does not transfer these payloads.
+     */
+    public static final String DEFAULT_RECEIPT_PAYLOADS_COLLECTION = "receiptPayloads";
+
+    /**
+     * Default Firestore collection holding one price history series per owner
+     * and EAN. See {@link ReceiptPriceHistory} for the document layout.
+     */
+    public static final String DEFAULT_PRICE_HISTORY_COLLECTION = "priceHistory";
+
+    /**
+     * Receipt document field holding the number of entries in {@code data.items},
+     * so totals across all receipts can be summed without reading the items.
+     */
+    public static final String ITEM_COUNT_FIELD = "itemCount";
+
     /**
      * Synthetic owner identifier used for item statistics that span all
      * accounts. The same value must be used by both the receipt processor and
@@ -0,0 +1,124 @@
+package dev.pekelund.pklnd.receipts;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves prices from the item maps stored with parsed receipts. The receipt
+ * processor uses it to record price history points and the web frontend to
+ * display purchases, so both report the same price for an item.
+ */
+public final class ReceiptItemPrices {
+
+    private static final Pattern QUANTITY_VALUE_PATTERN = Pattern.compile("([-+]?\\d+(?:[.,]\\d+)?)");
+
+    private ReceiptItemPrices() {
+    }
+
+    /**
+     * Returns the line total of {@code item}, or {@code null} when it has none.
+     */
+    public static BigDecimal totalPrice(Map<String, Object> item) {
+        BigDecimal totalPrice = parseAmount(item.get("totalPrice"));
+        if (totalPrice == null) {
+            totalPrice = parseAmount(item.get("displayTotalPrice"));
+        }
+        return totalPrice;
+    }
+
+    /**
+     * Returns the price per unit of {@code item}, deriving it from the line
+     * total and quantity when the item does not state one.
+     */
+    public static BigDecimal unitPrice(Map<String, Object> item, BigDecimal totalPrice) {
+        BigDecimal unitPrice = parseAmount(item.get("unitPrice"));
+        if (unitPrice == null) {
+            unitPrice = parseAmount(item.get("displayUnitPrice"));
+        }
+        if (unitPrice != null) {
+            return unitPrice;
+        }
+
+        BigDecimal effectiveTotal = totalPrice != null ? totalPrice : totalPrice(item);
+        if (effectiveTotal == null) {
+            return null;
+        }
+
+        BigDecimal quantity = parseQuantity(item.get("quantity"));
+        if (quantity == null || quantity.compareTo(BigDecimal.ZERO) == 0) {
+            quantity = parseQuantity(item.get("displayQuantity"));
+        }
+        if (quantity == null || quantity.compareTo(BigDecimal.ZERO) == 0) {
+            return null;
+        }
+
+        try {
+            return effectiveTotal.divide(quantity, 2, RoundingMode.HALF_UP);
+        } catch (ArithmeticException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the price plotted in price histories: the unit price when known,
+     * otherwise the line total, rounded to two decimals.
+     */
+    public static BigDecimal chartPrice(Map<String, Object> item) {
+        BigDecimal totalPrice = totalPrice(item);
+        BigDecimal unitPrice = unitPrice(item, totalPrice);
+        BigDecimal resolved = unitPrice != null ? unitPrice : totalPrice;
+        return resolved != null ? resolved.setScale(2, RoundingMode.HALF_UP) : null;
+    }
+
+    public static BigDecimal parseAmount(Object value) {
+        if (value instanceof BigDecimal bigDecimal) {
+            return bigDecimal;
+        }
+        if (value instanceof Number number) {
+            try {
+                return new BigDecimal(number.toString());
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+        if (value instanceof String stringValue) {
+            String normalized = stringValue.replace('\u00A0', ' ').trim();
+            if (normalized.isEmpty()) {
+                return null;
+            }
+            normalized = normalized.replace(" ", "");
+            normalized = normalized.replace(',', '.');
+            try {
+                return new BigDecimal(normalized);
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static BigDecimal parseQuantity(Object rawQuantity) {
+        if (rawQuantity == null) {
+            return null;
+        }
+        String text = rawQuantity.toString().replace('\u00A0', ' ').trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+
+        Matcher matcher = QUANTITY_VALUE_PATTERN.matcher(text);
+        if (!matcher.find()) {
+            return null;
+        }
+
+        String numeric = matcher.group(1).replace(" ", "").replace(',', '.');
+        try {
+            return new BigDecimal(numeric);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
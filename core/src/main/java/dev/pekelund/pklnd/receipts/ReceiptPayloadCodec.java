@@ -0,0 +1,50 @@
+package dev.pekelund.pklnd.receipts;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses the raw receipt payloads stored in
+ * {@link ReceiptItemConstants#DEFAULT_RECEIPT_PAYLOADS_COLLECTION}. Both the
+ * receipt processor, which writes them, and the web frontend, which reads
+ * them, must use this codec.
+ */
+public final class ReceiptPayloadCodec {
+
+    /**
+     * Value of the {@code encoding} field written next to compressed payloads.
+     */
+    public static final String ENCODING = "gzip";
+
+    private ReceiptPayloadCodec() {
+    }
+
+    public static byte[] compress(String value) {
+        if (value == null) {
+            return null;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, value.length() / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(value.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to compress receipt payload", ex);
+        }
+        return buffer.toByteArray();
+    }
+
+    public static String decompress(byte[] compressed) {
+        if (compressed == null) {
+            return null;
+        }
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to decompress receipt payload", ex);
+        }
+    }
+}
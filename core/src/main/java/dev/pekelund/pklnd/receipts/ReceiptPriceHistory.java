@@ -0,0 +1,35 @@
+package dev.pekelund.pklnd.receipts;
+
+/**
+ * Layout of the price history series stored in
+ * {@link ReceiptItemConstants#DEFAULT_PRICE_HISTORY_COLLECTION}. Each series
+ * document is keyed by {@code owner#ean} and keeps its points in a map keyed by
+ * receipt id, so a receipt's points can be replaced or removed in the same
+ * write batch that updates its items:
+ *
+ * <pre>
+ * { ownerId, normalizedEan, updatedAt,
+ *   points: { &lt;receiptId&gt;: [ { date, price, store }, ... ] } }
+ * </pre>
+ *
+ * {@code date} is an ISO-8601 date, {@code price} the plain decimal string from
+ * {@link ReceiptItemPrices#chartPrice}. The receipt processor writes the
+ * series and the web frontend reads them. Series exist per owner only; there
+ * is no {@link ReceiptItemConstants#GLOBAL_OWNER_ID} series, because one
+ * document holding every owner's purchases of a common EAN would outgrow
+ * Firestore's document size limit.
+ */
+public final class ReceiptPriceHistory {
+
+    public static final String POINTS_FIELD = "points";
+    public static final String DATE_FIELD = "date";
+    public static final String PRICE_FIELD = "price";
+    public static final String STORE_FIELD = "store";
+
+    private ReceiptPriceHistory() {
+    }
+
+    public static String seriesId(String ownerId, String normalizedEan) {
+        return ownerId + "#" + normalizedEan;
+    }
+}
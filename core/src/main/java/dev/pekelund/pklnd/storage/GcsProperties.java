@@ -1,5 +1,6 @@
 package dev.pekelund.pklnd.storage;
 
+import java.time.Duration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties(prefix = "gcs")
@@ -26,6 +27,16 @@ public class GcsProperties {
      */
     private String bucket;
 
+    /**
+     * Maximum number of Cloud Storage calls in flight per instance. Zero or less removes the bound.
+     */
+    private int maxConcurrentRequests = 32;
+
+    /**
+     * How long a call waits for a free slot before failing.
+     */
+    private Duration acquireTimeout = Duration.ofSeconds(30);
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -57,5 +68,20 @@ public class GcsProperties {
     public void setBucket(String bucket) {
         this.bucket = bucket;
     }
-}
 
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public Duration getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public void setAcquireTimeout(Duration acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+}
@@ -5,6 +5,8 @@ import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.BlobInfo;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageException;
+import dev.pekelund.pklnd.concurrency.ConcurrencyLimitExceededException;
+import dev.pekelund.pklnd.concurrency.ConcurrencyLimiter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
@@ -43,13 +45,17 @@ public class GcsReceiptStorageService implements ReceiptStorageService {
     private static final String CONTENT_HASH_METADATA_KEY = "content-sha256";
     private static final String HASH_INDEX_PREFIX = ".receipt-hashes/";
     private static final int HASH_PREFIX_LENGTH = 4;
+    private static final int DELETE_BATCH_SIZE = 100;
 
     private final Storage storage;
     private final GcsProperties properties;
+    private final ConcurrencyLimiter limiter;
 
     public GcsReceiptStorageService(Storage storage, GcsProperties properties) {
         this.storage = storage;
         this.properties = properties;
+        this.limiter = new ConcurrencyLimiter("Cloud Storage", properties.getMaxConcurrentRequests(),
+            properties.getAcquireTimeout());
         Assert.isTrue(StringUtils.hasText(properties.getBucket()),
             "gcs.bucket must be configured when Google Cloud Storage is enabled");
     }
@@ -61,7 +67,7 @@ public class GcsReceiptStorageService implements ReceiptStorageService {
 
     @Override
     public List<ReceiptFile> listReceipts() {
-        try {
+        try (ConcurrencyLimiter.Permit permit = acquirePermit()) {
             Iterable<Blob> blobs = storage.list(properties.getBucket()).iterateAll();
             List<ReceiptFile> files = new ArrayList<>();
             for (Blob blob : blobs) {
@@ -104,7 +110,7 @@ public class GcsReceiptStorageService implements ReceiptStorageService {
         if (!StringUtils.hasText(objectName)) {
             return false;
         }
-        try {
+        try (ConcurrencyLimiter.Permit permit = acquirePermit()) {
             Blob blob = storage.get(BlobId.of(properties.getBucket(), objectName));
             return blob != null && blob.exists();
         } catch (StorageException ex) {
@@ -125,7 +131,7 @@ public class GcsReceiptStorageService implements ReceiptStorageService {
             String originalFilename = file.getOriginalFilename();
             String displayName = StringUtils.hasText(originalFilename) ? originalFilename : "file";
             
-            try {
+            try (ConcurrencyLimiter.Permit permit = acquirePermit()) {
                 // Read file content once for both hash calculation and upload
                 byte[] fileContent;
                 try (InputStream inputStream = file.getInputStream()) {
@@ -207,13 +213,19 @@ public class GcsReceiptStorageService implements ReceiptStorageService {
         return result.uploadedReceipts();
     }
 
+    /**
+     * Deletes the owner's receipt files and their hash index entries. The owner is only recorded in object
+     * metadata, so the bucket is listed once and the matching objects are then removed with batched delete
+     * requests of up to {@value #DELETE_BATCH_SIZE} objects each.
+     */
     @Override
     public void deleteReceiptsForOwner(ReceiptOwner owner) {
         if (owner == null) {
             return;
         }
 
-        try {
+        try (ConcurrencyLimiter.Permit permit = acquirePermit()) {
+            List<BlobId> toDelete = new ArrayList<>();
             Iterable<Blob> blobs = storage.list(properties.getBucket()).iterateAll();
             for (Blob blob : blobs) {
                 if (blob.isDirectory()) {
@@ -223,45 +235,67 @@ public class GcsReceiptStorageService implements ReceiptStorageService {
                 if (!ReceiptOwnerMatcher.belongsToCurrentOwner(fileOwner, owner)) {
                     continue;
                 }
-                
-                // Delete hash index entry if this is a receipt file
+
                 if (!blob.getName().startsWith(HASH_INDEX_PREFIX)) {
-                    deleteHashIndexEntry(blob);
+                    BlobId indexEntry = hashIndexEntry(blob);
+                    if (indexEntry != null) {
+                        toDelete.add(indexEntry);
+                    }
                 }
-                
-                // Delete the blob itself
-                storage.delete(blob.getBlobId());
+                toDelete.add(blob.getBlobId());
+            }
+
+            // Storage reports false for objects it could not delete. A missing hash index entry is expected for
+            // receipts uploaded before the index existed, so only receipt objects count as failures.
+            List<String> notDeleted = new ArrayList<>();
+            for (int start = 0; start < toDelete.size(); start += DELETE_BATCH_SIZE) {
+                List<BlobId> batch = toDelete.subList(start, Math.min(toDelete.size(), start + DELETE_BATCH_SIZE));
+                List<Boolean> deleted = storage.delete(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    String name = batch.get(i).getName();
+                    boolean removed = i < deleted.size() && Boolean.TRUE.equals(deleted.get(i));
+                    if (!removed && !name.startsWith(HASH_INDEX_PREFIX)) {
+                        notDeleted.add(name);
+                    }
+                }
+            }
+            if (!notDeleted.isEmpty()) {
+                LOGGER.warn("Failed to delete {} receipt files for owner {}: {}", notDeleted.size(), owner.id(),
+                    notDeleted);
+                throw new ReceiptStorageException(
+                    "Unable to delete " + notDeleted.size() + " of the receipt files");
             }
         } catch (StorageException ex) {
             throw new ReceiptStorageException("Unable to delete receipt files", ex);
         }
     }
-    
-    private void deleteHashIndexEntry(Blob receiptBlob) {
+
+    /**
+     * Takes one of the {@code gcs.max-concurrent-requests} slots. Each public operation holds a single slot
+     * for all the Cloud Storage calls it makes, so nested calls never wait on their own caller.
+     */
+    private ConcurrencyLimiter.Permit acquirePermit() {
         try {
-            Map<String, String> metadata = receiptBlob.getMetadata();
-            if (metadata == null) {
-                return;
-            }
-            
-            String contentHash = metadata.get(CONTENT_HASH_METADATA_KEY);
-            // SHA-256 produces 64-character hex string; validate proper length and format
-            if (!isValidSha256Hash(contentHash)) {
-                LOGGER.debug("Skipping hash index cleanup for {}: invalid or missing hash", receiptBlob.getName());
-                return;
-            }
-            
-            String hashPrefix = contentHash.substring(0, HASH_PREFIX_LENGTH);
-            String indexPath = HASH_INDEX_PREFIX + hashPrefix + "/" + contentHash;
-            
-            BlobId indexBlobId = BlobId.of(properties.getBucket(), indexPath);
-            storage.delete(indexBlobId);
-        } catch (StorageException ex) {
-            // Log but don't fail the delete operation
-            LOGGER.warn("Failed to delete hash index entry for {}: {}", receiptBlob.getName(), ex.getMessage());
+            return limiter.acquire();
+        } catch (ConcurrencyLimitExceededException ex) {
+            throw new ReceiptStorageException("Cloud Storage is busy, please try again shortly", ex);
         }
     }
 
+    /**
+     * Returns the hash index entry of a receipt file, or {@code null} when its metadata has no valid hash.
+     */
+    private BlobId hashIndexEntry(Blob receiptBlob) {
+        Map<String, String> metadata = receiptBlob.getMetadata();
+        String contentHash = metadata != null ? metadata.get(CONTENT_HASH_METADATA_KEY) : null;
+        if (!isValidSha256Hash(contentHash)) {
+            LOGGER.debug("Skipping hash index cleanup for {}: invalid or missing hash", receiptBlob.getName());
+            return null;
+        }
+        String hashPrefix = contentHash.substring(0, HASH_PREFIX_LENGTH);
+        return BlobId.of(properties.getBucket(), HASH_INDEX_PREFIX + hashPrefix + "/" + contentHash);
+    }
+    
     private String buildObjectName(String originalFilename) {
         String filename = StringUtils.hasText(originalFilename) ? originalFilename : "receipt";
         filename = extractFilename(filename);
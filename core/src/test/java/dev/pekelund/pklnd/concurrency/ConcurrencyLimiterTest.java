@@ -0,0 +1,49 @@
+package dev.pekelund.pklnd.concurrency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    void rejectsCallsBeyondTheLimitUntilAPermitIsReturned() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("storage", 1, Duration.ofMillis(10));
+
+        ConcurrencyLimiter.Permit held = limiter.acquire();
+        assertThatThrownBy(limiter::acquire)
+            .isInstanceOf(ConcurrencyLimitExceededException.class)
+            .hasMessage("Too many concurrent storage calls");
+
+        held.close();
+        held.close();
+        try (ConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            assertThatThrownBy(limiter::acquire).isInstanceOf(ConcurrencyLimitExceededException.class);
+        }
+    }
+
+    @Test
+    void interruptedWaitFailsAndKeepsTheInterruptFlag() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("gemini", 1, Duration.ofSeconds(5));
+        limiter.acquire();
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThatThrownBy(limiter::acquire).isInstanceOf(ConcurrencyLimitExceededException.class);
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void unlimitedNeverBlocks() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.unlimited("firestore");
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire();
+        }
+    }
+}
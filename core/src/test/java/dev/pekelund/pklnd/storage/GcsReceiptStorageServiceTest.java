@@ -215,13 +215,36 @@ class GcsReceiptStorageServiceTest {
         Page<Blob> page = mock(Page.class);
         when(page.iterateAll()).thenReturn(List.of(receiptBlob));
         when(storage.list("test-bucket")).thenReturn(page);
+        List<BlobId> expectedBatch = List.of(
+            BlobId.of("test-bucket", ".receipt-hashes/aaaa/" + contentHash),
+            BlobId.of("test-bucket", "receipt-file.pdf"));
+        when(storage.delete(expectedBatch)).thenReturn(List.of(true, true));
         
         service.deleteReceiptsForOwner(owner);
         
-        // Verify receipt was deleted
-        verify(storage).delete(receiptBlob.getBlobId());
-        // Verify hash index was also deleted
-        verify(storage).delete(BlobId.of("test-bucket", ".receipt-hashes/aaaa/" + contentHash));
+        // Verify the receipt and its hash index entry were deleted in one batch
+        verify(storage).delete(expectedBatch);
+    }
+
+    @Test
+    void failsWhenAReceiptFileIsNotDeleted() {
+        ReceiptOwner owner = new ReceiptOwner("user-123", "Test User", "test@example.com");
+
+        Blob receiptBlob = mock(Blob.class);
+        when(receiptBlob.isDirectory()).thenReturn(false);
+        when(receiptBlob.getName()).thenReturn("receipt-file.pdf");
+        when(receiptBlob.getMetadata()).thenReturn(new HashMap<>(owner.toMetadata()));
+        when(receiptBlob.getBlobId()).thenReturn(BlobId.of("test-bucket", "receipt-file.pdf"));
+
+        @SuppressWarnings("unchecked")
+        Page<Blob> page = mock(Page.class);
+        when(page.iterateAll()).thenReturn(List.of(receiptBlob));
+        when(storage.list("test-bucket")).thenReturn(page);
+        when(storage.delete(List.of(BlobId.of("test-bucket", "receipt-file.pdf")))).thenReturn(List.of(false));
+
+        assertThatThrownBy(() -> service.deleteReceiptsForOwner(owner))
+            .isInstanceOf(ReceiptStorageException.class)
+            .hasMessageContaining("1 of the receipt files");
     }
 
     @Test
@@ -2,6 +2,7 @@ package dev.pekelund.pklnd.receiptparser;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.pekelund.pklnd.concurrency.ConcurrencyLimiter;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Base64;
@@ -39,17 +40,39 @@ public class AIReceiptExtractor implements ReceiptDataExtractor {
     private final ObjectMapper objectMapper;
     private final ChatOptions defaultChatOptions;
     private final BeanOutputConverter<ReceiptStructuredOutput> receiptOutputConverter;
+    private final ReceiptProcessingMetrics metrics;
+    private final ConcurrencyLimiter geminiLimiter;
 
     public AIReceiptExtractor(ChatModel chatModel, ObjectMapper objectMapper, ChatOptions defaultChatOptions) {
+        this(chatModel, objectMapper, defaultChatOptions, ReceiptProcessingMetrics.NOOP,
+            ConcurrencyLimiter.unlimited("Gemini"));
+    }
+
+    public AIReceiptExtractor(ChatModel chatModel, ObjectMapper objectMapper, ChatOptions defaultChatOptions,
+        ReceiptProcessingMetrics metrics, ConcurrencyLimiter geminiLimiter) {
         this.chatModel = chatModel;
         this.objectMapper = objectMapper;
         this.defaultChatOptions = defaultChatOptions;
+        this.metrics = ReceiptProcessingMetrics.orNoop(metrics);
+        this.geminiLimiter = geminiLimiter;
         this.receiptOutputConverter = new BeanOutputConverter<>(ReceiptStructuredOutput.class, objectMapper);
         LOGGER.info("constructing AIReceiptExtractor");
     }
 
     @Override
     public ReceiptExtractionResult extract(byte[] pdfBytes, String fileName) {
+        long startNanos = System.nanoTime();
+        String outcome = "error";
+        try {
+            ReceiptExtractionResult result = callModel(pdfBytes, fileName);
+            outcome = "success";
+            return result;
+        } finally {
+            metrics.recordExtraction("gemini", outcome, startNanos);
+        }
+    }
+
+    private ReceiptExtractionResult callModel(byte[] pdfBytes, String fileName) {
         LOGGER.info("extract called with pdfBytes length: {}, fileName: {}", pdfBytes != null ? pdfBytes.length : null, fileName);
         if (pdfBytes == null || pdfBytes.length == 0) {
             LOGGER.info("null and length == 0");
@@ -59,6 +82,8 @@ public class AIReceiptExtractor implements ReceiptDataExtractor {
         String encoded = Base64.getEncoder().encodeToString(pdfBytes);
         String prompt = buildPrompt(encoded, fileName);
 
+        metrics.recordAiPromptSize(prompt.length());
+
         ChatOptions effectiveOptions = resolveChatOptions();
         LOGGER.info("AIReceiptExtractor invoking model '{}' with prompt length {} characters (base64 payload {} characters)",
             resolveModelName(effectiveOptions), prompt.length(), encoded.length());
@@ -75,7 +100,10 @@ public class AIReceiptExtractor implements ReceiptDataExtractor {
         Prompt request = effectiveOptions != null
             ? new Prompt(new UserMessage(prompt), effectiveOptions)
             : new Prompt(new UserMessage(prompt));
-        ChatResponse chatResponse = chatModel.call(request);
+        ChatResponse chatResponse;
+        try (ConcurrencyLimiter.Permit permit = geminiLimiter.acquire()) {
+            chatResponse = chatModel.call(request);
+        }
         if (chatResponse == null || chatResponse.getResult() == null) {
             throw new ReceiptParsingException("Gemini returned an empty response");
         }
@@ -90,6 +118,7 @@ public class AIReceiptExtractor implements ReceiptDataExtractor {
             throw new ReceiptParsingException("Gemini returned an empty response");
         }
 
+        metrics.recordAiResponseSize(response.length());
         LOGGER.info("Gemini raw response: {}", response);
 
         String sanitised = sanitiseResponse(response);
@@ -16,33 +16,54 @@ public class HybridReceiptExtractor implements ReceiptDataExtractor {
     private final LegacyPdfReceiptExtractor legacyExtractor;
     private final AIReceiptExtractor aiReceiptExtractor;
     private final ObjectMapper objectMapper;
+    private final ReceiptProcessingMetrics metrics;
 
     public HybridReceiptExtractor(LegacyPdfReceiptExtractor legacyExtractor, AIReceiptExtractor aiReceiptExtractor,
         ObjectMapper objectMapper) {
+        this(legacyExtractor, aiReceiptExtractor, objectMapper, ReceiptProcessingMetrics.NOOP);
+    }
+
+    public HybridReceiptExtractor(LegacyPdfReceiptExtractor legacyExtractor, AIReceiptExtractor aiReceiptExtractor,
+        ObjectMapper objectMapper, ReceiptProcessingMetrics metrics) {
         this.legacyExtractor = legacyExtractor;
         this.aiReceiptExtractor = aiReceiptExtractor;
         this.objectMapper = objectMapper;
+        this.metrics = ReceiptProcessingMetrics.orNoop(metrics);
     }
 
     @Override
     public ReceiptExtractionResult extract(byte[] pdfBytes, String fileName) {
+        long startNanos = System.nanoTime();
         LOGGER.info("Hybrid extractor starting for file {}", fileName);
         ReceiptExtractionResult legacyResult = null;
+        String legacyOutcome = "error";
         try {
             legacyResult = legacyExtractor.extract(pdfBytes, fileName);
             LOGGER.info("Legacy parser returned structured data keys: {}", legacyResult != null
                 && legacyResult.structuredData() != null ? legacyResult.structuredData().keySet() : null);
             if (isUsable(legacyResult, fileName)) {
                 LOGGER.info("Using legacy PDF parser result for file {}", fileName);
+                legacyOutcome = "success";
+                metrics.recordExtraction("hybrid", "legacy", startNanos);
                 return legacyResult;
             }
+            legacyOutcome = "unusable";
             LOGGER.info("Legacy parser result for file {} lacked required data; falling back to Gemini", fileName);
         } catch (ReceiptParsingException ex) {
             LOGGER.warn("Legacy parser failed for file {} - {}", fileName, ex.getMessage());
             legacyResult = null;
+        } finally {
+            metrics.recordExtraction("legacy", legacyOutcome, startNanos);
         }
 
-        ReceiptExtractionResult aiResult = aiReceiptExtractor.extract(pdfBytes, fileName);
+        ReceiptExtractionResult aiResult;
+        try {
+            aiResult = aiReceiptExtractor.extract(pdfBytes, fileName);
+        } catch (RuntimeException ex) {
+            metrics.recordExtraction("hybrid", "error", startNanos);
+            throw ex;
+        }
+        metrics.recordExtraction("hybrid", "fallback", startNanos);
         if (legacyResult == null) {
             return aiResult;
         }
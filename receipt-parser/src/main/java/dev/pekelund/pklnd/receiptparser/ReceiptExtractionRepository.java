@@ -1,21 +1,38 @@
 package dev.pekelund.pklnd.receiptparser;
 
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
 import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Blob;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.FieldValue;
 import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Precondition;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.SetOptions;
 import com.google.cloud.firestore.WriteBatch;
+import dev.pekelund.pklnd.concurrency.ConcurrencyLimitExceededException;
+import dev.pekelund.pklnd.concurrency.ConcurrencyLimiter;
+import dev.pekelund.pklnd.receipts.ReceiptDocumentIds;
 import dev.pekelund.pklnd.receipts.ReceiptItemConstants;
+import dev.pekelund.pklnd.receipts.ReceiptItemPrices;
+import dev.pekelund.pklnd.receipts.ReceiptPayloadCodec;
+import dev.pekelund.pklnd.receipts.ReceiptPriceHistory;
 import dev.pekelund.pklnd.storage.ReceiptOwner;
-import java.nio.charset.StandardCharsets;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -23,8 +40,11 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.slf4j.Logger;
@@ -32,27 +52,66 @@ import org.slf4j.LoggerFactory;
 import org.springframework.util.StringUtils;
 
 /**
- * Persists receipt extraction results and status updates in Firestore.
+ * Persists receipt extraction results and status updates in Firestore. A write commits the receipt document
+ * together with a pending marker; the receipt's items, item statistics and price history are then brought in
+ * line by {@link #synchronizeItems(String)} on the item sync executor, and the marker is cleared once that is
+ * done.
  */
 public class ReceiptExtractionRepository {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ReceiptExtractionRepository.class);
     private static final Pattern EAN_PATTERN = Pattern.compile("(\\d{8,14})");
+    // Leaves headroom below Firestore's 1 MiB document limit for the remaining payload fields.
+    private static final int MAX_COMPRESSED_PAYLOAD_BYTES = 900 * 1024;
+    // Firestore rejects batched writes with more than 500 operations.
+    static final int MAX_BATCH_WRITES = 500;
+    private static final String ITEM_SYNC_PENDING_FIELD = "itemSyncPendingAt";
+    private static final int ITEM_SYNC_SWEEP_LIMIT = 100;
 
     private final Firestore firestore;
     private final String collectionName;
     private final String itemsCollectionName;
     private final String itemStatsCollectionName;
+    private final String dataVersionsCollectionName;
+    private final String payloadsCollectionName;
+    private final String priceHistoryCollectionName;
+    private final ReceiptProcessingMetrics metrics;
+    private final ConcurrencyLimiter firestoreLimiter;
+    private final Executor itemSyncExecutor;
+    // TRUE while a sync is requested but not yet started, FALSE while one is running without a newer request.
+    private final Map<String, Boolean> scheduledItemSyncs = new ConcurrentHashMap<>();
 
     public ReceiptExtractionRepository(Firestore firestore, String collectionName,
-        String itemsCollectionName, String itemStatsCollectionName) {
+        String itemsCollectionName, String itemStatsCollectionName, String dataVersionsCollectionName,
+        String payloadsCollectionName, String priceHistoryCollectionName) {
+        this(firestore, collectionName, itemsCollectionName, itemStatsCollectionName, dataVersionsCollectionName,
+            payloadsCollectionName, priceHistoryCollectionName, ReceiptProcessingMetrics.NOOP,
+            ConcurrencyLimiter.unlimited("Firestore"), Runnable::run);
+    }
+
+    /**
+     * @param itemSyncExecutor runs the item synchronisation that follows each receipt write; a direct executor
+     * makes the write return only once its items are in place
+     */
+    public ReceiptExtractionRepository(Firestore firestore, String collectionName,
+        String itemsCollectionName, String itemStatsCollectionName, String dataVersionsCollectionName,
+        String payloadsCollectionName, String priceHistoryCollectionName, ReceiptProcessingMetrics metrics,
+        ConcurrencyLimiter firestoreLimiter, Executor itemSyncExecutor) {
 
         this.firestore = Objects.requireNonNull(firestore, "firestore");
         this.collectionName = Objects.requireNonNull(collectionName, "collectionName");
         this.itemsCollectionName = Objects.requireNonNull(itemsCollectionName, "itemsCollectionName");
         this.itemStatsCollectionName = Objects.requireNonNull(itemStatsCollectionName, "itemStatsCollectionName");
-        LOGGER.info("ReceiptExtractionRepository initialized with collections receipts='{}', items='{}', stats='{}'",
-            collectionName, itemsCollectionName, itemStatsCollectionName);
+        this.dataVersionsCollectionName = Objects.requireNonNull(dataVersionsCollectionName, "dataVersionsCollectionName");
+        this.payloadsCollectionName = Objects.requireNonNull(payloadsCollectionName, "payloadsCollectionName");
+        this.priceHistoryCollectionName = Objects.requireNonNull(priceHistoryCollectionName,
+            "priceHistoryCollectionName");
+        this.metrics = ReceiptProcessingMetrics.orNoop(metrics);
+        this.firestoreLimiter = Objects.requireNonNull(firestoreLimiter, "firestoreLimiter");
+        this.itemSyncExecutor = Objects.requireNonNull(itemSyncExecutor, "itemSyncExecutor");
+        LOGGER.info("ReceiptExtractionRepository initialized with collections receipts='{}', items='{}', stats='{}', versions='{}',"
+            + " payloads='{}', priceHistory='{}'", collectionName, itemsCollectionName, itemStatsCollectionName,
+            dataVersionsCollectionName, payloadsCollectionName, priceHistoryCollectionName);
     }
 
     public void markStatus(String bucket, String objectName, ReceiptOwner owner,
@@ -110,7 +169,7 @@ public class ReceiptExtractionRepository {
         String documentId = buildDocumentId(bucket, objectName);
         Timestamp updateTimestamp = Timestamp.now();
 
-        try {
+        try (ConcurrencyLimiter.Permit permit = firestoreLimiter.acquire()) {
             DocumentReference documentReference = firestore.collection(collectionName).document(documentId);
 
             Map<String, Object> payload = new HashMap<>();
@@ -126,12 +185,16 @@ public class ReceiptExtractionRepository {
             }
 
             Map<String, Object> structuredData = extractionResult != null ? extractionResult.structuredData() : null;
-            Map<String, Object> general = extractGeneral(structuredData);
-            List<Map<String, Object>> items = extractItems(structuredData);
 
+            Map<String, Object> rawPayload = null;
             if (extractionResult != null) {
-                payload.put("data", structuredData);
-                payload.put("rawResponse", extractionResult.rawResponse());
+                DetachedRawText detached = detachRawText(structuredData);
+                payload.put("data", detached.structuredData());
+                payload.put(ReceiptItemConstants.ITEM_COUNT_FIELD, countItems(detached.structuredData()));
+                payload.put("rawResponse", FieldValue.delete());
+                rawPayload = buildRawPayload(documentId, owner, extractionResult.rawResponse(), detached.rawText(),
+                    updateTimestamp);
+                payload.put("rawPayloadId", documentId);
             }
 
             if (errorMessage != null) {
@@ -142,12 +205,8 @@ public class ReceiptExtractionRepository {
                 payload.put("stackTrace", stackTrace);
             }
 
-            ItemSyncPlan syncPlan = determineSyncPlan(documentId, objectName, owner, status, general, items,
-                updateTimestamp);
-
-            Object historyPayload = syncPlan.historyValue() != null ? syncPlan.historyValue().toPayload() : null;
-            if (historyPayload != null) {
-                payload.put("itemHistory", historyPayload);
+            if (requiresItemSync(status)) {
+                payload.put(ITEM_SYNC_PENDING_FIELD, updateTimestamp);
             }
 
             if (status == ReceiptProcessingStatus.COMPLETED) {
@@ -162,8 +221,12 @@ public class ReceiptExtractionRepository {
 
             WriteBatch batch = firestore.batch();
             batch.set(documentReference, payload, SetOptions.merge());
-            applyItemSyncPlan(batch, syncPlan, updateTimestamp);
+            if (rawPayload != null) {
+                batch.set(firestore.collection(payloadsCollectionName).document(documentId), rawPayload);
+            }
+            applyDataVersionIncrements(batch, owner, updateTimestamp);
 
+            metrics.recordFirestoreBatchSize(batch.getMutationsSize());
             batch.commit().get();
             LOGGER.info("Firestore document {}/{} successfully updated", collectionName, documentId);
         } catch (InterruptedException ex) {
@@ -173,73 +236,297 @@ public class ReceiptExtractionRepository {
         } catch (ExecutionException ex) {
             LOGGER.error("ExecutionException while writing Firestore document {}/{}", collectionName, documentId, ex);
             throw new ReceiptParsingException("Failed to store receipt data in Firestore", ex);
+        } catch (ConcurrencyLimitExceededException ex) {
+            LOGGER.error("No Firestore permit to write document {}/{}", collectionName, documentId, ex);
+            throw new ReceiptParsingException("Failed to store receipt data in Firestore", ex);
+        }
+
+        if (requiresItemSync(status)) {
+            requestItemSync(documentId);
         }
     }
 
-    private ItemSyncPlan determineSyncPlan(String documentId, String objectName, ReceiptOwner owner,
-        ReceiptProcessingStatus status, Map<String, Object> general, List<Map<String, Object>> items,
-        Timestamp updatedAt)
+    /**
+     * Counts the entries of {@code data.items} the way the web frontend lists them, EAN or not.
+     */
+    static long countItems(Map<String, Object> structuredData) {
+        if (structuredData == null || !(structuredData.get("items") instanceof List<?> items)) {
+            return 0L;
+        }
+        return items.stream().filter(Map.class::isInstance).count();
+    }
+
+    private static boolean requiresItemSync(ReceiptProcessingStatus status) {
+        return status == ReceiptProcessingStatus.COMPLETED || status == ReceiptProcessingStatus.FAILED
+            || status == ReceiptProcessingStatus.SKIPPED;
+    }
+
+    /**
+     * Brings the {@code receiptItems}, item statistics and price history of a receipt in line with the receipt
+     * document as it is stored now, then clears its pending marker. The writes are committed in batches of at
+     * most {@value #MAX_BATCH_WRITES} operations; each item write travels with its statistics increments, so
+     * every batch leaves counts and items consistent and a sync interrupted halfway converges when it runs
+     * again. If the receipt or its items change meanwhile, the marker is left for the next sync.
+     *
+     * <p>Each read and batch commit takes its own Firestore permit, so a sync spanning many batches, such as
+     * several resumed by the sweeper, never holds permits that receipt writes are waiting for.</p>
+     */
+    public void synchronizeItems(String documentId) {
+        long started = System.nanoTime();
+        try {
+            DocumentReference receiptReference = firestore.collection(collectionName).document(documentId);
+            DocumentSnapshot receipt = withPermit(receiptReference::get);
+            ItemSyncPlan plan = planItemSync(documentId, receipt);
+
+            for (SyncChunk chunk : partition(plan.writes(), MAX_BATCH_WRITES)) {
+                WriteBatch batch = firestore.batch();
+                applyChunk(batch, chunk, plan.metadata(), plan.updatedAt());
+                metrics.recordFirestoreBatchSize(batch.getMutationsSize());
+                withPermit(batch::commit);
+            }
+
+            WriteBatch completion = firestore.batch();
+            if (receipt.exists()) {
+                Map<String, Object> fields = new HashMap<>();
+                fields.put(ITEM_SYNC_PENDING_FIELD, FieldValue.delete());
+                if (plan.historyValue() != null) {
+                    fields.put("itemHistory", plan.historyValue().toPayload());
+                }
+                completion.update(receiptReference, fields, Precondition.updatedAt(receipt.getUpdateTime()));
+            }
+            applyDataVersionIncrements(completion, plan.owner(), Timestamp.now());
+            withPermit(completion::commit);
+            LOGGER.info("Synchronised {} item writes for receipt {}", plan.writes().size(), documentId);
+            metrics.recordItemSync("synced", started);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            metrics.recordItemSync("failed", started);
+            throw new ReceiptParsingException("Interrupted while synchronising receipt items", ex);
+        } catch (ExecutionException ex) {
+            if (isPreconditionFailure(ex)) {
+                LOGGER.info("Receipt {} or its items changed during the item sync; leaving it to the next sync",
+                    documentId);
+                metrics.recordItemSync("superseded", started);
+                return;
+            }
+            metrics.recordItemSync("failed", started);
+            throw new ReceiptParsingException("Failed to synchronise receipt items in Firestore", ex);
+        } catch (ConcurrencyLimitExceededException ex) {
+            metrics.recordItemSync("failed", started);
+            throw new ReceiptParsingException("Failed to synchronise receipt items in Firestore", ex);
+        }
+    }
+
+    /**
+     * Performs one Firestore round trip while holding a permit of the Firestore limiter.
+     */
+    private <T> T withPermit(Supplier<ApiFuture<T>> call) throws InterruptedException, ExecutionException {
+        try (ConcurrencyLimiter.Permit permit = firestoreLimiter.acquire()) {
+            return call.get().get();
+        }
+    }
+
+    /**
+     * Requests item synchronisations for receipts whose marker is older than {@code minimumAge}, which means
+     * the sync requested by their last write did not finish. Returns the number of receipts requested.
+     */
+    public int resumePendingItemSyncs(Duration minimumAge) {
+        Instant cutoff = Instant.now().minus(minimumAge);
+        List<QueryDocumentSnapshot> pending;
+        try (ConcurrencyLimiter.Permit permit = firestoreLimiter.acquire()) {
+            pending = firestore.collection(collectionName)
+                .whereLessThan(ITEM_SYNC_PENDING_FIELD, Timestamp.ofTimeSecondsAndNanos(cutoff.getEpochSecond(),
+                    cutoff.getNano()))
+                .select(ITEM_SYNC_PENDING_FIELD)
+                .limit(ITEM_SYNC_SWEEP_LIMIT)
+                .get()
+                .get()
+                .getDocuments();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ReceiptParsingException("Interrupted while looking up pending item synchronisations", ex);
+        } catch (ExecutionException ex) {
+            throw new ReceiptParsingException("Failed to look up pending item synchronisations", ex);
+        }
+
+        for (QueryDocumentSnapshot document : pending) {
+            requestItemSync(document.getId());
+        }
+        return pending.size();
+    }
+
+    private void requestItemSync(String documentId) {
+        if (scheduledItemSyncs.put(documentId, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            itemSyncExecutor.execute(() -> drainItemSync(documentId));
+        } catch (RejectedExecutionException ex) {
+            scheduledItemSyncs.remove(documentId);
+            LOGGER.warn("Item sync for receipt {} was rejected; it will be resumed by the next sweep", documentId);
+        }
+    }
+
+    /**
+     * Runs syncs for one receipt until no newer request arrived while the last one was running.
+     */
+    private void drainItemSync(String documentId) {
+        do {
+            scheduledItemSyncs.put(documentId, Boolean.FALSE);
+            try {
+                synchronizeItems(documentId);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Item sync for receipt {} failed; it will be resumed by the next sweep", documentId, ex);
+            }
+        } while (!scheduledItemSyncs.remove(documentId, Boolean.FALSE));
+    }
+
+    private static boolean isPreconditionFailure(Throwable failure) {
+        for (Throwable current = failure; current != null; current = current.getCause()) {
+            if (current instanceof ApiException apiException
+                && apiException.getStatusCode().getCode() == StatusCode.Code.FAILED_PRECONDITION) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits the OCR text off the structured data so it can be stored with the raw response. Hybrid results
+     * carry it in their legacy section. The returned data deletes any copy left inline by earlier writes.
+     */
+    static DetachedRawText detachRawText(Map<String, Object> structuredData) {
+        if (structuredData == null) {
+            return new DetachedRawText(null, null);
+        }
+        Map<String, Object> hotData = new LinkedHashMap<>(structuredData);
+        String rawText = asString(hotData.remove("rawText"));
+        for (String section : List.of("legacy", "gemini")) {
+            if (hotData.get(section) instanceof Map<?, ?> nested) {
+                Map<String, Object> nestedCopy = new LinkedHashMap<>(toStringObjectMap(nested));
+                String nestedRawText = asString(nestedCopy.remove("rawText"));
+                if (rawText == null) {
+                    rawText = nestedRawText;
+                }
+                nestedCopy.put("rawText", FieldValue.delete());
+                hotData.put(section, nestedCopy);
+            }
+        }
+        hotData.put("rawText", FieldValue.delete());
+        return new DetachedRawText(hotData, rawText);
+    }
+
+    private Map<String, Object> buildRawPayload(String documentId, ReceiptOwner owner, String rawResponse,
+        String rawText, Timestamp updatedAt) {
+
+        byte[] compressedResponse = ReceiptPayloadCodec.compress(rawResponse);
+        byte[] compressedText = ReceiptPayloadCodec.compress(rawText);
+        if (length(compressedResponse) + length(compressedText) > MAX_COMPRESSED_PAYLOAD_BYTES) {
+            LOGGER.warn("Raw response for receipt {} is {} bytes compressed; storing only the OCR text", documentId,
+                length(compressedResponse));
+            compressedResponse = null;
+            if (length(compressedText) > MAX_COMPRESSED_PAYLOAD_BYTES) {
+                compressedText = null;
+            }
+        }
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("receiptId", documentId);
+        if (owner != null && StringUtils.hasText(owner.id())) {
+            document.put("ownerId", owner.id());
+        }
+        document.put("encoding", ReceiptPayloadCodec.ENCODING);
+        if (compressedResponse != null) {
+            document.put("rawResponse", Blob.fromBytes(compressedResponse));
+        }
+        if (compressedText != null) {
+            document.put("rawText", Blob.fromBytes(compressedText));
+        }
+        document.put("updatedAt", updatedAt);
+        return document;
+    }
+
+    private static int length(byte[] value) {
+        return value != null ? value.length : 0;
+    }
+
+    private ItemSyncPlan planItemSync(String documentId, DocumentSnapshot receipt)
         throws InterruptedException, ExecutionException {
 
-        if (status == ReceiptProcessingStatus.COMPLETED) {
-            return buildUpsertPlan(documentId, objectName, owner, general, items, updatedAt);
+        if (!receipt.exists()) {
+            return buildRemovalPlan(documentId, null);
+        }
+
+        ReceiptOwner owner = toReceiptOwner(receipt.get("owner"));
+        String status = receipt.getString("status");
+        if ("COMPLETED".equals(status) || "REPARSED".equals(status)) {
+            Map<String, Object> data = toStringObjectMap(receipt.get("data"));
+            Timestamp updatedAt = receipt.getTimestamp("updatedAt");
+            return buildUpsertPlan(documentId, receipt.getString("objectName"), owner, resolveGeneral(data),
+                resolveItems(data), updatedAt != null ? updatedAt : Timestamp.now());
         }
-        if (status == ReceiptProcessingStatus.FAILED || status == ReceiptProcessingStatus.SKIPPED) {
-            return buildRemovalPlan(documentId);
+        if (ReceiptProcessingStatus.FAILED.name().equals(status) || ReceiptProcessingStatus.SKIPPED.name().equals(status)) {
+            return buildRemovalPlan(documentId, owner);
         }
-        return ItemSyncPlan.empty();
+        return ItemSyncPlan.empty(owner);
     }
 
-    private ItemSyncPlan buildRemovalPlan(String documentId) throws InterruptedException, ExecutionException {
-        QuerySnapshot snapshot = firestore.collection(itemsCollectionName)
-            .whereEqualTo("receiptId", documentId)
-            .get()
-            .get();
+    private ItemSyncPlan buildRemovalPlan(String documentId, ReceiptOwner owner)
+        throws InterruptedException, ExecutionException {
+
+        QuerySnapshot snapshot = withPermit(firestore.collection(itemsCollectionName)
+            .whereEqualTo("receiptId", documentId)::get);
 
         if (snapshot == null || snapshot.isEmpty()) {
-            return ItemSyncPlan.empty();
+            return ItemSyncPlan.empty(owner);
         }
 
-        List<DocumentReference> deletions = new ArrayList<>();
-        Map<StatsKey, Long> previousCounts = new HashMap<>();
+        Timestamp updatedAt = Timestamp.now();
+        List<SyncWrite> writes = new ArrayList<>();
+        Set<StatsKey> previousKeys = new LinkedHashSet<>();
         for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
-            deletions.add(doc.getReference());
-            accumulateExistingCounts(doc, previousCounts);
+            SyncWrite deletion = SyncWrite.delete(doc, statsKeys(doc));
+            writes.add(deletion);
+            previousKeys.addAll(deletion.statsDeltas().keySet());
         }
-
-        Map<StatsKey, Long> deltas = new HashMap<>();
-        for (Map.Entry<StatsKey, Long> entry : previousCounts.entrySet()) {
-            deltas.put(entry.getKey(), -entry.getValue());
+        for (StatsKey key : previousKeys) {
+            if (!hasPriceSeries(key)) {
+                continue;
+            }
+            writes.add(SyncWrite.merge(priceHistoryReference(key),
+                buildPriceHistoryUpdate(key, documentId, FieldValue.delete(), updatedAt)));
         }
-        return new ItemSyncPlan(deletions, List.of(), deltas, Map.of(), ItemHistoryValue.deleteValue());
+        return new ItemSyncPlan(writes, Map.of(), ItemHistoryValue.deleteValue(), owner, updatedAt);
     }
 
     private ItemSyncPlan buildUpsertPlan(String documentId, String objectName, ReceiptOwner owner,
         Map<String, Object> general, List<Map<String, Object>> items, Timestamp updatedAt)
         throws InterruptedException, ExecutionException {
 
-        QuerySnapshot snapshot = firestore.collection(itemsCollectionName)
-            .whereEqualTo("receiptId", documentId)
-            .get()
-            .get();
+        QuerySnapshot snapshot = withPermit(firestore.collection(itemsCollectionName)
+            .whereEqualTo("receiptId", documentId)::get);
 
-        List<DocumentReference> deletions = new ArrayList<>();
+        Map<String, QueryDocumentSnapshot> existingItems = new LinkedHashMap<>();
         Map<StatsKey, Long> previousCounts = new HashMap<>();
         if (snapshot != null) {
             for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
-                deletions.add(doc.getReference());
+                existingItems.put(doc.getId(), doc);
                 accumulateExistingCounts(doc, previousCounts);
             }
         }
 
-        List<ItemWrite> writes = new ArrayList<>();
+        List<SyncWrite> writes = new ArrayList<>();
+        Set<StatsKey> changedKeys = new HashSet<>();
+
         Map<StatsKey, Long> newCounts = new HashMap<>();
         Map<StatsKey, StatsMetadata> metadata = new HashMap<>();
+        Map<StatsKey, List<Map<String, Object>>> pricePoints = new LinkedHashMap<>();
         String ownerId = owner != null ? owner.id() : null;
         String receiptDate = asString(general.get("receiptDate"));
         String storeName = asString(general.get("storeName"));
         String fileName = asString(general.get("fileName"));
         String displayName = resolveReceiptDisplayName(storeName, fileName, objectName);
+        String pointDate = resolvePricePointDate(receiptDate, updatedAt);
 
         for (int index = 0; index < items.size(); index++) {
             Map<String, Object> item = items.get(index);
@@ -251,7 +538,7 @@ public class ReceiptExtractionRepository {
             Map<String, Object> document = new LinkedHashMap<>();
             document.put("receiptId", documentId);
             document.put("normalizedEan", normalizedEan);
-            document.put("itemIndex", index);
+            document.put("itemIndex", (long) index);
             document.put("itemData", item);
             document.put("receiptUpdatedAt", updatedAt);
             if (StringUtils.hasText(receiptDate)) {
@@ -270,62 +557,216 @@ public class ReceiptExtractionRepository {
                 document.put("ownerId", ownerId);
             }
 
-            DocumentReference reference = firestore.collection(itemsCollectionName).document();
-            writes.add(new ItemWrite(reference, document));
+            List<StatsKey> keys = statsKeys(ownerId, normalizedEan);
+            String itemId = ReceiptDocumentIds.itemId(documentId, index, normalizedEan);
+            QueryDocumentSnapshot existing = existingItems.remove(itemId);
+            if (existing == null) {
+                writes.add(SyncWrite.create(firestore.collection(itemsCollectionName).document(itemId), document, keys));
+                changedKeys.addAll(keys);
+            } else if (!isUnchanged(existing.getData(), document)) {
+                List<StatsKey> previousKeys = statsKeys(existing);
+                writes.add(SyncWrite.replace(existing, document, previousKeys, keys));
+                changedKeys.addAll(previousKeys);
+                changedKeys.addAll(keys);
+            }
+            for (StatsKey key : keys) {
+                newCounts.merge(key, 1L, Long::sum);
+                metadata.put(key, new StatsMetadata(documentId, receiptDate, storeName, updatedAt));
+            }
 
-            if (StringUtils.hasText(ownerId)) {
-                StatsKey ownerKey = new StatsKey(ownerId, normalizedEan);
-                newCounts.merge(ownerKey, 1L, Long::sum);
-                metadata.put(ownerKey, new StatsMetadata(documentId, receiptDate, storeName, updatedAt));
+            Map<String, Object> pricePoint = buildPricePoint(item, pointDate, storeName);
+            if (pricePoint != null) {
+                for (StatsKey key : keys) {
+                    if (hasPriceSeries(key)) {
+                        pricePoints.computeIfAbsent(key, ignored -> new ArrayList<>()).add(pricePoint);
+                    }
+                }
             }
+        }
 
-            StatsKey globalKey = new StatsKey(ReceiptItemConstants.GLOBAL_OWNER_ID, normalizedEan);
-            newCounts.merge(globalKey, 1L, Long::sum);
-            metadata.put(globalKey, new StatsMetadata(documentId, receiptDate, storeName, updatedAt));
+        for (QueryDocumentSnapshot vanished : existingItems.values()) {
+            List<StatsKey> previousKeys = statsKeys(vanished);
+            writes.add(SyncWrite.delete(vanished, previousKeys));
+            changedKeys.addAll(previousKeys);
         }
 
-        Map<StatsKey, Long> deltas = new HashMap<>();
-        for (Map.Entry<StatsKey, Long> entry : previousCounts.entrySet()) {
-            long current = newCounts.getOrDefault(entry.getKey(), 0L);
-            long delta = current - entry.getValue();
-            if (delta != 0) {
-                deltas.put(entry.getKey(), delta);
+        ItemHistoryValue historyValue = buildItemHistoryValue(ownerId, items, previousCounts, newCounts);
+
+        // A series only needs rewriting when one of the items feeding it was created, changed or removed.
+        for (Map.Entry<StatsKey, List<Map<String, Object>>> entry : pricePoints.entrySet()) {
+            if (!changedKeys.contains(entry.getKey())) {
+                continue;
             }
+            writes.add(SyncWrite.merge(priceHistoryReference(entry.getKey()),
+                buildPriceHistoryUpdate(entry.getKey(), documentId, entry.getValue(), updatedAt)));
         }
-        for (Map.Entry<StatsKey, Long> entry : newCounts.entrySet()) {
-            if (!previousCounts.containsKey(entry.getKey())) {
-                deltas.put(entry.getKey(), entry.getValue());
-            }
+        Set<StatsKey> prunedSeries = new LinkedHashSet<>(previousCounts.keySet());
+        prunedSeries.removeAll(pricePoints.keySet());
+        prunedSeries.retainAll(changedKeys);
+        prunedSeries.removeIf(key -> !hasPriceSeries(key));
+        for (StatsKey key : prunedSeries) {
+            writes.add(SyncWrite.merge(priceHistoryReference(key),
+                buildPriceHistoryUpdate(key, documentId, FieldValue.delete(), updatedAt)));
         }
 
-        ItemHistoryValue historyValue = buildItemHistoryValue(ownerId, items, previousCounts, newCounts);
+        return new ItemSyncPlan(writes, metadata, historyValue, owner, updatedAt);
+    }
 
-        return new ItemSyncPlan(deletions, writes, deltas, metadata, historyValue);
+    /**
+     * Tells whether a stored item document already holds {@code desired}. The parse time is left out because
+     * it changes on every write even when the item itself does not.
+     */
+    static boolean isUnchanged(Map<String, Object> existing, Map<String, Object> desired) {
+        if (existing == null) {
+            return false;
+        }
+        Map<String, Object> stored = new HashMap<>(existing);
+        Map<String, Object> wanted = new HashMap<>(desired);
+        stored.remove("receiptUpdatedAt");
+        wanted.remove("receiptUpdatedAt");
+        return stored.equals(wanted);
     }
 
-    private void applyItemSyncPlan(WriteBatch batch, ItemSyncPlan plan, Timestamp updatedAt) {
-        if (plan == null || plan.isEmpty()) {
-            return;
+    private static List<StatsKey> statsKeys(DocumentSnapshot item) {
+        return statsKeys(item.getString("ownerId"), item.getString("normalizedEan"));
+    }
+
+    /**
+     * Returns the statistics documents an item contributes to: its owner's and the global one.
+     */
+    private static List<StatsKey> statsKeys(String ownerId, String normalizedEan) {
+        if (!StringUtils.hasText(normalizedEan)) {
+            return List.of();
         }
-        for (DocumentReference reference : plan.deletions()) {
-            batch.delete(reference);
+        StatsKey globalKey = new StatsKey(ReceiptItemConstants.GLOBAL_OWNER_ID, normalizedEan);
+        return StringUtils.hasText(ownerId) ? List.of(new StatsKey(ownerId, normalizedEan), globalKey) : List.of(globalKey);
+    }
+
+    /**
+     * Splits writes into batches of at most {@code maxWrites} operations. Each batch carries the net statistics
+     * increments of the item writes it contains, one operation per statistics document.
+     */
+    static List<SyncChunk> partition(List<SyncWrite> writes, int maxWrites) {
+        List<SyncChunk> chunks = new ArrayList<>();
+        List<SyncWrite> current = new ArrayList<>();
+        Map<StatsKey, Long> deltas = new LinkedHashMap<>();
+        for (SyncWrite write : writes) {
+            long newKeys = write.statsDeltas().keySet().stream().filter(key -> !deltas.containsKey(key)).count();
+            if (!current.isEmpty() && current.size() + deltas.size() + 1 + newKeys > maxWrites) {
+                chunks.add(new SyncChunk(current, deltas));
+                current = new ArrayList<>();
+                deltas.clear();
+            }
+            current.add(write);
+            write.statsDeltas().forEach((key, delta) -> deltas.merge(key, delta, Long::sum));
+        }
+        if (!current.isEmpty()) {
+            chunks.add(new SyncChunk(current, deltas));
         }
-        for (ItemWrite write : plan.writes()) {
-            batch.set(write.reference(), write.data(), SetOptions.merge());
+        return chunks;
+    }
+
+    private void applyChunk(WriteBatch batch, SyncChunk chunk, Map<StatsKey, StatsMetadata> metadata,
+        Timestamp updatedAt) {
+
+        for (SyncWrite write : chunk.writes()) {
+            switch (write.kind()) {
+                case CREATE -> batch.create(write.reference(), write.data());
+                case MERGE -> batch.set(write.reference(), write.data(), SetOptions.merge());
+                // Replacements and deletes fail the batch, statistics included, if the item changed or was
+                // removed since it was read.
+                case REPLACE -> batch.update(write.reference(), write.data(),
+                    Precondition.updatedAt(write.readUpdateTime()));
+                case DELETE -> batch.delete(write.reference(), Precondition.updatedAt(write.readUpdateTime()));
+            }
         }
-        for (Map.Entry<StatsKey, Long> entry : plan.deltas().entrySet()) {
+        for (Map.Entry<StatsKey, Long> entry : chunk.deltas().entrySet()) {
             StatsKey key = entry.getKey();
             long delta = entry.getValue();
             if (delta == 0 || !StringUtils.hasText(key.ownerId()) || !StringUtils.hasText(key.normalizedEan())) {
                 continue;
             }
-            Map<String, Object> updates = buildStatsUpdate(key, delta, updatedAt, plan.metadata().get(key));
+            Map<String, Object> updates = buildStatsUpdate(key, delta, updatedAt, metadata.get(key));
             DocumentReference statsRef = firestore.collection(itemStatsCollectionName)
                 .document(buildStatsDocumentId(key.ownerId(), key.normalizedEan()));
             batch.set(statsRef, updates, SetOptions.merge());
         }
     }
 
+    /**
+     * Price history series are kept per owner only. A global series would collect every purchase of a common
+     * EAN in one document, outgrowing Firestore's document size and write rate limits; the all-owners view is
+     * built from the receipt items instead.
+     */
+    private static boolean hasPriceSeries(StatsKey key) {
+        return !ReceiptItemConstants.GLOBAL_OWNER_ID.equals(key.ownerId());
+    }
+
+    private DocumentReference priceHistoryReference(StatsKey key) {
+        return firestore.collection(priceHistoryCollectionName)
+            .document(ReceiptPriceHistory.seriesId(key.ownerId(), key.normalizedEan()));
+    }
+
+    /**
+     * Replaces the points a receipt contributes to a series; {@code points} is
+     * {@link FieldValue#delete()} to drop them.
+     */
+    private Map<String, Object> buildPriceHistoryUpdate(StatsKey key, String receiptId, Object points,
+        Timestamp updatedAt) {
+
+        Map<String, Object> update = new HashMap<>();
+        update.put("ownerId", key.ownerId());
+        update.put("normalizedEan", key.normalizedEan());
+        update.put("updatedAt", updatedAt);
+        update.put(ReceiptPriceHistory.POINTS_FIELD, Map.of(receiptId, points));
+        return update;
+    }
+
+    static Map<String, Object> buildPricePoint(Map<String, Object> item, String date, String storeName) {
+        BigDecimal price = ReceiptItemPrices.chartPrice(item);
+        if (price == null || !StringUtils.hasText(date)) {
+            return null;
+        }
+        Map<String, Object> point = new LinkedHashMap<>();
+        point.put(ReceiptPriceHistory.DATE_FIELD, date);
+        point.put(ReceiptPriceHistory.PRICE_FIELD, price.toPlainString());
+        if (StringUtils.hasText(storeName)) {
+            point.put(ReceiptPriceHistory.STORE_FIELD, storeName);
+        }
+        return point;
+    }
+
+    private static String resolvePricePointDate(String receiptDate, Timestamp updatedAt) {
+        if (StringUtils.hasText(receiptDate)) {
+            try {
+                return LocalDate.parse(receiptDate.trim()).toString();
+            } catch (DateTimeParseException ex) {
+                // Fall back to the processing date below.
+            }
+        }
+        if (updatedAt == null) {
+            return null;
+        }
+        return updatedAt.toDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toString();
+    }
+
+    /**
+     * Bumps the change counters read by the web frontend to answer conditional requests. Every status write
+     * changes what the receipt dashboards show, so the counters are bumped for all of them, not only for
+     * completed extractions and failures.
+     */
+    private void applyDataVersionIncrements(WriteBatch batch, ReceiptOwner owner, Timestamp updatedAt) {
+        Map<String, Object> increment = Map.of(
+            "version", FieldValue.increment(1),
+            "updatedAt", updatedAt
+        );
+        if (owner != null && StringUtils.hasText(owner.id())) {
+            batch.set(firestore.collection(dataVersionsCollectionName).document(owner.id()), increment, SetOptions.merge());
+        }
+        batch.set(firestore.collection(dataVersionsCollectionName).document(ReceiptItemConstants.GLOBAL_OWNER_ID),
+            increment, SetOptions.merge());
+    }
+
     private ItemHistoryValue buildItemHistoryValue(String ownerId, List<Map<String, Object>> items,
         Map<StatsKey, Long> previousCounts, Map<StatsKey, Long> newCounts)
         throws InterruptedException, ExecutionException {
@@ -404,7 +845,7 @@ public class ReceiptExtractionRepository {
             return Map.of();
         }
 
-        List<DocumentSnapshot> snapshots = firestore.getAll(references.toArray(new DocumentReference[0])).get();
+        List<DocumentSnapshot> snapshots = withPermit(() -> firestore.getAll(references.toArray(new DocumentReference[0])));
         Map<StatsKey, Long> counts = new LinkedHashMap<>();
         for (DocumentSnapshot snapshot : snapshots) {
             if (snapshot == null || !snapshot.exists()) {
@@ -456,10 +897,6 @@ public class ReceiptExtractionRepository {
         counts.merge(new StatsKey(ReceiptItemConstants.GLOBAL_OWNER_ID, normalizedEan), 1L, Long::sum);
     }
 
-    private Map<String, Object> extractGeneral(Map<String, Object> structuredData) {
-        return resolveGeneral(structuredData);
-    }
-
     static Map<String, Object> resolveGeneral(Map<String, Object> structuredData) {
         Map<String, Object> primary = structuredData != null
             ? toStringObjectMap(structuredData.get("general"))
@@ -496,10 +933,6 @@ public class ReceiptExtractionRepository {
         return Map.of();
     }
 
-    private List<Map<String, Object>> extractItems(Map<String, Object> structuredData) {
-        return resolveItems(structuredData);
-    }
-
     static List<Map<String, Object>> resolveItems(Map<String, Object> structuredData) {
         List<Map<String, Object>> primary = structuredData != null
             ? normalizeItems(structuredData.get("items"))
@@ -657,7 +1090,7 @@ public class ReceiptExtractionRepository {
         return null;
     }
 
-    private String asString(Object value) {
+    private static String asString(Object value) {
         if (value == null) {
             return null;
         }
@@ -676,10 +1109,17 @@ public class ReceiptExtractionRepository {
         return ownerMap;
     }
 
+    private static ReceiptOwner toReceiptOwner(Object value) {
+        Map<String, Object> owner = toStringObjectMap(value);
+        if (owner.isEmpty()) {
+            return null;
+        }
+        return new ReceiptOwner(asString(owner.get("id")), asString(owner.get("displayName")),
+            asString(owner.get("email")));
+    }
+
     private String buildDocumentId(String bucket, String objectName) {
-        String value = bucket + ":" + objectName;
-        UUID uuid = UUID.nameUUIDFromBytes(value.getBytes(StandardCharsets.UTF_8));
-        return uuid.toString().replace("-", "");
+        return ReceiptDocumentIds.receiptId(bucket, objectName);
     }
 
     private int extractItemCount(ReceiptExtractionResult extractionResult) {
@@ -704,61 +1144,81 @@ public class ReceiptExtractionRepository {
         return ownerId + "#" + normalizedEan;
     }
 
-    private record ItemWrite(DocumentReference reference, Map<String, Object> data) {
+    record DetachedRawText(Map<String, Object> structuredData, String rawText) {
     }
 
-    private record StatsKey(String ownerId, String normalizedEan) {
+    record StatsKey(String ownerId, String normalizedEan) {
     }
 
     private record StatsMetadata(String receiptId, String receiptDate, String storeName, Timestamp updatedAt) {
     }
 
-    private static final class ItemSyncPlan {
-
-        private static final ItemSyncPlan EMPTY = new ItemSyncPlan(List.of(), List.of(), Map.of(), Map.of(), null);
+    enum WriteKind { CREATE, MERGE, REPLACE, DELETE }
 
-        private final List<DocumentReference> deletions;
-        private final List<ItemWrite> writes;
-        private final Map<StatsKey, Long> deltas;
-        private final Map<StatsKey, StatsMetadata> metadata;
-        private final ItemHistoryValue historyValue;
+    /**
+     * One document write of an item sync and the change it makes to item statistics: creating an item adds one
+     * to each of its keys, deleting it subtracts one, and replacing it moves the count from its previous keys
+     * to its new ones. Replacements and deletes carry the update time the item had when it was read.
+     */
+    record SyncWrite(DocumentReference reference, WriteKind kind, Map<String, Object> data,
+        Map<StatsKey, Long> statsDeltas, Timestamp readUpdateTime) {
 
-        private ItemSyncPlan(List<DocumentReference> deletions, List<ItemWrite> writes,
-            Map<StatsKey, Long> deltas, Map<StatsKey, StatsMetadata> metadata, ItemHistoryValue historyValue) {
-
-            this.deletions = deletions != null ? List.copyOf(deletions) : List.of();
-            this.writes = writes != null ? List.copyOf(writes) : List.of();
-            this.deltas = deltas != null ? Map.copyOf(deltas) : Map.of();
-            this.metadata = metadata != null ? Map.copyOf(metadata) : Map.of();
-            this.historyValue = historyValue;
+        static SyncWrite create(DocumentReference reference, Map<String, Object> data, List<StatsKey> statsKeys) {
+            return new SyncWrite(reference, WriteKind.CREATE, data, deltas(List.of(), statsKeys), null);
         }
 
-        static ItemSyncPlan empty() {
-            return EMPTY;
+        static SyncWrite merge(DocumentReference reference, Map<String, Object> data) {
+            return new SyncWrite(reference, WriteKind.MERGE, data, Map.of(), null);
         }
 
-        boolean isEmpty() {
-            return deletions.isEmpty() && writes.isEmpty() && deltas.isEmpty();
+        /**
+         * Overwrites {@code item} with {@code data}, deleting fields the new content no longer has.
+         */
+        static SyncWrite replace(DocumentSnapshot item, Map<String, Object> data, List<StatsKey> previousKeys,
+            List<StatsKey> statsKeys) {
+
+            Map<String, Object> fields = new LinkedHashMap<>(data);
+            Map<String, Object> stored = item.getData();
+            if (stored != null) {
+                for (String field : stored.keySet()) {
+                    fields.putIfAbsent(field, FieldValue.delete());
+                }
+            }
+            return new SyncWrite(item.getReference(), WriteKind.REPLACE, fields, deltas(previousKeys, statsKeys),
+                item.getUpdateTime());
         }
 
-        List<DocumentReference> deletions() {
-            return deletions;
+        static SyncWrite delete(DocumentSnapshot item, List<StatsKey> statsKeys) {
+            return new SyncWrite(item.getReference(), WriteKind.DELETE, null, deltas(statsKeys, List.of()),
+                item.getUpdateTime());
         }
 
-        List<ItemWrite> writes() {
-            return writes;
+        private static Map<StatsKey, Long> deltas(List<StatsKey> removed, List<StatsKey> added) {
+            Map<StatsKey, Long> deltas = new LinkedHashMap<>();
+            removed.forEach(key -> deltas.merge(key, -1L, Long::sum));
+            added.forEach(key -> deltas.merge(key, 1L, Long::sum));
+            deltas.values().removeIf(delta -> delta == 0L);
+            return Map.copyOf(deltas);
         }
+    }
+
+    record SyncChunk(List<SyncWrite> writes, Map<StatsKey, Long> deltas) {
 
-        Map<StatsKey, Long> deltas() {
-            return deltas;
+        SyncChunk {
+            writes = List.copyOf(writes);
+            deltas = Collections.unmodifiableMap(new LinkedHashMap<>(deltas));
         }
 
-        Map<StatsKey, StatsMetadata> metadata() {
-            return metadata;
+        int size() {
+            return writes.size() + deltas.size();
         }
+    }
+
+    private record ItemSyncPlan(List<SyncWrite> writes, Map<StatsKey, StatsMetadata> metadata,
+        ItemHistoryValue historyValue, ReceiptOwner owner, Timestamp updatedAt) {
 
-        ItemHistoryValue historyValue() {
-            return historyValue;
+        static ItemSyncPlan empty(ReceiptOwner owner) {
+            return new ItemSyncPlan(List.of(), Map.of(), null, owner, Timestamp.now());
         }
     }
 
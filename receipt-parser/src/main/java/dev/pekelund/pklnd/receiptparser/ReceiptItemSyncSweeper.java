@@ -0,0 +1,50 @@
+package dev.pekelund.pklnd.receiptparser;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically resumes item syncs whose receipt still carries a pending marker, for example because the
+ * instance stopped between the receipt write and the sync that followed it. Only markers older than one
+ * interval are picked up so syncs still running elsewhere are left alone.
+ */
+public class ReceiptItemSyncSweeper implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReceiptItemSyncSweeper.class);
+
+    private final ReceiptExtractionRepository repository;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler;
+
+    public ReceiptItemSyncSweeper(ReceiptExtractionRepository repository, Duration interval) {
+        this.repository = repository;
+        this.interval = interval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "receipt-item-sync-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::sweep, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    void sweep() {
+        try {
+            int resumed = repository.resumePendingItemSyncs(interval);
+            if (resumed > 0) {
+                LOGGER.info("Resumed {} pending receipt item syncs", resumed);
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Failed to resume pending receipt item syncs", ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -3,6 +3,7 @@ package dev.pekelund.pklnd.receiptparser;
 import com.google.cloud.storage.Blob;
 import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.Storage;
+import dev.pekelund.pklnd.concurrency.ConcurrencyLimiter;
 import dev.pekelund.pklnd.storage.ReceiptOwner;
 import java.time.Instant;
 import java.util.Collection;
@@ -29,12 +30,22 @@ public class ReceiptParsingHandler {
     private final Storage storage;
     private final ReceiptExtractionRepository repository;
     private final ReceiptDataExtractor extractor;
+    private final ReceiptProcessingMetrics metrics;
+    private final ConcurrencyLimiter storageLimiter;
 
     public ReceiptParsingHandler(Storage storage, ReceiptExtractionRepository repository,
         ReceiptDataExtractor extractor) {
+        this(storage, repository, extractor, ReceiptProcessingMetrics.NOOP,
+            ConcurrencyLimiter.unlimited("Cloud Storage"));
+    }
+
+    public ReceiptParsingHandler(Storage storage, ReceiptExtractionRepository repository,
+        ReceiptDataExtractor extractor, ReceiptProcessingMetrics metrics, ConcurrencyLimiter storageLimiter) {
         this.storage = storage;
         this.repository = repository;
         this.extractor = extractor;
+        this.metrics = ReceiptProcessingMetrics.orNoop(metrics);
+        this.storageLimiter = storageLimiter != null ? storageLimiter : ConcurrencyLimiter.unlimited("Cloud Storage");
         LOGGER.info("Constructing ReceiptParsingHandler with storage {}, repository {}, extractor instance id {}",
             storage.getClass().getName(), repository.getClass().getName(), System.identityHashCode(extractor));
     }
@@ -46,27 +57,43 @@ public class ReceiptParsingHandler {
             return;
         }
 
+        ReceiptProcessingMetrics.StageTracker stages = metrics.track();
+        String outcome = "error";
+        try {
+            outcome = handle(storageObjectEvent, stages);
+        } catch (ReceiptParsingException ex) {
+            outcome = "failed";
+            throw ex;
+        } finally {
+            stages.finish(outcome);
+        }
+    }
+
+    private String handle(StorageObjectEvent storageObjectEvent, ReceiptProcessingMetrics.StageTracker stages) {
         String bucket = storageObjectEvent.getBucket();
         String objectName = storageObjectEvent.getName();
 
         LOGGER.info("ReceiptParsingHandler processing object gs://{}/{} with extractor instance id {}", bucket, objectName,
             System.identityHashCode(extractor));
-        ReceiptProcessingMdc.setStage("VALIDATE_EVENT");
+        stages.enter("VALIDATE_EVENT");
 
         if (!StringUtils.hasText(bucket) || !StringUtils.hasText(objectName)) {
             LOGGER.warn("Storage event missing bucket ({}) or object name ({})", bucket, objectName);
-            return;
+            return "invalid";
         }
 
-        ReceiptProcessingMdc.setStage("FETCH_BLOB");
+        stages.enter("FETCH_BLOB");
         LOGGER.info("Fetching blob metadata from Cloud Storage for gs://{}/{}", bucket, objectName);
-        Blob blob = storage.get(BlobId.of(bucket, objectName));
+        Blob blob;
+        try (ConcurrencyLimiter.Permit permit = storageLimiter.acquire()) {
+            blob = storage.get(BlobId.of(bucket, objectName));
+        }
         if (blob == null) {
             LOGGER.warn("Blob not found for gs://{}/{}", bucket, objectName);
-            return;
+            return "missing";
         }
 
-        ReceiptProcessingMdc.setStage("MERGE_METADATA");
+        stages.enter("MERGE_METADATA");
         Map<String, String> metadata = new HashMap<>(Optional.ofNullable(blob.getMetadata()).orElse(Map.of()));
         Map<String, String> eventMetadata = storageObjectEvent.getMetadata();
         if (eventMetadata != null && !eventMetadata.isEmpty()) {
@@ -98,29 +125,34 @@ public class ReceiptParsingHandler {
         }
         ReceiptProcessingMdc.attachOwner(owner);
 
-        ReceiptProcessingMdc.setStage("STATUS_RECEIVED");
+        stages.enter("STATUS_RECEIVED");
         repository.markStatus(bucket, objectName, owner, ReceiptProcessingStatus.RECEIVED, "Storage event received");
         blob = updateProcessingMetadata(blob, ReceiptProcessingStatus.RECEIVED, "Storage event received", metadata);
 
         try {
-            ReceiptProcessingMdc.setStage("STATUS_PARSING");
+            stages.enter("STATUS_PARSING");
             repository.markStatus(bucket, objectName, owner, ReceiptProcessingStatus.PARSING, "Receipt parsing started");
             blob = updateProcessingMetadata(blob, ReceiptProcessingStatus.PARSING, "Receipt parsing started", metadata);
 
             if (!isPdf(blob)) {
                 String message = "Only PDF receipts are processed";
-                ReceiptProcessingMdc.setStage("STATUS_SKIPPED");
+                stages.enter("STATUS_SKIPPED");
                 repository.markStatus(bucket, objectName, owner, ReceiptProcessingStatus.SKIPPED, message);
                 blob = updateProcessingMetadata(blob, ReceiptProcessingStatus.SKIPPED, message, metadata);
-                return;
+                return "skipped";
             }
 
-            ReceiptProcessingMdc.setStage("READ_CONTENT");
-            byte[] pdfBytes = blob.getContent();
+            stages.enter("READ_CONTENT");
+            byte[] pdfBytes;
+            try (ConcurrencyLimiter.Permit permit = storageLimiter.acquire()) {
+                pdfBytes = blob.getContent();
+            }
             LOGGER.info("Downloaded {} bytes for gs://{}/{}", pdfBytes != null ? pdfBytes.length : 0, bucket, objectName);
-            ReceiptProcessingMdc.setStage("EXTRACT");
+            metrics.recordPdfSize(pdfBytes != null ? pdfBytes.length : 0);
+            stages.enter("EXTRACT");
             ReceiptExtractionResult extractionResult = extractor.extract(pdfBytes, blob.getName());
             int itemsCount = countItems(extractionResult);
+            metrics.recordItems(itemsCount);
             int topLevelKeys = extractionResult.structuredData() != null
                 ? extractionResult.structuredData().size()
                 : 0;
@@ -129,19 +161,20 @@ public class ReceiptParsingHandler {
                 : 0;
             LOGGER.info("ReceiptParsingHandler extracted {} top-level fields and {} items (raw response length {} characters) for gs://{}/{}",
                 topLevelKeys, itemsCount, rawResponseLength, bucket, objectName);
-            ReceiptProcessingMdc.setStage("STATUS_COMPLETED");
+            stages.enter("STATUS_COMPLETED");
             repository.saveExtraction(bucket, objectName, owner, extractionResult, "Receipt parsing completed", reparseRequested);
             updateProcessingMetadata(blob, ReceiptProcessingStatus.COMPLETED, "Receipt parsing completed", metadata);
             LOGGER.info("ReceiptParsingHandler successfully completed extraction for gs://{}/{}", bucket, objectName);
-            ReceiptProcessingMdc.setStage("DONE");
+            stages.enter("DONE");
+            return "completed";
         } catch (ReceiptParsingException ex) {
-            ReceiptProcessingMdc.setStage("FAILED");
+            stages.enter("FAILED");
             LOGGER.error("Receipt parsing failed for gs://{}/{}", bucket, objectName, ex);
             repository.markFailure(bucket, objectName, owner, "Receipt parsing failed", ex);
             updateProcessingMetadata(blob, ReceiptProcessingStatus.FAILED, "Receipt parsing failed", metadata);
             throw ex;
         } catch (RuntimeException ex) {
-            ReceiptProcessingMdc.setStage("FAILED");
+            stages.enter("FAILED");
             LOGGER.error("Unexpected error while parsing receipt gs://{}/{}", bucket, objectName, ex);
             repository.markFailure(bucket, objectName, owner, "Unexpected error during receipt parsing", ex);
             updateProcessingMetadata(blob, ReceiptProcessingStatus.FAILED, "Unexpected error during receipt parsing",
@@ -175,7 +208,9 @@ public class ReceiptParsingHandler {
         metadata.put(METADATA_STATUS, status.name());
         metadata.put(METADATA_MESSAGE, message);
         metadata.put(METADATA_UPDATED, Instant.now().toString());
-        return blob.toBuilder().setMetadata(metadata).build().update();
+        try (ConcurrencyLimiter.Permit permit = storageLimiter.acquire()) {
+            return blob.toBuilder().setMetadata(metadata).build().update();
+        }
     }
 
     private int countItems(ReceiptExtractionResult extractionResult) {
@@ -6,7 +6,11 @@ import com.google.cloud.firestore.FirestoreOptions;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
 import com.google.cloud.vertexai.VertexAI;
+import dev.pekelund.pklnd.concurrency.ConcurrencyLimiter;
 import io.micrometer.observation.ObservationRegistry;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.model.ChatModel;
@@ -37,6 +41,7 @@ import dev.pekelund.pklnd.receiptparser.legacy.LegacyPdfReceiptExtractor;
 public class ReceiptProcessingConfiguration {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ReceiptProcessingConfiguration.class);
+    private static final Duration LIMIT_ACQUIRE_TIMEOUT = Duration.ofSeconds(30);
 
     @Bean(destroyMethod = "close")
     @ConditionalOnExpression("'${AI_STUDIO_API_KEY:}' == ''")
@@ -130,15 +135,19 @@ public class ReceiptProcessingConfiguration {
     }
 
     @Bean
-    public AIReceiptExtractor aiReceiptExtractor(ChatModel chatModel, ObjectMapper objectMapper) {
+    public AIReceiptExtractor aiReceiptExtractor(ChatModel chatModel, ObjectMapper objectMapper,
+        ReceiptProcessingMetrics receiptProcessingMetrics, Environment environment) {
         ChatOptions defaultOptions = chatModel.getDefaultOptions();
-        return new AIReceiptExtractor(chatModel, objectMapper, defaultOptions);
+        return new AIReceiptExtractor(chatModel, objectMapper, defaultOptions, receiptProcessingMetrics,
+            limiter("Gemini", "receipt.limits.gemini", 8, environment));
     }
 
     @Bean
     public HybridReceiptExtractor hybridReceiptExtractor(LegacyPdfReceiptExtractor legacyPdfReceiptExtractor,
-        AIReceiptExtractor aiReceiptExtractor, ObjectMapper objectMapper) {
-        return new HybridReceiptExtractor(legacyPdfReceiptExtractor, aiReceiptExtractor, objectMapper);
+        AIReceiptExtractor aiReceiptExtractor, ObjectMapper objectMapper,
+        ReceiptProcessingMetrics receiptProcessingMetrics) {
+        return new HybridReceiptExtractor(legacyPdfReceiptExtractor, aiReceiptExtractor, objectMapper,
+            receiptProcessingMetrics);
     }
 
     @Bean
@@ -177,19 +186,56 @@ public class ReceiptProcessingConfiguration {
         return ReceiptProcessingSettings.fromEnvironment();
     }
 
+    /**
+     * Runs the item syncs that follow receipt writes, so a parse request returns once the receipt itself is
+     * stored. Closing waits for syncs in flight; anything cut short is picked up by the sweeper.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService receiptItemSyncExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("receipt-item-sync-", 0).factory());
+    }
+
     @Bean
     public ReceiptExtractionRepository receiptExtractionRepository(Firestore firestore,
-        ReceiptProcessingSettings receiptProcessingSettings) {
+        ReceiptProcessingSettings receiptProcessingSettings, ReceiptProcessingMetrics receiptProcessingMetrics,
+        ExecutorService receiptItemSyncExecutor, Environment environment) {
         return new ReceiptExtractionRepository(
             firestore,
             receiptProcessingSettings.receiptsCollection(),
             receiptProcessingSettings.receiptItemsCollection(),
-            receiptProcessingSettings.itemStatsCollection());
+            receiptProcessingSettings.itemStatsCollection(),
+            receiptProcessingSettings.dataVersionsCollection(),
+            receiptProcessingSettings.payloadsCollection(),
+            receiptProcessingSettings.priceHistoryCollection(),
+            receiptProcessingMetrics,
+            limiter("Firestore", "receipt.limits.firestore", 16, environment),
+            receiptItemSyncExecutor);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReceiptItemSyncSweeper receiptItemSyncSweeper(ReceiptExtractionRepository receiptExtractionRepository,
+        Environment environment) {
+        Duration interval = environment.getProperty("receipt.item-sync.sweep-interval", Duration.class,
+            Duration.ofMinutes(5));
+        return new ReceiptItemSyncSweeper(receiptExtractionRepository, interval);
     }
 
     @Bean
     public ReceiptParsingHandler receiptParsingHandler(Storage storage, ReceiptExtractionRepository receiptExtractionRepository,
-        ReceiptDataExtractor receiptDataExtractor) {
-        return new ReceiptParsingHandler(storage, receiptExtractionRepository, receiptDataExtractor);
+        ReceiptDataExtractor receiptDataExtractor, ReceiptProcessingMetrics receiptProcessingMetrics,
+        Environment environment) {
+        return new ReceiptParsingHandler(storage, receiptExtractionRepository, receiptDataExtractor,
+            receiptProcessingMetrics, limiter("Cloud Storage", "receipt.limits.storage", 16, environment));
+    }
+
+    /**
+     * Requests run on virtual threads, so concurrency towards each downstream service is bounded by these
+     * limits rather than by a thread pool.
+     */
+    private static ConcurrencyLimiter limiter(String name, String property, int defaultLimit,
+        Environment environment) {
+        int limit = environment.getProperty(property, Integer.class, defaultLimit);
+        LOGGER.info("{} concurrency limit per instance: {}", name, limit > 0 ? limit : "unbounded");
+        return new ConcurrencyLimiter(name, limit, LIMIT_ACQUIRE_TIMEOUT);
     }
 }
@@ -0,0 +1,158 @@
+package dev.pekelund.pklnd.receiptparser;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes receipt processing metrics to Micrometer: time per pipeline stage, per extractor and per item
+ * sync, the overall outcome, and the sizes flowing through the pipeline (PDF bytes, parsed items, Gemini
+ * prompt and response length, Firestore batch writes). Timers and summaries publish histograms so Prometheus
+ * can derive percentiles. Meters are built once per tag combination and reused; without a registry every
+ * method returns immediately, which is what {@link #NOOP} relies on.
+ */
+@Component
+public class ReceiptProcessingMetrics {
+
+    static final String STAGE = "receipt.processing.stage";
+    static final String PROCESSING = "receipt.processing";
+    static final String EXTRACTION = "receipt.extraction";
+    static final String PDF_SIZE = "receipt.pdf.size";
+    static final String ITEMS = "receipt.items";
+    static final String AI_PROMPT_SIZE = "receipt.ai.prompt.size";
+    static final String AI_RESPONSE_SIZE = "receipt.ai.response.size";
+    static final String FIRESTORE_BATCH_SIZE = "receipt.firestore.batch.size";
+    static final String ITEM_SYNC = "receipt.item.sync";
+
+    static final ReceiptProcessingMetrics NOOP = new ReceiptProcessingMetrics((MeterRegistry) null);
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReceiptProcessingMetrics(ObjectProvider<MeterRegistry> registryProvider) {
+        this(registryProvider.getIfAvailable());
+    }
+
+    ReceiptProcessingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    static ReceiptProcessingMetrics orNoop(ReceiptProcessingMetrics metrics) {
+        return metrics != null ? metrics : NOOP;
+    }
+
+    /**
+     * Starts tracking the stages of one storage event. The returned tracker also keeps the MDC stage in sync.
+     */
+    StageTracker track() {
+        return new StageTracker();
+    }
+
+    /**
+     * Records one extractor call. {@code extractor} is {@code legacy}, {@code gemini} or {@code hybrid}.
+     */
+    void recordExtraction(String extractor, String outcome, long startNanos) {
+        if (registry == null) {
+            return;
+        }
+        timer(EXTRACTION, "Time spent extracting receipt data", "extractor", extractor, "outcome", outcome)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records one run of the item synchronisation that follows a receipt write.
+     */
+    void recordItemSync(String outcome, long startNanos) {
+        if (registry == null) {
+            return;
+        }
+        timer(ITEM_SYNC, "Time spent synchronising receipt items and statistics", "outcome", outcome)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordPdfSize(long bytes) {
+        record(PDF_SIZE, "Size of downloaded receipt PDFs", "bytes", bytes);
+    }
+
+    void recordItems(long items) {
+        record(ITEMS, "Items parsed per receipt", "items", items);
+    }
+
+    void recordAiPromptSize(long characters) {
+        record(AI_PROMPT_SIZE, "Length of prompts sent to Gemini", "characters", characters);
+    }
+
+    void recordAiResponseSize(long characters) {
+        record(AI_RESPONSE_SIZE, "Length of Gemini responses", "characters", characters);
+    }
+
+    void recordFirestoreBatchSize(long writes) {
+        record(FIRESTORE_BATCH_SIZE, "Writes per Firestore batch commit", "writes", writes);
+    }
+
+    private void record(String name, String description, String baseUnit, long amount) {
+        if (registry == null) {
+            return;
+        }
+        summaries.computeIfAbsent(name, key -> DistributionSummary.builder(key)
+                .description(description)
+                .baseUnit(baseUnit)
+                .publishPercentileHistogram()
+                .register(registry))
+            .record(amount);
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        String key = name + ':' + String.join(":", tags);
+        return timers.computeIfAbsent(key, ignored -> Timer.builder(name)
+            .description(description)
+            .tags(tags)
+            .publishPercentileHistogram()
+            .register(registry));
+    }
+
+    /**
+     * Times consecutive stages of one receipt: entering a stage closes the previous one.
+     */
+    final class StageTracker {
+
+        private final long startNanos = System.nanoTime();
+        private String stage;
+        private long stageStartNanos = startNanos;
+
+        void enter(String next) {
+            closeStage();
+            stage = next;
+            ReceiptProcessingMdc.setStage(next);
+        }
+
+        /**
+         * Closes the current stage and records the whole run under {@code outcome}.
+         */
+        void finish(String outcome) {
+            closeStage();
+            stage = null;
+            if (registry != null) {
+                timer(PROCESSING, "Time spent handling a receipt storage event", "outcome", outcome)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void closeStage() {
+            long now = System.nanoTime();
+            if (stage != null && registry != null) {
+                timer(STAGE, "Time spent in a receipt processing stage", "stage", stage)
+                    .record(now - stageStartNanos, TimeUnit.NANOSECONDS);
+            }
+            stageStartNanos = now;
+        }
+    }
+}
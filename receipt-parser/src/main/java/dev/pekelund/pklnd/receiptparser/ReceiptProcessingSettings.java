@@ -16,7 +16,10 @@ public record ReceiptProcessingSettings(
     String databaseId,
     String receiptsCollection,
     String receiptItemsCollection,
-    String itemStatsCollection
+    String itemStatsCollection,
+    String dataVersionsCollection,
+    String payloadsCollection,
+    String priceHistoryCollection
 ) {
 
     private static final String DEFAULT_LOCAL_PROJECT_ID = "pklnd-local";
@@ -41,6 +44,15 @@ public record ReceiptProcessingSettings(
         String statsCollection = env.getOrDefault(
             "RECEIPT_FIRESTORE_ITEM_STATS_COLLECTION",
             ReceiptItemConstants.DEFAULT_ITEM_STATS_COLLECTION);
+        String dataVersionsCollection = env.getOrDefault(
+            "RECEIPT_FIRESTORE_DATA_VERSIONS_COLLECTION",
+            ReceiptItemConstants.DEFAULT_RECEIPT_DATA_VERSIONS_COLLECTION);
+        String payloadsCollection = env.getOrDefault(
+            "RECEIPT_FIRESTORE_PAYLOADS_COLLECTION",
+            ReceiptItemConstants.DEFAULT_RECEIPT_PAYLOADS_COLLECTION);
+        String priceHistoryCollection = env.getOrDefault(
+            "RECEIPT_FIRESTORE_PRICE_HISTORY_COLLECTION",
+            ReceiptItemConstants.DEFAULT_PRICE_HISTORY_COLLECTION);
         String databaseId = firstNonEmpty(
             env.get("FIRESTORE_DATABASE_ID"),
             env.get("FIRESTORE_DATABASE_NAME"),
@@ -65,7 +77,8 @@ public record ReceiptProcessingSettings(
                 + "or available from the Cloud environment.");
         }
 
-        return new ReceiptProcessingSettings(projectId, databaseId, collection, itemCollection, statsCollection);
+        return new ReceiptProcessingSettings(projectId, databaseId, collection, itemCollection, statsCollection,
+            dataVersionsCollection, payloadsCollection, priceHistoryCollection);
     }
 
     private static boolean isRunningOnCloudRun(Map<String, String> env) {
@@ -15,6 +15,7 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 import dev.pekelund.pklnd.receiptparser.legacy.LegacyPdfReceiptExtractor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -98,4 +99,23 @@ class HybridReceiptExtractorTest {
             .hasMessageContaining("ai boom");
         verify(aiExtractor).extract(any(), eq("sample.pdf"));
     }
+
+    @Test
+    void recordsLegacyAndHybridTimersWhenFallingBack() {
+        LegacyPdfReceiptExtractor legacyExtractor = mock(LegacyPdfReceiptExtractor.class);
+        AIReceiptExtractor aiExtractor = mock(AIReceiptExtractor.class);
+        doThrow(new ReceiptParsingException("unsupported")).when(legacyExtractor).extract(any(), eq("sample.pdf"));
+        doReturn(new ReceiptExtractionResult(Map.of("items", List.of()), "{}"))
+            .when(aiExtractor).extract(any(), eq("sample.pdf"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        HybridReceiptExtractor extractor = new HybridReceiptExtractor(legacyExtractor, aiExtractor, objectMapper,
+            new ReceiptProcessingMetrics(registry));
+        extractor.extract(new byte[] {1}, "sample.pdf");
+
+        assertThat(registry.get(ReceiptProcessingMetrics.EXTRACTION)
+            .tags("extractor", "legacy", "outcome", "error").timer().count()).isEqualTo(1);
+        assertThat(registry.get(ReceiptProcessingMetrics.EXTRACTION)
+            .tags("extractor", "hybrid", "outcome", "fallback").timer().count()).isEqualTo(1);
+    }
 }
@@ -2,6 +2,12 @@ package dev.pekelund.pklnd.receiptparser;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.google.cloud.firestore.FieldValue;
+import dev.pekelund.pklnd.receiptparser.ReceiptExtractionRepository.StatsKey;
+import dev.pekelund.pklnd.receiptparser.ReceiptExtractionRepository.SyncChunk;
+import dev.pekelund.pklnd.receiptparser.ReceiptExtractionRepository.SyncWrite;
+import dev.pekelund.pklnd.receipts.ReceiptItemConstants;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -68,4 +74,111 @@ class ReceiptExtractionRepositoryTest {
             .containsEntry("storeName", "ICA Test")
             .containsEntry("receiptDate", "2024-10-01");
     }
+
+    @Test
+    void detachRawTextMovesOcrTextOutOfStructuredData() {
+        Map<String, Object> legacySection = new LinkedHashMap<>();
+        legacySection.put("rawText", "ICA Nära\nMjölk 15,90");
+        legacySection.put("items", List.of(Map.of("name", "Mjölk")));
+
+        Map<String, Object> structured = new LinkedHashMap<>();
+        structured.put("general", Map.of("storeName", "ICA Nära"));
+        structured.put("legacy", legacySection);
+
+        ReceiptExtractionRepository.DetachedRawText detached = ReceiptExtractionRepository.detachRawText(structured);
+
+        assertThat(detached.rawText()).isEqualTo("ICA Nära\nMjölk 15,90");
+        assertThat(detached.structuredData())
+            .containsEntry("general", Map.of("storeName", "ICA Nära"))
+            .containsEntry("rawText", FieldValue.delete());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> legacy = (Map<String, Object>) detached.structuredData().get("legacy");
+        assertThat(legacy)
+            .containsEntry("rawText", FieldValue.delete())
+            .containsKey("items");
+        assertThat(legacySection).containsEntry("rawText", "ICA Nära\nMjölk 15,90");
+    }
+
+    @Test
+    void buildPricePointDerivesUnitPriceFromQuantity() {
+        Map<String, Object> item = Map.of(
+            "name", "Bananer",
+            "totalPrice", "25,00",
+            "quantity", "2 st"
+        );
+
+        Map<String, Object> point = ReceiptExtractionRepository.buildPricePoint(item, "2024-09-30", "ICA");
+
+        assertThat(point)
+            .containsEntry("date", "2024-09-30")
+            .containsEntry("price", "12.50")
+            .containsEntry("store", "ICA");
+        assertThat(ReceiptExtractionRepository.buildPricePoint(Map.of("name", "Okänd"), "2024-09-30", "ICA"))
+            .isNull();
+    }
+
+    @Test
+    void partitionKeepsLargeReceiptsWithinTheBatchLimit() {
+        List<SyncWrite> writes = new ArrayList<>();
+        for (int index = 0; index < 400; index++) {
+            String ean = String.valueOf(7310865000000L + index);
+            writes.add(SyncWrite.create(null, Map.of("normalizedEan", ean),
+                List.of(new StatsKey("owner-1", ean), new StatsKey(ReceiptItemConstants.GLOBAL_OWNER_ID, ean))));
+        }
+
+        List<SyncChunk> chunks = ReceiptExtractionRepository.partition(writes,
+            ReceiptExtractionRepository.MAX_BATCH_WRITES);
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.size())
+            .isLessThanOrEqualTo(ReceiptExtractionRepository.MAX_BATCH_WRITES));
+        assertThat(chunks.stream().mapToInt(chunk -> chunk.writes().size()).sum()).isEqualTo(400);
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.deltas()).hasSize(chunk.writes().size() * 2)
+            .allSatisfy((key, delta) -> assertThat(delta).isEqualTo(1L)));
+    }
+
+    @Test
+    void partitionNetsStatisticsOfItemsReplacedInTheSameBatch() {
+        List<StatsKey> keys = List.of(new StatsKey("owner-1", "7310865004703"),
+            new StatsKey(ReceiptItemConstants.GLOBAL_OWNER_ID, "7310865004703"));
+        List<SyncWrite> writes = List.of(
+            new SyncWrite(null, ReceiptExtractionRepository.WriteKind.DELETE, null,
+                Map.of(keys.get(0), -1L, keys.get(1), -1L), null),
+            SyncWrite.create(null, Map.of("normalizedEan", "7310865004703"), keys),
+            SyncWrite.merge(null, Map.of("points", Map.of())));
+
+        List<SyncChunk> chunks = ReceiptExtractionRepository.partition(writes,
+            ReceiptExtractionRepository.MAX_BATCH_WRITES);
+
+        assertThat(chunks).singleElement().satisfies(chunk -> {
+            assertThat(chunk.writes()).hasSize(3);
+            assertThat(chunk.deltas()).containsOnlyKeys(keys).containsValues(0L);
+        });
+    }
+
+    @Test
+    void isUnchangedIgnoresTheParseTimeButNotTheItem() {
+        Map<String, Object> stored = new LinkedHashMap<>();
+        stored.put("receiptId", "receipt-1");
+        stored.put("itemIndex", 0L);
+        stored.put("itemData", Map.of("name", "Mjölk", "totalPrice", "12.90"));
+        stored.put("receiptUpdatedAt", "2024-09-30T10:00:00Z");
+
+        Map<String, Object> reparsed = new LinkedHashMap<>(stored);
+        reparsed.put("receiptUpdatedAt", "2024-10-01T08:00:00Z");
+        assertThat(ReceiptExtractionRepository.isUnchanged(stored, reparsed)).isTrue();
+
+        reparsed.put("itemData", Map.of("name", "Mjölk", "totalPrice", "13.50"));
+        assertThat(ReceiptExtractionRepository.isUnchanged(stored, reparsed)).isFalse();
+        assertThat(ReceiptExtractionRepository.isUnchanged(null, reparsed)).isFalse();
+    }
+
+    @Test
+    void countItemsCountsEveryListedItem() {
+        Map<String, Object> structuredData = Map.of("items",
+            List.of(Map.of("name", "Mjölk", "eanCode", "7310865004703"), Map.of("name", "Pant")));
+
+        assertThat(ReceiptExtractionRepository.countItems(structuredData)).isEqualTo(2L);
+        assertThat(ReceiptExtractionRepository.countItems(Map.of())).isZero();
+    }
 }
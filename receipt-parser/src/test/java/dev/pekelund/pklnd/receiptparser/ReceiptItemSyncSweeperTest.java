@@ -0,0 +1,28 @@
+package dev.pekelund.pklnd.receiptparser;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class ReceiptItemSyncSweeperTest {
+
+    @Test
+    void sweepResumesSyncsOlderThanTheIntervalAndSurvivesFailures() {
+        ReceiptExtractionRepository repository = mock(ReceiptExtractionRepository.class);
+        Duration interval = Duration.ofHours(1);
+        when(repository.resumePendingItemSyncs(interval))
+            .thenThrow(new ReceiptParsingException("Firestore unavailable"))
+            .thenReturn(3);
+
+        try (ReceiptItemSyncSweeper sweeper = new ReceiptItemSyncSweeper(repository, interval)) {
+            sweeper.sweep();
+            sweeper.sweep();
+        }
+
+        verify(repository, times(2)).resumePendingItemSyncs(interval);
+    }
+}
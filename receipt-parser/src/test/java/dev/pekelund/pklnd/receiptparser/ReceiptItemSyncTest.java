@@ -0,0 +1,357 @@
+package dev.pekelund.pklnd.receiptparser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteBatch;
+import dev.pekelund.pklnd.concurrency.ConcurrencyLimitExceededException;
+import dev.pekelund.pklnd.concurrency.ConcurrencyLimiter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs item syncs against a mocked Firestore that applies committed batches to in-memory receipt items,
+ * statistics counts and receipt fields.
+ */
+class ReceiptItemSyncTest {
+
+    private static final String RECEIPT_ID = "receipt-1";
+    private static final String RECEIPTS = "receiptExtractions";
+    private static final String ITEMS = "receiptItems";
+    private static final String STATS = "receiptItemStats";
+    private static final String PENDING_FIELD = "itemSyncPendingAt";
+    private static final Timestamp READ_TIME = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 0);
+
+    private final Map<String, Object> receiptFields = new HashMap<>();
+    private final Map<String, Map<String, Object>> storedItems = new LinkedHashMap<>();
+    private final Map<String, Long> storedCounts = new HashMap<>();
+    private final Map<Integer, Throwable> commitFailures = new HashMap<>();
+    private final Map<String, CollectionReference> collections = new HashMap<>();
+    private final AtomicInteger commits = new AtomicInteger();
+    private final AtomicInteger itemWrites = new AtomicInteger();
+    private final AtomicInteger receiptReads = new AtomicInteger();
+    private final List<Runnable> scheduledSyncs = new ArrayList<>();
+    private Runnable onReceiptRead = () -> { };
+    private Runnable onNewBatch = () -> { };
+    private ConcurrencyLimiter firestoreLimiter = ConcurrencyLimiter.unlimited("Firestore");
+    private Firestore firestore;
+
+    @BeforeEach
+    void setUp() {
+        firestore = mock(Firestore.class);
+        when(firestore.collection(anyString())).thenAnswer(invocation -> collection(invocation.getArgument(0)));
+        when(firestore.batch()).thenAnswer(invocation -> {
+            onNewBatch.run();
+            return newBatch();
+        });
+        when(firestore.getAll(any(DocumentReference[].class))).thenReturn(ApiFutures.immediateFuture(List.of()));
+
+        Query byReceipt = mock(Query.class);
+        when(collection(ITEMS).whereEqualTo("receiptId", RECEIPT_ID)).thenReturn(byReceipt);
+        when(byReceipt.get()).thenAnswer(invocation -> ApiFutures.immediateFuture(itemsSnapshot()));
+
+        Query pending = mock(Query.class);
+        QuerySnapshot pendingSnapshot = mock(QuerySnapshot.class);
+        QueryDocumentSnapshot pendingReceipt = mock(QueryDocumentSnapshot.class);
+        when(collection(RECEIPTS).whereLessThan(eq(PENDING_FIELD), any())).thenReturn(pending);
+        when(pending.select(PENDING_FIELD)).thenReturn(pending);
+        when(pending.limit(100)).thenReturn(pending);
+        when(pending.get()).thenReturn(ApiFutures.immediateFuture(pendingSnapshot));
+        when(pendingSnapshot.getDocuments()).thenReturn(List.of(pendingReceipt));
+        when(pendingReceipt.getId()).thenReturn(RECEIPT_ID);
+    }
+
+    @Test
+    void rerunAfterAFailedMiddleChunkCountsEveryItemOnce() {
+        storeReceipt(400);
+        ReceiptExtractionRepository repository = repository(Runnable::run);
+        commitFailures.put(2, new IllegalStateException("Deadline exceeded"));
+
+        assertThatThrownBy(() -> repository.synchronizeItems(RECEIPT_ID))
+            .isInstanceOf(ReceiptParsingException.class);
+        assertThat(storedItems).hasSizeBetween(1, 399);
+        assertThat(receiptFields).containsKey(PENDING_FIELD);
+
+        repository.synchronizeItems(RECEIPT_ID);
+
+        assertThat(storedItems).hasSize(400);
+        assertThat(storedCounts).hasSize(800).allSatisfy((statsId, count) -> assertThat(count).isEqualTo(1L));
+        assertThat(receiptFields).doesNotContainKey(PENDING_FIELD);
+    }
+
+    @Test
+    void preconditionFailureLeavesThePendingMarker() {
+        storeReceipt(2);
+        ReceiptExtractionRepository repository = repository(Runnable::run);
+        // The first commit carries the items, the second clears the marker.
+        commitFailures.put(2, failedPrecondition());
+
+        repository.synchronizeItems(RECEIPT_ID);
+
+        assertThat(storedItems).hasSize(2);
+        assertThat(receiptFields).containsKey(PENDING_FIELD);
+
+        repository.synchronizeItems(RECEIPT_ID);
+
+        assertThat(storedCounts).hasSize(4).allSatisfy((statsId, count) -> assertThat(count).isEqualTo(1L));
+        assertThat(receiptFields).doesNotContainKey(PENDING_FIELD);
+    }
+
+    @Test
+    void reparsingAnUnchangedReceiptWritesNoItemDocuments() {
+        storeReceipt(3);
+        ReceiptExtractionRepository repository = repository(Runnable::run);
+        repository.synchronizeItems(RECEIPT_ID);
+        assertThat(itemWrites).hasValue(3);
+
+        receiptFields.put("updatedAt", Timestamp.ofTimeSecondsAndNanos(1_700_000_600L, 0));
+        receiptFields.put(PENDING_FIELD, receiptFields.get("updatedAt"));
+        repository.synchronizeItems(RECEIPT_ID);
+
+        assertThat(itemWrites).hasValue(3);
+        assertThat(storedCounts).hasSize(6).allSatisfy((statsId, count) -> assertThat(count).isEqualTo(1L));
+        assertThat(receiptFields).doesNotContainKey(PENDING_FIELD);
+    }
+
+    @Test
+    void requestsDuringARunningSyncTriggerExactlyOneMoreRun() {
+        ReceiptExtractionRepository repository = repository(scheduledSyncs::add);
+        onReceiptRead = () -> {
+            if (receiptReads.get() == 1) {
+                repository.resumePendingItemSyncs(Duration.ofMinutes(5));
+                repository.resumePendingItemSyncs(Duration.ofMinutes(5));
+            }
+        };
+
+        repository.resumePendingItemSyncs(Duration.ofMinutes(5));
+        assertThat(scheduledSyncs).hasSize(1);
+        scheduledSyncs.get(0).run();
+
+        assertThat(receiptReads).hasValue(2);
+        assertThat(scheduledSyncs).hasSize(1);
+
+        repository.resumePendingItemSyncs(Duration.ofMinutes(5));
+        assertThat(scheduledSyncs).hasSize(2);
+    }
+
+    @Test
+    void sweepLeavesPermitsForReceiptWritesBetweenItemBatches() {
+        storeReceipt(400);
+        firestoreLimiter = new ConcurrencyLimiter("Firestore", 2, Duration.ofMillis(50));
+        ReceiptExtractionRepository repository = repository(Runnable::run);
+        AtomicInteger batches = new AtomicInteger();
+        AtomicReference<Throwable> receiptWriteFailure = new AtomicReference<>();
+
+        // A foreground sync is mid round trip for the whole sweep.
+        try (ConcurrencyLimiter.Permit foregroundSync = firestoreLimiter.acquire()) {
+            onNewBatch = () -> {
+                if (batches.incrementAndGet() == 2) {
+                    try {
+                        repository.markStatus("bucket", "other.pdf", null, ReceiptProcessingStatus.PARSING, "Parsing");
+                    } catch (RuntimeException ex) {
+                        receiptWriteFailure.set(ex);
+                    }
+                }
+            };
+
+            assertThat(repository.resumePendingItemSyncs(Duration.ofMinutes(5))).isEqualTo(1);
+        }
+
+        assertThat(receiptWriteFailure).hasValue(null);
+        assertThat(storedItems).hasSize(400);
+        assertThat(receiptFields).doesNotContainKey(PENDING_FIELD);
+    }
+
+    @Test
+    void receiptWritesWithoutAPermitFailAsParsingErrors() {
+        firestoreLimiter = new ConcurrencyLimiter("Firestore", 1, Duration.ofMillis(10));
+        ReceiptExtractionRepository repository = repository(Runnable::run);
+
+        try (ConcurrencyLimiter.Permit itemSync = firestoreLimiter.acquire()) {
+            assertThatThrownBy(() -> repository.markStatus("bucket", "receipt.pdf", null,
+                ReceiptProcessingStatus.PARSING, "Parsing"))
+                .isInstanceOf(ReceiptParsingException.class)
+                .hasCauseInstanceOf(ConcurrencyLimitExceededException.class);
+        }
+    }
+
+    private ReceiptExtractionRepository repository(Executor itemSyncExecutor) {
+        return new ReceiptExtractionRepository(firestore, RECEIPTS, ITEMS, STATS, "receiptDataVersions",
+            "receiptPayloads", "receiptPriceHistory", ReceiptProcessingMetrics.NOOP,
+            firestoreLimiter, itemSyncExecutor);
+    }
+
+    private void storeReceipt(int itemCount) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (int index = 0; index < itemCount; index++) {
+            items.add(Map.of("name", "Vara " + index, "eanCode", String.valueOf(7310865000000L + index)));
+        }
+        receiptFields.put("owner", Map.of("id", "owner-1"));
+        receiptFields.put("status", "COMPLETED");
+        receiptFields.put("objectName", "receipt.pdf");
+        receiptFields.put("data", Map.of("items", items));
+        receiptFields.put("updatedAt", READ_TIME);
+        receiptFields.put(PENDING_FIELD, READ_TIME);
+    }
+
+    private CollectionReference collection(String name) {
+        return collections.computeIfAbsent(name, ignored -> {
+            CollectionReference collection = mock(CollectionReference.class);
+            when(collection.document(anyString()))
+                .thenAnswer(invocation -> document(name, invocation.getArgument(0)));
+            return collection;
+        });
+    }
+
+    private DocumentReference document(String collection, String id) {
+        DocumentReference reference = mock(DocumentReference.class);
+        when(reference.getId()).thenReturn(id);
+        when(reference.getPath()).thenReturn(collection + "/" + id);
+        if (RECEIPTS.equals(collection)) {
+            when(reference.get()).thenAnswer(invocation -> {
+                receiptReads.incrementAndGet();
+                onReceiptRead.run();
+                return ApiFutures.immediateFuture(receiptSnapshot());
+            });
+        }
+        return reference;
+    }
+
+    private DocumentSnapshot receiptSnapshot() {
+        Map<String, Object> fields = new HashMap<>(receiptFields);
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.exists()).thenReturn(!fields.isEmpty());
+        when(snapshot.getUpdateTime()).thenReturn(READ_TIME);
+        when(snapshot.get(anyString())).thenAnswer(invocation -> fields.get(invocation.getArgument(0)));
+        when(snapshot.getString(anyString()))
+            .thenAnswer(invocation -> (String) fields.get(invocation.getArgument(0)));
+        when(snapshot.getTimestamp(anyString()))
+            .thenAnswer(invocation -> (Timestamp) fields.get(invocation.getArgument(0)));
+        return snapshot;
+    }
+
+    private QuerySnapshot itemsSnapshot() {
+        List<QueryDocumentSnapshot> documents = new ArrayList<>();
+        storedItems.forEach((id, data) -> {
+            QueryDocumentSnapshot document = mock(QueryDocumentSnapshot.class);
+            DocumentReference reference = document(ITEMS, id);
+            when(document.getId()).thenReturn(id);
+            when(document.getReference()).thenReturn(reference);
+            when(document.getUpdateTime()).thenReturn(READ_TIME);
+            when(document.getData()).thenReturn(new HashMap<>(data));
+            when(document.getString(anyString()))
+                .thenAnswer(invocation -> (String) data.get(invocation.getArgument(0)));
+            documents.add(document);
+        });
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.isEmpty()).thenReturn(documents.isEmpty());
+        when(snapshot.getDocuments()).thenReturn(documents);
+        return snapshot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private WriteBatch newBatch() {
+        WriteBatch batch = mock(WriteBatch.class);
+        List<Runnable> writes = new ArrayList<>();
+        when(batch.create(any(DocumentReference.class), anyMap())).thenAnswer(invocation -> {
+            DocumentReference reference = invocation.getArgument(0);
+            Map<String, Object> data = new HashMap<>((Map<String, Object>) invocation.getArgument(1));
+            writes.add(() -> {
+                itemWrites.incrementAndGet();
+                storedItems.put(reference.getId(), data);
+            });
+            return batch;
+        });
+        when(batch.set(any(DocumentReference.class), anyMap(), any(SetOptions.class))).thenAnswer(invocation -> {
+            DocumentReference reference = invocation.getArgument(0);
+            Map<String, Object> data = invocation.getArgument(1);
+            if (reference.getPath().startsWith(STATS + "/")) {
+                long delta = increment(data.get("count"));
+                writes.add(() -> storedCounts.merge(reference.getId(), delta, Long::sum));
+            }
+            return batch;
+        });
+        when(batch.update(any(DocumentReference.class), anyMap(), any(Precondition.class))).thenAnswer(invocation -> {
+            DocumentReference reference = invocation.getArgument(0);
+            Map<String, Object> fields = invocation.getArgument(1);
+            if (reference.getPath().startsWith(RECEIPTS + "/")) {
+                writes.add(() -> fields.forEach((field, value) -> {
+                    if (FieldValue.delete().equals(value)) {
+                        receiptFields.remove(field);
+                    } else {
+                        receiptFields.put(field, value);
+                    }
+                }));
+            } else if (reference.getPath().startsWith(ITEMS + "/")) {
+                writes.add(() -> {
+                    itemWrites.incrementAndGet();
+                    storedItems.get(reference.getId()).putAll(fields);
+                    storedItems.get(reference.getId()).values().removeIf(FieldValue.delete()::equals);
+                });
+            }
+            return batch;
+        });
+        when(batch.delete(any(DocumentReference.class), any(Precondition.class))).thenAnswer(invocation -> {
+            DocumentReference reference = invocation.getArgument(0);
+            writes.add(() -> {
+                itemWrites.incrementAndGet();
+                storedItems.remove(reference.getId());
+            });
+            return batch;
+        });
+        when(batch.getMutationsSize()).thenAnswer(invocation -> writes.size());
+        when(batch.commit()).thenAnswer(invocation -> {
+            Throwable failure = commitFailures.get(commits.incrementAndGet());
+            if (failure != null) {
+                return ApiFutures.immediateFailedFuture(failure);
+            }
+            writes.forEach(Runnable::run);
+            return ApiFutures.immediateFuture(List.of());
+        });
+        return batch;
+    }
+
+    private static long increment(Object value) {
+        for (long delta : new long[] {1L, -1L}) {
+            if (FieldValue.increment(delta).equals(value)) {
+                return delta;
+            }
+        }
+        throw new AssertionError("Unexpected statistics count update " + value);
+    }
+
+    private static ApiException failedPrecondition() {
+        StatusCode statusCode = mock(StatusCode.class);
+        when(statusCode.getCode()).thenReturn(StatusCode.Code.FAILED_PRECONDITION);
+        return new ApiException(new IllegalStateException("Document was updated"), statusCode, false);
+    }
+}
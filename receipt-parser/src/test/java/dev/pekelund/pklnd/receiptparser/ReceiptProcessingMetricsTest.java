@@ -0,0 +1,54 @@
+package dev.pekelund.pklnd.receiptparser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+class ReceiptProcessingMetricsTest {
+
+    @Test
+    void enteringAStageClosesThePreviousOneAndFinishRecordsTheOutcome() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReceiptProcessingMetrics metrics = new ReceiptProcessingMetrics(registry);
+
+        ReceiptProcessingMetrics.StageTracker stages = metrics.track();
+        stages.enter("FETCH_BLOB");
+        stages.enter("EXTRACT");
+        assertThat(MDC.get("receipt.stage")).isEqualTo("EXTRACT");
+        stages.finish("completed");
+        MDC.clear();
+
+        assertThat(registry.get(ReceiptProcessingMetrics.STAGE).tag("stage", "FETCH_BLOB").timer().count())
+            .isEqualTo(1);
+        assertThat(registry.get(ReceiptProcessingMetrics.STAGE).tag("stage", "EXTRACT").timer().count())
+            .isEqualTo(1);
+        assertThat(registry.get(ReceiptProcessingMetrics.PROCESSING).tag("outcome", "completed").timer().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void recordsSizesAsDistributionSummaries() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReceiptProcessingMetrics metrics = new ReceiptProcessingMetrics(registry);
+
+        metrics.recordPdfSize(2048);
+        metrics.recordFirestoreBatchSize(12);
+        metrics.recordFirestoreBatchSize(4);
+
+        assertThat(registry.get(ReceiptProcessingMetrics.PDF_SIZE).summary().totalAmount()).isEqualTo(2048);
+        assertThat(registry.get(ReceiptProcessingMetrics.FIRESTORE_BATCH_SIZE).summary().count()).isEqualTo(2);
+        assertThat(registry.get(ReceiptProcessingMetrics.FIRESTORE_BATCH_SIZE).summary().max()).isEqualTo(12);
+    }
+
+    @Test
+    void noopStillTracksTheMdcStage() {
+        ReceiptProcessingMetrics.StageTracker stages = ReceiptProcessingMetrics.NOOP.track();
+        stages.enter("EXTRACT");
+        assertThat(MDC.get("receipt.stage")).isEqualTo("EXTRACT");
+        stages.finish("completed");
+        ReceiptProcessingMetrics.NOOP.recordItems(3);
+        MDC.clear();
+    }
+}
@@ -0,0 +1,81 @@
+#!/usr/bin/env python3
+"""Compares two JMH JSON result files written by scripts/run_benchmarks.sh.
+
+Prints the primary score and allocation rate per benchmark and parameter set, with the relative change
+from the baseline. Exits with status 1 when a score regresses by more than --threshold percent.
+
+    scripts/compare_benchmarks.py benchmarks/results/abc1234.json benchmarks/results/def5678.json
+"""
+
+import argparse
+import json
+import sys
+
+ALLOC_METRIC = "gc.alloc.rate.norm"
+
+
+def load(path):
+    with open(path, encoding="utf-8") as handle:
+        results = {}
+        for entry in json.load(handle):
+            params = ",".join(f"{key}={value}" for key, value in sorted(entry.get("params", {}).items()))
+            name = entry["benchmark"].rsplit(".", 2)[-2:]
+            key = ".".join(name) + (f" [{params}]" if params else "")
+            primary = entry["primaryMetric"]
+            alloc = entry.get("secondaryMetrics", {}).get(ALLOC_METRIC, {}).get("score")
+            results[key] = (primary["score"], primary["scoreUnit"], entry["mode"], alloc)
+        return results
+
+
+def change(before, after):
+    if before in (None, 0) or after is None:
+        return None
+    return (after - before) / before * 100.0
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__.splitlines()[0])
+    parser.add_argument("baseline")
+    parser.add_argument("candidate")
+    parser.add_argument("--threshold", type=float, default=10.0,
+                        help="regression in percent that fails the comparison (default 10)")
+    args = parser.parse_args()
+
+    baseline = load(args.baseline)
+    candidate = load(args.candidate)
+    regressions = []
+
+    print(f"{'benchmark':<70} {'baseline':>12} {'candidate':>12} {'change':>8} {'B/op':>12} {'change':>8}")
+    for key in sorted(baseline.keys() | candidate.keys()):
+        if key not in baseline or key not in candidate:
+            print(f"{key:<70} {'only in ' + ('baseline' if key in baseline else 'candidate'):>26}")
+            continue
+        before, unit, mode, alloc_before = baseline[key]
+        after, _, _, alloc_after = candidate[key]
+        score_change = change(before, after)
+        # Throughput is better when higher; every other JMH mode reports time per operation.
+        slowdown = -score_change if mode == "thrpt" and score_change is not None else score_change
+        alloc_change = change(alloc_before, alloc_after)
+        print(f"{key:<70} {before:>12.3f} {after:>12.3f} {format_change(score_change):>8}"
+              f" {format_alloc(alloc_after):>12} {format_change(alloc_change):>8}  {unit}")
+        if slowdown is not None and slowdown > args.threshold:
+            regressions.append(key)
+
+    if regressions:
+        print(f"\n{len(regressions)} benchmark(s) slower by more than {args.threshold:.0f}%:", file=sys.stderr)
+        for key in regressions:
+            print(f"  {key}", file=sys.stderr)
+        return 1
+    return 0
+
+
+def format_change(value):
+    return "" if value is None else f"{value:+.1f}%"
+
+
+def format_alloc(value):
+    return "" if value is None else f"{value:.0f}"
+
+
+if __name__ == "__main__":
+    sys.exit(main())
@@ -0,0 +1,43 @@
+#!/usr/bin/env bash
+# Measures time-to-first-request of the packaged web jar: the time from launching the JVM until
+# /actuator/health/readiness answers 200. Extra arguments are passed to the JVM, for example
+#   scripts/measure_startup.sh -XX:SharedArchiveFile=web/target/cds/application.jsa
+# Environment: JAR (default: the pklnd-web jar in web/target), PORT (default 18080), RUNS (default 3).
+
+set -euo pipefail
+
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+ROOT_DIR="$(cd "${SCRIPT_DIR}/.." && pwd)"
+PORT="${PORT:-18080}"
+RUNS="${RUNS:-3}"
+JAR="${JAR:-$(find "${ROOT_DIR}/web/target" -maxdepth 1 -name 'pklnd-web-*.jar' ! -name '*original*' ! -name '*-plain.jar' | head -n 1)}"
+
+if [[ -z "${JAR}" || ! -f "${JAR}" ]]; then
+  echo "Web jar not found. Build it with: ./mvnw -Pinclude-web -pl web -am -DskipTests package" >&2
+  exit 1
+fi
+
+now_ms() {
+  date +%s%3N
+}
+
+total=0
+for run in $(seq 1 "${RUNS}"); do
+  start=$(now_ms)
+  java "$@" -jar "${JAR}" --server.port="${PORT}" > "/tmp/pklnd-startup-${run}.log" 2>&1 &
+  pid=$!
+  until curl -sf "http://localhost:${PORT}/actuator/health/readiness" > /dev/null; do
+    if ! kill -0 "${pid}" 2> /dev/null; then
+      echo "Application exited during startup; see /tmp/pklnd-startup-${run}.log" >&2
+      exit 1
+    fi
+    sleep 0.05
+  done
+  elapsed=$(( $(now_ms) - start ))
+  kill "${pid}"
+  wait "${pid}" 2> /dev/null || true
+  echo "Run ${run}: first request answered after ${elapsed} ms"
+  total=$(( total + elapsed ))
+done
+
+echo "Average over ${RUNS} run(s): $(( total / RUNS )) ms"
@@ -0,0 +1,27 @@
+#!/usr/bin/env bash
+# Builds the JMH suites in benchmarks/ and runs them with the GC profiler, writing JSON results to
+# benchmarks/results/<commit>.json so two commits can be compared with scripts/compare_benchmarks.py.
+# Arguments are passed to JMH, for example
+#   scripts/run_benchmarks.sh ReceiptSearchBenchmark -p receipts=1000
+#   scripts/run_benchmarks.sh -wi 1 -i 1 -f 1          # quick smoke run
+# Environment: SKIP_BUILD=1 reuses benchmarks/target/benchmarks.jar, RESULT overrides the output file.
+
+set -euo pipefail
+
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+ROOT_DIR="$(cd "${SCRIPT_DIR}/.." && pwd)"
+cd "${ROOT_DIR}"
+
+if [[ "${SKIP_BUILD:-0}" != "1" ]]; then
+  ./mvnw -B -q -Pinclude-web,benchmarks -pl benchmarks -am -DskipTests package
+fi
+
+revision="$(git rev-parse --short HEAD 2> /dev/null || echo local)"
+if [[ -n "$(git status --porcelain --untracked-files=no 2> /dev/null)" ]]; then
+  revision="${revision}-dirty"
+fi
+RESULT="${RESULT:-benchmarks/results/${revision}.json}"
+mkdir -p "$(dirname "${RESULT}")"
+
+java -jar benchmarks/target/benchmarks.jar -prof gc -rf json -rff "${RESULT}" "$@"
+echo "Results written to ${RESULT}"
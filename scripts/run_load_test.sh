@@ -0,0 +1,65 @@
+#!/usr/bin/env bash
+# Load test for the web module against the Firestore emulator. Starts the emulator from
+# local/docker-compose.yml, starts the packaged web jar with the local profile (rate limits lifted), seeds
+# users and receipts, drives the main pages at a fixed request rate and writes a JSON report with
+# p50/p90/p99 latency and Firestore reads per request to benchmarks/results/loadtest-<commit>.json.
+# Arguments go to the driver, for example
+#   scripts/run_load_test.sh --rps=50 --duration=2m --users=40
+#   scripts/run_load_test.sh --help
+# Environment: BASE_URL targets an instance that is already running (nothing is started), JAVA_OPTS is
+# passed to the web JVM, SKIP_BUILD=1 reuses the built jars, PORT (default 18080).
+
+set -euo pipefail
+
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+ROOT_DIR="$(cd "${SCRIPT_DIR}/.." && pwd)"
+cd "${ROOT_DIR}"
+
+PORT="${PORT:-18080}"
+export FIRESTORE_PROJECT_ID="${FIRESTORE_PROJECT_ID:-pklnd-local}"
+export FIRESTORE_DATABASE_ID="${FIRESTORE_DATABASE_ID:-receipts-db}"
+export FIRESTORE_EMULATOR_HOST="${FIRESTORE_EMULATOR_HOST:-localhost:${FIRESTORE_EMULATOR_PORT:-8085}}"
+
+if [[ "${SKIP_BUILD:-0}" != "1" ]]; then
+  ./mvnw -B -q -Pinclude-web,benchmarks -pl benchmarks -am -DskipTests package
+fi
+
+web_pid=""
+cleanup() {
+  if [[ -n "${web_pid}" ]]; then
+    kill "${web_pid}" 2> /dev/null || true
+    wait "${web_pid}" 2> /dev/null || true
+  fi
+}
+trap cleanup EXIT
+
+if [[ -z "${BASE_URL:-}" ]]; then
+  docker compose -f local/docker-compose.yml up -d --wait firestore
+
+  jar="$(find web/target -maxdepth 1 -name 'pklnd-web-*.jar' ! -name '*original*' ! -name '*-plain.jar' | head -n 1)"
+  # Every virtual user comes from 127.0.0.1, so the per-client limits would throttle the test itself.
+  # shellcheck disable=SC2086
+  java ${JAVA_OPTS:-} -jar "${jar}" \
+    --spring.profiles.active=local \
+    --server.port="${PORT}" \
+    --rate-limit.routes[0].name=loadtest \
+    --rate-limit.routes[0].paths[0]=/__loadtest__ \
+    --rate-limit.routes[0].capacity=1 \
+    --rate-limit.routes[0].refill-period=1m \
+    > /tmp/pklnd-loadtest-web.log 2>&1 &
+  web_pid=$!
+  until curl -sf "http://localhost:${PORT}/actuator/health/readiness" > /dev/null; do
+    if ! kill -0 "${web_pid}" 2> /dev/null; then
+      echo "Web application exited during startup; see /tmp/pklnd-loadtest-web.log" >&2
+      exit 1
+    fi
+    sleep 0.5
+  done
+  BASE_URL="http://localhost:${PORT}"
+fi
+
+revision="$(git rev-parse --short HEAD 2> /dev/null || echo local)"
+java -cp benchmarks/target/benchmarks.jar dev.pekelund.pklnd.loadtest.LoadTest \
+  --base-url="${BASE_URL}" \
+  --output="benchmarks/results/loadtest-${revision}.json" \
+  "$@"
@@ -396,8 +396,10 @@
         const filesError = container.querySelector('[data-files-error]');
 
         const POLL_INTERVAL = 2000;
+        const STREAMING_POLL_INTERVAL = 30000;
         let pollTimeoutId = null;
         let isFetching = false;
+        let streamConnected = false;
 
         async function fetchAndRender() {
             if (pollTimeoutId !== null) {
@@ -440,7 +442,8 @@
             if (pollTimeoutId !== null) {
                 window.clearTimeout(pollTimeoutId);
             }
-            pollTimeoutId = window.setTimeout(fetchAndRender, POLL_INTERVAL);
+            const interval = streamConnected ? STREAMING_POLL_INTERVAL : POLL_INTERVAL;
+            pollTimeoutId = window.setTimeout(fetchAndRender, interval);
         }
 
         document.addEventListener('visibilitychange', () => {
@@ -449,6 +452,24 @@
             }
         });
 
+        // Parse status changes are pushed over Server-Sent Events when available; polling then only acts as a
+        // slow safety net. Without a stream (or while it reconnects) the dashboard keeps polling quickly.
+        const streamUrl = container.getAttribute('data-status-stream-url');
+        if (streamUrl && typeof window.EventSource === 'function') {
+            const source = new EventSource(streamUrl);
+            source.addEventListener('open', () => {
+                streamConnected = true;
+                fetchAndRender();
+            });
+            source.addEventListener('status', () => {
+                fetchAndRender();
+            });
+            source.addEventListener('error', () => {
+                streamConnected = false;
+                scheduleNext();
+            });
+        }
+
         fetchAndRender();
 
         return {
@@ -213,8 +213,10 @@ function setupDashboardPolling(sortState, groupStates) {
     const parsedError = container.querySelector('[data-parsed-error]');
 
     const POLL_INTERVAL = 2000;
+    const STREAMING_POLL_INTERVAL = 30000;
     let pollTimeoutId = null;
     let isFetching = false;
+    let streamConnected = false;
 
     async function fetchAndRender() {
         if (pollTimeoutId !== null) {
@@ -255,7 +257,8 @@ function setupDashboardPolling(sortState, groupStates) {
         if (pollTimeoutId !== null) {
             window.clearTimeout(pollTimeoutId);
         }
-        pollTimeoutId = window.setTimeout(fetchAndRender, POLL_INTERVAL);
+        const interval = streamConnected ? STREAMING_POLL_INTERVAL : POLL_INTERVAL;
+        pollTimeoutId = window.setTimeout(fetchAndRender, interval);
     }
 
     document.addEventListener('visibilitychange', () => {
@@ -264,6 +267,24 @@ function setupDashboardPolling(sortState, groupStates) {
         }
     });
 
+    // Parse status changes are pushed over Server-Sent Events when available; polling then only acts as a
+    // slow safety net. Without a stream (or while it reconnects) the dashboard keeps polling quickly.
+    const streamUrl = container.getAttribute('data-status-stream-url');
+    if (streamUrl && typeof window.EventSource === 'function') {
+        const source = new EventSource(streamUrl);
+        source.addEventListener('open', () => {
+            streamConnected = true;
+            fetchAndRender();
+        });
+        source.addEventListener('status', () => {
+            fetchAndRender();
+        });
+        source.addEventListener('error', () => {
+            streamConnected = false;
+            scheduleNext();
+        });
+    }
+
     fetchAndRender();
 
     return {
@@ -383,10 +404,17 @@ function setupClearReceiptsControl(poller) {
                 throw new Error(message);
             }
 
-            const successMessage = payload && payload.successMessage
-                ? payload.successMessage
+            renderFeedback(payload && payload.successMessage ? payload.successMessage : 'Clearing receipt data…', 'info');
+            const job = payload && payload.jobId ? await waitForClearJob(form.action, payload.jobId) : payload;
+            if (job && job.errorMessage && !job.successMessage) {
+                throw new Error(job.errorMessage);
+            }
+
+            const successMessage = job && job.successMessage
+                ? job.successMessage
                 : 'Receipt data cleared.';
-            renderFeedback(successMessage, 'success');
+            renderFeedback(job && job.errorMessage ? `${successMessage} ${job.errorMessage}` : successMessage,
+                job && job.errorMessage ? 'warning' : 'success');
 
             if (poller && typeof poller.refreshNow === 'function') {
                 poller.refreshNow();
@@ -404,6 +432,26 @@ function setupClearReceiptsControl(poller) {
     });
 }
 
+const CLEAR_JOB_POLL_INTERVAL_MS = 1000;
+
+async function waitForClearJob(clearUrl, jobId) {
+    const statusUrl = `${clearUrl}/${encodeURIComponent(jobId)}`;
+    for (;;) {
+        const response = await fetch(statusUrl, {
+            headers: { Accept: 'application/json' },
+            credentials: 'same-origin',
+        });
+        const job = await response.json().catch(() => null);
+        if (!response.ok) {
+            throw new Error(job && job.errorMessage ? job.errorMessage : 'Failed to check the clear job.');
+        }
+        if (job && job.status !== 'RUNNING') {
+            return job;
+        }
+        await new Promise((resolve) => window.setTimeout(resolve, CLEAR_JOB_POLL_INTERVAL_MS));
+    }
+}
+
 function buildParsedRow(receipt) {
     const row = document.createElement('tr');
     if (receipt && receipt.id) {
@@ -0,0 +1,97 @@
+package dev.pekelund.pklnd.config;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory {@link RateLimitStore} for a single instance. When the number of tracked clients reaches its
+ * bound, buckets that have refilled completely are dropped, which is exact because a missing bucket
+ * starts full. If a flood of active clients still exceeds the bound, arbitrary buckets are evicted so
+ * memory stays bounded at the cost of briefly resetting those clients.
+ */
+public class LocalRateLimitStore implements RateLimitStore {
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean pruning = new AtomicBoolean();
+    private final long maxBuckets;
+    private final LongSupplier nanoClock;
+
+    public LocalRateLimitStore(long maxBuckets) {
+        this(maxBuckets, System::nanoTime);
+    }
+
+    LocalRateLimitStore(long maxBuckets, LongSupplier nanoClock) {
+        this.maxBuckets = Math.max(1L, maxBuckets);
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public boolean tryAcquire(String key, RateLimitPolicy policy) {
+        long now = nanoClock.getAsLong();
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxBuckets) {
+                prune(now);
+            }
+            bucket = buckets.computeIfAbsent(key, ignored -> new TokenBucket(now));
+        }
+        return bucket.tryAcquire(now, policy.emissionIntervalNanos(), policy.burstToleranceNanos());
+    }
+
+    long size() {
+        return buckets.size();
+    }
+
+    private void prune(long now) {
+        if (!pruning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+            // Leave some headroom so a sustained flood does not trigger a sweep for every new client.
+            long target = maxBuckets - Math.max(1L, maxBuckets / 10);
+            Iterator<TokenBucket> iterator = buckets.values().iterator();
+            while (buckets.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        } finally {
+            pruning.set(false);
+        }
+    }
+
+    /**
+     * Token bucket expressed as the time at which the bucket will next be full (the generic cell rate
+     * algorithm), so the whole state fits in one {@link AtomicLong} and is updated with compare-and-set
+     * instead of a lock.
+     */
+    static final class TokenBucket {
+
+        private final AtomicLong fullAt;
+
+        TokenBucket(long now) {
+            this.fullAt = new AtomicLong(now);
+        }
+
+        boolean tryAcquire(long now, long emissionIntervalNanos, long burstToleranceNanos) {
+            while (true) {
+                long current = fullAt.get();
+                long start = current - now > 0 ? current : now;
+                if (start - now > burstToleranceNanos) {
+                    return false;
+                }
+                if (fullAt.compareAndSet(current, start + emissionIntervalNanos)) {
+                    return true;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return fullAt.get() - now <= 0;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package dev.pekelund.pklnd.config;
+
+import java.time.Duration;
+import org.springframework.util.Assert;
+
+/**
+ * Token-bucket limits for one group of routes: a client may burst up to {@code capacity} requests, and
+ * tokens are refilled evenly so that {@code capacity} requests become available again per
+ * {@code refillPeriod}.
+ */
+public record RateLimitPolicy(String name, int capacity, Duration refillPeriod) {
+
+    public RateLimitPolicy {
+        Assert.hasText(name, "Rate limit policy name is required");
+        Assert.isTrue(capacity > 0, "Rate limit capacity must be positive");
+        Assert.isTrue(refillPeriod != null && !refillPeriod.isZero() && !refillPeriod.isNegative(),
+            "Rate limit refill period must be positive");
+    }
+
+    /**
+     * Time it takes to refill a single token.
+     */
+    public long emissionIntervalNanos() {
+        return Math.max(1L, refillPeriod.toNanos() / capacity);
+    }
+
+    /**
+     * How far ahead of the current time a client's schedule may run before requests are rejected, which
+     * is what allows a full bucket to be spent at once.
+     */
+    public long burstToleranceNanos() {
+        return emissionIntervalNanos() * (capacity - 1L);
+    }
+}
@@ -0,0 +1,16 @@
+package dev.pekelund.pklnd.config;
+
+/**
+ * Holds the token buckets behind {@link RateLimitingInterceptor}. The default {@link LocalRateLimitStore}
+ * keeps them in memory per instance; an implementation backed by a shared store lets several Cloud Run
+ * instances enforce one limit together.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Takes one token from the bucket identified by {@code key}, creating a full bucket if none exists.
+     *
+     * @return {@code true} when a token was available and the request may proceed
+     */
+    boolean tryAcquire(String key, RateLimitPolicy policy);
+}
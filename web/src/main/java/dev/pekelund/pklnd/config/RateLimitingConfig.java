@@ -1,27 +1,35 @@
 package dev.pekelund.pklnd.config;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
- * Registers the {@link RateLimitingInterceptor} for authentication and search endpoints.
+ * Registers one {@link RateLimitingInterceptor} per configured route group.
  *
- * <p>Limits: 20 requests per minute per IP on auth endpoints; 60 per minute on search.
+ * <p>Defaults: 20 requests per minute per IP on auth endpoints; 60 per minute on search. The buckets are
+ * kept in a single bounded {@link LocalRateLimitStore} unless another {@link RateLimitStore} bean is
+ * defined.
  */
 @Configuration
+@EnableConfigurationProperties(RateLimitingProperties.class)
 public class RateLimitingConfig implements WebMvcConfigurer {
 
-    private static final int AUTH_MAX = 20;
-    private static final long ONE_MINUTE_MS = 60_000L;
-    private static final int SEARCH_MAX = 60;
+    private final RateLimitingProperties properties;
+    private final RateLimitStore store;
+
+    public RateLimitingConfig(RateLimitingProperties properties, ObjectProvider<RateLimitStore> storeProvider) {
+        this.properties = properties;
+        this.store = storeProvider.getIfAvailable(() -> new LocalRateLimitStore(properties.getMaxClients()));
+    }
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        registry.addInterceptor(new RateLimitingInterceptor(AUTH_MAX, ONE_MINUTE_MS))
-            .addPathPatterns("/login", "/register", "/login/**");
-
-        registry.addInterceptor(new RateLimitingInterceptor(SEARCH_MAX, ONE_MINUTE_MS))
-            .addPathPatterns("/receipts/search");
+        for (RateLimitingProperties.Route route : properties.getRoutes()) {
+            registry.addInterceptor(new RateLimitingInterceptor(route.toPolicy(), store))
+                .addPathPatterns(route.getPaths().toArray(String[]::new));
+        }
     }
 }
@@ -2,10 +2,7 @@ package dev.pekelund.pklnd.config;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -13,27 +10,34 @@ import org.springframework.lang.NonNull;
 import org.springframework.web.servlet.HandlerInterceptor;
 
 /**
- * Simple in-memory rate limiter using a sliding window per client IP.
- * Applies to authentication and search endpoints to mitigate brute-force attacks.
+ * Per-client token-bucket rate limiter for authentication and search endpoints, used to mitigate
+ * brute-force attacks. Each interceptor enforces one {@link RateLimitPolicy}; the buckets themselves live
+ * in a {@link RateLimitStore}, so several policies can share one bounded store and deployments with
+ * multiple instances can plug in shared state.
  *
  * <p>Limits are intentionally generous to avoid disrupting normal usage.
- * For production environments with multiple instances, consider Redis-backed rate limiting.
  */
 public class RateLimitingInterceptor implements HandlerInterceptor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RateLimitingInterceptor.class);
 
-    /** Maximum number of requests per window per IP. */
-    private final int maxRequests;
+    private static final long DEFAULT_MAX_BUCKETS = 10_000L;
 
-    /** Window size in milliseconds. */
-    private final long windowMs;
+    private final RateLimitPolicy policy;
+    private final RateLimitStore store;
 
-    private final Map<String, WindowCounter> counters = new ConcurrentHashMap<>();
+    public RateLimitingInterceptor(RateLimitPolicy policy, RateLimitStore store) {
+        this.policy = policy;
+        this.store = store;
+    }
 
+    /**
+     * Creates a limiter allowing {@code maxRequests} per {@code windowMs} per client, backed by its own
+     * in-memory store.
+     */
     public RateLimitingInterceptor(int maxRequests, long windowMs) {
-        this.maxRequests = maxRequests;
-        this.windowMs = windowMs;
+        this(new RateLimitPolicy("default", maxRequests, Duration.ofMillis(windowMs)),
+            new LocalRateLimitStore(DEFAULT_MAX_BUCKETS));
     }
 
     @Override
@@ -43,9 +47,7 @@ public class RateLimitingInterceptor implements HandlerInterceptor {
         @NonNull Object handler
     ) throws Exception {
         String clientIp = resolveClientIp(request);
-        WindowCounter counter = counters.computeIfAbsent(clientIp, k -> new WindowCounter());
-
-        if (!counter.tryIncrement(maxRequests, windowMs)) {
+        if (!store.tryAcquire(policy.name() + '|' + clientIp, policy)) {
             LOGGER.warn("Rate limit exceeded for IP {} on {}", clientIp, request.getRequestURI());
             response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
             response.setContentType("text/plain;charset=UTF-8");
@@ -58,22 +60,9 @@ public class RateLimitingInterceptor implements HandlerInterceptor {
     private static String resolveClientIp(HttpServletRequest request) {
         String forwarded = request.getHeader("X-Forwarded-For");
         if (forwarded != null && !forwarded.isBlank()) {
-            return forwarded.split(",")[0].trim();
+            int comma = forwarded.indexOf(',');
+            return (comma >= 0 ? forwarded.substring(0, comma) : forwarded).trim();
         }
         return request.getRemoteAddr();
     }
-
-    private static class WindowCounter {
-        private final AtomicInteger count = new AtomicInteger(0);
-        private volatile long windowStart = Instant.now().toEpochMilli();
-
-        synchronized boolean tryIncrement(int maxRequests, long windowMs) {
-            long now = Instant.now().toEpochMilli();
-            if (now - windowStart > windowMs) {
-                count.set(0);
-                windowStart = now;
-            }
-            return count.incrementAndGet() <= maxRequests;
-        }
-    }
 }
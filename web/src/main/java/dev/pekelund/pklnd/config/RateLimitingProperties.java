@@ -0,0 +1,112 @@
+package dev.pekelund.pklnd.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitingProperties {
+
+    /**
+     * Maximum number of client buckets kept in memory across all routes.
+     */
+    private long maxClients = 10_000L;
+
+    /**
+     * Route groups and the limits applied to each client on them.
+     */
+    private List<Route> routes = defaultRoutes();
+
+    public long getMaxClients() {
+        return maxClients;
+    }
+
+    public void setMaxClients(long maxClients) {
+        this.maxClients = maxClients;
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(List<Route> routes) {
+        this.routes = routes != null ? routes : new ArrayList<>();
+    }
+
+    private static List<Route> defaultRoutes() {
+        List<Route> routes = new ArrayList<>();
+        routes.add(new Route("auth", List.of("/login", "/register", "/login/**"), 20, Duration.ofMinutes(1)));
+        routes.add(new Route("search", List.of("/receipts/search"), 60, Duration.ofMinutes(1)));
+        return routes;
+    }
+
+    public static class Route {
+
+        /**
+         * Name of the policy, used to keep each route group's buckets apart.
+         */
+        private String name;
+
+        /**
+         * Path patterns the policy applies to.
+         */
+        private List<String> paths = new ArrayList<>();
+
+        /**
+         * Requests a client may make in a burst.
+         */
+        private int capacity;
+
+        /**
+         * Time it takes to refill a client's bucket from empty.
+         */
+        private Duration refillPeriod = Duration.ofMinutes(1);
+
+        public Route() {
+        }
+
+        Route(String name, List<String> paths, int capacity, Duration refillPeriod) {
+            this.name = name;
+            this.paths = new ArrayList<>(paths);
+            this.capacity = capacity;
+            this.refillPeriod = refillPeriod;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths != null ? paths : new ArrayList<>();
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public Duration getRefillPeriod() {
+            return refillPeriod;
+        }
+
+        public void setRefillPeriod(Duration refillPeriod) {
+            this.refillPeriod = refillPeriod;
+        }
+
+        RateLimitPolicy toPolicy() {
+            return new RateLimitPolicy(name, capacity, refillPeriod);
+        }
+    }
+}
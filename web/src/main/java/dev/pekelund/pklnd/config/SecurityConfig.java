@@ -64,6 +64,7 @@ public class SecurityConfig {
                     "/actuator/health/**",
                     "/api/billing/alerts"
                 ).permitAll()
+                .requestMatchers("/actuator/metrics/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
             .formLogin(form -> form
@@ -18,9 +18,11 @@ import org.springframework.util.StringUtils;
 public class AdminManagementService {
 
     private final FirestoreUserRepository repo;
+    private final UserProfileCache profileCache;
 
-    public AdminManagementService(FirestoreUserRepository repo) {
+    public AdminManagementService(FirestoreUserRepository repo, UserProfileCache profileCache) {
         this.repo = repo;
+        this.profileCache = profileCache;
     }
 
     /**
@@ -99,6 +101,8 @@ public class AdminManagementService {
                 "Failed to update administrator access for " + normalizedEmail + ".",
                 ex
             );
+        } finally {
+            profileCache.invalidate(normalizedEmail);
         }
     }
 
@@ -152,6 +156,8 @@ public class AdminManagementService {
                 "Failed to update administrator access for " + normalizedEmail + ".",
                 ex
             );
+        } finally {
+            profileCache.invalidate(normalizedEmail);
         }
     }
 
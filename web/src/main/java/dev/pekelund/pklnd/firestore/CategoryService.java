@@ -6,19 +6,21 @@ import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
-import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.SetOptions;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
@@ -35,14 +37,19 @@ public class CategoryService {
     private static final String CATEGORIES_COLLECTION = "categories";
 
     private final Optional<Firestore> firestore;
-    private final FirestoreReadRecorder readRecorder;
+    private final Optional<ReferenceDataCache<CategoryView>> categoryCache;
 
     public CategoryService(
         ObjectProvider<Firestore> firestoreProvider,
         FirestoreReadRecorder readRecorder
     ) {
         this.firestore = Optional.ofNullable(firestoreProvider.getIfAvailable());
-        this.readRecorder = readRecorder;
+        this.categoryCache = firestore.map(db -> new ReferenceDataCache<>(
+            "categories",
+            db.collection(CATEGORIES_COLLECTION).orderBy("name"),
+            this::toView,
+            readRecorder
+        ));
     }
 
     public boolean isEnabled() {
@@ -53,34 +60,14 @@ public class CategoryService {
      * List all categories ordered by name.
      */
     public List<Category> listCategories() {
-        if (firestore.isEmpty()) {
-            return List.of();
-        }
+        return listCategoriesAsync().join();
+    }
 
-        try {
-            Firestore db = firestore.get();
-            QuerySnapshot snapshot = db.collection(CATEGORIES_COLLECTION)
-                .orderBy("name")
-                .get()
-                .get();
-            recordRead("Load all categories", snapshot.size());
-
-            List<Category> categories = new ArrayList<>();
-            for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                Category category = toCategory(doc);
-                if (category != null) {
-                    categories.add(category);
-                }
-            }
-            return Collections.unmodifiableList(categories);
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            log.warn("Interrupted while loading categories from Firestore", ex);
-            return List.of();
-        } catch (ExecutionException ex) {
-            log.error("Failed to load categories from Firestore", ex);
-            return List.of();
-        }
+    /**
+     * List all categories ordered by name without blocking the caller. Failures complete with an empty list.
+     */
+    public CompletableFuture<List<Category>> listCategoriesAsync() {
+        return loadView().thenApply(CategoryView::categories);
     }
 
     /**
@@ -88,11 +75,21 @@ public class CategoryService {
      * Returns a map where top-level categories map to their subcategories.
      */
     public Map<Category, List<Category>> getCategoriesHierarchy() {
-        List<Category> allCategories = listCategories();
-        
-        Map<String, Category> categoryById = allCategories.stream()
-            .collect(Collectors.toMap(Category::id, c -> c));
+        return loadView().join().hierarchy();
+    }
 
+    /**
+     * Organise already loaded categories hierarchically, as {@link #getCategoriesHierarchy()} does.
+     */
+    public Map<Category, List<Category>> getCategoriesHierarchy(List<Category> allCategories) {
+        CategoryView cached = categoryCache.map(ReferenceDataCache::peek).orElse(null);
+        if (cached != null && cached.categories() == allCategories) {
+            return cached.hierarchy();
+        }
+        return buildHierarchy(allCategories);
+    }
+
+    private static Map<Category, List<Category>> buildHierarchy(List<Category> allCategories) {
         Map<Category, List<Category>> hierarchy = new LinkedHashMap<>();
         
         List<Category> topLevel = allCategories.stream()
@@ -118,26 +115,7 @@ public class CategoryService {
         if (firestore.isEmpty() || !StringUtils.hasText(id)) {
             return Optional.empty();
         }
-
-        try {
-            DocumentReference ref = firestore.get()
-                .collection(CATEGORIES_COLLECTION)
-                .document(id);
-            DocumentSnapshot snapshot = ref.get().get();
-            recordRead("Load category " + id, 1);
-
-            if (!snapshot.exists()) {
-                return Optional.empty();
-            }
-            return Optional.ofNullable(toCategory(snapshot));
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            log.warn("Interrupted while loading category {} from Firestore", id, ex);
-            return Optional.empty();
-        } catch (ExecutionException ex) {
-            log.error("Failed to load category {} from Firestore", id, ex);
-            return Optional.empty();
-        }
+        return Optional.ofNullable(loadView().join().byId().get(id));
     }
 
     /**
@@ -148,27 +126,10 @@ public class CategoryService {
             return Optional.empty();
         }
 
-        try {
-            Firestore db = firestore.get();
-            QuerySnapshot snapshot = db.collection(CATEGORIES_COLLECTION)
-                .whereEqualTo("name", name.trim())
-                .limit(1)
-                .get()
-                .get();
-            recordRead("Find category by name: " + name, snapshot.size());
-
-            if (snapshot.isEmpty()) {
-                return Optional.empty();
-            }
-            return Optional.ofNullable(toCategory(snapshot.getDocuments().get(0)));
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            log.warn("Interrupted while finding category by name: {}", name, ex);
-            return Optional.empty();
-        } catch (ExecutionException ex) {
-            log.error("Failed to find category by name: {}", name, ex);
-            return Optional.empty();
-        }
+        String trimmed = name.trim();
+        return loadView().join().categories().stream()
+            .filter(category -> trimmed.equals(category.name()))
+            .findFirst();
     }
 
     /**
@@ -206,6 +167,7 @@ public class CategoryService {
             data.put("predefined", predefined);
 
             docRef.set(data).get();
+            categoryCache.ifPresent(ReferenceDataCache::invalidate);
 
             return Category.builder()
                 .id(docRef.getId())
@@ -264,6 +226,7 @@ public class CategoryService {
             updates.put("updatedAt", Timestamp.ofTimeSecondsAndNanos(now.getEpochSecond(), now.getNano()));
 
             docRef.set(updates, SetOptions.merge()).get();
+            categoryCache.ifPresent(ReferenceDataCache::invalidate);
 
             return Category.builder()
                 .id(id)
@@ -301,17 +264,14 @@ public class CategoryService {
         }
 
         // Check if category has subcategories
-        List<Category> allCategories = listCategories();
-        boolean hasChildren = allCategories.stream()
-            .anyMatch(c -> id.equals(c.parentId()));
-        
-        if (hasChildren) {
+        if (loadView().join().children().containsKey(id)) {
             throw new IllegalStateException("Cannot delete category with subcategories");
         }
 
         try {
             Firestore db = firestore.get();
             db.collection(CATEGORIES_COLLECTION).document(id).delete().get();
+            categoryCache.ifPresent(ReferenceDataCache::invalidate);
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
             log.error("Interrupted while deleting category", ex);
@@ -329,24 +289,33 @@ public class CategoryService {
         if (!StringUtils.hasText(targetId)) {
             return false;
         }
-        
-        Optional<Category> target = findById(targetId);
-        if (target.isEmpty()) {
-            return false;
+        return loadView().join().descendants().getOrDefault(ancestorId, Set.of()).contains(targetId);
+    }
+
+    private CompletableFuture<CategoryView> loadView() {
+        if (categoryCache.isEmpty()) {
+            return CompletableFuture.completedFuture(CategoryView.EMPTY);
         }
+        return categoryCache.get().get().exceptionally(ex -> {
+            log.error("Failed to load categories from Firestore", ex);
+            return CategoryView.EMPTY;
+        });
+    }
 
-        String currentParentId = target.get().parentId();
-        while (StringUtils.hasText(currentParentId)) {
-            if (ancestorId.equals(currentParentId)) {
-                return true;
+    private CategoryView toView(List<QueryDocumentSnapshot> documents) {
+        List<Category> categories = new ArrayList<>();
+        for (DocumentSnapshot doc : documents) {
+            Category category = toCategory(doc);
+            if (category != null) {
+                categories.add(category);
             }
-            Optional<Category> parent = findById(currentParentId);
-            if (parent.isEmpty()) {
-                break;
-            }
-            currentParentId = parent.get().parentId();
         }
-        return false;
+        return CategoryView.of(categories);
+    }
+
+    @PreDestroy
+    void stopListening() {
+        categoryCache.ifPresent(ReferenceDataCache::close);
     }
 
     private Category toCategory(DocumentSnapshot doc) {
@@ -381,9 +350,47 @@ public class CategoryService {
         return null;
     }
 
-    private void recordRead(String description, long count) {
-        if (readRecorder != null) {
-            readRecorder.record(description, count);
+    /**
+     * Categories as loaded from Firestore together with the lookups derived from them.
+     */
+    private record CategoryView(
+        List<Category> categories,
+        Map<String, Category> byId,
+        Map<String, List<Category>> children,
+        Map<Category, List<Category>> hierarchy,
+        Map<String, Set<String>> descendants
+    ) {
+
+        static final CategoryView EMPTY = of(List.of());
+
+        static CategoryView of(List<Category> categories) {
+            Map<String, Category> byId = new HashMap<>();
+            Map<String, List<Category>> children = new HashMap<>();
+            for (Category category : categories) {
+                byId.put(category.id(), category);
+                if (StringUtils.hasText(category.parentId())) {
+                    children.computeIfAbsent(category.parentId(), parentId -> new ArrayList<>()).add(category);
+                }
+            }
+
+            Map<String, Set<String>> descendants = new HashMap<>();
+            for (Category category : categories) {
+                Set<String> visited = new HashSet<>();
+                String parentId = category.parentId();
+                while (StringUtils.hasText(parentId) && visited.add(parentId)) {
+                    descendants.computeIfAbsent(parentId, ancestorId -> new HashSet<>()).add(category.id());
+                    Category parent = byId.get(parentId);
+                    parentId = parent != null ? parent.parentId() : null;
+                }
+            }
+
+            return new CategoryView(
+                List.copyOf(categories),
+                Map.copyOf(byId),
+                Map.copyOf(children),
+                buildHierarchy(categories),
+                Map.copyOf(descendants)
+            );
         }
     }
 }
@@ -1,14 +1,18 @@
 package dev.pekelund.pklnd.firestore;
 
-import jakarta.annotation.PostConstruct;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 /**
  * Component responsible for initializing predefined categories and tags when the application starts.
+ * Existing categories and tags are listed once each, so an already seeded database costs two queries;
+ * run in the background by {@link FirestoreStartupTasks}.
  */
 @Component
 public class CategoryTagInitializer {
@@ -23,7 +27,6 @@ public class CategoryTagInitializer {
         this.tagService = tagService;
     }
 
-    @PostConstruct
     public void initializePredefinedData() {
         if (!categoryService.isEnabled() || !tagService.isEnabled()) {
             log.info("Firestore not enabled, skipping category and tag initialization");
@@ -42,6 +45,11 @@ public class CategoryTagInitializer {
     }
 
     private void initializeCategories() {
+        Map<String, Category> existingByName = new HashMap<>();
+        for (Category category : categoryService.listCategories()) {
+            existingByName.putIfAbsent(category.name(), category);
+        }
+
         List<CategoryDefinition> definitions = List.of(
             new CategoryDefinition("Kött", null, List.of("Fläsk", "Kyckling", "Nöt", "Vilt")),
             new CategoryDefinition("Fisk", null, List.of()),
@@ -57,21 +65,18 @@ public class CategoryTagInitializer {
         for (CategoryDefinition def : definitions) {
             try {
                 // Check if parent category already exists
-                var existingParent = categoryService.findByName(def.name);
-                Category parent;
-                
-                if (existingParent.isEmpty()) {
+                Category parent = existingByName.get(def.name);
+
+                if (parent == null) {
                     parent = categoryService.createCategory(def.name, null, true);
                     log.info("Created predefined category: {}", def.name);
                 } else {
-                    parent = existingParent.get();
                     log.debug("Category already exists: {}", def.name);
                 }
 
                 // Create subcategories
                 for (String subcategoryName : def.subcategories) {
-                    var existingSubcategory = categoryService.findByName(subcategoryName);
-                    if (existingSubcategory.isEmpty()) {
+                    if (!existingByName.containsKey(subcategoryName)) {
                         categoryService.createCategory(subcategoryName, parent.id(), true);
                         log.info("Created predefined subcategory: {} under {}", subcategoryName, def.name);
                     } else {
@@ -93,10 +98,13 @@ public class CategoryTagInitializer {
             "Konserv"
         );
 
+        Set<String> existingNames = tagService.listTags().stream()
+            .map(ItemTag::name)
+            .collect(Collectors.toSet());
+
         for (String tagName : predefinedTags) {
             try {
-                var existing = tagService.findByName(tagName);
-                if (existing.isEmpty()) {
+                if (!existingNames.contains(tagName)) {
                     tagService.createTag(tagName, true);
                     log.info("Created predefined tag: {}", tagName);
                 } else {
@@ -0,0 +1,33 @@
+package dev.pekelund.pklnd.firestore;
+
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+
+/**
+ * A {@link FirestoreMigration} that visits every document of a collection group. The documents are split
+ * into partitions that {@link DocumentMigrationEngine} processes in parallel, page by page, storing a
+ * checkpoint after each page so an interrupted migration resumes where it stopped instead of starting over.
+ * Because a page may be replayed after a crash, {@link #migrate} must be idempotent.
+ */
+public interface DocumentMigration extends FirestoreMigration {
+
+    /**
+     * Collection id whose documents are visited, across all parents.
+     */
+    String collectionGroup();
+
+    /**
+     * Inspect one document and stage the writes it needs through {@code writer}. Documents that are
+     * already migrated should simply produce no writes.
+     */
+    void migrate(QueryDocumentSnapshot document, MigrationWriter writer) throws Exception;
+
+    /**
+     * Document migrations are applied by {@link DocumentMigrationEngine}, never as a single call.
+     */
+    @Override
+    default void apply(Firestore firestore) {
+        throw new UnsupportedOperationException(
+            "Document migration " + version() + " is applied by DocumentMigrationEngine");
+    }
+}
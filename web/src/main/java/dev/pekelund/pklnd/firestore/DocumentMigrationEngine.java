@@ -0,0 +1,379 @@
+package dev.pekelund.pklnd.firestore;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QueryPartition;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies a {@link DocumentMigration} by streaming its collection group in partitions. The partitions come
+ * from {@code CollectionGroup.getPartitions} and are processed by parallel workers, each paging through
+ * its range in document id order and sending writes through its own {@link BulkWriter}. After every page
+ * the writes are flushed and the partition's cursor is stored under
+ * {@code schema_migrations/{version}/checkpoints}, so a restarted migration continues from the last
+ * completed page with the same partition boundaries. A dry run pages through the same documents but only
+ * counts them and the writes they would cause.
+ */
+@Component
+public class DocumentMigrationEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentMigrationEngine.class);
+    static final String MIGRATIONS_COLLECTION = "schema_migrations";
+    static final String CHECKPOINTS_COLLECTION = "checkpoints";
+    private static final String READ_OPERATION = "Migration page";
+
+    private final FirestoreProperties properties;
+    private final FirestoreReadRecorder readRecorder;
+
+    public DocumentMigrationEngine(FirestoreProperties properties, FirestoreReadRecorder readRecorder) {
+        this.properties = properties;
+        this.readRecorder = readRecorder;
+    }
+
+    /**
+     * Runs {@code migration} to completion. {@code lease} is renewed as pages complete and may be
+     * {@code null} for a dry run, which neither writes documents nor stores checkpoints.
+     */
+    public MigrationResult run(Firestore db, DocumentMigration migration, MigrationLease lease, boolean dryRun) {
+        List<Checkpoint> checkpoints = dryRun
+            ? partition(db, migration)
+            : loadOrCreateCheckpoints(db, migration);
+        List<Checkpoint> pending = checkpoints.stream().filter(checkpoint -> !checkpoint.completed()).toList();
+        if (!dryRun && pending.size() < checkpoints.size()) {
+            log.info("Resuming Firestore migration {}: {} of {} partitions left",
+                migration.version(), pending.size(), checkpoints.size());
+        }
+
+        List<Checkpoint> finished = new ArrayList<>(checkpoints.stream().filter(Checkpoint::completed).toList());
+        if (!pending.isEmpty()) {
+            finished.addAll(runPartitions(db, migration, lease, dryRun, pending));
+        }
+
+        long scanned = finished.stream().mapToLong(Checkpoint::scanned).sum();
+        long writes = finished.stream().mapToLong(Checkpoint::writes).sum();
+        return new MigrationResult(scanned, writes, checkpoints.size(), dryRun);
+    }
+
+    private List<Checkpoint> runPartitions(
+        Firestore db,
+        DocumentMigration migration,
+        MigrationLease lease,
+        boolean dryRun,
+        List<Checkpoint> pending
+    ) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(pending.size(), runnable -> {
+            Thread thread = new Thread(runnable, "firestore-migration-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Checkpoint>> futures = new ArrayList<>(pending.size());
+            for (Checkpoint checkpoint : pending) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        return migratePartition(db, migration, lease, dryRun, checkpoint, cancelled);
+                    } catch (Exception ex) {
+                        cancelled.set(true);
+                        throw ex;
+                    }
+                }));
+            }
+            List<Checkpoint> finished = new ArrayList<>(futures.size());
+            for (Future<Checkpoint> future : futures) {
+                finished.add(getFuture(future, "Migrate partition", "migration " + migration.version()));
+            }
+            return finished;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Checkpoint migratePartition(
+        Firestore db,
+        DocumentMigration migration,
+        MigrationLease lease,
+        boolean dryRun,
+        Checkpoint checkpoint,
+        AtomicBoolean cancelled
+    ) throws Exception {
+        int pageSize = Math.max(1, properties.getMigrationPageSize());
+        Query base = db.collectionGroup(migration.collectionGroup())
+            .orderBy(FieldPath.documentId())
+            .limit(pageSize);
+        if (checkpoint.endBefore() != null) {
+            base = base.endBefore(db.document(checkpoint.endBefore()));
+        }
+
+        BulkWriter bulkWriter = dryRun ? null : db.bulkWriter();
+        Checkpoint current = checkpoint;
+        try {
+            while (!cancelled.get()) {
+                Query page = base;
+                if (current.lastDocument() != null) {
+                    page = base.startAfter(db.document(current.lastDocument()));
+                } else if (current.startAt() != null) {
+                    page = base.startAt(db.document(current.startAt()));
+                }
+
+                long started = System.nanoTime();
+                QuerySnapshot snapshot = getFuture(page.get(), "Read migration page",
+                    "migration " + migration.version());
+                readRecorder.record(READ_OPERATION, Math.max(1, snapshot.size()), System.nanoTime() - started);
+
+                PageWriter writer = dryRun ? new PageWriter() : new BulkPageWriter(bulkWriter);
+                List<QueryDocumentSnapshot> documents = snapshot.getDocuments();
+                for (QueryDocumentSnapshot document : documents) {
+                    migration.migrate(document, writer);
+                }
+                writer.complete();
+
+                String lastDocument = documents.isEmpty()
+                    ? current.lastDocument()
+                    : documents.get(documents.size() - 1).getReference().getPath();
+                current = current.advance(lastDocument, documents.size(), writer.writes(), documents.size() < pageSize);
+                if (!dryRun) {
+                    saveCheckpoint(db, migration, current);
+                    lease.renewIfDue();
+                }
+                log.debug("Firestore migration {} partition {}: {} documents scanned, {} writes",
+                    migration.version(), current.partition(), current.scanned(), current.writes());
+                if (current.completed()) {
+                    return current;
+                }
+            }
+            throw new IllegalStateException("Migration " + migration.version() + " cancelled after a failed partition");
+        } finally {
+            if (bulkWriter != null) {
+                bulkWriter.close();
+            }
+        }
+    }
+
+    private List<Checkpoint> loadOrCreateCheckpoints(Firestore db, DocumentMigration migration) {
+        CollectionReference collection = checkpointCollection(db, migration);
+        QuerySnapshot stored = getFuture(collection.get(), "Load migration checkpoints",
+            "migration " + migration.version());
+        readRecorder.record("Load migration checkpoints", Math.max(1, stored.size()));
+        if (!stored.isEmpty()) {
+            return stored.getDocuments().stream()
+                .map(Checkpoint::fromSnapshot)
+                .sorted(Comparator.comparingInt(Checkpoint::partition))
+                .toList();
+        }
+
+        List<Checkpoint> checkpoints = partition(db, migration);
+        WriteBatch batch = db.batch();
+        for (Checkpoint checkpoint : checkpoints) {
+            batch.set(collection.document(String.valueOf(checkpoint.partition())), checkpoint.toPayload());
+        }
+        getFuture(batch.commit(), "Store migration partitions", "migration " + migration.version());
+        return checkpoints;
+    }
+
+    private List<Checkpoint> partition(Firestore db, DocumentMigration migration) {
+        int desired = Math.max(1, properties.getMigrationPartitions());
+        List<QueryPartition> partitions = getFuture(
+            db.collectionGroup(migration.collectionGroup()).getPartitions(desired),
+            "Partition collection group",
+            migration.collectionGroup()
+        );
+        readRecorder.record("Partition migration", 1);
+        if (partitions.isEmpty()) {
+            return List.of(Checkpoint.initial(0, null, null));
+        }
+        List<Checkpoint> checkpoints = new ArrayList<>(partitions.size());
+        for (int index = 0; index < partitions.size(); index++) {
+            QueryPartition partition = partitions.get(index);
+            checkpoints.add(Checkpoint.initial(index, cursorPath(partition.getStartAt()),
+                cursorPath(partition.getEndBefore())));
+        }
+        return checkpoints;
+    }
+
+    private void saveCheckpoint(Firestore db, DocumentMigration migration, Checkpoint checkpoint) {
+        getFuture(
+            checkpointCollection(db, migration).document(String.valueOf(checkpoint.partition()))
+                .set(checkpoint.toPayload()),
+            "Store migration checkpoint",
+            "migration " + migration.version()
+        );
+    }
+
+    private CollectionReference checkpointCollection(Firestore db, DocumentMigration migration) {
+        return db.collection(MIGRATIONS_COLLECTION)
+            .document(String.valueOf(migration.version()))
+            .collection(CHECKPOINTS_COLLECTION);
+    }
+
+    private static String cursorPath(Object[] cursor) {
+        if (cursor == null || cursor.length == 0) {
+            return null;
+        }
+        return cursor[0] instanceof DocumentReference reference ? reference.getPath() : null;
+    }
+
+    private static <T> T getFuture(Future<T> future, String action, String target) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(action + " interrupted for " + target, ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            throw new IllegalStateException("Failed to " + action.toLowerCase() + " for " + target, cause);
+        }
+    }
+
+    /**
+     * Outcome of one migration run; counts include pages completed by earlier, interrupted runs.
+     */
+    public record MigrationResult(long scanned, long writes, int partitions, boolean dryRun) { }
+
+    /**
+     * Progress of one partition: its fixed boundaries and the last document whose page was flushed.
+     */
+    record Checkpoint(
+        int partition,
+        String startAt,
+        String endBefore,
+        String lastDocument,
+        boolean completed,
+        long scanned,
+        long writes
+    ) {
+
+        static Checkpoint initial(int partition, String startAt, String endBefore) {
+            return new Checkpoint(partition, startAt, endBefore, null, false, 0L, 0L);
+        }
+
+        static Checkpoint fromSnapshot(DocumentSnapshot snapshot) {
+            Long partition = snapshot.getLong("partition");
+            Long scanned = snapshot.getLong("scanned");
+            Long writes = snapshot.getLong("writes");
+            return new Checkpoint(
+                partition != null ? partition.intValue() : Integer.parseInt(snapshot.getId()),
+                snapshot.getString("startAt"),
+                snapshot.getString("endBefore"),
+                snapshot.getString("lastDocument"),
+                Boolean.TRUE.equals(snapshot.getBoolean("completed")),
+                scanned != null ? scanned : 0L,
+                writes != null ? writes : 0L
+            );
+        }
+
+        Checkpoint advance(String lastDocument, long scannedOnPage, long writesOnPage, boolean completed) {
+            return new Checkpoint(partition, startAt, endBefore, lastDocument, completed,
+                scanned + scannedOnPage, writes + writesOnPage);
+        }
+
+        Map<String, Object> toPayload() {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("partition", partition);
+            payload.put("startAt", startAt);
+            payload.put("endBefore", endBefore);
+            payload.put("lastDocument", lastDocument);
+            payload.put("completed", completed);
+            payload.put("scanned", scanned);
+            payload.put("writes", writes);
+            payload.put("updatedAt", Timestamp.now());
+            return payload;
+        }
+    }
+
+    /**
+     * Counts the writes staged for a page; used as is for dry runs.
+     */
+    private static class PageWriter implements MigrationWriter {
+
+        private long writes;
+
+        @Override
+        public void merge(DocumentReference document, Map<String, Object> data) {
+            writes++;
+        }
+
+        @Override
+        public void update(DocumentReference document, Map<String, Object> fields) {
+            writes++;
+        }
+
+        @Override
+        public void delete(DocumentReference document) {
+            writes++;
+        }
+
+        long writes() {
+            return writes;
+        }
+
+        void complete() {
+        }
+    }
+
+    /**
+     * Sends the page's writes through the partition's {@link BulkWriter} and waits for all of them before
+     * the checkpoint moves past the page.
+     */
+    private static final class BulkPageWriter extends PageWriter {
+
+        private final BulkWriter bulkWriter;
+        private final List<ApiFuture<WriteResult>> results = new ArrayList<>();
+
+        private BulkPageWriter(BulkWriter bulkWriter) {
+            this.bulkWriter = bulkWriter;
+        }
+
+        @Override
+        public void merge(DocumentReference document, Map<String, Object> data) {
+            super.merge(document, data);
+            results.add(bulkWriter.set(document, data, SetOptions.merge()));
+        }
+
+        @Override
+        public void update(DocumentReference document, Map<String, Object> fields) {
+            super.update(document, fields);
+            results.add(bulkWriter.update(document, fields));
+        }
+
+        @Override
+        public void delete(DocumentReference document) {
+            super.delete(document);
+            results.add(bulkWriter.delete(document));
+        }
+
+        @Override
+        void complete() {
+            getFuture(bulkWriter.flush(), "Flush migration writes", results.size() + " documents");
+            for (ApiFuture<WriteResult> result : results) {
+                getFuture(result, "Write migrated document", "page");
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package dev.pekelund.pklnd.firestore;
+
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldMask;
+import com.google.cloud.firestore.Firestore;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Looks up documents of one collection by id with {@link Firestore#getAll}. Ids are deduplicated and split
+ * into chunks of {@link FirestoreProperties#getBatchGetChunkSize()}; up to
+ * {@link FirestoreProperties#getBatchGetMaxInFlight()} chunks are requested concurrently, so most lookups
+ * complete in a single wave of round trips. Reads are recorded per chunk, against the request that started
+ * the lookup.
+ */
+@Component
+public class FirestoreBatchReader {
+
+    private final Optional<Firestore> firestore;
+    private final FirestoreReadRecorder readRecorder;
+    private final int chunkSize;
+    private final int maxInFlight;
+
+    public FirestoreBatchReader(
+        ObjectProvider<Firestore> firestoreProvider,
+        FirestoreProperties properties,
+        FirestoreReadRecorder readRecorder
+    ) {
+        this.firestore = Optional.ofNullable(firestoreProvider.getIfAvailable());
+        this.readRecorder = readRecorder;
+        this.chunkSize = Math.max(1, properties.getBatchGetChunkSize());
+        this.maxInFlight = Math.max(1, properties.getBatchGetMaxInFlight());
+    }
+
+    /**
+     * Returns the existing documents among {@code ids}, keyed by id in the order the ids were given.
+     */
+    public Map<String, DocumentSnapshot> getAll(String collection, Collection<String> ids, String description)
+        throws InterruptedException, ExecutionException {
+        return getAllAsync(collection, ids, null, description).get();
+    }
+
+    /**
+     * Like {@link #getAll(String, Collection, String)}, transferring only the fields in {@code fieldMask}.
+     */
+    public Map<String, DocumentSnapshot> getAll(String collection, Collection<String> ids, FieldMask fieldMask,
+        String description) throws InterruptedException, ExecutionException {
+        return getAllAsync(collection, ids, fieldMask, description).get();
+    }
+
+    /**
+     * Asynchronous form of {@link #getAll(String, Collection, FieldMask, String)}. {@code fieldMask} may be
+     * {@code null} to load whole documents. Completes exceptionally when any chunk fails.
+     */
+    public CompletableFuture<Map<String, DocumentSnapshot>> getAllAsync(String collection, Collection<String> ids,
+        FieldMask fieldMask, String description) {
+
+        if (firestore.isEmpty() || !StringUtils.hasText(collection) || ids == null || ids.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+
+        Set<String> unique = ids.stream()
+            .filter(StringUtils::hasText)
+            .map(String::trim)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (unique.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+
+        CollectionReference reference = firestore.get().collection(collection);
+        List<String> identifiers = new ArrayList<>(unique);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int start = 0; start < identifiers.size(); start += chunkSize) {
+            chunks.add(identifiers.subList(start, Math.min(start + chunkSize, identifiers.size())));
+        }
+
+        // Chunks complete on Firestore threads, so attribute their reads to the request that asked for them.
+        FirestoreReadTracker tracker = readRecorder.currentTracker();
+        Map<String, DocumentSnapshot> found = new ConcurrentHashMap<>();
+        AtomicInteger nextChunk = new AtomicInteger();
+        List<CompletableFuture<Void>> lanes = new ArrayList<>();
+        for (int lane = 0; lane < Math.min(maxInFlight, chunks.size()); lane++) {
+            lanes.add(runLane(reference, chunks, nextChunk, fieldMask, description, tracker, found));
+        }
+
+        return CompletableFuture.allOf(lanes.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            Map<String, DocumentSnapshot> ordered = new LinkedHashMap<>();
+            for (String id : identifiers) {
+                DocumentSnapshot snapshot = found.get(id);
+                if (snapshot != null) {
+                    ordered.put(id, snapshot);
+                }
+            }
+            return Collections.unmodifiableMap(ordered);
+        });
+    }
+
+    private CompletableFuture<Void> runLane(CollectionReference collection, List<List<String>> chunks,
+        AtomicInteger nextChunk, FieldMask fieldMask, String description, FirestoreReadTracker tracker,
+        Map<String, DocumentSnapshot> found) {
+
+        int index = nextChunk.getAndIncrement();
+        if (index >= chunks.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        DocumentReference[] references = chunks.get(index).stream()
+            .map(collection::document)
+            .toArray(DocumentReference[]::new);
+        Firestore db = firestore.get();
+        long started = System.nanoTime();
+        return FirestoreFutures.map(fieldMask != null ? db.getAll(references, fieldMask) : db.getAll(references),
+            snapshots -> {
+                int existing = 0;
+                for (DocumentSnapshot snapshot : snapshots) {
+                    if (snapshot != null && snapshot.exists()) {
+                        found.put(snapshot.getId(), snapshot);
+                        existing++;
+                    }
+                }
+                readRecorder.record(tracker, description, existing, System.nanoTime() - started);
+                return null;
+            })
+            .thenCompose(ignored -> runLane(collection, chunks, nextChunk, fieldMask, description, tracker, found));
+    }
+}
@@ -0,0 +1,111 @@
+package dev.pekelund.pklnd.firestore;
+
+import com.google.cloud.firestore.AggregateField;
+import com.google.cloud.firestore.Query;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts documents with Firestore {@code count()} aggregation queries, and totals numeric fields with
+ * {@code sum()}, so counters cost a read per 1,000 matches instead of downloading every document. Results
+ * are reused for {@link FirestoreProperties#getCountCacheTtl()} because the dashboard asks for the same
+ * counts on every render and a slightly stale figure is fine there.
+ */
+@Component
+public class FirestoreCounter {
+
+    private final FirestoreProperties properties;
+    private final FirestoreReadRecorder readRecorder;
+    private final Map<String, CachedCount> cachedCounts = new ConcurrentHashMap<>();
+    private final AtomicLong clears = new AtomicLong();
+
+    public FirestoreCounter(FirestoreProperties properties, FirestoreReadRecorder readRecorder) {
+        this.properties = properties;
+        this.readRecorder = readRecorder;
+    }
+
+    /**
+     * Returns the number of documents matching {@code query}, answering from the cache entry stored under
+     * {@code key} while it is fresh.
+     */
+    public long count(String key, Query query, String description) throws InterruptedException, ExecutionException {
+        return countAsync(key, query, description).get();
+    }
+
+    /**
+     * Asynchronous form of {@link #count(String, Query, String)}. A fresh cache entry completes immediately.
+     */
+    public CompletableFuture<Long> countAsync(String key, Query query, String description) {
+        Instant now = Instant.now();
+        CachedCount cached = cachedCounts.get(key);
+        if (cached != null && cached.expiresAt().isAfter(now)) {
+            return CompletableFuture.completedFuture(cached.count());
+        }
+
+        long generation = clears.get();
+        return FirestoreFutures.map(query.count().get(), snapshot -> {
+            long count = snapshot.getCount();
+            readRecorder.recordAggregation(description, count);
+            cache(key, count, now, generation);
+            return count;
+        });
+    }
+
+    /**
+     * Stores a result unless the cache was cleared after its query was sent, since the result may then miss
+     * the change that cleared it.
+     */
+    private void cache(String key, long value, Instant now, long generation) {
+        Duration ttl = properties.getCountCacheTtl();
+        if (ttl == null || ttl.isZero() || ttl.isNegative() || clears.get() != generation) {
+            return;
+        }
+        CachedCount entry = new CachedCount(value, now.plus(ttl));
+        cachedCounts.put(key, entry);
+        if (clears.get() != generation) {
+            cachedCounts.remove(key, entry);
+        }
+    }
+
+    /**
+     * Returns the sum of the numeric {@code field} over the documents matching {@code query}; documents without
+     * the field add nothing. Cached under {@code key} like {@link #countAsync}.
+     */
+    public CompletableFuture<Long> sumAsync(String key, Query query, String field, String description) {
+        Instant now = Instant.now();
+        CachedCount cached = cachedCounts.get(key);
+        if (cached != null && cached.expiresAt().isAfter(now)) {
+            return CompletableFuture.completedFuture(cached.count());
+        }
+
+        AggregateField.SumAggregateField sum = AggregateField.sum(field);
+        AggregateField.CountAggregateField matched = AggregateField.count();
+        long generation = clears.get();
+        return FirestoreFutures.map(query.aggregate(sum, matched).get(), snapshot -> {
+            readRecorder.recordAggregation(description, snapshot.get(matched));
+            Long total = snapshot.getLong(sum);
+            long value = total != null ? total : 0L;
+            cache(key, value, now, generation);
+            return value;
+        });
+    }
+
+    /**
+     * Forgets cached counts when receipts change so new uploads and deletions show up right away.
+     */
+    @EventListener
+    public void onReceiptChange(ReceiptChangeEvent event) {
+        clears.incrementAndGet();
+        cachedCounts.clear();
+    }
+
+    private record CachedCount(long count, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,46 @@
+package dev.pekelund.pklnd.firestore;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Adapts Firestore {@link ApiFuture}s to {@link CompletableFuture}s without blocking a thread per read.
+ * The mapping step runs on the Firestore callback thread with the caller's request attributes bound, so
+ * reads recorded there are still attributed to the originating request.
+ */
+final class FirestoreFutures {
+
+    private FirestoreFutures() {
+    }
+
+    static <T, R> CompletableFuture<R> map(ApiFuture<T> future, Function<? super T, ? extends R> mapper) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        CompletableFuture<R> result = new CompletableFuture<>();
+        ApiFutures.addCallback(future, new ApiFutureCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+                RequestContextHolder.setRequestAttributes(requestAttributes);
+                try {
+                    result.complete(mapper.apply(value));
+                } catch (RuntimeException ex) {
+                    result.completeExceptionally(ex);
+                } finally {
+                    RequestContextHolder.setRequestAttributes(previous);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable failure) {
+                result.completeExceptionally(failure);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+}
@@ -1,45 +1,65 @@
 package dev.pekelund.pklnd.firestore;
 
 import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
+import java.time.Duration;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
-import org.springframework.boot.context.event.ApplicationReadyEvent;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
 
+/**
+ * Applies registered {@link FirestoreMigration}s that have not run yet. Which versions are already applied
+ * is read with a single batched lookup. Invoked in the background by {@link FirestoreStartupTasks}.
+ *
+ * <p>Pending migrations run under a {@link MigrationLease}, so when several instances start together only
+ * one of them applies them. The others wait until the migrations are applied, or take the lease over once
+ * it expires, so no instance reports ready against a schema that is still being migrated.
+ * {@link DocumentMigration}s are handed to the {@link DocumentMigrationEngine},
+ * which resumes from stored checkpoints. With {@code firestore.migration-dry-run} enabled, document
+ * migrations only report what they would change, other migrations are skipped and nothing is marked as
+ * applied.
+ */
 @Service
 public class FirestoreMigrationRunner {
 
     private static final Logger log = LoggerFactory.getLogger(FirestoreMigrationRunner.class);
-    private static final String MIGRATIONS_COLLECTION = "schema_migrations";
+    private static final String MIGRATIONS_COLLECTION = DocumentMigrationEngine.MIGRATIONS_COLLECTION;
+    private static final String LEASE_DOCUMENT = "lease";
 
     private final FirestoreProperties properties;
     private final Optional<Firestore> firestore;
     private final List<FirestoreMigration> migrations;
+    private final DocumentMigrationEngine documentMigrationEngine;
 
     public FirestoreMigrationRunner(
         FirestoreProperties properties,
         ObjectProvider<Firestore> firestoreProvider,
-        List<FirestoreMigration> migrations
+        List<FirestoreMigration> migrations,
+        DocumentMigrationEngine documentMigrationEngine
     ) {
         this.properties = properties;
         this.firestore = Optional.ofNullable(firestoreProvider.getIfAvailable());
         this.migrations = migrations;
+        this.documentMigrationEngine = documentMigrationEngine;
     }
 
-    @EventListener
-    public void runMigrations(ApplicationReadyEvent event) {
+    public void runMigrations() {
         if (!properties.isEnabled() || firestore.isEmpty()) {
             return;
         }
@@ -53,30 +73,101 @@ public class FirestoreMigrationRunner {
             .toList();
 
         Firestore db = firestore.get();
-        for (FirestoreMigration migration : ordered) {
-            try {
-                if (isApplied(db, migration)) {
-                    continue;
+        if (pending(db, ordered).isEmpty()) {
+            return;
+        }
+
+        MigrationLease lease = new MigrationLease(
+            db,
+            db.collection(MIGRATIONS_COLLECTION).document(LEASE_DOCUMENT),
+            leaseOwner(),
+            properties.getMigrationLeaseTtl()
+        );
+        while (!lease.tryAcquire()) {
+            log.info("Firestore migrations are being applied by another instance; waiting.");
+            pause(properties.getMigrationLeasePollInterval());
+            if (pending(db, ordered).isEmpty()) {
+                log.info("Firestore migrations were applied by another instance.");
+                return;
+            }
+        }
+        try {
+            // Another instance may have finished some migrations before the lease was acquired.
+            for (FirestoreMigration migration : pending(db, ordered)) {
+                apply(db, migration, lease);
+            }
+        } finally {
+            lease.release();
+        }
+    }
+
+    private static void pause(Duration interval) {
+        try {
+            Thread.sleep(interval);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the migration lease", ex);
+        }
+    }
+
+    private void apply(Firestore db, FirestoreMigration migration, MigrationLease lease) {
+        boolean dryRun = properties.isMigrationDryRun();
+        try {
+            if (migration instanceof DocumentMigration documentMigration) {
+                log.info("{} Firestore migration {} - {} over collection group {}",
+                    dryRun ? "Dry-running" : "Applying", migration.version(), migration.description(),
+                    documentMigration.collectionGroup());
+                DocumentMigrationEngine.MigrationResult result =
+                    documentMigrationEngine.run(db, documentMigration, lease, dryRun);
+                log.info("Firestore migration {}{}: {} documents scanned in {} partitions, {} writes",
+                    migration.version(), dryRun ? " (dry run)" : "", result.scanned(), result.partitions(),
+                    result.writes());
+                if (!dryRun) {
+                    markApplied(db, migration);
                 }
-                log.info("Applying Firestore migration {} - {}", migration.version(), migration.description());
-                migration.apply(db);
-                markApplied(db, migration);
-            } catch (Exception ex) {
-                log.error("Failed Firestore migration {}", migration.version(), ex);
-                throw new IllegalStateException("Firestore migration failed", ex);
+                return;
+            }
+            if (dryRun) {
+                log.info("Skipping Firestore migration {} - {} during dry run",
+                    migration.version(), migration.description());
+                return;
             }
+            log.info("Applying Firestore migration {} - {}", migration.version(), migration.description());
+            migration.apply(db);
+            markApplied(db, migration);
+        } catch (Exception ex) {
+            log.error("Failed Firestore migration {}", migration.version(), ex);
+            throw new IllegalStateException("Firestore migration failed", ex);
         }
     }
 
-    private boolean isApplied(Firestore db, FirestoreMigration migration) {
-        DocumentSnapshot snapshot = getFuture(
-            db.collection(MIGRATIONS_COLLECTION)
-                .document(String.valueOf(migration.version()))
-                .get(),
-            migration.version(),
-            "Migration check"
-        );
-        return snapshot.exists();
+    private List<FirestoreMigration> pending(Firestore db, List<FirestoreMigration> ordered) {
+        Set<Integer> applied = appliedVersions(db, ordered);
+        return ordered.stream()
+            .filter(migration -> !applied.contains(migration.version()))
+            .toList();
+    }
+
+    private static String leaseOwner() {
+        String host = System.getenv("HOSTNAME");
+        String instance = UUID.randomUUID().toString();
+        return StringUtils.hasText(host) ? host + "/" + instance : instance;
+    }
+
+    private Set<Integer> appliedVersions(Firestore db, List<FirestoreMigration> migrations) {
+        DocumentReference[] references = migrations.stream()
+            .map(migration -> db.collection(MIGRATIONS_COLLECTION).document(String.valueOf(migration.version())))
+            .toArray(DocumentReference[]::new);
+        List<DocumentSnapshot> snapshots = getFuture(db.getAll(references), "Migration check",
+            "versions " + migrations.stream().map(m -> String.valueOf(m.version())).collect(Collectors.joining(", ")));
+
+        Set<Integer> applied = new HashSet<>();
+        for (DocumentSnapshot snapshot : snapshots) {
+            if (snapshot.exists()) {
+                applied.add(Integer.valueOf(snapshot.getId()));
+            }
+        }
+        return applied;
     }
 
     private void markApplied(Firestore db, FirestoreMigration migration) {
@@ -88,21 +179,21 @@ public class FirestoreMigrationRunner {
             db.collection(MIGRATIONS_COLLECTION)
                 .document(String.valueOf(migration.version()))
                 .set(payload),
-            migration.version(),
-            "Mark migration applied"
+            "Mark migration applied",
+            "version " + migration.version()
         );
     }
 
-    private <T> T getFuture(Future<T> future, int version, String action) {
+    private <T> T getFuture(Future<T> future, String action, String target) {
         try {
             return future.get();
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
-            throw new IllegalStateException(action + " interrupted for version " + version, ex);
+            throw new IllegalStateException(action + " interrupted for " + target, ex);
         } catch (ExecutionException ex) {
             Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
             throw new IllegalStateException(
-                "Failed to " + action.toLowerCase() + " for version " + version,
+                "Failed to " + action.toLowerCase() + " for " + target,
                 cause
             );
         }
@@ -1,6 +1,7 @@
 package dev.pekelund.pklnd.firestore;
 
 import dev.pekelund.pklnd.receipts.ReceiptItemConstants;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -54,19 +55,29 @@ public class FirestoreProperties {
     private String itemStatsCollection = ReceiptItemConstants.DEFAULT_ITEM_STATS_COLLECTION;
 
     /**
-     * Default role granted to newly registered users.
+     * Firestore collection holding per-owner receipt data change counters.
      */
-    private String defaultRole = "ROLE_USER";
+    private String receiptDataVersionsCollection = ReceiptItemConstants.DEFAULT_RECEIPT_DATA_VERSIONS_COLLECTION;
 
     /**
-     * Firestore collection used to store cached tag summaries.
+     * Firestore collection holding the compressed raw response and OCR text of each receipt.
      */
-    private String tagSummariesCollection = "tagSummaries";
+    private String receiptPayloadsCollection = ReceiptItemConstants.DEFAULT_RECEIPT_PAYLOADS_COLLECTION;
 
     /**
-     * Firestore collection used to track tag summary change timestamps.
+     * Firestore collection holding the precomputed price history series per owner and EAN.
      */
-    private String tagSummaryMetaCollection = "tagSummaryMeta";
+    private String priceHistoryCollection = ReceiptItemConstants.DEFAULT_PRICE_HISTORY_COLLECTION;
+
+    /**
+     * Default role granted to newly registered users.
+     */
+    private String defaultRole = "ROLE_USER";
+
+    /**
+     * Firestore collection holding the incrementally maintained tag summaries.
+     */
+    private String tagSummariesCollection = "tagSummaries";
 
     /**
      * Cloud Storage bucket used for Firestore exports and imports.
@@ -78,6 +89,57 @@ public class FirestoreProperties {
      */
     private String backupPrefix = "exports";
 
+    /**
+     * Number of document ids fetched per batched lookup request.
+     */
+    private int batchGetChunkSize = 300;
+
+    /**
+     * Maximum number of batched lookup requests in flight for a single lookup.
+     */
+    private int batchGetMaxInFlight = 8;
+
+    /**
+     * How long results of count aggregation queries are reused before Firestore is asked again.
+     */
+    private Duration countCacheTtl = Duration.ofSeconds(60);
+
+    /**
+     * How long the roles of a signed-in user are reused before Firestore is consulted again.
+     */
+    private Duration userProfileCacheTtl = Duration.ofMinutes(10);
+
+    /**
+     * Maximum number of users whose roles are kept in memory.
+     */
+    private int userProfileCacheMaxEntries = 1000;
+
+    /**
+     * When set, document migrations only count the documents and writes they would touch.
+     */
+    private boolean migrationDryRun;
+
+    /**
+     * Number of partitions a document migration is split into and processed in parallel.
+     */
+    private int migrationPartitions = 4;
+
+    /**
+     * Documents read per page by a document migration; a checkpoint is stored after each page.
+     */
+    private int migrationPageSize = 300;
+
+    /**
+     * How long the migration lease is held before another instance may take over.
+     */
+    private Duration migrationLeaseTtl = Duration.ofMinutes(2);
+
+    /**
+     * How often an instance waiting for another instance's migration lease checks whether the migrations
+     * have been applied.
+     */
+    private Duration migrationLeasePollInterval = Duration.ofSeconds(5);
+
     /**
      * Optional list of in-memory fallback users created when Firestore is disabled.
      */
@@ -155,6 +217,30 @@ public class FirestoreProperties {
         this.itemStatsCollection = itemStatsCollection;
     }
 
+    public String getReceiptDataVersionsCollection() {
+        return receiptDataVersionsCollection;
+    }
+
+    public void setReceiptDataVersionsCollection(String receiptDataVersionsCollection) {
+        this.receiptDataVersionsCollection = receiptDataVersionsCollection;
+    }
+
+    public String getReceiptPayloadsCollection() {
+        return receiptPayloadsCollection;
+    }
+
+    public void setReceiptPayloadsCollection(String receiptPayloadsCollection) {
+        this.receiptPayloadsCollection = receiptPayloadsCollection;
+    }
+
+    public String getPriceHistoryCollection() {
+        return priceHistoryCollection;
+    }
+
+    public void setPriceHistoryCollection(String priceHistoryCollection) {
+        this.priceHistoryCollection = priceHistoryCollection;
+    }
+
     public String getDefaultRole() {
         return defaultRole;
     }
@@ -171,13 +257,6 @@ public class FirestoreProperties {
         this.tagSummariesCollection = tagSummariesCollection;
     }
 
-    public String getTagSummaryMetaCollection() {
-        return tagSummaryMetaCollection;
-    }
-
-    public void setTagSummaryMetaCollection(String tagSummaryMetaCollection) {
-        this.tagSummaryMetaCollection = tagSummaryMetaCollection;
-    }
 
     public String getBackupBucket() {
         return backupBucket;
@@ -195,6 +274,86 @@ public class FirestoreProperties {
         this.backupPrefix = backupPrefix;
     }
 
+    public int getBatchGetChunkSize() {
+        return batchGetChunkSize;
+    }
+
+    public void setBatchGetChunkSize(int batchGetChunkSize) {
+        this.batchGetChunkSize = batchGetChunkSize;
+    }
+
+    public int getBatchGetMaxInFlight() {
+        return batchGetMaxInFlight;
+    }
+
+    public void setBatchGetMaxInFlight(int batchGetMaxInFlight) {
+        this.batchGetMaxInFlight = batchGetMaxInFlight;
+    }
+
+    public Duration getCountCacheTtl() {
+        return countCacheTtl;
+    }
+
+    public void setCountCacheTtl(Duration countCacheTtl) {
+        this.countCacheTtl = countCacheTtl;
+    }
+
+    public Duration getUserProfileCacheTtl() {
+        return userProfileCacheTtl;
+    }
+
+    public void setUserProfileCacheTtl(Duration userProfileCacheTtl) {
+        this.userProfileCacheTtl = userProfileCacheTtl;
+    }
+
+    public int getUserProfileCacheMaxEntries() {
+        return userProfileCacheMaxEntries;
+    }
+
+    public void setUserProfileCacheMaxEntries(int userProfileCacheMaxEntries) {
+        this.userProfileCacheMaxEntries = userProfileCacheMaxEntries;
+    }
+
+    public boolean isMigrationDryRun() {
+        return migrationDryRun;
+    }
+
+    public void setMigrationDryRun(boolean migrationDryRun) {
+        this.migrationDryRun = migrationDryRun;
+    }
+
+    public int getMigrationPartitions() {
+        return migrationPartitions;
+    }
+
+    public void setMigrationPartitions(int migrationPartitions) {
+        this.migrationPartitions = migrationPartitions;
+    }
+
+    public int getMigrationPageSize() {
+        return migrationPageSize;
+    }
+
+    public void setMigrationPageSize(int migrationPageSize) {
+        this.migrationPageSize = migrationPageSize;
+    }
+
+    public Duration getMigrationLeaseTtl() {
+        return migrationLeaseTtl;
+    }
+
+    public void setMigrationLeaseTtl(Duration migrationLeaseTtl) {
+        this.migrationLeaseTtl = migrationLeaseTtl;
+    }
+
+    public Duration getMigrationLeasePollInterval() {
+        return migrationLeasePollInterval;
+    }
+
+    public void setMigrationLeasePollInterval(Duration migrationLeasePollInterval) {
+        this.migrationLeasePollInterval = migrationLeasePollInterval;
+    }
+
     public List<FallbackUser> getFallbackUsers() {
         return fallbackUsers;
     }
@@ -2,25 +2,32 @@ package dev.pekelund.pklnd.firestore;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
 
 @Component
 public class FirestoreReadLoggingInterceptor implements HandlerInterceptor {
 
     private static final Logger log = LoggerFactory.getLogger(FirestoreReadLoggingInterceptor.class);
 
+    private static final String UNMAPPED_ENDPOINT = "UNKNOWN";
+
     private final ObjectProvider<FirestoreReadTracker> readTrackerProvider;
+    private final ObjectProvider<FirestoreReadMetrics> readMetricsProvider;
 
-    public FirestoreReadLoggingInterceptor(ObjectProvider<FirestoreReadTracker> readTrackerProvider) {
+    public FirestoreReadLoggingInterceptor(
+        ObjectProvider<FirestoreReadTracker> readTrackerProvider,
+        ObjectProvider<FirestoreReadMetrics> readMetricsProvider
+    ) {
         this.readTrackerProvider = readTrackerProvider;
+        this.readMetricsProvider = readMetricsProvider;
     }
 
     @Override
@@ -36,7 +43,12 @@ public class FirestoreReadLoggingInterceptor implements HandlerInterceptor {
         }
 
         long count = tracker.getReadCount();
-        if (count == 0) {
+        FirestoreReadMetrics metrics = readMetricsProvider.getIfAvailable();
+        if (metrics != null && handler instanceof HandlerMethod) {
+            metrics.recordRequest(endpoint(request), count, tracker.getReadNanos());
+        }
+
+        if (count == 0 || !log.isInfoEnabled()) {
             return;
         }
 
@@ -51,25 +63,22 @@ public class FirestoreReadLoggingInterceptor implements HandlerInterceptor {
         );
     }
 
+    private static String endpoint(HttpServletRequest request) {
+        return request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String pattern
+            ? pattern
+            : UNMAPPED_ENDPOINT;
+    }
+
     private String formatOperations(List<FirestoreReadTracker.ReadOperation> operations) {
         if (operations == null || operations.isEmpty()) {
             return "<no tracked operations>";
         }
 
-        Map<String, Long> readTotals = new LinkedHashMap<>();
-        Map<String, Long> callCounts = new LinkedHashMap<>();
-
-        for (FirestoreReadTracker.ReadOperation operation : operations) {
-            readTotals.merge(operation.description(), operation.readUnits(), Long::sum);
-            callCounts.merge(operation.description(), 1L, Long::sum);
-        }
-
-        return readTotals.entrySet()
-            .stream()
-            .map(entry -> {
-                String description = entry.getKey();
-                long reads = entry.getValue();
-                long invocations = callCounts.getOrDefault(description, 0L);
+        return operations.stream()
+            .map(operation -> {
+                String description = operation.description();
+                long reads = operation.readUnits();
+                long invocations = operation.calls();
                 String readsLabel = reads == 1 ? "read" : "reads";
                 if (invocations <= 1) {
                     return String.format("%s (%d %s)", description, reads, readsLabel);
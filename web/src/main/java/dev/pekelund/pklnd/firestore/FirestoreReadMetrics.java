@@ -0,0 +1,107 @@
+package dev.pekelund.pklnd.firestore;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes Firestore read activity to Micrometer: reads and latency per operation, and reads and time
+ * spent in Firestore per endpoint, so dashboards can show which pages use up the read budget. Only the
+ * per-endpoint meters publish percentile histograms; per-operation meters publish a handful of fixed
+ * buckets, which keeps the number of Prometheus series small. Meters are built once per operation or
+ * endpoint and reused, so recording does not allocate. Operation names are expected to be constant strings;
+ * past {@link #MAX_TRACKED_KEYS} distinct names, further ones are folded into {@link #OTHER} to keep the
+ * number of meters bounded.
+ */
+@Component
+public class FirestoreReadMetrics {
+
+    static final String OPERATION_READS = "firestore.operation.reads";
+    static final String OPERATION_LATENCY = "firestore.operation.latency";
+    static final String REQUEST_READS = "firestore.request.reads";
+    static final String REQUEST_READ_TIME = "firestore.request.read.time";
+    static final String OTHER = "other";
+
+    private static final int MAX_TRACKED_KEYS = 64;
+    private static final double[] OPERATION_READ_BUCKETS = {1, 10, 100, 1_000};
+    private static final Duration[] OPERATION_LATENCY_BUCKETS = {
+        Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofMillis(250), Duration.ofSeconds(1)
+    };
+
+    private final MeterRegistry registry;
+    private final Map<String, MeterPair> operations = new ConcurrentHashMap<>();
+    private final Map<String, MeterPair> endpoints = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FirestoreReadMetrics(ObjectProvider<MeterRegistry> registryProvider) {
+        this(registryProvider.getIfAvailable());
+    }
+
+    FirestoreReadMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Records one Firestore call. {@code elapsedNanos} is negative when the caller did not time it.
+     */
+    void recordOperation(String operation, long readUnits, long elapsedNanos) {
+        if (registry == null) {
+            return;
+        }
+        MeterPair meters = meters(operations, operation, OPERATION_READS, OPERATION_LATENCY, "operation", false);
+        meters.reads().record(readUnits);
+        if (elapsedNanos >= 0) {
+            meters.time().record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Records the Firestore totals of one handled request against its route pattern.
+     */
+    void recordRequest(String endpoint, long readUnits, long readNanos) {
+        if (registry == null) {
+            return;
+        }
+        MeterPair meters = meters(endpoints, endpoint, REQUEST_READS, REQUEST_READ_TIME, "uri", true);
+        meters.reads().record(readUnits);
+        meters.time().record(Math.max(0L, readNanos), TimeUnit.NANOSECONDS);
+    }
+
+    private MeterPair meters(Map<String, MeterPair> cache, String key, String readsName, String timeName,
+        String tag, boolean percentiles) {
+        MeterPair meters = cache.get(key);
+        if (meters != null) {
+            return meters;
+        }
+        String tagValue = cache.size() < MAX_TRACKED_KEYS ? key : OTHER;
+        return cache.computeIfAbsent(tagValue, value -> {
+            DistributionSummary.Builder reads = DistributionSummary.builder(readsName)
+                .description("Firestore document reads billed")
+                .baseUnit("reads")
+                .tag(tag, value);
+            Timer.Builder time = Timer.builder(timeName)
+                .description("Time spent waiting for Firestore")
+                .tag(tag, value);
+            if (percentiles) {
+                reads.publishPercentileHistogram().maximumExpectedValue(10_000.0);
+                time.publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10));
+            } else {
+                reads.serviceLevelObjectives(OPERATION_READ_BUCKETS);
+                time.serviceLevelObjectives(OPERATION_LATENCY_BUCKETS);
+            }
+            return new MeterPair(reads.register(registry), time.register(registry));
+        });
+    }
+
+    private record MeterPair(DistributionSummary reads, Timer time) {
+    }
+}
@@ -3,6 +3,7 @@ package dev.pekelund.pklnd.firestore;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 
 /**
@@ -10,20 +11,29 @@ import org.springframework.web.context.request.RequestContextHolder;
  * {@link FirestoreReadTotals}. This ensures we always capture Firestore read
  * activity even when a request scope is unavailable (for example in
  * background jobs or authentication flows executed outside the MVC
- * dispatcher).
+ * dispatcher). Every read is also published to {@link FirestoreReadMetrics}.
+ *
+ * <p>Operation names should be constant strings without ids or other
+ * per-call values, so they can serve as metric keys.
  */
 @Component
 public class FirestoreReadRecorder {
 
+    private static final long AGGREGATION_ENTRIES_PER_READ = 1000L;
+    private static final String TRACKER_ATTRIBUTE = FirestoreReadRecorder.class.getName() + ".tracker";
+
     private final ObjectProvider<FirestoreReadTracker> trackerProvider;
     private final FirestoreReadTotals totals;
+    private final FirestoreReadMetrics metrics;
 
     public FirestoreReadRecorder(
         ObjectProvider<FirestoreReadTracker> trackerProvider,
-        FirestoreReadTotals totals
+        FirestoreReadTotals totals,
+        FirestoreReadMetrics metrics
     ) {
         this.trackerProvider = trackerProvider;
         this.totals = totals;
+        this.metrics = metrics;
     }
 
     public void record(String description) {
@@ -31,10 +41,25 @@ public class FirestoreReadRecorder {
     }
 
     public void record(String description, long readUnits) {
+        record(currentTracker(), description, readUnits, -1L);
+    }
+
+    /**
+     * Records a read together with how long the Firestore call took.
+     */
+    public void record(String description, long readUnits, long elapsedNanos) {
+        record(currentTracker(), description, readUnits, elapsedNanos);
+    }
+
+    /**
+     * Records a read against a tracker captured earlier with {@link #currentTracker()}, for reads that
+     * complete on a Firestore callback thread. {@code tracker} may be {@code null}.
+     */
+    public void record(FirestoreReadTracker tracker, String description, long readUnits, long elapsedNanos) {
         long units = Math.max(0L, readUnits);
-        FirestoreReadTracker tracker = resolveTracker();
+        metrics.recordOperation(description, units, elapsedNanos);
         if (tracker != null) {
-            tracker.recordRead(description, units);
+            tracker.recordRead(description, units, elapsedNanos);
             return;
         }
 
@@ -43,13 +68,36 @@ public class FirestoreReadRecorder {
         }
     }
 
-    private FirestoreReadTracker resolveTracker() {
-        if (RequestContextHolder.getRequestAttributes() == null) {
+    /**
+     * Records a count aggregation query, which Firestore bills as one read per started batch of 1,000
+     * index entries rather than one read per matched document.
+     */
+    public void recordAggregation(String description, long matchedCount) {
+        long matched = Math.max(0L, matchedCount);
+        record(description, Math.max(1L, (matched + AGGREGATION_ENTRIES_PER_READ - 1) / AGGREGATION_ENTRIES_PER_READ));
+    }
+
+    /**
+     * Returns the tracker of the request bound to the calling thread, or {@code null} outside a request.
+     * The tracker is looked up through the bean factory once per request and then kept as a request
+     * attribute.
+     */
+    public FirestoreReadTracker currentTracker() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
             return null;
         }
+        if (attributes.getAttribute(TRACKER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+            instanceof FirestoreReadTracker tracker) {
+            return tracker;
+        }
         try {
-            return trackerProvider.getIfAvailable();
-        } catch (BeansException ex) {
+            FirestoreReadTracker tracker = trackerProvider.getIfAvailable();
+            if (tracker != null) {
+                attributes.setAttribute(TRACKER_ATTRIBUTE, tracker, RequestAttributes.SCOPE_REQUEST);
+            }
+            return tracker;
+        } catch (BeansException | IllegalStateException ex) {
             return null;
         }
     }
@@ -1,10 +1,19 @@
 package dev.pekelund.pklnd.firestore;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.util.concurrent.atomic.AtomicLong;
 import org.springframework.stereotype.Component;
 
+/**
+ * Running total of Firestore reads made by this instance, published as {@code firestore.reads.total} so
+ * load tests can compute reads per request from {@code /actuator/metrics}.
+ */
 @Component
-public class FirestoreReadTotals {
+public class FirestoreReadTotals implements MeterBinder {
+
+    static final String TOTAL_READS = "firestore.reads.total";
 
     private final AtomicLong totalReads = new AtomicLong();
 
@@ -22,4 +31,12 @@ public class FirestoreReadTotals {
     public long getTotalReads() {
         return totalReads.get();
     }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(TOTAL_READS, this, FirestoreReadTotals::getTotalReads)
+            .description("Firestore document reads billed since startup")
+            .baseUnit("reads")
+            .register(registry);
+    }
 }
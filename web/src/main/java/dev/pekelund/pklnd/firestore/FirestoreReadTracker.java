@@ -1,18 +1,26 @@
 package dev.pekelund.pklnd.firestore;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import org.springframework.context.annotation.ScopedProxyMode;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.context.annotation.RequestScope;
 
+/**
+ * Firestore reads made while handling one request, tallied per operation. Reads completed on Firestore
+ * callback threads may be added while the request thread is still running, so the tallies are guarded.
+ */
 @Component
-@RequestScope
+@RequestScope(proxyMode = ScopedProxyMode.NO)
 public class FirestoreReadTracker {
 
     private final FirestoreReadTotals totals;
-    private final List<ReadOperation> readOperations = new ArrayList<>();
+    private final Map<String, OperationTally> operations = new LinkedHashMap<>();
+    private long readCount;
+    private long readNanos;
 
     public FirestoreReadTracker(FirestoreReadTotals totals) {
         this.totals = totals;
@@ -23,19 +31,49 @@ public class FirestoreReadTracker {
     }
 
     public void recordRead(String description, long readUnits) {
+        recordRead(description, readUnits, -1L);
+    }
+
+    /**
+     * Adds a read to the request's tallies. {@code elapsedNanos} is negative when the call was not timed.
+     */
+    public void recordRead(String description, long readUnits, long elapsedNanos) {
         long units = Math.max(0L, readUnits);
-        String label = StringUtils.hasText(description) ? description.trim() : "Unknown read";
-        readOperations.add(new ReadOperation(label, units));
+        String label = StringUtils.hasText(description) ? description : "Unknown read";
+        synchronized (this) {
+            OperationTally tally = operations.computeIfAbsent(label, ignored -> new OperationTally());
+            tally.reads += units;
+            tally.calls++;
+            readCount += units;
+            if (elapsedNanos > 0) {
+                readNanos += elapsedNanos;
+            }
+        }
         totals.increment(units);
     }
 
-    public long getReadCount() {
-        return readOperations.stream().mapToLong(ReadOperation::readUnits).sum();
+    public synchronized long getReadCount() {
+        return readCount;
+    }
+
+    /**
+     * Total time spent in timed Firestore calls during the request.
+     */
+    public synchronized long getReadNanos() {
+        return readNanos;
     }
 
-    public List<ReadOperation> getReadOperations() {
-        return Collections.unmodifiableList(readOperations);
+    public synchronized List<ReadOperation> getReadOperations() {
+        List<ReadOperation> summary = new ArrayList<>(operations.size());
+        operations.forEach((description, tally) ->
+            summary.add(new ReadOperation(description, tally.reads, tally.calls)));
+        return List.copyOf(summary);
     }
 
-    public record ReadOperation(String description, long readUnits) { }
+    public record ReadOperation(String description, long readUnits, long calls) { }
+
+    private static final class OperationTally {
+        private long reads;
+        private long calls;
+    }
 }
@@ -0,0 +1,72 @@
+package dev.pekelund.pklnd.firestore;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the one-off Firestore work that used to hold up startup: pending migrations followed by seeding of
+ * predefined categories and tags. Both run once on a background thread after the application is ready,
+ * so a cold Cloud Run instance finishes booting without waiting for those round trips. Progress is exposed
+ * through the {@code firestoreStartupTasks} health contributor, which is part of the readiness group: it
+ * reports OUT_OF_SERVICE while the tasks run and DOWN if they fail, so the instance only takes traffic once
+ * its migrations have been applied.
+ */
+@Component
+public class FirestoreStartupTasks implements HealthIndicator {
+
+    private static final Logger log = LoggerFactory.getLogger(FirestoreStartupTasks.class);
+
+    enum State { PENDING, RUNNING, COMPLETED, FAILED }
+
+    private final FirestoreMigrationRunner migrationRunner;
+    private final CategoryTagInitializer categoryTagInitializer;
+    private final AtomicReference<State> state = new AtomicReference<>(State.PENDING);
+    private volatile String failure;
+
+    public FirestoreStartupTasks(
+        FirestoreMigrationRunner migrationRunner,
+        CategoryTagInitializer categoryTagInitializer
+    ) {
+        this.migrationRunner = migrationRunner;
+        this.categoryTagInitializer = categoryTagInitializer;
+    }
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        if (!state.compareAndSet(State.PENDING, State.RUNNING)) {
+            return;
+        }
+        Thread thread = new Thread(this::runTasks, "firestore-startup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public Health health() {
+        return switch (state.get()) {
+            case COMPLETED -> Health.up().build();
+            case FAILED -> Health.down().withDetail("error", failure).build();
+            case PENDING, RUNNING -> Health.outOfService().withDetail("state", "running").build();
+        };
+    }
+
+    void runTasks() {
+        long started = System.nanoTime();
+        try {
+            migrationRunner.runMigrations();
+            categoryTagInitializer.initializePredefinedData();
+            state.set(State.COMPLETED);
+            log.info("Firestore startup tasks completed in {} ms", (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException ex) {
+            failure = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+            state.set(State.FAILED);
+            log.error("Firestore startup tasks failed", ex);
+        }
+    }
+}
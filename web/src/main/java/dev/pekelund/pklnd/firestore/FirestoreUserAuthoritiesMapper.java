@@ -7,13 +7,19 @@ import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.FieldValue;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.QuerySnapshot;
+import dev.pekelund.pklnd.firestore.UserProfileCache.CachedUserProfile;
+import jakarta.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
@@ -37,22 +43,30 @@ public class FirestoreUserAuthoritiesMapper implements GrantedAuthoritiesMapper
     private final Firestore firestore;
     private final boolean firestoreEnabled;
     private final FirestoreReadRecorder readRecorder;
+    private final UserProfileCache profileCache;
+    private final ExecutorService profileWriter;
 
     public FirestoreUserAuthoritiesMapper(
         FirestoreProperties properties,
         ObjectProvider<Firestore> firestoreProvider,
-        FirestoreReadRecorder readRecorder
+        FirestoreReadRecorder readRecorder,
+        UserProfileCache profileCache
     ) {
         this.properties = properties;
         this.firestore = firestoreProvider.getIfAvailable();
         this.firestoreEnabled = properties.isEnabled() && this.firestore != null;
         this.readRecorder = readRecorder;
+        this.profileCache = profileCache;
+        this.profileWriter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-profile-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     @Override
     public Collection<? extends GrantedAuthority> mapAuthorities(Collection<? extends GrantedAuthority> authorities) {
-        log.info("=== Starting OAuth user authorities mapping ===");
-        log.debug("Input authorities: {}", authorities);
+        log.debug("Mapping OAuth user authorities: {}", authorities);
 
         Set<GrantedAuthority> mappedAuthorities = new LinkedHashSet<>();
         if (authorities != null) {
@@ -67,67 +81,74 @@ public class FirestoreUserAuthoritiesMapper implements GrantedAuthoritiesMapper
             return List.copyOf(mappedAuthorities);
         }
 
-        log.info("Firestore enabled - extracting user information");
         String email = extractEmail(authorities);
         if (!StringUtils.hasText(email)) {
             log.error("Failed to extract email from OAuth authorities: {}", authorities);
             return List.copyOf(mappedAuthorities);
         }
-        log.info("Extracted email: {}", email);
 
         String normalizedEmail = normalizeEmail(email);
         String displayName = extractDisplayName(authorities);
         boolean isDefaultAdmin = DEFAULT_ADMIN_EMAILS.contains(normalizedEmail);
 
-        log.info("User info - Email: {}, Display name: {}, Is default admin: {}",
+        log.debug("User info - Email: {}, Display name: {}, Is default admin: {}",
             normalizedEmail, displayName, isDefaultAdmin);
 
         if (isDefaultAdmin) {
-            log.info("Granting ROLE_ADMIN to default admin user: {}", normalizedEmail);
             mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
         }
 
+        Optional<CachedUserProfile> cachedProfile = profileCache.get(normalizedEmail)
+            .filter(profile -> !isDefaultAdmin || profile.roles().contains(adminRole()));
+        if (cachedProfile.isPresent()) {
+            CachedUserProfile profile = cachedProfile.get();
+            log.debug("Using cached roles for {}: {}", normalizedEmail, profile.roles());
+            if (StringUtils.hasText(displayName) && !StringUtils.hasText(profile.fullName())) {
+                backfillDisplayName(profile.documentId(), displayName);
+                profileCache.put(normalizedEmail,
+                    new CachedUserProfile(profile.documentId(), profile.roles(), displayName.trim()));
+            }
+            addStoredRoles(profile.roles(), mappedAuthorities);
+            return List.copyOf(mappedAuthorities);
+        }
+
         try {
-            log.info("Looking up user document in Firestore for: {}", normalizedEmail);
             DocumentSnapshot userDocument = findUserDocument(normalizedEmail);
             List<String> storedRoles;
+            String documentId;
+            String fullName;
 
             if (userDocument == null) {
-                log.info("User document NOT FOUND - creating new user: {}", normalizedEmail);
-                storedRoles = createUserDocument(normalizedEmail, displayName, isDefaultAdmin);
-                log.info("User document CREATED with roles: {}", storedRoles);
+                CachedUserProfile created = createUserDocument(normalizedEmail, displayName, isDefaultAdmin);
+                log.info("Created Firestore user {} with roles {}", normalizedEmail, created.roles());
+                documentId = created.documentId();
+                storedRoles = created.roles();
+                fullName = created.fullName();
             } else {
-                log.info("User document FOUND - ID: {}", userDocument.getId());
+                documentId = userDocument.getId();
                 storedRoles = readRoleNames(userDocument);
-                log.debug("Stored roles from Firestore: {}", storedRoles);
-
-                if (!StringUtils.hasText(displayName)) {
-                    displayName = userDocument.getString("fullName");
-                    log.debug("Using display name from Firestore: {}", displayName);
-                } else if (!StringUtils.hasText(userDocument.getString("fullName"))) {
-                    log.info("Updating display name in Firestore to: {}", displayName);
-                    updateDisplayName(userDocument.getReference(), displayName);
+                fullName = userDocument.getString("fullName");
+                log.debug("Stored roles from Firestore for document {}: {}", documentId, storedRoles);
+
+                if (StringUtils.hasText(displayName) && !StringUtils.hasText(fullName)) {
+                    backfillDisplayName(documentId, displayName);
+                    fullName = displayName.trim();
                 }
 
                 if (storedRoles.isEmpty()) {
-                    log.warn("User has no stored roles, assigning default role");
+                    log.warn("User {} has no stored roles, assigning default role", normalizedEmail);
                     storedRoles = List.of(defaultRole());
                 }
 
                 if (isDefaultAdmin) {
-                    log.info("Ensuring admin role for default admin user");
                     storedRoles = ensureAdminRole(userDocument.getReference(), storedRoles);
                 }
             }
 
-            storedRoles.stream()
-                .filter(StringUtils::hasText)
-                .map(String::trim)
-                .map(this::ensureRolePrefix)
-                .map(SimpleGrantedAuthority::new)
-                .forEach(mappedAuthorities::add);
+            profileCache.put(normalizedEmail, new CachedUserProfile(documentId, storedRoles, fullName));
+            addStoredRoles(storedRoles, mappedAuthorities);
 
-            log.info("Final mapped authorities for {}: {}", normalizedEmail, mappedAuthorities);
+            log.debug("Final mapped authorities for {}: {}", normalizedEmail, mappedAuthorities);
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
             log.error("INTERRUPTED while resolving Firestore roles for {}", normalizedEmail, ex);
@@ -138,10 +159,23 @@ public class FirestoreUserAuthoritiesMapper implements GrantedAuthoritiesMapper
             }
         }
 
-        log.info("=== Completed OAuth user authorities mapping ===");
         return List.copyOf(mappedAuthorities);
     }
 
+    @PreDestroy
+    void shutdown() {
+        profileWriter.shutdown();
+    }
+
+    private void addStoredRoles(List<String> storedRoles, Set<GrantedAuthority> mappedAuthorities) {
+        storedRoles.stream()
+            .filter(StringUtils::hasText)
+            .map(String::trim)
+            .map(this::ensureRolePrefix)
+            .map(SimpleGrantedAuthority::new)
+            .forEach(mappedAuthorities::add);
+    }
+
     private DocumentSnapshot findUserDocument(String normalizedEmail)
         throws ExecutionException, InterruptedException {
         String collectionName = properties.getUsersCollection();
@@ -154,7 +188,7 @@ public class FirestoreUserAuthoritiesMapper implements GrantedAuthoritiesMapper
             .get();
         QuerySnapshot querySnapshot = queryFuture.get();
         recordRead(
-            "Load OAuth user " + normalizedEmail,
+            "Load OAuth user",
             querySnapshot != null ? querySnapshot.size() : 0L
         );
 
@@ -168,10 +202,9 @@ public class FirestoreUserAuthoritiesMapper implements GrantedAuthoritiesMapper
         return doc;
     }
 
-    private List<String> createUserDocument(String normalizedEmail, String displayName, boolean assignAdmin)
+    private CachedUserProfile createUserDocument(String normalizedEmail, String displayName, boolean assignAdmin)
         throws ExecutionException, InterruptedException {
         String collectionName = properties.getUsersCollection();
-        log.info("Creating new user document in Firestore collection: {}", collectionName);
 
         CollectionReference collection = firestore.collection(collectionName);
 
@@ -192,33 +225,38 @@ public class FirestoreUserAuthoritiesMapper implements GrantedAuthoritiesMapper
         document.put("createdAt", FieldValue.serverTimestamp());
         document.put("authProvider", "oauth");
 
-        log.debug("User document to create: {}", document);
-
         ApiFuture<DocumentReference> writeFuture = collection.add(document);
         DocumentReference docRef = writeFuture.get();
-        log.info("User document created successfully - ID: {}", docRef.getId());
-        return List.copyOf(roles);
+        return new CachedUserProfile(docRef.getId(), roles, (String) document.get("fullName"));
     }
 
-    private void updateDisplayName(DocumentReference reference, String displayName) {
-        if (!StringUtils.hasText(displayName)) {
+    /**
+     * Stores the provider's display name on a user document that has none. The write runs off the login
+     * thread because nothing in the sign-in depends on it.
+     */
+    private void backfillDisplayName(String documentId, String displayName) {
+        if (!StringUtils.hasText(documentId) || !StringUtils.hasText(displayName)) {
             return;
         }
 
+        DocumentReference reference = firestore.collection(properties.getUsersCollection()).document(documentId);
         try {
-            reference.update("fullName", displayName.trim()).get();
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            log.warn("Interrupted while updating full name for Firestore user document {}.", reference.getId(), ex);
-        } catch (ExecutionException ex) {
-            log.debug("Failed to update Firestore display name for document {}: {}", reference.getId(), ex.getMessage());
+            profileWriter.execute(() -> {
+                try {
+                    reference.update("fullName", displayName.trim()).get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Interrupted while updating full name for Firestore user document {}.", documentId, ex);
+                } catch (ExecutionException ex) {
+                    log.debug("Failed to update Firestore display name for document {}: {}", documentId,
+                        ex.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            log.debug("Skipping display name update for document {} during shutdown.", documentId);
         }
     }
 
-    private void recordRead(String description) {
-        recordRead(description, 1L);
-    }
-
     private void recordRead(String description, long readUnits) {
         readRecorder.record(description, readUnits);
     }
@@ -14,6 +14,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +36,7 @@ public class FirestoreUserRepository {
     final FirestoreProperties properties;
     private final Firestore firestore;
     private final FirestoreReadRecorder readRecorder;
+    private final FirestoreCounter counter;
     private final PasswordEncoder passwordEncoder;
     private final boolean enabled;
 
@@ -42,11 +44,13 @@ public class FirestoreUserRepository {
         FirestoreProperties properties,
         ObjectProvider<Firestore> firestoreProvider,
         PasswordEncoder passwordEncoder,
-        FirestoreReadRecorder readRecorder
+        FirestoreReadRecorder readRecorder,
+        FirestoreCounter counter
     ) {
         this.properties = properties;
         this.firestore = firestoreProvider.getIfAvailable();
         this.readRecorder = readRecorder;
+        this.counter = counter;
         this.passwordEncoder = passwordEncoder;
         this.enabled = properties.isEnabled() && this.firestore != null;
 
@@ -64,25 +68,23 @@ public class FirestoreUserRepository {
     }
 
     public long countUsers() {
+        return countUsersAsync().join();
+    }
+
+    /**
+     * Counts users without blocking the caller. Failures complete with the fallback user count.
+     */
+    public CompletableFuture<Long> countUsersAsync() {
         if (!enabled) {
-            return countFallbackUsers();
+            return CompletableFuture.completedFuture(countFallbackUsers());
         }
 
-        try {
-            CollectionReference collection = firestore.collection(properties.getUsersCollection());
-            ApiFuture<QuerySnapshot> query = collection.get();
-            QuerySnapshot snapshot = query.get();
-            long readUnits = snapshot != null ? snapshot.size() : 0L;
-            recordRead("Count users in " + properties.getUsersCollection(), readUnits);
-            return readUnits;
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            log.warn("Interrupted while counting Firestore user documents.", ex);
-            return countFallbackUsers();
-        } catch (ExecutionException ex) {
-            log.error("Failed to count Firestore user documents.", ex);
-            return countFallbackUsers();
-        }
+        CollectionReference collection = firestore.collection(properties.getUsersCollection());
+        return counter.countAsync("users", collection, "Count users")
+            .exceptionally(ex -> {
+                log.error("Failed to count Firestore user documents.", ex);
+                return countFallbackUsers();
+            });
     }
 
     public FirestoreUserDetails registerUser(RegistrationForm registrationForm) {
@@ -142,7 +144,7 @@ public class FirestoreUserRepository {
             .get();
         QuerySnapshot querySnapshot = queryFuture.get();
         recordRead(
-            "Find user by email: " + normalizedEmail,
+            "Find user by email",
             querySnapshot != null ? querySnapshot.size() : 0L
         );
         if (querySnapshot == null || querySnapshot.isEmpty()) {
@@ -315,7 +317,7 @@ public class FirestoreUserRepository {
             .get();
         QuerySnapshot querySnapshot = queryFuture.get();
         recordRead(
-            "Check if user exists: " + normalizedEmail,
+            "Check if user exists",
             querySnapshot != null ? querySnapshot.size() : 0L
         );
         return querySnapshot != null && !querySnapshot.isEmpty();
@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -42,6 +43,10 @@ public class FirestoreUserService implements UserDetailsService {
         return repo.countUsers();
     }
 
+    public CompletableFuture<Long> countUsersAsync() {
+        return repo.countUsersAsync();
+    }
+
     public FirestoreUserDetails registerUser(RegistrationForm registrationForm) {
         return repo.registerUser(registrationForm);
     }
@@ -5,6 +5,8 @@ import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.QuerySnapshot;
+import dev.pekelund.pklnd.firestore.TagSummaryStore.Contribution;
+import dev.pekelund.pklnd.firestore.TagSummaryStore.SummaryDeltas;
 import dev.pekelund.pklnd.storage.ReceiptOwner;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -13,6 +15,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -28,29 +31,30 @@ import org.springframework.util.StringUtils;
 public class ItemCategorizationService {
 
     private static final Logger log = LoggerFactory.getLogger(ItemCategorizationService.class);
-    private static final String ITEM_CATEGORIES_COLLECTION = "item_categories";
-    private static final String ITEM_TAGS_COLLECTION = "item_tags";
+    static final String ITEM_CATEGORIES_COLLECTION = "item_categories";
+    static final String ITEM_TAGS_COLLECTION = "item_tags";
+    private static final int TAG_WRITES_PER_BATCH = 400;
 
     private final Optional<Firestore> firestore;
-    private final FirestoreProperties firestoreProperties;
     private final FirestoreReadRecorder readRecorder;
     private final CategoryService categoryService;
     private final TagService tagService;
+    private final TagSummaryStore tagSummaryStore;
     private final Optional<ReceiptExtractionService> receiptExtractionService;
 
     public ItemCategorizationService(
         ObjectProvider<Firestore> firestoreProvider,
-        FirestoreProperties firestoreProperties,
         FirestoreReadRecorder readRecorder,
         CategoryService categoryService,
         TagService tagService,
+        TagSummaryStore tagSummaryStore,
         ObjectProvider<ReceiptExtractionService> receiptExtractionServiceProvider
     ) {
         this.firestore = Optional.ofNullable(firestoreProvider.getIfAvailable());
-        this.firestoreProperties = firestoreProperties;
         this.readRecorder = readRecorder;
         this.categoryService = categoryService;
         this.tagService = tagService;
+        this.tagSummaryStore = tagSummaryStore;
         this.receiptExtractionService = Optional.ofNullable(receiptExtractionServiceProvider.getIfAvailable());
     }
 
@@ -239,16 +243,20 @@ public class ItemCategorizationService {
      * Get all category assignments for a receipt.
      */
     public List<ItemCategoryMapping> getCategoriesForReceipt(String receiptId) {
+        return getCategoriesForReceiptAsync(receiptId).join();
+    }
+
+    /**
+     * Get all category assignments for a receipt without blocking the caller. Failures complete with an
+     * empty list.
+     */
+    public CompletableFuture<List<ItemCategoryMapping>> getCategoriesForReceiptAsync(String receiptId) {
         if (firestore.isEmpty() || !StringUtils.hasText(receiptId)) {
-            return List.of();
+            return CompletableFuture.completedFuture(List.of());
         }
 
-        try {
-            Firestore db = firestore.get();
-            QuerySnapshot snapshot = db.collection(ITEM_CATEGORIES_COLLECTION)
-                .whereEqualTo("receiptId", receiptId)
-                .get()
-                .get();
+        Firestore db = firestore.get();
+        return FirestoreFutures.map(db.collection(ITEM_CATEGORIES_COLLECTION).whereEqualTo("receiptId", receiptId).get(), snapshot -> {
             recordRead("Load categories for receipt", snapshot.size());
 
             List<ItemCategoryMapping> mappings = new ArrayList<>();
@@ -259,14 +267,10 @@ public class ItemCategorizationService {
                 }
             }
             return Collections.unmodifiableList(mappings);
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            log.warn("Interrupted while loading categories for receipt", ex);
-            return List.of();
-        } catch (ExecutionException ex) {
+        }).exceptionally(ex -> {
             log.error("Failed to load categories for receipt", ex);
             return List.of();
-        }
+        });
     }
 
     /**
@@ -340,8 +344,22 @@ public class ItemCategorizationService {
             data.put("assignedBy", assignedBy);
             data.put("ownerId", ownerId);
 
-            docRef.set(data).get();
-            updateTagSummaryMeta(tagId, ownerId);
+            Contribution contribution = receiptExtractionService
+                .filter(ReceiptExtractionService::isEnabled)
+                .flatMap(service -> service.findById(receiptId))
+                .map(receipt -> tagSummaryStore.resolve(receipt, ownerId, itemIndex, itemEan))
+                .orElse(Contribution.NONE);
+            data.putAll(TagSummaryStore.contributionFields(contribution));
+
+            // Read the mapping in the transaction so re-assigning an item does not count it twice.
+            db.runTransaction(transaction -> {
+                Contribution previous = TagSummaryStore.readContribution(transaction.get(docRef).get());
+                SummaryDeltas deltas = new SummaryDeltas();
+                deltas.replace(ownerId, tagId, previous, contribution);
+                transaction.set(docRef, data);
+                tagSummaryStore.stage(transaction, deltas);
+                return null;
+            }).get();
 
             return ItemTagMapping.builder()
                 .id(docId)
@@ -402,9 +420,9 @@ public class ItemCategorizationService {
         try {
             ReceiptOwner owner = new ReceiptOwner(ownerId, null, null);
             List<ParsedReceipt> allReceipts = receiptExtractionService.get().listReceiptsForOwner(owner);
-            int assignedCount = 0;
             Firestore db = firestore.get();
             Instant now = Instant.now();
+            List<PendingTagAssignment> assignments = new ArrayList<>();
             
             log.info("Scanning {} receipts for items with EAN: {}", allReceipts.size(), itemEan);
             int itemsChecked = 0;
@@ -430,6 +448,7 @@ public class ItemCategorizationService {
                         String itemIdentifier = String.valueOf(i);
                         String docId = ItemTagMapping.createKey(receipt.id(), itemIdentifier, tagId);
                         DocumentReference docRef = db.collection(ITEM_TAGS_COLLECTION).document(docId);
+                        Contribution contribution = tagSummaryStore.resolve(receipt, ownerId, itemIdentifier, itemEan);
                         
                         Map<String, Object> data = new HashMap<>();
                         data.put("receiptId", receipt.id());
@@ -439,20 +458,24 @@ public class ItemCategorizationService {
                         data.put("assignedAt", Timestamp.ofTimeSecondsAndNanos(now.getEpochSecond(), now.getNano()));
                         data.put("assignedBy", assignedBy);
                         data.put("ownerId", ownerId);
+                        data.putAll(TagSummaryStore.contributionFields(contribution));
 
-                        docRef.set(data).get();
-                        assignedCount++;
+                        assignments.add(new PendingTagAssignment(docRef, data, contribution));
                         log.debug("Assigned tag {} to item {} in receipt {} (EAN: {})", 
                             tagId, itemIdentifier, receipt.id(), itemEan);
                     }
                 }
             }
 
+            for (int start = 0; start < assignments.size(); start += TAG_WRITES_PER_BATCH) {
+                List<PendingTagAssignment> chunk =
+                    assignments.subList(start, Math.min(assignments.size(), start + TAG_WRITES_PER_BATCH));
+                writeTagAssignments(db, chunk, ownerId, tagId);
+            }
+            int assignedCount = assignments.size();
+
             log.info("Scanned {} items total, {} had EAN codes. Assigned tag {} to {} items with EAN {}", 
                 itemsChecked, itemsWithEan, tagId, assignedCount, itemEan);
-            if (assignedCount > 0) {
-                updateTagSummaryMeta(tagId, ownerId);
-            }
             return assignedCount;
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
@@ -507,16 +530,20 @@ public class ItemCategorizationService {
      * Get all tag assignments for a receipt.
      */
     public List<ItemTagMapping> getTagsForReceipt(String receiptId) {
+        return getTagsForReceiptAsync(receiptId).join();
+    }
+
+    /**
+     * Get all tag assignments for a receipt without blocking the caller. Failures complete with an
+     * empty list.
+     */
+    public CompletableFuture<List<ItemTagMapping>> getTagsForReceiptAsync(String receiptId) {
         if (firestore.isEmpty() || !StringUtils.hasText(receiptId)) {
-            return List.of();
+            return CompletableFuture.completedFuture(List.of());
         }
 
-        try {
-            Firestore db = firestore.get();
-            QuerySnapshot snapshot = db.collection(ITEM_TAGS_COLLECTION)
-                .whereEqualTo("receiptId", receiptId)
-                .get()
-                .get();
+        Firestore db = firestore.get();
+        return FirestoreFutures.map(db.collection(ITEM_TAGS_COLLECTION).whereEqualTo("receiptId", receiptId).get(), snapshot -> {
             recordRead("Load tags for receipt", snapshot.size());
 
             List<ItemTagMapping> mappings = new ArrayList<>();
@@ -527,14 +554,10 @@ public class ItemCategorizationService {
                 }
             }
             return Collections.unmodifiableList(mappings);
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            log.warn("Interrupted while loading tags for receipt", ex);
-            return List.of();
-        } catch (ExecutionException ex) {
+        }).exceptionally(ex -> {
             log.error("Failed to load tags for receipt", ex);
             return List.of();
-        }
+        });
     }
 
     /**
@@ -549,8 +572,20 @@ public class ItemCategorizationService {
         try {
             Firestore db = firestore.get();
             String docId = ItemTagMapping.createKey(receiptId, itemIdentifier, tagId);
-            db.collection(ITEM_TAGS_COLLECTION).document(docId).delete().get();
-            updateTagSummaryMeta(tagId, ownerId);
+            DocumentReference docRef = db.collection(ITEM_TAGS_COLLECTION).document(docId);
+            db.runTransaction(transaction -> {
+                DocumentSnapshot mapping = transaction.get(docRef).get();
+                if (!mapping.exists()) {
+                    return null;
+                }
+                String mappingOwnerId = mapping.getString("ownerId");
+                SummaryDeltas deltas = new SummaryDeltas();
+                deltas.replace(StringUtils.hasText(mappingOwnerId) ? mappingOwnerId : ownerId, tagId,
+                    TagSummaryStore.readContribution(mapping), Contribution.NONE);
+                transaction.delete(docRef);
+                tagSummaryStore.stage(transaction, deltas);
+                return null;
+            }).get();
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
             log.error("Interrupted while removing tag from item", ex);
@@ -661,26 +696,35 @@ public class ItemCategorizationService {
         Instant assignedAt
     ) {}
 
-    private void updateTagSummaryMeta(String tagId, String ownerId) {
-        if (firestore.isEmpty() || !StringUtils.hasText(tagId) || !StringUtils.hasText(ownerId)) {
-            return;
-        }
-
-        String collection = firestoreProperties.getTagSummaryMetaCollection();
-        if (!StringUtils.hasText(collection)) {
-            return;
-        }
+    /**
+     * Writes one chunk of tag assignments together with their summary increments. The existing mappings are
+     * read in the same transaction, so an item tagged or untagged concurrently is not counted twice.
+     */
+    private void writeTagAssignments(Firestore db, List<PendingTagAssignment> assignments, String ownerId,
+        String tagId) throws InterruptedException, ExecutionException {
+        DocumentReference[] references = assignments.stream()
+            .map(PendingTagAssignment::reference)
+            .toArray(DocumentReference[]::new);
+        db.runTransaction(transaction -> {
+            Map<String, DocumentSnapshot> existing = new HashMap<>();
+            for (DocumentSnapshot snapshot : transaction.getAll(references).get()) {
+                existing.put(snapshot.getId(), snapshot);
+            }
+            recordRead("Load existing tag mappings", existing.size());
+            SummaryDeltas deltas = new SummaryDeltas();
+            for (PendingTagAssignment assignment : assignments) {
+                deltas.replace(ownerId, tagId,
+                    TagSummaryStore.readContribution(existing.get(assignment.reference().getId())),
+                    assignment.contribution());
+                transaction.set(assignment.reference(), assignment.data());
+            }
+            tagSummaryStore.stage(transaction, deltas);
+            return null;
+        }).get();
+    }
 
-        try {
-            Firestore db = firestore.get();
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("tagId", tagId);
-            payload.put("updatedAt", Timestamp.now());
-            payload.put("ownerId", ownerId);
-            db.collection(collection).document(ownerId + ":" + tagId).set(payload);
-        } catch (Exception ex) {
-            log.warn("Failed to update tag summary metadata", ex);
-        }
+    private record PendingTagAssignment(DocumentReference reference, Map<String, Object> data,
+        Contribution contribution) {
     }
 
     private void recordRead(String description, long count) {
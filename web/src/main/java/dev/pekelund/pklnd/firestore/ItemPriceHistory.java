@@ -0,0 +1,21 @@
+package dev.pekelund.pklnd.firestore;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Price points recorded for one EAN, oldest first, as stored in a price history series document.
+ */
+public record ItemPriceHistory(List<PricePoint> points) {
+
+    public ItemPriceHistory {
+        points = points == null ? List.of() : List.copyOf(points);
+    }
+
+    public int purchaseCount() {
+        return points.size();
+    }
+
+    public record PricePoint(String receiptId, String date, BigDecimal price, String storeName) {
+    }
+}
@@ -0,0 +1,120 @@
+package dev.pekelund.pklnd.firestore;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Time-bound lease stored in a single Firestore document, so only one instance applies migrations at a
+ * time. The holder renews the lease while it works; when an instance dies its lease simply expires and the
+ * next instance to start takes over and resumes from the stored checkpoints. Lease calls block on Firestore
+ * transactions, so they are serialised with a {@link ReentrantLock} rather than {@code synchronized}, which
+ * would pin a virtual thread to its carrier for the whole round trip.
+ */
+final class MigrationLease {
+
+    private final Firestore firestore;
+    private final DocumentReference document;
+    private final String owner;
+    private final Duration ttl;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long renewDueNanos;
+
+    MigrationLease(Firestore firestore, DocumentReference document, String owner, Duration ttl) {
+        this.firestore = firestore;
+        this.document = document;
+        this.owner = owner;
+        this.ttl = ttl;
+    }
+
+    String owner() {
+        return owner;
+    }
+
+    /**
+     * Take the lease when it is free, expired or already ours.
+     */
+    boolean tryAcquire() {
+        lock.lock();
+        try {
+            boolean acquired = await(firestore.runTransaction(transaction -> {
+                DocumentSnapshot snapshot = transaction.get(document).get();
+                if (heldByOther(snapshot)) {
+                    return false;
+                }
+                Instant expiresAt = Instant.now().plus(ttl);
+                transaction.set(document, Map.of(
+                    "owner", owner,
+                    "expiresAt", Timestamp.ofTimeSecondsAndNanos(expiresAt.getEpochSecond(), expiresAt.getNano())
+                ));
+                return true;
+            }), "acquire");
+            if (acquired) {
+                renewDueNanos = System.nanoTime() + ttl.toNanos() / 3;
+            }
+            return acquired;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Extend the lease once a third of its lifetime has passed. Fails when another instance took it over,
+     * which stops the migration before two instances write the same documents.
+     */
+    void renewIfDue() {
+        lock.lock();
+        try {
+            if (System.nanoTime() - renewDueNanos < 0) {
+                return;
+            }
+            if (!tryAcquire()) {
+                throw new IllegalStateException("Migration lease was taken over by another instance");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release() {
+        lock.lock();
+        try {
+            await(firestore.runTransaction(transaction -> {
+                DocumentSnapshot snapshot = transaction.get(document).get();
+                if (snapshot.exists() && owner.equals(snapshot.getString("owner"))) {
+                    transaction.delete(document);
+                }
+                return null;
+            }), "release");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean heldByOther(DocumentSnapshot snapshot) {
+        if (!snapshot.exists() || owner.equals(snapshot.getString("owner"))) {
+            return false;
+        }
+        Timestamp expiresAt = snapshot.getTimestamp("expiresAt");
+        return expiresAt != null && expiresAt.compareTo(Timestamp.now()) > 0;
+    }
+
+    private static <T> T await(Future<T> future, String action) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while trying to " + action + " the migration lease", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            throw new IllegalStateException("Failed to " + action + " the migration lease", cause);
+        }
+    }
+}
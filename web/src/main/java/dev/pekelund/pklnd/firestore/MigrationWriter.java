@@ -0,0 +1,23 @@
+package dev.pekelund.pklnd.firestore;
+
+import com.google.cloud.firestore.DocumentReference;
+import java.util.Map;
+
+/**
+ * Write sink handed to {@link DocumentMigration#migrate}. Writes are sent through a {@code BulkWriter}
+ * and are durable once the page they belong to is checkpointed; during a dry run they are only counted.
+ */
+public interface MigrationWriter {
+
+    /**
+     * Merge {@code data} into the document, creating it when missing.
+     */
+    void merge(DocumentReference document, Map<String, Object> data);
+
+    /**
+     * Update fields of an existing document.
+     */
+    void update(DocumentReference document, Map<String, Object> fields);
+
+    void delete(DocumentReference document);
+}
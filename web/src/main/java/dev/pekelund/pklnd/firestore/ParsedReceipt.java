@@ -4,8 +4,6 @@ import dev.pekelund.pklnd.storage.ReceiptOwner;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -34,7 +32,7 @@ public record ParsedReceipt(
     String rawResponse,
     String error,
     String stackTrace
-) {
+) implements ReceiptHeader {
 
     private static final Pattern QUANTITY_PATTERN = Pattern.compile("([-+]?\\d+(?:[.,]\\d+)?)\\s*(\\p{L}+)?");
     private static final BigDecimal PRICE_TOLERANCE = new BigDecimal("0.01");
@@ -48,65 +46,6 @@ public record ParsedReceipt(
         errors = copyOfMapList(errors);
     }
 
-    public String displayName() {
-        String storeName = storeName();
-        if (storeName != null && !storeName.isBlank()) {
-            return storeName;
-        }
-        String fileName = fileName();
-        if (fileName != null && !fileName.isBlank()) {
-            return fileName;
-        }
-        if (objectName != null && !objectName.isBlank()) {
-            return objectName;
-        }
-        return null;
-    }
-
-    public String fileName() {
-        return valueFromGeneral("fileName");
-    }
-
-    public String storeName() {
-        return valueFromGeneral("storeName");
-    }
-
-    public String receiptDate() {
-        return valueFromGeneral("receiptDate");
-    }
-
-    public String totalAmount() {
-        return valueFromGeneral("totalAmount");
-    }
-
-    public String formattedTotalAmount() {
-        BigDecimal amount = numericValueFromGeneral("totalAmount");
-        return formatAmount(amount);
-    }
-
-    public BigDecimal totalAmountValue() {
-        return numericValueFromGeneral("totalAmount");
-    }
-
-    public String format() {
-        return valueFromGeneral("format");
-    }
-
-    public String reconciliationStatus() {
-        return valueFromGeneral("reconciliationStatus");
-    }
-
-    /**
-     * Get the updated timestamp in the system's default timezone.
-     * This is useful for displaying the timestamp in the user's local time.
-     */
-    public ZonedDateTime updatedAtZoned() {
-        if (updatedAt == null) {
-            return null;
-        }
-        return updatedAt.atZone(ZoneId.systemDefault());
-    }
-
     /**
      * Calculate total savings from general discounts.
      */
@@ -218,24 +157,6 @@ public record ParsedReceipt(
         return formatAmount(itemDiscountTotal());
     }
 
-    public String statusBadgeClass() {
-        if (status == null || status.isBlank()) {
-            return "bg-secondary-subtle text-secondary";
-        }
-        String normalized = status.trim().toUpperCase();
-        return switch (normalized) {
-            case "COMPLETED", "REPARSED" -> "bg-success-subtle text-success";
-            case "FAILED" -> "bg-danger-subtle text-danger";
-            case "REPARSE_REQUESTED", "PROCESSING", "RUNNING", "PENDING" -> "bg-info-subtle text-info";
-            default -> "bg-secondary-subtle text-secondary";
-        };
-    }
-
-    private String valueFromGeneral(String key) {
-        Object value = general.get(key);
-        return value != null ? value.toString() : null;
-    }
-
     public List<Map<String, Object>> displayItems() {
         if (items.isEmpty()) {
             return items;
@@ -307,7 +228,7 @@ public record ParsedReceipt(
         }
         Matcher matcher = QUANTITY_PATTERN.matcher(text);
         if (matcher.find()) {
-            BigDecimal value = parseDecimalString(matcher.group(1));
+            BigDecimal value = parseBigDecimal(matcher.group(1));
             String unit = matcher.group(2) != null ? matcher.group(2).trim() : null;
             return new QuantityParts(value, unit, text);
         }
@@ -371,45 +292,11 @@ public record ParsedReceipt(
     }
 
     private BigDecimal parseBigDecimal(Object value) {
-        if (value instanceof BigDecimal bigDecimal) {
-            return bigDecimal;
-        }
-        if (value instanceof Number number) {
-            return new BigDecimal(number.toString());
-        }
-        if (value instanceof String string) {
-            return parseDecimalString(string);
-        }
-        return null;
-    }
-
-    private BigDecimal parseDecimalString(String value) {
-        if (value == null) {
-            return null;
-        }
-        String normalized = value.replace('\u00A0', ' ').trim();
-        if (normalized.isEmpty()) {
-            return null;
-        }
-        normalized = normalized.replace(" ", "");
-        normalized = normalized.replace(',', '.');
-        try {
-            return new BigDecimal(normalized);
-        } catch (NumberFormatException ex) {
-            return null;
-        }
-    }
-
-    private BigDecimal numericValueFromGeneral(String key) {
-        Object value = general.get(key);
-        return parseBigDecimal(value);
+        return ReceiptHeader.parseAmount(value);
     }
 
     private String formatAmount(BigDecimal value) {
-        if (value == null) {
-            return null;
-        }
-        return value.setScale(2, RoundingMode.HALF_UP).toPlainString();
+        return ReceiptHeader.formatAmount(value);
     }
 
     private record QuantityParts(BigDecimal value, String unit, String originalText) { }
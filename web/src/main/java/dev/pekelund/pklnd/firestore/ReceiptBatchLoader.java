@@ -0,0 +1,85 @@
+package dev.pekelund.pklnd.firestore;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * Coalesces the receipt lookups made while handling one request. Ids registered with {@link #prime} are
+ * fetched together with the next {@link #load} or {@link #loadAll} in a single batched read, and receipts
+ * already fetched in this request, including ones that do not exist, are answered from memory.
+ */
+@Component
+@RequestScope
+public class ReceiptBatchLoader {
+
+    private final ReceiptExtractionService receiptExtractionService;
+    private final Map<String, Optional<ParsedReceipt>> loaded = new HashMap<>();
+    private final Set<String> pending = new LinkedHashSet<>();
+
+    public ReceiptBatchLoader(ReceiptExtractionService receiptExtractionService) {
+        this.receiptExtractionService = receiptExtractionService;
+    }
+
+    /**
+     * Registers receipts that will be needed later in the request without fetching them yet.
+     */
+    public void prime(Collection<String> receiptIds) {
+        if (receiptIds == null) {
+            return;
+        }
+        for (String receiptId : receiptIds) {
+            if (StringUtils.hasText(receiptId) && !loaded.containsKey(receiptId)) {
+                pending.add(receiptId);
+            }
+        }
+    }
+
+    public Optional<ParsedReceipt> load(String receiptId) {
+        if (!StringUtils.hasText(receiptId)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(loadAll(Set.of(receiptId)).get(receiptId));
+    }
+
+    /**
+     * Returns the existing receipts among {@code receiptIds}, keyed by id in the order given.
+     */
+    public Map<String, ParsedReceipt> loadAll(Collection<String> receiptIds) {
+        prime(receiptIds);
+        dispatch();
+
+        Map<String, ParsedReceipt> receipts = new LinkedHashMap<>();
+        if (receiptIds != null) {
+            for (String receiptId : receiptIds) {
+                Optional<ParsedReceipt> receipt = StringUtils.hasText(receiptId)
+                    ? loaded.getOrDefault(receiptId, Optional.empty())
+                    : Optional.empty();
+                receipt.ifPresent(value -> receipts.put(receiptId, value));
+            }
+        }
+        return receipts;
+    }
+
+    private void dispatch() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Set<String> batch = new LinkedHashSet<>(pending);
+        pending.clear();
+        for (ParsedReceipt receipt : receiptExtractionService.findByIds(batch)) {
+            loaded.put(receipt.id(), Optional.of(receipt));
+        }
+        for (String receiptId : batch) {
+            loaded.putIfAbsent(receiptId, Optional.empty());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package dev.pekelund.pklnd.firestore;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Application event published whenever parsed receipt data for an owner changes, so that in-memory
+ * projections can be updated without re-reading the whole receipts collection.
+ */
+public record ReceiptChangeEvent(String ownerId, Set<String> receiptIds, Kind kind) {
+
+    public enum Kind {
+        /**
+         * The receipts were (re)parsed and should be reloaded.
+         */
+        UPDATED,
+
+        /**
+         * The parsed data for the receipts was removed, for example when a re-parse was requested.
+         */
+        REMOVED,
+
+        /**
+         * Every receipt belonging to the owner was deleted.
+         */
+        OWNER_CLEARED
+    }
+
+    public ReceiptChangeEvent {
+        receiptIds = receiptIds != null ? Set.copyOf(receiptIds) : Set.of();
+    }
+
+    public static ReceiptChangeEvent updated(String ownerId, Collection<String> receiptIds) {
+        return new ReceiptChangeEvent(ownerId, Set.copyOf(receiptIds), Kind.UPDATED);
+    }
+
+    public static ReceiptChangeEvent removed(String ownerId, Collection<String> receiptIds) {
+        return new ReceiptChangeEvent(ownerId, Set.copyOf(receiptIds), Kind.REMOVED);
+    }
+
+    public static ReceiptChangeEvent ownerCleared(String ownerId) {
+        return new ReceiptChangeEvent(ownerId, Set.of(), Kind.OWNER_CLEARED);
+    }
+}
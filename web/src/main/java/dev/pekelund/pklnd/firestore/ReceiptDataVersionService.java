@@ -0,0 +1,157 @@
+package dev.pekelund.pklnd.firestore;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteBatch;
+import dev.pekelund.pklnd.receipts.ReceiptItemConstants;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * Tracks a change counter per receipt owner, plus one for all owners, so that JSON endpoints can answer
+ * conditional requests without loading any receipt data. The receipt processor bumps the counters in the
+ * same batch as its receipt writes; this service bumps them for changes made by the web application.
+ *
+ * <p>Counters read from Firestore are cached for {@link #CACHE_TTL}, so a polling browser costs at most one
+ * document read per owner and interval. Without Firestore the counters only live in this instance.</p>
+ */
+@Service
+public class ReceiptDataVersionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptDataVersionService.class);
+    private static final Duration CACHE_TTL = Duration.ofSeconds(5);
+
+    private final Optional<Firestore> firestore;
+    private final FirestoreProperties firestoreProperties;
+    private final FirestoreReadRecorder readRecorder;
+    private final Map<String, CachedVersion> cachedVersions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> localVersions = new ConcurrentHashMap<>();
+    private final String localEpoch = UUID.randomUUID().toString().substring(0, 8);
+
+    public ReceiptDataVersionService(
+        ObjectProvider<Firestore> firestoreProvider,
+        FirestoreProperties firestoreProperties,
+        FirestoreReadRecorder readRecorder
+    ) {
+        this.firestore = Optional.ofNullable(firestoreProvider.getIfAvailable());
+        this.firestoreProperties = firestoreProperties;
+        this.readRecorder = readRecorder;
+    }
+
+    /**
+     * Returns a strong entity tag for a response built from the receipts of {@code scopeKey}, an owner id or
+     * {@link ReceiptItemConstants#GLOBAL_OWNER_ID}. The {@code discriminators} separate responses that share
+     * a scope, such as different endpoints or request parameters. Empty when the version cannot be read, in
+     * which case the response should be served without a tag.
+     */
+    public Optional<String> entityTag(String scopeKey, Object... discriminators) {
+        if (!StringUtils.hasText(scopeKey)) {
+            return Optional.empty();
+        }
+        Optional<String> version = currentVersion(scopeKey);
+        if (version.isEmpty()) {
+            return Optional.empty();
+        }
+        int discriminator = Objects.hash(scopeKey, Arrays.hashCode(discriminators));
+        return Optional.of("\"" + Integer.toHexString(discriminator) + "-" + version.get() + "\"");
+    }
+
+    /**
+     * Marks the receipts of the owner, and of all owners, as changed.
+     */
+    public void bump(String ownerId) {
+        List<String> scopeKeys = new ArrayList<>(2);
+        if (StringUtils.hasText(ownerId)) {
+            scopeKeys.add(ownerId);
+        }
+        scopeKeys.add(ReceiptItemConstants.GLOBAL_OWNER_ID);
+
+        for (String scopeKey : scopeKeys) {
+            localVersions.computeIfAbsent(scopeKey, key -> new AtomicLong()).incrementAndGet();
+        }
+
+        if (firestore.isPresent()) {
+            try {
+                Map<String, Object> increment = Map.of(
+                    "version", FieldValue.increment(1),
+                    "updatedAt", Timestamp.now()
+                );
+                WriteBatch batch = firestore.get().batch();
+                for (String scopeKey : scopeKeys) {
+                    batch.set(versionsCollection().document(scopeKey), increment, SetOptions.merge());
+                }
+                batch.commit().get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while updating receipt data versions", ex);
+            } catch (ExecutionException ex) {
+                log.warn("Failed to update receipt data versions", ex);
+            }
+        }
+
+        scopeKeys.forEach(cachedVersions::remove);
+    }
+
+    @EventListener
+    public void onReceiptChange(ReceiptChangeEvent event) {
+        if (event != null) {
+            bump(event.ownerId());
+        }
+    }
+
+    private Optional<String> currentVersion(String scopeKey) {
+        if (firestore.isEmpty()) {
+            long local = localVersions.computeIfAbsent(scopeKey, key -> new AtomicLong()).get();
+            return Optional.of(localEpoch + "." + local);
+        }
+
+        Instant now = Instant.now();
+        CachedVersion cached = cachedVersions.get(scopeKey);
+        if (cached != null && cached.expiresAt().isAfter(now)) {
+            return Optional.of(Long.toString(cached.version()));
+        }
+
+        try {
+            DocumentSnapshot snapshot = versionsCollection().document(scopeKey).get().get();
+            readRecorder.record("Load receipt data version", 1);
+            Long stored = snapshot.exists() ? snapshot.getLong("version") : null;
+            long version = stored != null ? stored : 0L;
+            cachedVersions.put(scopeKey, new CachedVersion(version, now.plus(CACHE_TTL)));
+            return Optional.of(Long.toString(version));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while loading receipt data version for {}", scopeKey, ex);
+            return Optional.empty();
+        } catch (ExecutionException ex) {
+            log.warn("Failed to load receipt data version for {}", scopeKey, ex);
+            return Optional.empty();
+        }
+    }
+
+    private CollectionReference versionsCollection() {
+        return firestore.get().collection(firestoreProperties.getReceiptDataVersionsCollection());
+    }
+
+    private record CachedVersion(long version, Instant expiresAt) {
+    }
+}
@@ -1,11 +1,13 @@
 package dev.pekelund.pklnd.firestore;
 
 import dev.pekelund.pklnd.storage.ReceiptOwner;
+import dev.pekelund.pklnd.storage.StoredReceiptReference;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -33,14 +35,70 @@ public class ReceiptExtractionService {
         return receiptRepository.listReceiptsForOwner(owner);
     }
 
+    public CompletableFuture<List<ParsedReceipt>> listReceiptsForOwnerAsync(ReceiptOwner owner) {
+        return receiptRepository.listReceiptsForOwnerAsync(owner);
+    }
+
     public List<ParsedReceipt> listAllReceipts() {
         return receiptRepository.listAllReceipts();
     }
 
+    public CompletableFuture<List<ParsedReceipt>> listAllReceiptsAsync() {
+        return receiptRepository.listAllReceiptsAsync();
+    }
+
+    public List<ParsedReceipt> listFailedReceiptsForOwner(ReceiptOwner owner) {
+        return receiptRepository.listFailedReceiptsForOwner(owner);
+    }
+
+    public List<ParsedReceipt> listAllFailedReceipts() {
+        return receiptRepository.listAllFailedReceipts();
+    }
+
+    public long countAllReceipts() {
+        return receiptRepository.countAllReceipts();
+    }
+
+    public CompletableFuture<Long> countAllReceiptsAsync() {
+        return receiptRepository.countAllReceiptsAsync();
+    }
+
+    public long countAllFailedReceipts() {
+        return receiptRepository.countAllFailedReceipts();
+    }
+
+    public CompletableFuture<Long> countAllFailedReceiptsAsync() {
+        return receiptRepository.countAllFailedReceiptsAsync();
+    }
+
+    public long countAllItems() {
+        return receiptRepository.countAllItems();
+    }
+
+    public CompletableFuture<Long> countAllItemsAsync() {
+        return receiptRepository.countAllItemsAsync();
+    }
+
+    public List<ReceiptSummary> listReceiptSummariesForOwner(ReceiptOwner owner) {
+        return receiptRepository.listReceiptSummariesForOwner(owner);
+    }
+
+    public List<ReceiptSummary> listAllReceiptSummaries() {
+        return receiptRepository.listAllReceiptSummaries();
+    }
+
+    public CompletableFuture<List<ReceiptSummary>> listAllReceiptSummariesAsync() {
+        return receiptRepository.listAllReceiptSummariesAsync();
+    }
+
     public Optional<ParsedReceipt> findById(String id) {
         return receiptRepository.findById(id);
     }
 
+    public Optional<ParsedReceipt> findDetailedById(String id) {
+        return receiptRepository.findDetailedById(id);
+    }
+
     public List<ParsedReceipt> findByIds(Collection<String> ids) {
         return receiptRepository.findByIds(ids);
     }
@@ -53,6 +111,10 @@ public class ReceiptExtractionService {
         receiptRepository.deleteReceiptsForOwner(owner);
     }
 
+    public void notifyReceiptsProcessed(Collection<StoredReceiptReference> references) {
+        receiptRepository.notifyReceiptsProcessed(references);
+    }
+
     public List<ParsedReceipt> searchByItemName(String searchQuery, ReceiptOwner owner, boolean includeAllOwners) {
         return receiptSearchService.searchByItemName(searchQuery, owner, includeAllOwners);
     }
@@ -66,9 +128,19 @@ public class ReceiptExtractionService {
         return receiptItemService.loadItemOccurrences(normalizedEans, owner, includeAllOwners);
     }
 
+    public CompletableFuture<Map<String, Long>> loadItemOccurrencesAsync(Collection<String> normalizedEans,
+        ReceiptOwner owner, boolean includeAllOwners) {
+        return receiptItemService.loadItemOccurrencesAsync(normalizedEans, owner, includeAllOwners);
+    }
+
     public List<ReceiptItemReference> findReceiptItemReferences(String normalizedEan, ReceiptOwner owner,
+        boolean includeAllOwners, int limit) {
+        return receiptItemService.findReceiptItemReferences(normalizedEan, owner, includeAllOwners, limit);
+    }
+
+    public Optional<ItemPriceHistory> findPriceHistory(String normalizedEan, ReceiptOwner owner,
         boolean includeAllOwners) {
-        return receiptItemService.findReceiptItemReferences(normalizedEan, owner, includeAllOwners);
+        return receiptItemService.findPriceHistory(normalizedEan, owner, includeAllOwners);
     }
 
     public record ReceiptItemReference(
@@ -0,0 +1,135 @@
+package dev.pekelund.pklnd.firestore;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+/**
+ * Accessors derived from a receipt document's status and general section, shared by the full
+ * {@link ParsedReceipt} and the list-view {@link ReceiptSummary}.
+ */
+public interface ReceiptHeader {
+
+    String objectName();
+
+    String status();
+
+    Instant updatedAt();
+
+    Map<String, Object> general();
+
+    default String displayName() {
+        String storeName = storeName();
+        if (storeName != null && !storeName.isBlank()) {
+            return storeName;
+        }
+        String fileName = fileName();
+        if (fileName != null && !fileName.isBlank()) {
+            return fileName;
+        }
+        String objectName = objectName();
+        if (objectName != null && !objectName.isBlank()) {
+            return objectName;
+        }
+        return null;
+    }
+
+    default String fileName() {
+        return valueFromGeneral("fileName");
+    }
+
+    default String storeName() {
+        return valueFromGeneral("storeName");
+    }
+
+    default String receiptDate() {
+        return valueFromGeneral("receiptDate");
+    }
+
+    default String totalAmount() {
+        return valueFromGeneral("totalAmount");
+    }
+
+    default String formattedTotalAmount() {
+        return formatAmount(totalAmountValue());
+    }
+
+    default BigDecimal totalAmountValue() {
+        return parseAmount(general().get("totalAmount"));
+    }
+
+    default String format() {
+        return valueFromGeneral("format");
+    }
+
+    default String reconciliationStatus() {
+        return valueFromGeneral("reconciliationStatus");
+    }
+
+    /**
+     * Get the updated timestamp in the system's default timezone.
+     * This is useful for displaying the timestamp in the user's local time.
+     */
+    default ZonedDateTime updatedAtZoned() {
+        Instant updatedAt = updatedAt();
+        if (updatedAt == null) {
+            return null;
+        }
+        return updatedAt.atZone(ZoneId.systemDefault());
+    }
+
+    default String statusBadgeClass() {
+        String status = status();
+        if (status == null || status.isBlank()) {
+            return "bg-secondary-subtle text-secondary";
+        }
+        String normalized = status.trim().toUpperCase();
+        return switch (normalized) {
+            case "COMPLETED", "REPARSED" -> "bg-success-subtle text-success";
+            case "FAILED" -> "bg-danger-subtle text-danger";
+            case "REPARSE_REQUESTED", "PROCESSING", "RUNNING", "PENDING" -> "bg-info-subtle text-info";
+            default -> "bg-secondary-subtle text-secondary";
+        };
+    }
+
+    private String valueFromGeneral(String key) {
+        Object value = general().get(key);
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Reads an amount stored as a number or as text such as {@code "1 234,50"}; returns {@code null} when the
+     * value is missing or not a number.
+     */
+    static BigDecimal parseAmount(Object value) {
+        if (value instanceof BigDecimal bigDecimal) {
+            return bigDecimal;
+        }
+        if (value instanceof Number number) {
+            return new BigDecimal(number.toString());
+        }
+        if (!(value instanceof String string)) {
+            return null;
+        }
+        String normalized = string.replace('\u00A0', ' ').trim();
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        normalized = normalized.replace(" ", "").replace(',', '.');
+        try {
+            return new BigDecimal(normalized);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    static String formatAmount(BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        return value.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+}
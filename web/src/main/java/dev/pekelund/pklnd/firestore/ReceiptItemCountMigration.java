@@ -0,0 +1,47 @@
+package dev.pekelund.pklnd.firestore;
+
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import dev.pekelund.pklnd.receipts.ReceiptItemConstants;
+import java.util.List;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores {@link ReceiptItemConstants#ITEM_COUNT_FIELD} on receipts parsed before the receipt processor started
+ * writing it, so the dashboard's item total, a {@code sum()} over that field, includes them.
+ */
+@Component
+public class ReceiptItemCountMigration implements DocumentMigration {
+
+    private final FirestoreProperties properties;
+
+    public ReceiptItemCountMigration(FirestoreProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public int version() {
+        return 1;
+    }
+
+    @Override
+    public String description() {
+        return "Backfill receipt item counts";
+    }
+
+    @Override
+    public String collectionGroup() {
+        return properties.getReceiptsCollection();
+    }
+
+    @Override
+    public void migrate(QueryDocumentSnapshot document, MigrationWriter writer) {
+        if (document.contains(ReceiptItemConstants.ITEM_COUNT_FIELD)) {
+            return;
+        }
+        long itemCount = document.get("data.items") instanceof List<?> items
+            ? items.stream().filter(Map.class::isInstance).count()
+            : 0L;
+        writer.update(document.getReference(), Map.of(ReceiptItemConstants.ITEM_COUNT_FIELD, itemCount));
+    }
+}
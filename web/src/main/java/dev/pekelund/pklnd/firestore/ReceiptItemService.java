@@ -2,16 +2,19 @@ package dev.pekelund.pklnd.firestore;
 
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.DocumentSnapshot;
-import com.google.cloud.firestore.FieldPath;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import dev.pekelund.pklnd.receipts.ReceiptItemConstants;
+import dev.pekelund.pklnd.receipts.ReceiptItemPrices;
+import dev.pekelund.pklnd.receipts.ReceiptPriceHistory;
 import dev.pekelund.pklnd.storage.ReceiptOwner;
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -19,6 +22,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -35,26 +40,48 @@ public class ReceiptItemService {
     private final FirestoreProperties properties;
     private final Optional<Firestore> firestore;
     private final FirestoreReadRecorder readRecorder;
+    private final FirestoreBatchReader batchReader;
     private final String receiptItemsCollection;
     private final String itemStatsCollection;
+    private final String priceHistoryCollection;
 
     public ReceiptItemService(
         FirestoreProperties properties,
         ObjectProvider<Firestore> firestoreProvider,
-        FirestoreReadRecorder readRecorder
+        FirestoreReadRecorder readRecorder,
+        FirestoreBatchReader batchReader
     ) {
         this.properties = properties;
         this.firestore = Optional.ofNullable(firestoreProvider.getIfAvailable());
         this.readRecorder = readRecorder;
+        this.batchReader = batchReader;
         this.receiptItemsCollection = properties.getReceiptItemsCollection();
         this.itemStatsCollection = properties.getItemStatsCollection();
+        this.priceHistoryCollection = properties.getPriceHistoryCollection();
     }
 
     public Map<String, Long> loadItemOccurrences(Collection<String> normalizedEans, ReceiptOwner owner,
         boolean includeAllOwners) {
 
+        try {
+            return loadItemOccurrencesAsync(normalizedEans, owner, includeAllOwners).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof ReceiptExtractionAccessException accessException) {
+                throw accessException;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Loads occurrence counts like {@link #loadItemOccurrences} without blocking the caller. All id chunks are
+     * fetched through {@link FirestoreBatchReader}. Failures complete with a {@link ReceiptExtractionAccessException}.
+     */
+    public CompletableFuture<Map<String, Long>> loadItemOccurrencesAsync(Collection<String> normalizedEans,
+        ReceiptOwner owner, boolean includeAllOwners) {
+
         if (firestore.isEmpty() || normalizedEans == null || normalizedEans.isEmpty()) {
-            return Map.of();
+            return CompletableFuture.completedFuture(Map.of());
         }
 
         Set<String> distinctEans = normalizedEans.stream()
@@ -62,7 +89,7 @@ public class ReceiptItemService {
             .map(String::trim)
             .collect(Collectors.toCollection(LinkedHashSet::new));
         if (distinctEans.isEmpty()) {
-            return Map.of();
+            return CompletableFuture.completedFuture(Map.of());
         }
 
         String ownerId = includeAllOwners ? ReceiptItemConstants.GLOBAL_OWNER_ID : owner != null ? owner.id() : null;
@@ -71,61 +98,36 @@ public class ReceiptItemService {
             for (String ean : distinctEans) {
                 empty.put(ean, 0L);
             }
-            return Map.copyOf(empty);
+            return CompletableFuture.completedFuture(Map.copyOf(empty));
         }
 
-        try {
-            Firestore db = firestore.get();
-            List<String> docIds = new ArrayList<>();
-            Map<String, String> docIdToEan = new HashMap<>();
-            for (String ean : distinctEans) {
-                String docId = buildStatsDocumentId(ownerId, ean);
-                docIds.add(docId);
-                docIdToEan.put(docId, ean);
-            }
+        Map<String, String> docIdToEan = new LinkedHashMap<>();
+        for (String ean : distinctEans) {
+            docIdToEan.put(buildStatsDocumentId(ownerId, ean), ean);
+        }
 
-            Map<String, Long> counts = new HashMap<>();
-            for (int start = 0; start < docIds.size(); start += 10) {
-                int end = Math.min(start + 10, docIds.size());
-                List<String> chunk = docIds.subList(start, end);
-                if (chunk.isEmpty()) {
-                    continue;
-                }
-                QuerySnapshot snapshot = db.collection(itemStatsCollection)
-                    .whereIn(FieldPath.documentId(), chunk)
-                    .get()
-                    .get();
-                recordRead("Load item stats for " + chunk.size() + " entries", snapshot != null ? snapshot.size() : 0);
-                if (snapshot == null) {
-                    continue;
+        return batchReader.getAllAsync(itemStatsCollection, docIdToEan.keySet(), null, "Load item stats")
+            .handle((documents, failure) -> {
+                if (failure != null) {
+                    log.error("Failed to load item statistics from Firestore", failure);
+                    throw new ReceiptExtractionAccessException("Failed to load item statistics from Firestore.",
+                        failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
                 }
-                for (DocumentSnapshot document : snapshot.getDocuments()) {
-                    String docId = document.getId();
-                    String ean = docIdToEan.get(docId);
-                    if (!StringUtils.hasText(ean)) {
-                        continue;
-                    }
-                    Long count = document.getLong("count");
-                    counts.put(ean, count != null ? count : 0L);
+                Map<String, Long> counts = new HashMap<>();
+                for (Map.Entry<String, String> entry : docIdToEan.entrySet()) {
+                    DocumentSnapshot document = documents.get(entry.getKey());
+                    Long count = document != null ? document.getLong("count") : null;
+                    counts.put(entry.getValue(), count != null ? count : 0L);
                 }
-            }
-
-            for (String ean : distinctEans) {
-                counts.putIfAbsent(ean, 0L);
-            }
-            return Map.copyOf(counts);
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            log.warn("Interrupted while loading item statistics from Firestore", ex);
-            throw new ReceiptExtractionAccessException("Interrupted while loading item statistics from Firestore.", ex);
-        } catch (ExecutionException ex) {
-            log.error("Failed to load item statistics from Firestore", ex);
-            throw new ReceiptExtractionAccessException("Failed to load item statistics from Firestore.", ex);
-        }
+                return Map.copyOf(counts);
+            });
     }
 
+    /**
+     * Loads the most recently parsed receipt items for an EAN, newest first, at most {@code limit} of them.
+     */
     public List<ReceiptExtractionService.ReceiptItemReference> findReceiptItemReferences(String normalizedEan, ReceiptOwner owner,
-        boolean includeAllOwners) {
+        boolean includeAllOwners, int limit) {
 
         if (firestore.isEmpty() || !StringUtils.hasText(normalizedEan)) {
             return List.of();
@@ -143,8 +145,11 @@ public class ReceiptItemService {
                 query = query.whereEqualTo("ownerId", owner.id());
             }
 
-            QuerySnapshot snapshot = query.get().get();
-            recordRead("Load receipt item references for " + trimmed,
+            QuerySnapshot snapshot = query.orderBy("receiptUpdatedAt", Query.Direction.DESCENDING)
+                .limit(Math.max(1, limit))
+                .get()
+                .get();
+            recordRead("Load receipt item references",
                 snapshot != null ? snapshot.size() : 0);
             if (snapshot == null) {
                 return List.of();
@@ -185,6 +190,63 @@ public class ReceiptItemService {
         }
     }
 
+    /**
+     * Loads the owner's precomputed price history series for an EAN. Empty when no series has been written for
+     * it yet, for example for receipts parsed before series were introduced, and for the all-owners view, which
+     * has no series and is built from the listed purchases instead.
+     */
+    public Optional<ItemPriceHistory> findPriceHistory(String normalizedEan, ReceiptOwner owner,
+        boolean includeAllOwners) {
+
+        if (firestore.isEmpty() || includeAllOwners || !StringUtils.hasText(normalizedEan)) {
+            return Optional.empty();
+        }
+        String ownerId = owner != null ? owner.id() : null;
+        if (!StringUtils.hasText(ownerId)) {
+            return Optional.empty();
+        }
+
+        String trimmed = normalizedEan.trim();
+        try {
+            DocumentSnapshot snapshot = firestore.get()
+                .collection(priceHistoryCollection)
+                .document(ReceiptPriceHistory.seriesId(ownerId, trimmed))
+                .get()
+                .get();
+            recordRead("Load price history", 1);
+            if (snapshot == null || !snapshot.exists()) {
+                return Optional.empty();
+            }
+
+            List<ItemPriceHistory.PricePoint> points = new ArrayList<>();
+            Map<String, Object> pointsByReceipt = toStringObjectMap(snapshot.get(ReceiptPriceHistory.POINTS_FIELD));
+            for (Map.Entry<String, Object> entry : pointsByReceipt.entrySet()) {
+                if (!(entry.getValue() instanceof List<?> receiptPoints)) {
+                    continue;
+                }
+                for (Object rawPoint : receiptPoints) {
+                    Map<String, Object> point = toStringObjectMap(rawPoint);
+                    String date = asString(point.get(ReceiptPriceHistory.DATE_FIELD));
+                    BigDecimal price = ReceiptItemPrices.parseAmount(point.get(ReceiptPriceHistory.PRICE_FIELD));
+                    if (date == null || price == null) {
+                        continue;
+                    }
+                    points.add(new ItemPriceHistory.PricePoint(entry.getKey(), date, price,
+                        asString(point.get(ReceiptPriceHistory.STORE_FIELD))));
+                }
+            }
+            points.sort(Comparator.comparing(ItemPriceHistory.PricePoint::date));
+            return Optional.of(new ItemPriceHistory(points));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while loading price history for {} from Firestore", trimmed, ex);
+            throw new ReceiptExtractionAccessException("Interrupted while loading price history from Firestore.", ex);
+        } catch (ExecutionException ex) {
+            log.error("Failed to load price history for {} from Firestore", trimmed, ex);
+            throw new ReceiptExtractionAccessException("Failed to load price history from Firestore.", ex);
+        }
+    }
+
     private String buildStatsDocumentId(String ownerId, String normalizedEan) {
         return ownerId + "#" + normalizedEan;
     }
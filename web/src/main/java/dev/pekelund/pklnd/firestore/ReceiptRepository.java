@@ -1,8 +1,12 @@
 package dev.pekelund.pklnd.firestore;
 
+import com.google.api.core.ApiFuture;
 import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Blob;
+import com.google.cloud.firestore.BulkWriter;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldMask;
 import com.google.cloud.firestore.FieldPath;
 import com.google.cloud.firestore.FieldValue;
 import com.google.cloud.firestore.Firestore;
@@ -11,8 +15,14 @@ import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.SetOptions;
 import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import dev.pekelund.pklnd.receipts.ReceiptDocumentIds;
 import dev.pekelund.pklnd.receipts.ReceiptItemConstants;
+import dev.pekelund.pklnd.receipts.ReceiptPayloadCodec;
+import dev.pekelund.pklnd.receipts.ReceiptPriceHistory;
 import dev.pekelund.pklnd.storage.ReceiptOwner;
+import dev.pekelund.pklnd.storage.StoredReceiptReference;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -20,17 +30,21 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -38,21 +52,42 @@ import org.springframework.util.StringUtils;
 public class ReceiptRepository {
 
     private static final Logger log = LoggerFactory.getLogger(ReceiptRepository.class);
+    private static final String FAILED_STATUS = "FAILED";
+    private static final int RECEIPT_ID_CHUNK_SIZE = 30;
+
+    // Field masks for list views. Only the detail page loads whole documents, which also carry the raw
+    // model response, the OCR text and stack traces.
+    private static final String[] SUMMARY_FIELDS = {
+        "bucket", "objectName", "objectPath", "owner", "status", "statusMessage", "updatedAt", "data.general"
+    };
+    private static final String[] CONTENT_FIELDS = {
+        "bucket", "objectName", "objectPath", "owner", "status", "statusMessage", "updatedAt", "error",
+        "data.general", "data.items", "data.vats", "data.generalDiscounts", "data.errors", "itemHistory"
+    };
 
     private final FirestoreProperties properties;
     private final Optional<Firestore> firestore;
     private final FirestoreReadRecorder readRecorder;
+    private final FirestoreBatchReader batchReader;
+    private final FirestoreCounter counter;
+    private final ApplicationEventPublisher eventPublisher;
     private final String receiptItemsCollection;
     private final String itemStatsCollection;
 
     public ReceiptRepository(
         FirestoreProperties properties,
         ObjectProvider<Firestore> firestoreProvider,
-        FirestoreReadRecorder readRecorder
+        FirestoreReadRecorder readRecorder,
+        FirestoreBatchReader batchReader,
+        FirestoreCounter counter,
+        ApplicationEventPublisher eventPublisher
     ) {
         this.properties = properties;
         this.firestore = Optional.ofNullable(firestoreProvider.getIfAvailable());
         this.readRecorder = readRecorder;
+        this.batchReader = batchReader;
+        this.counter = counter;
+        this.eventPublisher = eventPublisher;
         this.receiptItemsCollection = properties.getReceiptItemsCollection();
         this.itemStatsCollection = properties.getItemStatsCollection();
     }
@@ -62,60 +97,181 @@ public class ReceiptRepository {
     }
 
     public List<ParsedReceipt> listReceiptsForOwner(ReceiptOwner owner) {
-        return listReceipts(owner, false);
+        return join(listReceiptsForOwnerAsync(owner));
+    }
+
+    /**
+     * Lists an owner's receipts without blocking the caller. Failures complete with a
+     * {@link ReceiptExtractionAccessException}; the same holds for the other {@code Async} reads below.
+     */
+    public CompletableFuture<List<ParsedReceipt>> listReceiptsForOwnerAsync(ReceiptOwner owner) {
+        return listReceipts(owner, false, false);
     }
 
     public List<ParsedReceipt> listAllReceipts() {
-        return listReceipts(null, true);
+        return join(listAllReceiptsAsync());
+    }
+
+    public CompletableFuture<List<ParsedReceipt>> listAllReceiptsAsync() {
+        return listReceipts(null, true, false);
+    }
+
+    /**
+     * Lists failed receipts including their error details, which the other listings leave out.
+     */
+    public List<ParsedReceipt> listFailedReceiptsForOwner(ReceiptOwner owner) {
+        return join(listReceipts(owner, false, true));
     }
 
-    private List<ParsedReceipt> listReceipts(ReceiptOwner owner, boolean includeAllOwners) {
+    public List<ParsedReceipt> listAllFailedReceipts() {
+        return join(listReceipts(null, true, true));
+    }
+
+    public List<ReceiptSummary> listReceiptSummariesForOwner(ReceiptOwner owner) {
+        return join(listDocuments(owner, false, query -> query.select(SUMMARY_FIELDS), this::toReceiptSummary,
+            ReceiptSummary::updatedAt, "receipt summaries"));
+    }
+
+    public List<ReceiptSummary> listAllReceiptSummaries() {
+        return join(listAllReceiptSummariesAsync());
+    }
+
+    public CompletableFuture<List<ReceiptSummary>> listAllReceiptSummariesAsync() {
+        return listDocuments(null, true, query -> query.select(SUMMARY_FIELDS), this::toReceiptSummary,
+            ReceiptSummary::updatedAt, "receipt summaries");
+    }
+
+    /**
+     * Counts the parsed receipts of all owners without loading them.
+     */
+    public long countAllReceipts() {
+        return join(countAllReceiptsAsync());
+    }
+
+    public CompletableFuture<Long> countAllReceiptsAsync() {
+        return count("receipts", collection -> collection, properties.getReceiptsCollection(), "Count all receipts");
+    }
+
+    public long countAllFailedReceipts() {
+        return join(countAllFailedReceiptsAsync());
+    }
+
+    public CompletableFuture<Long> countAllFailedReceiptsAsync() {
+        return count("failedReceipts", collection -> collection.whereEqualTo("status", FAILED_STATUS),
+            properties.getReceiptsCollection(), "Count all failed receipts");
+    }
+
+    public long countAllItems() {
+        return join(countAllItemsAsync());
+    }
+
+    /**
+     * Totals the items of all parsed receipts, counted the same way as a receipt's own item list, from the
+     * item count the receipt processor stores on each receipt.
+     */
+    public CompletableFuture<Long> countAllItemsAsync() {
         if (firestore.isEmpty()) {
-            return List.of();
+            return CompletableFuture.completedFuture(0L);
+        }
+
+        return counter.sumAsync("receiptItems", firestore.get().collection(properties.getReceiptsCollection()),
+                ReceiptItemConstants.ITEM_COUNT_FIELD, "Count all receipt items")
+            .exceptionally(ex -> {
+                log.error("Failed to sum receipt item counts in Firestore", ex);
+                throw new ReceiptExtractionAccessException("Failed to count documents in Firestore.", unwrap(ex));
+            });
+    }
+
+    private CompletableFuture<Long> count(String key, UnaryOperator<Query> refinement, String collection,
+        String description) {
+
+        if (firestore.isEmpty()) {
+            return CompletableFuture.completedFuture(0L);
+        }
+
+        return counter.countAsync(key, refinement.apply(firestore.get().collection(collection)), description)
+            .exceptionally(ex -> {
+                log.error("Failed to count {} in Firestore", collection, ex);
+                throw new ReceiptExtractionAccessException("Failed to count documents in Firestore.", unwrap(ex));
+            });
+    }
+
+    private CompletableFuture<List<ParsedReceipt>> listReceipts(ReceiptOwner owner, boolean includeAllOwners,
+        boolean failedOnly) {
+
+        UnaryOperator<Query> refinement = failedOnly
+            ? query -> query.whereEqualTo("status", FAILED_STATUS)
+            : query -> query.select(CONTENT_FIELDS);
+        return listDocuments(owner, includeAllOwners, refinement, this::toParsedReceipt,
+            ParsedReceipt::updatedAt, "parsed receipts");
+    }
+
+    private <T> CompletableFuture<List<T>> listDocuments(
+        ReceiptOwner owner,
+        boolean includeAllOwners,
+        UnaryOperator<Query> refinement,
+        Function<DocumentSnapshot, T> mapper,
+        Function<T, Instant> updatedAt,
+        String label
+    ) {
+        if (firestore.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
         }
 
         if (!includeAllOwners && owner == null) {
-            return List.of();
+            return CompletableFuture.completedFuture(List.of());
         }
 
-        try {
-            Firestore db = firestore.get();
-            Query query = db.collection(properties.getReceiptsCollection());
-            String description;
-
-            if (includeAllOwners) {
-                description = "Load all receipts";
-            } else {
-                if (owner == null || !StringUtils.hasText(owner.id())) {
-                    return List.of();
-                }
-                query = query.whereEqualTo("owner.id", owner.id());
-                description = "Load receipts for owner " + owner.id();
+        Firestore db = firestore.get();
+        Query query = db.collection(properties.getReceiptsCollection());
+        String description;
+
+        if (includeAllOwners) {
+            description = "Load all " + label;
+        } else {
+            if (owner == null || !StringUtils.hasText(owner.id())) {
+                return CompletableFuture.completedFuture(List.of());
             }
+            query = query.whereEqualTo("owner.id", owner.id());
+            description = "Load " + label + " for owner";
+        }
 
-            QuerySnapshot snapshot = query.get().get();
-            recordRead(description, snapshot != null ? snapshot.size() : 0);
-            List<ParsedReceipt> receipts = new ArrayList<>();
+        long started = System.nanoTime();
+        CompletableFuture<List<T>> documents = FirestoreFutures.map(refinement.apply(query).get(), snapshot -> {
+            readRecorder.record(description, snapshot != null ? snapshot.size() : 0, System.nanoTime() - started);
+            List<T> receipts = new ArrayList<>();
             for (DocumentSnapshot document : snapshot.getDocuments()) {
-                ParsedReceipt parsed = toParsedReceipt(document);
+                T parsed = mapper.apply(document);
                 if (parsed == null) {
                     continue;
                 }
                 receipts.add(parsed);
             }
-            receipts.sort(Comparator.comparing(ParsedReceipt::updatedAt,
+            receipts.sort(Comparator.comparing(updatedAt,
                 Comparator.nullsLast(Comparator.reverseOrder())));
             return Collections.unmodifiableList(receipts);
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            log.warn("Interrupted while loading parsed receipts from Firestore", ex);
-            throw new ReceiptExtractionAccessException("Interrupted while loading parsed receipts from Firestore.", ex);
-        } catch (ExecutionException ex) {
-            log.error("Failed to load parsed receipts from Firestore", ex);
-            throw new ReceiptExtractionAccessException("Failed to load parsed receipts from Firestore.", ex);
+        });
+        return documents.exceptionally(ex -> {
+            log.error("Failed to load {} from Firestore", label, ex);
+            throw new ReceiptExtractionAccessException("Failed to load " + label + " from Firestore.", unwrap(ex));
+        });
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof ReceiptExtractionAccessException accessException) {
+                throw accessException;
+            }
+            throw ex;
         }
     }
 
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
     public Optional<ParsedReceipt> findById(String id) {
         if (firestore.isEmpty() || !StringUtils.hasText(id)) {
             return Optional.empty();
@@ -125,8 +281,9 @@ public class ReceiptRepository {
             DocumentReference reference = firestore.get()
                 .collection(properties.getReceiptsCollection())
                 .document(id);
+            long started = System.nanoTime();
             DocumentSnapshot snapshot = reference.get().get();
-            recordRead("Load receipt " + id, 1L);
+            readRecorder.record("Load receipt", 1L, System.nanoTime() - started);
             if (!snapshot.exists()) {
                 return Optional.empty();
             }
@@ -141,42 +298,59 @@ public class ReceiptRepository {
         }
     }
 
-    public List<ParsedReceipt> findByIds(Collection<String> ids) {
-        if (firestore.isEmpty() || ids == null || ids.isEmpty()) {
-            return List.of();
+    /**
+     * Loads a receipt together with its raw model response and OCR text, which are kept in a separate
+     * payload document. Both documents are fetched in one round trip. Only the detail view needs this.
+     */
+    public Optional<ParsedReceipt> findDetailedById(String id) {
+        if (firestore.isEmpty() || !StringUtils.hasText(id)) {
+            return Optional.empty();
+        }
+
+        try {
+            Firestore db = firestore.get();
+            DocumentReference receiptReference = db.collection(properties.getReceiptsCollection()).document(id);
+            DocumentReference payloadReference = payloadReference(db, id);
+            long started = System.nanoTime();
+            List<DocumentSnapshot> snapshots = db.getAll(receiptReference, payloadReference).get();
+            readRecorder.record("Load receipt with raw payload", snapshots.size(), System.nanoTime() - started);
+
+            DocumentSnapshot receiptSnapshot = null;
+            DocumentSnapshot payloadSnapshot = null;
+            for (DocumentSnapshot snapshot : snapshots) {
+                if (receiptReference.getPath().equals(snapshot.getReference().getPath())) {
+                    receiptSnapshot = snapshot;
+                } else {
+                    payloadSnapshot = snapshot;
+                }
+            }
+            if (receiptSnapshot == null || !receiptSnapshot.exists()) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(toParsedReceipt(receiptSnapshot, payloadSnapshot));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while loading parsed receipt {} from Firestore", id, ex);
+            throw new ReceiptExtractionAccessException("Interrupted while loading parsed receipt from Firestore.", ex);
+        } catch (ExecutionException ex) {
+            log.error("Failed to load parsed receipt {} from Firestore", id, ex);
+            throw new ReceiptExtractionAccessException("Failed to load parsed receipt from Firestore.", ex);
         }
+    }
 
-        Set<String> unique = ids.stream()
-            .filter(StringUtils::hasText)
-            .map(String::trim)
-            .collect(Collectors.toCollection(LinkedHashSet::new));
-        if (unique.isEmpty()) {
+    public List<ParsedReceipt> findByIds(Collection<String> ids) {
+        if (firestore.isEmpty() || ids == null || ids.isEmpty()) {
             return List.of();
         }
 
         try {
-            Firestore db = firestore.get();
-            List<String> identifiers = new ArrayList<>(unique);
+            Map<String, DocumentSnapshot> documents = batchReader.getAll(properties.getReceiptsCollection(), ids,
+                FieldMask.of(CONTENT_FIELDS), "Load receipts by id");
             List<ParsedReceipt> receipts = new ArrayList<>();
-            for (int start = 0; start < identifiers.size(); start += 10) {
-                int end = Math.min(start + 10, identifiers.size());
-                List<String> chunk = identifiers.subList(start, end);
-                if (chunk.isEmpty()) {
-                    continue;
-                }
-                QuerySnapshot snapshot = db.collection(properties.getReceiptsCollection())
-                    .whereIn(FieldPath.documentId(), chunk)
-                    .get()
-                    .get();
-                recordRead("Load receipts by id chunk", snapshot != null ? snapshot.size() : 0);
-                if (snapshot == null) {
-                    continue;
-                }
-                for (DocumentSnapshot document : snapshot.getDocuments()) {
-                    ParsedReceipt parsed = toParsedReceipt(document);
-                    if (parsed != null) {
-                        receipts.add(parsed);
-                    }
+            for (DocumentSnapshot document : documents.values()) {
+                ParsedReceipt parsed = toParsedReceipt(document);
+                if (parsed != null) {
+                    receipts.add(parsed);
                 }
             }
             receipts.sort(Comparator.comparing(ParsedReceipt::updatedAt,
@@ -192,6 +366,11 @@ public class ReceiptRepository {
         }
     }
 
+    /**
+     * Resets a receipt's status and parsed data and flags it for re-parsing. Its items, statistics and price
+     * points are left alone: the processor's item sync diffs them against the new result, so an unchanged
+     * receipt does not rewrite them.
+     */
     public void prepareReceiptForReparse(ParsedReceipt receipt) {
         if (receipt == null || !StringUtils.hasText(receipt.id()) || firestore.isEmpty()) {
             return;
@@ -199,12 +378,6 @@ public class ReceiptRepository {
 
         try {
             Firestore db = firestore.get();
-            Map<String, Long> globalDeltas = new HashMap<>();
-            deleteItemsForReceiptBatch(db, List.of(receipt.id()), receipt.owner(), globalDeltas);
-            if (!globalDeltas.isEmpty()) {
-                applyStatsUpdates(db, globalDeltas);
-            }
-
             Timestamp updateTimestamp = Timestamp.now();
             Map<String, Object> payload = new HashMap<>();
             payload.put("status", "REPARSE_REQUESTED");
@@ -213,14 +386,16 @@ public class ReceiptRepository {
             payload.put("reparseRequested", true);
             payload.put("data", FieldValue.delete());
             payload.put("rawResponse", FieldValue.delete());
+            payload.put("rawPayloadId", FieldValue.delete());
             payload.put("error", FieldValue.delete());
             payload.put("stackTrace", FieldValue.delete());
             payload.put("itemHistory", FieldValue.delete());
 
-            db.collection(properties.getReceiptsCollection())
-                .document(receipt.id())
-                .set(payload, SetOptions.merge())
-                .get();
+            WriteBatch batch = db.batch();
+            batch.set(db.collection(properties.getReceiptsCollection()).document(receipt.id()), payload, SetOptions.merge());
+            batch.delete(payloadReference(db, receipt.id()));
+            batch.commit().get();
+            publishChange(ReceiptChangeEvent.removed(ownerId(receipt.owner()), List.of(receipt.id())));
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
             log.warn("Interrupted while preparing receipt {} for reparse", receipt.id(), ex);
@@ -231,17 +406,26 @@ public class ReceiptRepository {
         }
     }
 
+    /**
+     * Deletes every receipt of {@code owner} together with its items, payloads, price points and the item
+     * category and tag mappings that reference it. Item and mapping lookups run concurrently per chunk of
+     * receipt ids, and all deletes and counter updates go through a {@link BulkWriter}, which batches and
+     * throttles them on its own. Tag mappings are removed only after the owner-cleared event has been
+     * handled, so tag summaries can still settle the contributions recorded on them.
+     */
     public void deleteReceiptsForOwner(ReceiptOwner owner) {
         if (owner == null || firestore.isEmpty()) {
             return;
         }
 
+        BulkWriter writer = null;
         try {
             Firestore db = firestore.get();
-            Query query = db.collection(properties.getReceiptsCollection())
-                .whereEqualTo("owner.id", owner.id());
-
-            QuerySnapshot receiptSnapshot = query.get().get();
+            QuerySnapshot receiptSnapshot = db.collection(properties.getReceiptsCollection())
+                .whereEqualTo("owner.id", owner.id())
+                .select(FieldPath.documentId())
+                .get()
+                .get();
             recordRead("Load receipts for deletion", receiptSnapshot != null ? receiptSnapshot.size() : 0);
 
             if (receiptSnapshot == null || receiptSnapshot.isEmpty()) {
@@ -253,24 +437,56 @@ public class ReceiptRepository {
             for (DocumentSnapshot doc : receiptSnapshot.getDocuments()) {
                 receiptIds.add(doc.getId());
                 receiptRefs.add(doc.getReference());
+                receiptRefs.add(payloadReference(db, doc.getId()));
             }
 
-            Map<String, Long> globalDeltas = new HashMap<>();
+            List<QueryDocumentSnapshot> items = queryByReceiptIds(db, receiptItemsCollection, receiptIds,
+                "Load receipt items for deletion", "receiptId", "ownerId", "normalizedEan");
+            List<QueryDocumentSnapshot> categoryMappings = queryByReceiptIds(db,
+                ItemCategorizationService.ITEM_CATEGORIES_COLLECTION, receiptIds,
+                "Load category mappings for deletion");
+            List<QueryDocumentSnapshot> tagMappings = queryByReceiptIds(db,
+                ItemCategorizationService.ITEM_TAGS_COLLECTION, receiptIds, "Load tag mappings for deletion");
 
-            int chunkSize = 30;
-            for (int i = 0; i < receiptIds.size(); i += chunkSize) {
-                int end = Math.min(receiptIds.size(), i + chunkSize);
-                List<String> chunk = receiptIds.subList(i, end);
+            Map<String, Long> globalDeltas = new HashMap<>();
+            Map<String, Set<String>> pricePointRemovals = new HashMap<>();
+            List<DocumentReference> itemRefs = collectItemRemovals(items, owner, globalDeltas, pricePointRemovals);
 
-                deleteItemsForReceiptBatch(db, chunk, owner, globalDeltas);
+            writer = db.bulkWriter();
+            List<ApiFuture<WriteResult>> writes = new ArrayList<>();
+            for (DocumentReference ref : itemRefs) {
+                writes.add(writer.delete(ref));
+            }
+            for (DocumentReference ref : receiptRefs) {
+                writes.add(writer.delete(ref));
+            }
+            for (QueryDocumentSnapshot mapping : categoryMappings) {
+                writes.add(writer.delete(mapping.getReference()));
+            }
+            Timestamp updateTimestamp = Timestamp.now();
+            for (Map.Entry<String, Long> delta : globalDeltas.entrySet()) {
+                writes.add(writer.set(
+                    db.collection(itemStatsCollection).document(delta.getKey()),
+                    Map.<String, Object>of("count", FieldValue.increment(-delta.getValue()), "updatedAt", updateTimestamp),
+                    SetOptions.merge()));
+            }
+            for (Map.Entry<String, Set<String>> removal : pricePointRemovals.entrySet()) {
+                writes.add(writer.set(
+                    db.collection(properties.getPriceHistoryCollection()).document(removal.getKey()),
+                    pricePointRemoval(removal.getValue(), updateTimestamp),
+                    SetOptions.merge()));
             }
+            awaitWrites(writer, writes);
 
-            batchDeleteDocuments(db, receiptRefs);
+            publishChange(ReceiptChangeEvent.ownerCleared(owner.id()));
 
-            if (!globalDeltas.isEmpty()) {
-                applyStatsUpdates(db, globalDeltas);
+            writes.clear();
+            for (QueryDocumentSnapshot mapping : tagMappings) {
+                writes.add(writer.delete(mapping.getReference()));
             }
-
+            awaitWrites(writer, writes);
+            log.info("Deleted {} receipts, {} items and {} item mappings for owner",
+                receiptIds.size(), itemRefs.size(), categoryMappings.size() + tagMappings.size());
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
             log.warn("Interrupted while deleting parsed receipts from Firestore", ex);
@@ -278,25 +494,52 @@ public class ReceiptRepository {
         } catch (ExecutionException ex) {
             log.error("Failed to delete parsed receipts from Firestore", ex);
             throw new ReceiptExtractionAccessException("Failed to delete parsed receipts from Firestore.", ex);
+        } finally {
+            if (writer != null) {
+                closeQuietly(writer);
+            }
         }
     }
 
-    private void deleteItemsForReceiptBatch(Firestore db, List<String> receiptIds, ReceiptOwner owner, Map<String, Long> globalDeltas)
-            throws ExecutionException, InterruptedException {
-        QuerySnapshot itemsSnapshot = db.collection(receiptItemsCollection)
-            .whereIn("receiptId", receiptIds)
-            .get()
-            .get();
-
-        recordRead("Load receipt items batch (" + receiptIds.size() + ")", itemsSnapshot != null ? itemsSnapshot.size() : 0);
-
-        if (itemsSnapshot == null || itemsSnapshot.isEmpty()) {
+    /**
+     * Signals that the given uploads were stored and, when a receipt processor is configured, handled
+     * by it, so cached projections can reload the affected receipts. Document ids are derived from the storage
+     * location the same way the processor derives them.
+     */
+    public void notifyReceiptsProcessed(Collection<StoredReceiptReference> references) {
+        if (references == null || references.isEmpty()) {
             return;
         }
 
-        List<DocumentReference> itemRefs = new ArrayList<>();
+        Map<String, List<String>> receiptIdsByOwner = new LinkedHashMap<>();
+        for (StoredReceiptReference reference : references) {
+            if (reference == null) {
+                continue;
+            }
+            String receiptId = ReceiptDocumentIds.receiptId(reference.bucket(), reference.objectName());
+            receiptIdsByOwner.computeIfAbsent(ownerId(reference.owner()), key -> new ArrayList<>()).add(receiptId);
+        }
+        receiptIdsByOwner.forEach((ownerId, receiptIds) ->
+            publishChange(ReceiptChangeEvent.updated(ownerId, receiptIds)));
+    }
+
+    private void publishChange(ReceiptChangeEvent event) {
+        eventPublisher.publishEvent(event);
+    }
+
+    private String ownerId(ReceiptOwner owner) {
+        return owner != null && StringUtils.hasText(owner.id()) ? owner.id() : null;
+    }
+
+    /**
+     * Returns the references of {@code items} and adds the stats decrements and price points their removal
+     * requires.
+     */
+    private List<DocumentReference> collectItemRemovals(List<QueryDocumentSnapshot> items, ReceiptOwner owner,
+            Map<String, Long> globalDeltas, Map<String, Set<String>> pricePointRemovals) {
+        List<DocumentReference> itemRefs = new ArrayList<>(items.size());
 
-        for (QueryDocumentSnapshot document : itemsSnapshot.getDocuments()) {
+        for (QueryDocumentSnapshot document : items) {
             itemRefs.add(document.getReference());
 
             String ownerId = document.getString("ownerId");
@@ -305,58 +548,104 @@ public class ReceiptRepository {
                 continue;
             }
 
-            if (StringUtils.hasText(ownerId)) {
-                globalDeltas.merge(buildStatsDocumentId(ownerId, normalizedEan), 1L, Long::sum);
-            } else if (owner != null && StringUtils.hasText(owner.id())) {
-                globalDeltas.merge(buildStatsDocumentId(owner.id(), normalizedEan), 1L, Long::sum);
+            String receiptId = document.getString("receiptId");
+            String itemOwnerId = StringUtils.hasText(ownerId) ? ownerId
+                : owner != null && StringUtils.hasText(owner.id()) ? owner.id() : null;
+            if (itemOwnerId != null) {
+                globalDeltas.merge(buildStatsDocumentId(itemOwnerId, normalizedEan), 1L, Long::sum);
+                addPricePointRemoval(pricePointRemovals, itemOwnerId, normalizedEan, receiptId);
             }
+            // Price history is kept per owner only, so the global statistics have no series to prune.
             globalDeltas.merge(buildStatsDocumentId(ReceiptItemConstants.GLOBAL_OWNER_ID, normalizedEan), 1L, Long::sum);
         }
 
-        batchDeleteDocuments(db, itemRefs);
+        return itemRefs;
     }
 
-    private void batchDeleteDocuments(Firestore db, List<DocumentReference> refs) throws ExecutionException, InterruptedException {
-        int batchSize = 500;
-        for (int i = 0; i < refs.size(); i += batchSize) {
-            int end = Math.min(refs.size(), i + batchSize);
-            List<DocumentReference> batchRefs = refs.subList(i, end);
-
-            WriteBatch batch = db.batch();
-            for (DocumentReference ref : batchRefs) {
-                batch.delete(ref);
+    /**
+     * Runs one {@code whereIn} query per chunk of {@value #RECEIPT_ID_CHUNK_SIZE} receipt ids, keeping up to
+     * {@link FirestoreProperties#getBatchGetMaxInFlight()} of them in flight. Only {@code fields} are
+     * fetched; without fields just the document references are.
+     */
+    private List<QueryDocumentSnapshot> queryByReceiptIds(Firestore db, String collection, List<String> receiptIds,
+            String description, String... fields) throws ExecutionException, InterruptedException {
+        int maxInFlight = Math.max(1, properties.getBatchGetMaxInFlight());
+        List<QueryDocumentSnapshot> documents = new ArrayList<>();
+        List<ApiFuture<QuerySnapshot>> inFlight = new ArrayList<>(maxInFlight);
+        for (int i = 0; i < receiptIds.size(); i += RECEIPT_ID_CHUNK_SIZE) {
+            Query query = db.collection(collection)
+                .whereIn("receiptId", receiptIds.subList(i, Math.min(receiptIds.size(), i + RECEIPT_ID_CHUNK_SIZE)));
+            query = fields.length > 0 ? query.select(fields) : query.select(FieldPath.documentId());
+            inFlight.add(query.get());
+            if (inFlight.size() == maxInFlight) {
+                collectQueryResults(inFlight, documents, description);
             }
-            batch.commit().get();
         }
+        collectQueryResults(inFlight, documents, description);
+        return documents;
     }
 
-    private void applyStatsUpdates(Firestore db, Map<String, Long> deltas)
-        throws ExecutionException, InterruptedException {
+    private void collectQueryResults(List<ApiFuture<QuerySnapshot>> inFlight, List<QueryDocumentSnapshot> documents,
+            String description) throws ExecutionException, InterruptedException {
+        for (ApiFuture<QuerySnapshot> future : inFlight) {
+            QuerySnapshot snapshot = future.get();
+            recordRead(description, snapshot != null ? snapshot.size() : 0);
+            if (snapshot != null) {
+                documents.addAll(snapshot.getDocuments());
+            }
+        }
+        inFlight.clear();
+    }
 
-        List<Map.Entry<String, Long>> updates = new ArrayList<>(deltas.entrySet());
-        int batchSize = 400;
+    /**
+     * Flushes {@code writer} and fails when any of {@code writes} was rejected after the writer's retries.
+     */
+    private void awaitWrites(BulkWriter writer, List<ApiFuture<WriteResult>> writes)
+            throws ExecutionException, InterruptedException {
+        writer.flush().get();
+        for (ApiFuture<WriteResult> write : writes) {
+            write.get();
+        }
+    }
 
-        for (int i = 0; i < updates.size(); i += batchSize) {
-            int end = Math.min(updates.size(), i + batchSize);
-            List<Map.Entry<String, Long>> batchUpdates = updates.subList(i, end);
+    private void closeQuietly(BulkWriter writer) {
+        try {
+            writer.close();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            log.warn("Failed to close bulk writer", ex);
+        }
+    }
 
-            WriteBatch batch = db.batch();
-            Timestamp updateTimestamp = Timestamp.now();
+    private void addPricePointRemoval(Map<String, Set<String>> removals, String ownerId, String normalizedEan,
+        String receiptId) {
+        if (StringUtils.hasText(receiptId)) {
+            removals.computeIfAbsent(ReceiptPriceHistory.seriesId(ownerId, normalizedEan), key -> new HashSet<>())
+                .add(receiptId);
+        }
+    }
 
-            for (Map.Entry<String, Long> entry : batchUpdates) {
-                String docId = entry.getKey();
-                long decrement = entry.getValue();
-                DocumentReference statsRef = db.collection(itemStatsCollection).document(docId);
-                Map<String, Object> updateData = new HashMap<>();
-                updateData.put("count", FieldValue.increment(-decrement));
-                updateData.put("updatedAt", updateTimestamp);
-                batch.set(statsRef, updateData, SetOptions.merge());
-            }
-            batch.commit().get();
+    private Map<String, Object> pricePointRemoval(Set<String> receiptIds, Timestamp updateTimestamp) {
+        Map<String, Object> points = new HashMap<>();
+        for (String receiptId : receiptIds) {
+            points.put(receiptId, FieldValue.delete());
         }
+        Map<String, Object> updateData = new HashMap<>();
+        updateData.put(ReceiptPriceHistory.POINTS_FIELD, points);
+        updateData.put("updatedAt", updateTimestamp);
+        return updateData;
+    }
+
+    private DocumentReference payloadReference(Firestore db, String receiptId) {
+        return db.collection(properties.getReceiptPayloadsCollection()).document(receiptId);
     }
 
     private ParsedReceipt toParsedReceipt(DocumentSnapshot snapshot) {
+        return toParsedReceipt(snapshot, null);
+    }
+
+    private ParsedReceipt toParsedReceipt(DocumentSnapshot snapshot, DocumentSnapshot payloadSnapshot) {
         Map<String, Object> data = snapshot.getData();
         if (data == null || data.isEmpty()) {
             return null;
@@ -385,6 +674,11 @@ public class ReceiptRepository {
         List<Map<String, Object>> errors = toMapList(structuredData.get("errors"));
         String rawText = asString(structuredData.get("rawText"));
         String stackTrace = asString(data.get("stackTrace"));
+        if (payloadSnapshot != null && payloadSnapshot.exists()) {
+            // Receipts written before payloads were split off keep them inline.
+            rawText = rawText != null ? rawText : decompress(payloadSnapshot, "rawText");
+            rawResponse = rawResponse != null ? rawResponse : decompress(payloadSnapshot, "rawResponse");
+        }
 
         return new ParsedReceipt(
             snapshot.getId(),
@@ -408,6 +702,39 @@ public class ReceiptRepository {
         );
     }
 
+    private ReceiptSummary toReceiptSummary(DocumentSnapshot snapshot) {
+        Map<String, Object> data = snapshot.getData();
+        if (data == null || data.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Object> structuredData = toStringObjectMap(data.get("data"));
+        return new ReceiptSummary(
+            snapshot.getId(),
+            asString(data.get("bucket")),
+            asString(data.get("objectName")),
+            asString(data.get("objectPath")),
+            toReceiptOwner(data.get("owner")),
+            asString(data.get("status")),
+            asString(data.get("statusMessage")),
+            extractUpdatedAt(snapshot, data.get("updatedAt")),
+            toStringObjectMap(structuredData.get("general"))
+        );
+    }
+
+    private String decompress(DocumentSnapshot payloadSnapshot, String field) {
+        Blob blob = payloadSnapshot.getBlob(field);
+        if (blob == null) {
+            return null;
+        }
+        try {
+            return ReceiptPayloadCodec.decompress(blob.toBytes());
+        } catch (UncheckedIOException ex) {
+            log.warn("Failed to decompress {} of receipt payload {}", field, payloadSnapshot.getId(), ex);
+            return null;
+        }
+    }
+
     private Map<String, Long> toLongMap(Object value) {
         if (!(value instanceof Map<?, ?> map)) {
             return Map.of();
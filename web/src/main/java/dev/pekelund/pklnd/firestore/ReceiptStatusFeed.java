@@ -0,0 +1,265 @@
+package dev.pekelund.pklnd.firestore;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * Pushes receipt processing status transitions to in-process subscribers. One Firestore snapshot listener
+ * is kept per owner with at least one subscriber, so several browser tabs of the same user share a single
+ * listener. The initial snapshot only seeds the known statuses; subscribers are notified of changes made
+ * after they connected. A listener outlives its last subscriber by a grace period, so the reconnect that
+ * follows every stream timeout reuses it instead of paying for a fresh initial snapshot of the owner's
+ * receipts.
+ */
+@Service
+public class ReceiptStatusFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptStatusFeed.class);
+    // Comfortably above the browser's reconnect delay after a stream times out.
+    static final Duration LISTENER_GRACE_PERIOD = Duration.ofMinutes(2);
+
+    private final Optional<Firestore> firestore;
+    private final FirestoreProperties firestoreProperties;
+    private final FirestoreReadRecorder readRecorder;
+    private final Map<String, OwnerFeed> feeds = new ConcurrentHashMap<>();
+    private final Duration gracePeriod;
+    private final ScheduledExecutorService closeScheduler;
+
+    @Autowired
+    public ReceiptStatusFeed(
+        ObjectProvider<Firestore> firestoreProvider,
+        FirestoreProperties firestoreProperties,
+        FirestoreReadRecorder readRecorder
+    ) {
+        this(firestoreProvider, firestoreProperties, readRecorder, LISTENER_GRACE_PERIOD);
+    }
+
+    ReceiptStatusFeed(
+        ObjectProvider<Firestore> firestoreProvider,
+        FirestoreProperties firestoreProperties,
+        FirestoreReadRecorder readRecorder,
+        Duration gracePeriod
+    ) {
+        this.firestore = Optional.ofNullable(firestoreProvider.getIfAvailable());
+        this.firestoreProperties = firestoreProperties;
+        this.readRecorder = readRecorder;
+        this.gracePeriod = gracePeriod;
+        this.closeScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "receipt-status-listener-close");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return firestore.isPresent();
+    }
+
+    /**
+     * Registers a subscriber for status changes of the owner's receipts. The returned handle removes the
+     * subscription; the Firestore listener is detached once the owner has had no subscriber for the grace
+     * period.
+     */
+    public synchronized Runnable subscribe(String ownerId, Subscriber subscriber) {
+        if (firestore.isEmpty()) {
+            throw new IllegalStateException("Firestore is not enabled");
+        }
+        if (!StringUtils.hasText(ownerId)) {
+            throw new IllegalArgumentException("ownerId must not be blank");
+        }
+
+        OwnerFeed feed = feeds.computeIfAbsent(ownerId, this::openFeed);
+        feed.cancelClose();
+        feed.subscribers().add(subscriber);
+        return () -> unsubscribe(ownerId, feed, subscriber);
+    }
+
+    private synchronized void unsubscribe(String ownerId, OwnerFeed feed, Subscriber subscriber) {
+        if (!feed.subscribers().remove(subscriber) || !feed.subscribers().isEmpty() || feeds.get(ownerId) != feed) {
+            return;
+        }
+        if (gracePeriod.isZero()) {
+            closeIfIdle(ownerId, feed);
+            return;
+        }
+        try {
+            feed.scheduleClose(closeScheduler.schedule(() -> closeIfIdle(ownerId, feed),
+                gracePeriod.toMillis(), TimeUnit.MILLISECONDS));
+        } catch (RejectedExecutionException ex) {
+            closeIfIdle(ownerId, feed);
+        }
+    }
+
+    private synchronized void closeIfIdle(String ownerId, OwnerFeed feed) {
+        if (feed.subscribers().isEmpty() && feeds.remove(ownerId, feed)) {
+            feed.registration().remove();
+            log.debug("Closed idle receipt status listener for owner {}", ownerId);
+        }
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        closeScheduler.shutdownNow();
+        feeds.values().forEach(feed -> feed.registration().remove());
+        feeds.clear();
+    }
+
+    private OwnerFeed openFeed(String ownerId) {
+        OwnerFeed feed = new OwnerFeed(new CopyOnWriteArraySet<>(), new HashMap<>());
+        ListenerRegistration registration = firestore.get()
+            .collection(firestoreProperties.getReceiptsCollection())
+            .whereEqualTo("owner.id", ownerId)
+            .addSnapshotListener((snapshot, error) -> {
+                if (error != null) {
+                    handleListenerError(ownerId, feed, error);
+                    return;
+                }
+                handleSnapshot(ownerId, feed, snapshot);
+            });
+        feed.attach(registration);
+        log.debug("Opened receipt status listener for owner {}", ownerId);
+        return feed;
+    }
+
+    private void handleSnapshot(String ownerId, OwnerFeed feed, QuerySnapshot snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        readRecorder.record("Receipt status listener", snapshot.getDocumentChanges().size());
+
+        boolean initial = !feed.isSeeded();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            QueryDocumentSnapshot document = change.getDocument();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                feed.statuses().remove(document.getId());
+                continue;
+            }
+
+            String status = document.getString("status");
+            String previous = feed.statuses().put(document.getId(), status);
+            if (initial || status == null || status.equals(previous)) {
+                continue;
+            }
+
+            Timestamp updatedAt = document.getTimestamp("updatedAt");
+            StatusChange statusChange = new StatusChange(
+                document.getId(),
+                document.getString("objectName"),
+                status,
+                document.getString("statusMessage"),
+                updatedAt != null ? updatedAt.toDate().toInstant() : null
+            );
+            for (Subscriber subscriber : feed.subscribers()) {
+                subscriber.onStatusChange(statusChange);
+            }
+        }
+        feed.markSeeded();
+    }
+
+    private void handleListenerError(String ownerId, OwnerFeed feed, FirestoreException error) {
+        log.warn("Receipt status listener for owner {} failed", ownerId, error);
+        synchronized (this) {
+            feeds.remove(ownerId, feed);
+        }
+        for (Subscriber subscriber : feed.subscribers()) {
+            subscriber.onFeedClosed();
+        }
+    }
+
+    /**
+     * Receives status transitions for one owner. Callbacks run on Firestore listener threads.
+     */
+    public interface Subscriber {
+
+        void onStatusChange(StatusChange change);
+
+        /**
+         * Called when the underlying listener failed and no further changes will be delivered.
+         */
+        void onFeedClosed();
+    }
+
+    public record StatusChange(
+        String receiptId,
+        String objectName,
+        String status,
+        String statusMessage,
+        Instant updatedAt
+    ) {
+    }
+
+    private static final class OwnerFeed {
+
+        private final Set<Subscriber> subscribers;
+        private final Map<String, String> statuses;
+        private volatile ListenerRegistration registration;
+        private volatile boolean seeded;
+        private ScheduledFuture<?> pendingClose;
+
+        private OwnerFeed(Set<Subscriber> subscribers, Map<String, String> statuses) {
+            this.subscribers = subscribers;
+            this.statuses = statuses;
+        }
+
+        Set<Subscriber> subscribers() {
+            return subscribers;
+        }
+
+        Map<String, String> statuses() {
+            return statuses;
+        }
+
+        ListenerRegistration registration() {
+            return registration;
+        }
+
+        void attach(ListenerRegistration registration) {
+            this.registration = registration;
+        }
+
+        void scheduleClose(ScheduledFuture<?> close) {
+            cancelClose();
+            pendingClose = close;
+        }
+
+        void cancelClose() {
+            if (pendingClose != null) {
+                pendingClose.cancel(false);
+                pendingClose = null;
+            }
+        }
+
+        boolean isSeeded() {
+            return seeded;
+        }
+
+        void markSeeded() {
+            seeded = true;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package dev.pekelund.pklnd.firestore;
+
+import dev.pekelund.pklnd.storage.ReceiptOwner;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Lightweight view of a receipt document for list views. It is read with a field mask, so items, raw
+ * model output and diagnostics are never transferred; use {@link ParsedReceipt} when those are needed.
+ */
+public record ReceiptSummary(
+    String id,
+    String bucket,
+    String objectName,
+    String objectPath,
+    ReceiptOwner owner,
+    String status,
+    String statusMessage,
+    Instant updatedAt,
+    Map<String, Object> general
+) implements ReceiptHeader {
+
+    public ReceiptSummary {
+        general = general == null || general.isEmpty()
+            ? Map.of()
+            : Collections.unmodifiableMap(new LinkedHashMap<>(general));
+    }
+}
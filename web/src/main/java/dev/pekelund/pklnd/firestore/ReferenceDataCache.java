@@ -0,0 +1,134 @@
+package dev.pekelund.pklnd.firestore;
+
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps an in-process view of a small, rarely changing collection such as categories or tags. The first
+ * access loads the collection and registers a snapshot listener that rebuilds the view whenever any
+ * instance changes a document, so later accesses read nothing from Firestore. Local writes call
+ * {@link #invalidate()} so the writer sees its own change even before the listener reports it. The first
+ * snapshot delivered after an invalidation may still predate the write, so it is not cached; the next access
+ * or snapshot fills the view again. Results are only kept while the listener is healthy; otherwise every
+ * access queries Firestore as before.
+ */
+final class ReferenceDataCache<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private final String label;
+    private final String loadOperation;
+    private final String listenerOperation;
+    private final Query query;
+    private final Function<List<QueryDocumentSnapshot>, T> viewBuilder;
+    private final FirestoreReadRecorder readRecorder;
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile T view;
+    private volatile ListenerRegistration registration;
+    private long snapshotGeneration;
+
+    ReferenceDataCache(String label, Query query, Function<List<QueryDocumentSnapshot>, T> viewBuilder,
+        FirestoreReadRecorder readRecorder) {
+        this.label = label;
+        this.loadOperation = "Load " + label;
+        this.listenerOperation = label + " listener";
+        this.query = query;
+        this.viewBuilder = viewBuilder;
+        this.readRecorder = readRecorder;
+    }
+
+    CompletableFuture<T> get() {
+        T current = view;
+        if (current != null) {
+            return CompletableFuture.completedFuture(current);
+        }
+
+        listen();
+        long loadGeneration = generation.get();
+        return FirestoreFutures.map(query.get(), snapshot -> {
+            readRecorder.record(loadOperation, snapshot.size());
+            T loaded = viewBuilder.apply(snapshot.getDocuments());
+            publish(loaded, loadGeneration);
+            return loaded;
+        });
+    }
+
+    /**
+     * Returns the cached view, or {@code null} when none is held, without touching Firestore.
+     */
+    T peek() {
+        return view;
+    }
+
+    /**
+     * Drops the cached view after a local write; the next access reloads it.
+     */
+    synchronized void invalidate() {
+        generation.incrementAndGet();
+        view = null;
+    }
+
+    synchronized void close() {
+        ListenerRegistration current = registration;
+        registration = null;
+        view = null;
+        if (current != null) {
+            current.remove();
+        }
+    }
+
+    private synchronized void listen() {
+        if (registration != null) {
+            return;
+        }
+        snapshotGeneration = generation.get();
+        registration = query.addSnapshotListener((snapshot, error) -> {
+            if (error != null) {
+                handleListenerError(error);
+                return;
+            }
+            if (snapshot != null) {
+                handleSnapshot(snapshot);
+            }
+        });
+        log.debug("Listening for {} changes", label);
+    }
+
+    private void handleSnapshot(QuerySnapshot snapshot) {
+        readRecorder.record(listenerOperation, snapshot.getDocumentChanges().size());
+        long current;
+        synchronized (this) {
+            current = generation.get();
+            if (current != snapshotGeneration) {
+                snapshotGeneration = current;
+                return;
+            }
+        }
+        publish(viewBuilder.apply(snapshot.getDocuments()), current);
+    }
+
+    /**
+     * Caches {@code loaded} unless the view was invalidated after it was read or the listener is gone.
+     */
+    private synchronized void publish(T loaded, long loadGeneration) {
+        if (registration != null && generation.get() == loadGeneration) {
+            view = loaded;
+        }
+    }
+
+    private synchronized void handleListenerError(FirestoreException error) {
+        log.warn("{} listener failed; the cache is bypassed until the next access re-registers it", label, error);
+        registration = null;
+        invalidate();
+    }
+}
@@ -4,16 +4,17 @@ import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
@@ -30,14 +31,19 @@ public class TagService {
     private static final String TAGS_COLLECTION = "tags";
 
     private final Optional<Firestore> firestore;
-    private final FirestoreReadRecorder readRecorder;
+    private final Optional<ReferenceDataCache<TagView>> tagCache;
 
     public TagService(
         ObjectProvider<Firestore> firestoreProvider,
         FirestoreReadRecorder readRecorder
     ) {
         this.firestore = Optional.ofNullable(firestoreProvider.getIfAvailable());
-        this.readRecorder = readRecorder;
+        this.tagCache = firestore.map(db -> new ReferenceDataCache<>(
+            "tags",
+            db.collection(TAGS_COLLECTION).orderBy("name"),
+            this::toView,
+            readRecorder
+        ));
     }
 
     public boolean isEnabled() {
@@ -48,34 +54,14 @@ public class TagService {
      * List all tags ordered by name.
      */
     public List<ItemTag> listTags() {
-        if (firestore.isEmpty()) {
-            return List.of();
-        }
+        return listTagsAsync().join();
+    }
 
-        try {
-            Firestore db = firestore.get();
-            QuerySnapshot snapshot = db.collection(TAGS_COLLECTION)
-                .orderBy("name")
-                .get()
-                .get();
-            recordRead("Load all tags", snapshot.size());
-
-            List<ItemTag> tags = new ArrayList<>();
-            for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                ItemTag tag = toTag(doc);
-                if (tag != null) {
-                    tags.add(tag);
-                }
-            }
-            return Collections.unmodifiableList(tags);
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            log.warn("Interrupted while loading tags from Firestore", ex);
-            return List.of();
-        } catch (ExecutionException ex) {
-            log.error("Failed to load tags from Firestore", ex);
-            return List.of();
-        }
+    /**
+     * List all tags ordered by name without blocking the caller. Failures complete with an empty list.
+     */
+    public CompletableFuture<List<ItemTag>> listTagsAsync() {
+        return loadView().thenApply(TagView::tags);
     }
 
     /**
@@ -85,26 +71,7 @@ public class TagService {
         if (firestore.isEmpty() || !StringUtils.hasText(id)) {
             return Optional.empty();
         }
-
-        try {
-            DocumentReference ref = firestore.get()
-                .collection(TAGS_COLLECTION)
-                .document(id);
-            DocumentSnapshot snapshot = ref.get().get();
-            recordRead("Load tag " + id, 1);
-
-            if (!snapshot.exists()) {
-                return Optional.empty();
-            }
-            return Optional.ofNullable(toTag(snapshot));
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            log.warn("Interrupted while loading tag {} from Firestore", id, ex);
-            return Optional.empty();
-        } catch (ExecutionException ex) {
-            log.error("Failed to load tag {} from Firestore", id, ex);
-            return Optional.empty();
-        }
+        return Optional.ofNullable(loadView().join().byId().get(id));
     }
 
     /**
@@ -115,27 +82,10 @@ public class TagService {
             return Optional.empty();
         }
 
-        try {
-            Firestore db = firestore.get();
-            QuerySnapshot snapshot = db.collection(TAGS_COLLECTION)
-                .whereEqualTo("name", name.trim())
-                .limit(1)
-                .get()
-                .get();
-            recordRead("Find tag by name: " + name, snapshot.size());
-
-            if (snapshot.isEmpty()) {
-                return Optional.empty();
-            }
-            return Optional.ofNullable(toTag(snapshot.getDocuments().get(0)));
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            log.warn("Interrupted while finding tag by name: {}", name, ex);
-            return Optional.empty();
-        } catch (ExecutionException ex) {
-            log.error("Failed to find tag by name: {}", name, ex);
-            return Optional.empty();
-        }
+        String trimmed = name.trim();
+        return loadView().join().tags().stream()
+            .filter(tag -> trimmed.equals(tag.name()))
+            .findFirst();
     }
 
     /**
@@ -163,6 +113,7 @@ public class TagService {
             data.put("predefined", predefined);
 
             docRef.set(data).get();
+            tagCache.ifPresent(ReferenceDataCache::invalidate);
 
             return ItemTag.builder()
                 .id(docRef.getId())
@@ -200,6 +151,7 @@ public class TagService {
         try {
             Firestore db = firestore.get();
             db.collection(TAGS_COLLECTION).document(id).delete().get();
+            tagCache.ifPresent(ReferenceDataCache::invalidate);
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
             log.error("Interrupted while deleting tag", ex);
@@ -210,6 +162,32 @@ public class TagService {
         }
     }
 
+    private CompletableFuture<TagView> loadView() {
+        if (tagCache.isEmpty()) {
+            return CompletableFuture.completedFuture(TagView.EMPTY);
+        }
+        return tagCache.get().get().exceptionally(ex -> {
+            log.error("Failed to load tags from Firestore", ex);
+            return TagView.EMPTY;
+        });
+    }
+
+    private TagView toView(List<QueryDocumentSnapshot> documents) {
+        List<ItemTag> tags = new ArrayList<>();
+        for (DocumentSnapshot doc : documents) {
+            ItemTag tag = toTag(doc);
+            if (tag != null) {
+                tags.add(tag);
+            }
+        }
+        return TagView.of(tags);
+    }
+
+    @PreDestroy
+    void stopListening() {
+        tagCache.ifPresent(ReferenceDataCache::close);
+    }
+
     private ItemTag toTag(DocumentSnapshot doc) {
         if (doc == null || !doc.exists()) {
             return null;
@@ -240,9 +218,19 @@ public class TagService {
         return null;
     }
 
-    private void recordRead(String description, long count) {
-        if (readRecorder != null) {
-            readRecorder.record(description, count);
+    /**
+     * Tags as loaded from Firestore, indexed by id.
+     */
+    private record TagView(List<ItemTag> tags, Map<String, ItemTag> byId) {
+
+        static final TagView EMPTY = of(List.of());
+
+        static TagView of(List<ItemTag> tags) {
+            Map<String, ItemTag> byId = new HashMap<>();
+            for (ItemTag tag : tags) {
+                byId.put(tag.id(), tag);
+            }
+            return new TagView(List.copyOf(tags), Map.copyOf(byId));
         }
     }
 }
@@ -0,0 +1,559 @@
+package dev.pekelund.pklnd.firestore;
+
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.UpdateBuilder;
+import com.google.cloud.firestore.WriteBatch;
+import dev.pekelund.pklnd.receipts.ReceiptItemPrices;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Maintains the per-owner tag summaries shown on the tag statistics page. Every tag mapping records the
+ * item total and store it contributes, and each change to a mapping applies the difference to the summary
+ * document with increments in the same write, so reading a summary never touches receipts. Tag
+ * assignments call in directly; reparsed and deleted receipts arrive as {@link ReceiptChangeEvent}s.
+ * Summaries written before this bookkeeping existed are rebuilt once from their mappings when first read.
+ */
+@Component
+public class TagSummaryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TagSummaryStore.class);
+    private static final Pattern EAN_PATTERN = Pattern.compile("(\\d{8,14})");
+
+    static final String COUNTED_FIELD = "counted";
+    static final String ITEM_TOTAL_FIELD = "itemTotal";
+    static final String STORE_NAME_FIELD = "storeName";
+
+    private static final String ITEM_COUNT_FIELD = "itemCount";
+    private static final String TOTAL_AMOUNT_MINOR_FIELD = "totalAmountMinor";
+    private static final String STORES_FIELD = "stores";
+    private static final String SCHEMA_VERSION_FIELD = "schemaVersion";
+    private static final long SCHEMA_VERSION = 2L;
+    private static final int RECEIPT_ID_CHUNK_SIZE = 30;
+    // Every mapping in a batch may touch a different summary, so half of Firestore's 500 writes go to each.
+    private static final int MAPPINGS_PER_BATCH = 200;
+    private static final int MAX_RECONCILE_ATTEMPTS = 3;
+
+    private final Optional<Firestore> firestore;
+    private final FirestoreProperties firestoreProperties;
+    private final FirestoreReadRecorder readRecorder;
+    private final FirestoreBatchReader batchReader;
+    private final ObjectProvider<ReceiptExtractionService> receiptExtractionServiceProvider;
+
+    public TagSummaryStore(
+        ObjectProvider<Firestore> firestoreProvider,
+        FirestoreProperties firestoreProperties,
+        FirestoreReadRecorder readRecorder,
+        FirestoreBatchReader batchReader,
+        ObjectProvider<ReceiptExtractionService> receiptExtractionServiceProvider
+    ) {
+        this.firestore = Optional.ofNullable(firestoreProvider.getIfAvailable());
+        this.firestoreProperties = firestoreProperties;
+        this.readRecorder = readRecorder;
+        this.batchReader = batchReader;
+        this.receiptExtractionServiceProvider = receiptExtractionServiceProvider;
+    }
+
+    public boolean isEnabled() {
+        return firestore.isPresent() && StringUtils.hasText(firestoreProperties.getTagSummariesCollection());
+    }
+
+    /**
+     * Loads the summaries of {@code tagIds} for an owner, keyed by tag id. Tags without an up-to-date
+     * summary document are rebuilt from their mappings and stored, which only happens once per tag.
+     */
+    public Map<String, TagTotals> loadSummaries(String ownerId, Collection<String> tagIds)
+        throws InterruptedException, ExecutionException {
+        if (!isEnabled() || !StringUtils.hasText(ownerId) || tagIds == null || tagIds.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, String> tagIdsByKey = new LinkedHashMap<>();
+        for (String tagId : tagIds) {
+            if (StringUtils.hasText(tagId)) {
+                tagIdsByKey.put(summaryKey(ownerId, tagId), tagId);
+            }
+        }
+        Map<String, DocumentSnapshot> snapshots = batchReader.getAll(
+            firestoreProperties.getTagSummariesCollection(), tagIdsByKey.keySet(), "Load tag summaries");
+
+        Map<String, TagTotals> totals = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : tagIdsByKey.entrySet()) {
+            DocumentSnapshot snapshot = snapshots.get(entry.getKey());
+            if (isCurrent(snapshot)) {
+                totals.put(entry.getValue(), toTotals(snapshot));
+            } else {
+                totals.put(entry.getValue(), rebuild(ownerId, entry.getValue()));
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Resolves what a tagged item contributes to its tag summary. Receipts that are missing or belong to
+     * someone else contribute nothing; items that cannot be located still count, without an amount.
+     */
+    Contribution resolve(ParsedReceipt receipt, String ownerId, String itemIndex, String itemEan) {
+        if (receipt == null || receipt.owner() == null || !StringUtils.hasText(ownerId)
+            || !ownerId.equals(receipt.owner().id())) {
+            return Contribution.NONE;
+        }
+
+        BigDecimal total = null;
+        Map<String, Object> item = findItem(receipt.displayItems(), itemIndex, itemEan);
+        if (item != null) {
+            total = ReceiptItemPrices.totalPrice(item);
+        }
+        String storeName = StringUtils.hasText(receipt.storeName()) ? receipt.storeName().trim() : null;
+        return new Contribution(true, total, storeName);
+    }
+
+    /**
+     * Returns the mapping fields that record {@code contribution}; usable with both plain and merging sets.
+     */
+    static Map<String, Object> contributionFields(Contribution contribution) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(COUNTED_FIELD, contribution.counted());
+        fields.put(ITEM_TOTAL_FIELD, contribution.total() != null ? contribution.total().toPlainString() : null);
+        fields.put(STORE_NAME_FIELD, contribution.storeName());
+        return fields;
+    }
+
+    static Contribution readContribution(DocumentSnapshot mapping) {
+        if (mapping == null || !mapping.exists() || !Boolean.TRUE.equals(mapping.getBoolean(COUNTED_FIELD))) {
+            return Contribution.NONE;
+        }
+        return new Contribution(true, ReceiptItemPrices.parseAmount(mapping.get(ITEM_TOTAL_FIELD)),
+            mapping.getString(STORE_NAME_FIELD));
+    }
+
+    /**
+     * Adds the increments accumulated in {@code deltas} to {@code writes}, one merge per touched summary.
+     */
+    void stage(UpdateBuilder<?> writes, SummaryDeltas deltas) {
+        if (!isEnabled()) {
+            return;
+        }
+        for (SummaryDelta delta : deltas.deltas.values()) {
+            if (delta.isZero()) {
+                continue;
+            }
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("tagId", delta.tagId);
+            payload.put("ownerId", delta.ownerId);
+            payload.put(ITEM_COUNT_FIELD, FieldValue.increment(delta.itemCount));
+            payload.put(TOTAL_AMOUNT_MINOR_FIELD, FieldValue.increment(delta.totalAmountMinor));
+            Map<String, Object> stores = new HashMap<>();
+            delta.stores.forEach((store, count) -> {
+                if (count != 0) {
+                    stores.put(store, FieldValue.increment(count));
+                }
+            });
+            if (!stores.isEmpty()) {
+                payload.put(STORES_FIELD, stores);
+            }
+            payload.put("updatedAt", Timestamp.now());
+            writes.set(summaryReference(delta.ownerId, delta.tagId), payload, SetOptions.merge());
+        }
+    }
+
+    @EventListener
+    public void onReceiptChange(ReceiptChangeEvent event) {
+        if (event == null || !isEnabled()) {
+            return;
+        }
+
+        try {
+            switch (event.kind()) {
+                case UPDATED -> reconcileReceipts(event.receiptIds(), true);
+                case REMOVED -> reconcileReceipts(event.receiptIds(), false);
+                case OWNER_CLEARED -> reconcileOwner(event.ownerId());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while updating tag summaries for {} receipts", event.kind(), ex);
+        } catch (ExecutionException ex) {
+            log.warn("Failed to update tag summaries for {} receipts", event.kind(), ex);
+        }
+    }
+
+    private void reconcileReceipts(Set<String> receiptIds, boolean reload)
+        throws InterruptedException, ExecutionException {
+        if (receiptIds.isEmpty()) {
+            return;
+        }
+
+        Firestore db = firestore.get();
+        List<String> ids = new ArrayList<>(receiptIds);
+        List<QueryDocumentSnapshot> mappings = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += RECEIPT_ID_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(start, Math.min(ids.size(), start + RECEIPT_ID_CHUNK_SIZE));
+            QuerySnapshot snapshot = db.collection(ItemCategorizationService.ITEM_TAGS_COLLECTION)
+                .whereIn("receiptId", chunk)
+                .get()
+                .get();
+            readRecorder.record("Load tag mappings for changed receipts", snapshot.size());
+            mappings.addAll(snapshot.getDocuments());
+        }
+        if (mappings.isEmpty()) {
+            return;
+        }
+
+        Map<String, ParsedReceipt> receipts = reload ? loadReceipts(mappings) : Map.of();
+        reconcile(mappings, receipts);
+    }
+
+    private void reconcileOwner(String ownerId) throws InterruptedException, ExecutionException {
+        if (!StringUtils.hasText(ownerId)) {
+            return;
+        }
+
+        QuerySnapshot snapshot = firestore.get().collection(ItemCategorizationService.ITEM_TAGS_COLLECTION)
+            .whereEqualTo("ownerId", ownerId)
+            .get()
+            .get();
+        readRecorder.record("Load tag mappings for cleared owner", snapshot.size());
+        reconcile(snapshot.getDocuments(), Map.of());
+    }
+
+    /**
+     * Brings the contributions recorded on the tag's mappings up to date, then sums them into the summary in
+     * a transaction that also reads the mappings and the summary. Increments committed meanwhile make the
+     * transaction retry instead of being overwritten, and a summary another instance rebuilt first is kept.
+     */
+    private TagTotals rebuild(String ownerId, String tagId) throws InterruptedException, ExecutionException {
+        Firestore db = firestore.get();
+        Query query = db.collection(ItemCategorizationService.ITEM_TAGS_COLLECTION)
+            .whereEqualTo("tagId", tagId)
+            .whereEqualTo("ownerId", ownerId);
+        QuerySnapshot snapshot = query.get().get();
+        readRecorder.record("Load tag mappings to rebuild summary", snapshot.size());
+        List<QueryDocumentSnapshot> mappings = snapshot.getDocuments();
+        reconcile(mappings, loadReceipts(mappings));
+
+        DocumentReference summaryReference = summaryReference(ownerId, tagId);
+        TagTotals rebuilt = db.runTransaction(transaction -> {
+            DocumentSnapshot summary = transaction.get(summaryReference).get();
+            if (isCurrent(summary)) {
+                return toTotals(summary);
+            }
+            QuerySnapshot current = transaction.get(query).get();
+            readRecorder.record("Load tag mappings to rebuild summary", current.size());
+            SummaryDelta totals = new SummaryDelta(ownerId, tagId);
+            current.getDocuments().forEach(mapping -> totals.add(readContribution(mapping)));
+
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("tagId", tagId);
+            payload.put("ownerId", ownerId);
+            payload.put(ITEM_COUNT_FIELD, totals.itemCount);
+            payload.put(TOTAL_AMOUNT_MINOR_FIELD, totals.totalAmountMinor);
+            payload.put(STORES_FIELD, new HashMap<>(totals.stores));
+            payload.put(SCHEMA_VERSION_FIELD, SCHEMA_VERSION);
+            payload.put("updatedAt", Timestamp.now());
+            transaction.set(summaryReference, payload);
+            return totals.toTotals();
+        }).get();
+        log.info("Rebuilt tag summary {} from {} mappings", summaryKey(ownerId, tagId), mappings.size());
+        return rebuilt;
+    }
+
+    /**
+     * Brings the recorded contribution of every mapping in line with its receipt and writes the changed
+     * mappings together with the matching summary increments. Each mapping is updated only if it has not
+     * changed since it was read; when a tag assignment got there first, the batch is retried with the
+     * mappings read again.
+     */
+    private void reconcile(List<? extends DocumentSnapshot> mappings, Map<String, ParsedReceipt> receipts)
+        throws InterruptedException, ExecutionException {
+        for (int start = 0; start < mappings.size(); start += MAPPINGS_PER_BATCH) {
+            List<? extends DocumentSnapshot> chunk =
+                mappings.subList(start, Math.min(mappings.size(), start + MAPPINGS_PER_BATCH));
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    reconcileChunk(chunk, receipts);
+                    break;
+                } catch (ExecutionException ex) {
+                    if (!isPreconditionFailure(ex) || attempt == MAX_RECONCILE_ATTEMPTS) {
+                        throw ex;
+                    }
+                    chunk = reload(chunk);
+                }
+            }
+        }
+    }
+
+    private void reconcileChunk(List<? extends DocumentSnapshot> mappings, Map<String, ParsedReceipt> receipts)
+        throws InterruptedException, ExecutionException {
+        WriteBatch batch = firestore.get().batch();
+        SummaryDeltas deltas = new SummaryDeltas();
+        int pending = 0;
+        for (DocumentSnapshot mapping : mappings) {
+            String ownerId = mapping.getString("ownerId");
+            Contribution previous = readContribution(mapping);
+            Contribution next = resolve(receipts.get(mapping.getString("receiptId")), ownerId,
+                mapping.getString("itemIndex"), mapping.getString("itemEan"));
+            if (previous.sameAs(next) && mapping.get(COUNTED_FIELD) != null) {
+                continue;
+            }
+
+            batch.update(mapping.getReference(), contributionFields(next),
+                Precondition.updatedAt(mapping.getUpdateTime()));
+            deltas.replace(ownerId, mapping.getString("tagId"), previous, next);
+            pending++;
+        }
+        if (pending > 0) {
+            stage(batch, deltas);
+            batch.commit().get();
+        }
+    }
+
+    /**
+     * Reads {@code mappings} again, leaving out the ones that were deleted since.
+     */
+    private List<DocumentSnapshot> reload(List<? extends DocumentSnapshot> mappings)
+        throws InterruptedException, ExecutionException {
+        DocumentReference[] references = mappings.stream()
+            .map(DocumentSnapshot::getReference)
+            .toArray(DocumentReference[]::new);
+        List<DocumentSnapshot> reloaded = new ArrayList<>();
+        for (DocumentSnapshot mapping : firestore.get().getAll(references).get()) {
+            if (mapping.exists()) {
+                reloaded.add(mapping);
+            }
+        }
+        readRecorder.record("Reload changed tag mappings", reloaded.size());
+        return reloaded;
+    }
+
+    private static boolean isPreconditionFailure(Throwable failure) {
+        for (Throwable current = failure; current != null; current = current.getCause()) {
+            if (current instanceof ApiException apiException
+                && apiException.getStatusCode().getCode() == StatusCode.Code.FAILED_PRECONDITION) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, ParsedReceipt> loadReceipts(List<QueryDocumentSnapshot> mappings) {
+        ReceiptExtractionService receiptExtractionService = receiptExtractionServiceProvider.getIfAvailable();
+        if (receiptExtractionService == null || !receiptExtractionService.isEnabled()) {
+            return Map.of();
+        }
+
+        Set<String> receiptIds = new LinkedHashSet<>();
+        for (QueryDocumentSnapshot mapping : mappings) {
+            String receiptId = mapping.getString("receiptId");
+            if (StringUtils.hasText(receiptId)) {
+                receiptIds.add(receiptId);
+            }
+        }
+        Map<String, ParsedReceipt> receipts = new HashMap<>();
+        for (ParsedReceipt receipt : receiptExtractionService.findByIds(receiptIds)) {
+            receipts.put(receipt.id(), receipt);
+        }
+        return receipts;
+    }
+
+    private Map<String, Object> findItem(List<Map<String, Object>> items, String itemIndex, String itemEan) {
+        if (items == null || items.isEmpty()) {
+            return null;
+        }
+
+        Integer index = parseIndex(itemIndex);
+        if (index != null && index >= 0 && index < items.size()) {
+            return items.get(index);
+        }
+
+        String targetEan = normalizeEan(itemEan);
+        if (targetEan == null) {
+            return null;
+        }
+        return items.stream()
+            .filter(item -> targetEan.equals(normalizeEan(extractEan(item))))
+            .filter(item -> ReceiptItemPrices.totalPrice(item) != null)
+            .findFirst()
+            .orElse(null);
+    }
+
+    private Integer parseIndex(String rawIndex) {
+        if (!StringUtils.hasText(rawIndex)) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(rawIndex.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private String extractEan(Map<String, Object> item) {
+        if (item == null || item.isEmpty()) {
+            return null;
+        }
+        for (String field : List.of("normalizedEan", "eanCode", "ean")) {
+            Object value = item.get(field);
+            if (value != null) {
+                return value.toString();
+            }
+        }
+        return null;
+    }
+
+    private String normalizeEan(String rawEan) {
+        if (!StringUtils.hasText(rawEan)) {
+            return null;
+        }
+        Matcher matcher = EAN_PATTERN.matcher(rawEan.trim());
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static boolean isCurrent(DocumentSnapshot summary) {
+        Long schemaVersion = summary != null && summary.exists() ? summary.getLong(SCHEMA_VERSION_FIELD) : null;
+        return schemaVersion != null && schemaVersion == SCHEMA_VERSION;
+    }
+
+    private TagTotals toTotals(DocumentSnapshot snapshot) {
+        Long itemCount = snapshot.getLong(ITEM_COUNT_FIELD);
+        Long totalAmountMinor = snapshot.getLong(TOTAL_AMOUNT_MINOR_FIELD);
+        int storeCount = 0;
+        if (snapshot.get(STORES_FIELD) instanceof Map<?, ?> stores) {
+            for (Object count : stores.values()) {
+                if (count instanceof Number number && number.longValue() > 0) {
+                    storeCount++;
+                }
+            }
+        }
+        return new TagTotals(
+            itemCount != null ? Math.toIntExact(Math.max(0L, itemCount)) : 0,
+            BigDecimal.valueOf(totalAmountMinor != null ? totalAmountMinor : 0L, 2),
+            storeCount
+        );
+    }
+
+    private DocumentReference summaryReference(String ownerId, String tagId) {
+        return firestore.get().collection(firestoreProperties.getTagSummariesCollection())
+            .document(summaryKey(ownerId, tagId));
+    }
+
+    private static String summaryKey(String ownerId, String tagId) {
+        return ownerId + ":" + tagId;
+    }
+
+    private static long toMinorUnits(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue() : 0L;
+    }
+
+    /**
+     * Aggregated statistics for one tag and owner.
+     */
+    public record TagTotals(int itemCount, BigDecimal totalAmount, int storeCount) {
+    }
+
+    /**
+     * What one tagged item adds to its tag summary: one item, its total and its store when counted.
+     */
+    record Contribution(boolean counted, BigDecimal total, String storeName) {
+
+        static final Contribution NONE = new Contribution(false, null, null);
+
+        boolean sameAs(Contribution other) {
+            return counted == other.counted
+                && toMinorUnits(total) == toMinorUnits(other.total)
+                && Objects.equals(storeName, other.storeName);
+        }
+    }
+
+    /**
+     * Summary increments collected while mappings change, keyed by summary document.
+     */
+    static final class SummaryDeltas {
+
+        private final Map<String, SummaryDelta> deltas = new LinkedHashMap<>();
+
+        void replace(String ownerId, String tagId, Contribution previous, Contribution next) {
+            if (!StringUtils.hasText(ownerId) || !StringUtils.hasText(tagId) || previous.sameAs(next)) {
+                return;
+            }
+            SummaryDelta delta = delta(ownerId, tagId);
+            delta.subtract(previous);
+            delta.add(next);
+        }
+
+        private SummaryDelta delta(String ownerId, String tagId) {
+            return deltas.computeIfAbsent(summaryKey(ownerId, tagId), key -> new SummaryDelta(ownerId, tagId));
+        }
+    }
+
+    private static final class SummaryDelta {
+
+        private final String ownerId;
+        private final String tagId;
+        private final Map<String, Long> stores = new HashMap<>();
+        private long itemCount;
+        private long totalAmountMinor;
+
+        private SummaryDelta(String ownerId, String tagId) {
+            this.ownerId = ownerId;
+            this.tagId = tagId;
+        }
+
+        private void add(Contribution contribution) {
+            apply(contribution, 1);
+        }
+
+        private void subtract(Contribution contribution) {
+            apply(contribution, -1);
+        }
+
+        private void apply(Contribution contribution, int sign) {
+            if (!contribution.counted()) {
+                return;
+            }
+            itemCount += sign;
+            totalAmountMinor += sign * toMinorUnits(contribution.total());
+            if (StringUtils.hasText(contribution.storeName())) {
+                stores.merge(contribution.storeName(), (long) sign, Long::sum);
+            }
+        }
+
+        private boolean isZero() {
+            return itemCount == 0 && totalAmountMinor == 0 && stores.values().stream().allMatch(count -> count == 0);
+        }
+
+        private TagTotals toTotals() {
+            int storeCount = (int) stores.values().stream().filter(count -> count > 0).count();
+            return new TagTotals(Math.toIntExact(itemCount), BigDecimal.valueOf(totalAmountMinor, 2), storeCount);
+        }
+    }
+}
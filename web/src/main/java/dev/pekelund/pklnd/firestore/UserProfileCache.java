@@ -0,0 +1,56 @@
+package dev.pekelund.pklnd.firestore;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Remembers the stored roles and profile of users who signed in recently, keyed by normalised email, so
+ * returning OAuth users are mapped without a Firestore query. Entries expire after
+ * {@link FirestoreProperties#getUserProfileCacheTtl()}; role changes made through this instance evict the
+ * user right away, while changes made elsewhere become visible once the entry expires.
+ */
+@Component
+public class UserProfileCache {
+
+    private final Cache<String, CachedUserProfile> profiles;
+
+    public UserProfileCache(FirestoreProperties properties) {
+        this.profiles = CacheBuilder.newBuilder()
+            .maximumSize(Math.max(1, properties.getUserProfileCacheMaxEntries()))
+            .expireAfterWrite(properties.getUserProfileCacheTtl())
+            .build();
+    }
+
+    Optional<CachedUserProfile> get(String normalizedEmail) {
+        if (!StringUtils.hasText(normalizedEmail)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(profiles.getIfPresent(normalizedEmail));
+    }
+
+    void put(String normalizedEmail, CachedUserProfile profile) {
+        if (StringUtils.hasText(normalizedEmail) && profile != null) {
+            profiles.put(normalizedEmail, profile);
+        }
+    }
+
+    public void invalidate(String normalizedEmail) {
+        if (StringUtils.hasText(normalizedEmail)) {
+            profiles.invalidate(normalizedEmail);
+        }
+    }
+
+    /**
+     * The parts of a user document needed to map authorities at sign-in.
+     */
+    record CachedUserProfile(String documentId, List<String> roles, String fullName) {
+
+        CachedUserProfile {
+            roles = roles != null ? List.copyOf(roles) : List.of();
+        }
+    }
+}
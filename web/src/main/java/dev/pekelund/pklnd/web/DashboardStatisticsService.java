@@ -3,7 +3,9 @@ package dev.pekelund.pklnd.web;
 import dev.pekelund.pklnd.firestore.ParsedReceipt;
 import dev.pekelund.pklnd.firestore.ReceiptExtractionAccessException;
 import dev.pekelund.pklnd.firestore.ReceiptExtractionService;
+import dev.pekelund.pklnd.firestore.ReceiptSummary;
 import dev.pekelund.pklnd.firestore.FirestoreUserService;
+import dev.pekelund.pklnd.firestore.ItemTag;
 import dev.pekelund.pklnd.firestore.TagService;
 import dev.pekelund.pklnd.config.DemoAuthentication;
 import dev.pekelund.pklnd.storage.ReceiptOwner;
@@ -27,6 +29,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,34 +59,53 @@ public class DashboardStatisticsService {
         this.tagService = tagService;
     }
 
+    /**
+     * Loads the dashboard figures. Every Firestore read is started before the first one is awaited, so the
+     * page waits for the slowest read rather than for the sum of them.
+     */
     public DashboardStatistics loadStatistics(Authentication authentication) {
-        long userCount = firestoreUserService.countUsers();
         boolean userCountAccurate = firestoreUserService.isEnabled();
-
         boolean receiptsEnabled = receiptExtractionService
             .filter(ReceiptExtractionService::isEnabled)
             .isPresent();
 
-        List<ParsedReceipt> allReceipts = receiptsEnabled ? loadAllReceipts() : List.of();
-        long totalReceipts = receiptsEnabled ? allReceipts.size() : 0L;
-        long totalStores = receiptsEnabled ? countDistinctStores(allReceipts) : 0L;
-        long totalItems = receiptsEnabled ? countItems(allReceipts) : 0L;
-        long failedReceipts = receiptsEnabled ? countFailedReceipts(allReceipts) : 0L;
-        List<ParsedReceipt> personalReceipts = receiptsEnabled ? loadPersonalReceipts(authentication) : List.of();
+        CompletableFuture<Long> userCountFuture = firestoreUserService.countUsersAsync();
+        // Totals across all owners are only shown to administrators.
+        CompletableFuture<GlobalTotals> globalTotalsFuture = receiptsEnabled && isAdmin(authentication)
+            ? loadGlobalTotalsAsync()
+            : CompletableFuture.completedFuture(GlobalTotals.EMPTY);
+        CompletableFuture<Optional<List<ParsedReceipt>>> personalReceiptsFuture = receiptsEnabled
+            ? loadPersonalReceiptsAsync(authentication)
+            : CompletableFuture.completedFuture(Optional.empty());
+        CompletableFuture<List<ItemTag>> tagsFuture = tagService.isEnabled()
+            ? tagService.listTagsAsync()
+            : CompletableFuture.completedFuture(List.of());
+
+        long userCount = userCountFuture.join();
+        GlobalTotals globalTotals = globalTotalsFuture.join();
+        long totalReceipts = globalTotals.receipts();
+        long totalStores = globalTotals.stores();
+        long totalItems = globalTotals.items();
+        long failedReceipts = globalTotals.failedReceipts();
+
+        // An empty optional means the personal receipts could not be read; the counters then show zero and the
+        // totals are reported as unavailable.
+        Optional<List<ParsedReceipt>> loadedPersonalReceipts = personalReceiptsFuture.join();
+        List<ParsedReceipt> personalReceipts = loadedPersonalReceipts.orElse(List.of());
         long personalReceiptCount = receiptsEnabled ? personalReceipts.size() : 0L;
         long personalStoreCount = receiptsEnabled ? countDistinctStores(personalReceipts) : 0L;
         long personalItemCount = receiptsEnabled ? countItems(personalReceipts) : 0L;
         long personalFailedReceiptCount = receiptsEnabled ? countFailedReceipts(personalReceipts) : 0L;
 
-        PersonalTotals personalTotals = receiptsEnabled
-            ? computePersonalTotals(authentication)
-            : PersonalTotals.unavailable();
+        PersonalTotals personalTotals = loadedPersonalReceipts
+            .map(this::computePersonalTotals)
+            .orElseGet(PersonalTotals::unavailable);
 
-        YearlyStatistics yearlyStats = receiptsEnabled
-            ? computeYearlyStatistics(authentication)
-            : YearlyStatistics.unavailable();
+        YearlyStatistics yearlyStats = loadedPersonalReceipts
+            .map(this::computeYearlyStatistics)
+            .orElseGet(YearlyStatistics::unavailable);
 
-        long totalTags = tagService.isEnabled() ? tagService.listTags().size() : 0L;
+        long totalTags = tagsFuture.join().size();
 
         return new DashboardStatistics(
             userCount,
@@ -112,27 +135,41 @@ public class DashboardStatisticsService {
         );
     }
 
-    private List<ParsedReceipt> loadAllReceipts() {
-        try {
-            return receiptExtractionService.get().listAllReceipts();
-        } catch (ReceiptExtractionAccessException ex) {
-            log.warn("Unable to load parsed receipts for dashboard statistics.", ex);
-            return List.of();
-        }
+    private CompletableFuture<GlobalTotals> loadGlobalTotalsAsync() {
+        ReceiptExtractionService service = receiptExtractionService.get();
+        CompletableFuture<List<ReceiptSummary>> summaries = service.listAllReceiptSummariesAsync();
+        CompletableFuture<Long> receipts = service.countAllReceiptsAsync();
+        CompletableFuture<Long> items = service.countAllItemsAsync();
+        CompletableFuture<Long> failedReceipts = service.countAllFailedReceiptsAsync();
+        return CompletableFuture.allOf(summaries, receipts, items, failedReceipts)
+            .thenApply(ignored -> {
+                long stores = countDistinctStoreNames(summaries.join().stream()
+                    .map(ReceiptSummary::storeName)
+                    .toList());
+                return new GlobalTotals(receipts.join(), stores, items.join(), failedReceipts.join());
+            })
+            .exceptionally(ex -> {
+                log.warn("Unable to load receipt totals for dashboard statistics.", ex);
+                return GlobalTotals.EMPTY;
+            });
+    }
+
+    private record GlobalTotals(long receipts, long stores, long items, long failedReceipts) {
+        private static final GlobalTotals EMPTY = new GlobalTotals(0L, 0L, 0L, 0L);
     }
 
-    private List<ParsedReceipt> loadPersonalReceipts(Authentication authentication) {
+    private CompletableFuture<Optional<List<ParsedReceipt>>> loadPersonalReceiptsAsync(Authentication authentication) {
         ReceiptOwner owner = receiptOwnerResolver.resolve(authentication);
         if (owner == null || receiptExtractionService.isEmpty()) {
-            return List.of();
+            return CompletableFuture.completedFuture(Optional.empty());
         }
 
-        try {
-            return listReceiptsWithDemoFallback(owner, authentication);
-        } catch (ReceiptExtractionAccessException ex) {
-            log.warn("Unable to load personal receipts for dashboard statistics.", ex);
-            return List.of();
-        }
+        return listReceiptsWithDemoFallbackAsync(owner, authentication)
+            .thenApply(Optional::of)
+            .exceptionally(ex -> {
+                log.warn("Unable to load personal receipts for dashboard statistics.", ex);
+                return Optional.empty();
+            });
     }
 
     private long countFailedReceipts(List<ParsedReceipt> receipts) {
@@ -147,20 +184,14 @@ public class DashboardStatisticsService {
         }
 
         try {
-            List<ParsedReceipt> allReceipts;
             if (isAdmin(authentication)) {
-                allReceipts = receiptExtractionService.get().listAllReceipts();
-            } else {
-                ReceiptOwner owner = receiptOwnerResolver.resolve(authentication);
-                if (owner == null) {
-                    return List.of();
-                }
-                allReceipts = receiptExtractionService.get().listReceiptsForOwner(owner);
+                return receiptExtractionService.get().listAllFailedReceipts();
             }
-
-            return allReceipts.stream()
-                .filter(receipt -> "FAILED".equalsIgnoreCase(receipt.status()))
-                .collect(Collectors.toList());
+            ReceiptOwner owner = receiptOwnerResolver.resolve(authentication);
+            if (owner == null) {
+                return List.of();
+            }
+            return receiptExtractionService.get().listFailedReceiptsForOwner(owner);
         } catch (ReceiptExtractionAccessException ex) {
             log.warn("Unable to load failed receipts.", ex);
             return List.of();
@@ -186,23 +217,38 @@ public class DashboardStatisticsService {
      * <p>Note: callers are responsible for catching {@link ReceiptExtractionAccessException}.</p>
      */
     private List<ParsedReceipt> listReceiptsWithDemoFallback(ReceiptOwner owner, Authentication authentication) {
-        List<ParsedReceipt> receipts = receiptExtractionService.get().listReceiptsForOwner(owner);
-        if (receipts.isEmpty() && authentication instanceof DemoAuthentication) {
-            return receiptExtractionService.get().listAllReceipts().stream()
-                .limit(DemoSessionService.DEMO_PREVIEW_LIMIT)
-                .toList();
+        try {
+            return listReceiptsWithDemoFallbackAsync(owner, authentication).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof ReceiptExtractionAccessException accessException) {
+                throw accessException;
+            }
+            throw ex;
         }
-        return receipts;
+    }
+
+    private CompletableFuture<List<ParsedReceipt>> listReceiptsWithDemoFallbackAsync(ReceiptOwner owner,
+                                                                                     Authentication authentication) {
+        ReceiptExtractionService service = receiptExtractionService.get();
+        return service.listReceiptsForOwnerAsync(owner).thenCompose(receipts -> {
+            if (receipts.isEmpty() && authentication instanceof DemoAuthentication) {
+                return service.listAllReceiptsAsync().thenApply(all -> all.stream()
+                    .limit(DemoSessionService.DEMO_PREVIEW_LIMIT)
+                    .toList());
+            }
+            return CompletableFuture.completedFuture(receipts);
+        });
     }
 
     private long countDistinctStores(List<ParsedReceipt> receipts) {
-        if (receipts.isEmpty()) {
-            return 0L;
-        }
+        return countDistinctStoreNames(receipts.stream()
+            .map(receipt -> receipt != null ? receipt.storeName() : null)
+            .toList());
+    }
 
+    private long countDistinctStoreNames(List<String> storeNames) {
         Set<String> stores = new HashSet<>();
-        for (ParsedReceipt receipt : receipts) {
-            String storeName = receipt != null ? receipt.storeName() : null;
+        for (String storeName : storeNames) {
             if (storeName == null) {
                 continue;
             }
@@ -456,53 +502,42 @@ public class DashboardStatisticsService {
             .sum();
     }
 
-    private PersonalTotals computePersonalTotals(Authentication authentication) {
-        ReceiptOwner owner = receiptOwnerResolver.resolve(authentication);
-        if (owner == null || receiptExtractionService.isEmpty()) {
-            return PersonalTotals.unavailable();
+    private PersonalTotals computePersonalTotals(List<ParsedReceipt> receipts) {
+        if (receipts.isEmpty()) {
+            return new PersonalTotals(true, BigDecimal.ZERO, BigDecimal.ZERO);
         }
 
-        try {
-            List<ParsedReceipt> receipts = listReceiptsWithDemoFallback(owner, authentication);
-            if (receipts.isEmpty()) {
-                return new PersonalTotals(true, BigDecimal.ZERO, BigDecimal.ZERO);
-            }
-
-            YearMonth currentMonth = YearMonth.now();
-            YearMonth previousMonth = currentMonth.minusMonths(1);
+        YearMonth currentMonth = YearMonth.now();
+        YearMonth previousMonth = currentMonth.minusMonths(1);
 
-            BigDecimal currentTotal = BigDecimal.ZERO;
-            BigDecimal lastMonthTotal = BigDecimal.ZERO;
+        BigDecimal currentTotal = BigDecimal.ZERO;
+        BigDecimal lastMonthTotal = BigDecimal.ZERO;
 
-            for (ParsedReceipt receipt : receipts) {
-                if (receipt == null) {
-                    continue;
-                }
-
-                BigDecimal amount = receipt.totalAmountValue();
-                if (amount == null) {
-                    continue;
-                }
+        for (ParsedReceipt receipt : receipts) {
+            if (receipt == null) {
+                continue;
+            }
 
-                LocalDate receiptDate = parseReceiptDate(receipt.receiptDate())
-                    .orElseGet(() -> deriveDateFromInstant(receipt.updatedAt()));
-                if (receiptDate == null) {
-                    continue;
-                }
+            BigDecimal amount = receipt.totalAmountValue();
+            if (amount == null) {
+                continue;
+            }
 
-                YearMonth receiptMonth = YearMonth.from(receiptDate);
-                if (receiptMonth.equals(currentMonth)) {
-                    currentTotal = currentTotal.add(amount);
-                } else if (receiptMonth.equals(previousMonth)) {
-                    lastMonthTotal = lastMonthTotal.add(amount);
-                }
+            LocalDate receiptDate = parseReceiptDate(receipt.receiptDate())
+                .orElseGet(() -> deriveDateFromInstant(receipt.updatedAt()));
+            if (receiptDate == null) {
+                continue;
             }
 
-            return new PersonalTotals(true, lastMonthTotal, currentTotal);
-        } catch (ReceiptExtractionAccessException ex) {
-            log.warn("Unable to load personal receipt totals for dashboard statistics.", ex);
-            return PersonalTotals.unavailable();
+            YearMonth receiptMonth = YearMonth.from(receiptDate);
+            if (receiptMonth.equals(currentMonth)) {
+                currentTotal = currentTotal.add(amount);
+            } else if (receiptMonth.equals(previousMonth)) {
+                lastMonthTotal = lastMonthTotal.add(amount);
+            }
         }
+
+        return new PersonalTotals(true, lastMonthTotal, currentTotal);
     }
 
     private Optional<LocalDate> parseReceiptDate(String rawDate) {
@@ -523,131 +558,120 @@ public class DashboardStatisticsService {
         return instant.atZone(ZoneId.systemDefault()).toLocalDate();
     }
 
-    private YearlyStatistics computeYearlyStatistics(Authentication authentication) {
-        ReceiptOwner owner = receiptOwnerResolver.resolve(authentication);
-        if (owner == null || receiptExtractionService.isEmpty() || !receiptExtractionService.get().isEnabled()) {
-            return YearlyStatistics.unavailable();
-        }
+    private YearlyStatistics computeYearlyStatistics(List<ParsedReceipt> receipts) {
+        if (receipts.isEmpty()) {
+            return new YearlyStatistics(true, Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of());
+        }
+
+        // Map to store year -> total amount
+        Map<Integer, BigDecimal> yearlyTotals = new TreeMap<>(Comparator.reverseOrder());
+        // Map to store year -> (month -> total amount)
+        Map<Integer, Map<Month, BigDecimal>> monthlyByYear = new TreeMap<>(Comparator.reverseOrder());
+        // Map to store year -> total discount savings
+        Map<Integer, BigDecimal> yearlyDiscounts = new TreeMap<>(Comparator.reverseOrder());
+        // Map to store year -> (month -> total discount savings)
+        Map<Integer, Map<Month, BigDecimal>> monthlyDiscountsByYear = new TreeMap<>(Comparator.reverseOrder());
+        // Map to store year -> general discount savings
+        Map<Integer, BigDecimal> yearlyGeneralDiscounts = new TreeMap<>(Comparator.reverseOrder());
+        // Map to store year -> (month -> general discount savings)
+        Map<Integer, Map<Month, BigDecimal>> monthlyGeneralDiscountsByYear = new TreeMap<>(Comparator.reverseOrder());
+        // Map to store year -> reconciled count
+        Map<Integer, Long> yearlyReconciled = new TreeMap<>(Comparator.reverseOrder());
+        // Map to store year -> (month -> reconciled count)
+        Map<Integer, Map<Month, Long>> monthlyReconciledByYear = new TreeMap<>(Comparator.reverseOrder());
 
-        try {
-            List<ParsedReceipt> receipts = listReceiptsWithDemoFallback(owner, authentication);
-            if (receipts.isEmpty()) {
-                return new YearlyStatistics(true, Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of());
+        for (ParsedReceipt receipt : receipts) {
+            if (receipt == null) {
+                continue;
             }
 
-            // Map to store year -> total amount
-            Map<Integer, BigDecimal> yearlyTotals = new TreeMap<>(Comparator.reverseOrder());
-            // Map to store year -> (month -> total amount)
-            Map<Integer, Map<Month, BigDecimal>> monthlyByYear = new TreeMap<>(Comparator.reverseOrder());
-            // Map to store year -> total discount savings
-            Map<Integer, BigDecimal> yearlyDiscounts = new TreeMap<>(Comparator.reverseOrder());
-            // Map to store year -> (month -> total discount savings)
-            Map<Integer, Map<Month, BigDecimal>> monthlyDiscountsByYear = new TreeMap<>(Comparator.reverseOrder());
-            // Map to store year -> general discount savings
-            Map<Integer, BigDecimal> yearlyGeneralDiscounts = new TreeMap<>(Comparator.reverseOrder());
-            // Map to store year -> (month -> general discount savings)
-            Map<Integer, Map<Month, BigDecimal>> monthlyGeneralDiscountsByYear = new TreeMap<>(Comparator.reverseOrder());
-            // Map to store year -> reconciled count
-            Map<Integer, Long> yearlyReconciled = new TreeMap<>(Comparator.reverseOrder());
-            // Map to store year -> (month -> reconciled count)
-            Map<Integer, Map<Month, Long>> monthlyReconciledByYear = new TreeMap<>(Comparator.reverseOrder());
-
-            for (ParsedReceipt receipt : receipts) {
-                if (receipt == null) {
-                    continue;
-                }
-
-                BigDecimal amount = receipt.totalAmountValue();
-                BigDecimal discountAmount = receipt.totalDiscountAmount();
-                BigDecimal generalDiscountAmount = receipt.generalDiscountTotal();
-                String reconciliationStatus = receipt.reconciliationStatus();
-
-                LocalDate receiptDate = parseReceiptDate(receipt.receiptDate())
-                    .orElseGet(() -> deriveDateFromInstant(receipt.updatedAt()));
-                if (receiptDate == null) {
-                    continue;
-                }
-
-                int year = receiptDate.getYear();
-                Month month = receiptDate.getMonth();
-
-                // Update yearly total
-                if (amount != null) {
-                    yearlyTotals.merge(year, amount, BigDecimal::add);
-                }
+            BigDecimal amount = receipt.totalAmountValue();
+            BigDecimal discountAmount = receipt.totalDiscountAmount();
+            BigDecimal generalDiscountAmount = receipt.generalDiscountTotal();
+            String reconciliationStatus = receipt.reconciliationStatus();
 
-                // Update monthly total for the year
-                if (amount != null) {
-                    monthlyByYear.computeIfAbsent(year, k -> new TreeMap<>())
-                        .merge(month, amount, BigDecimal::add);
-                }
+            LocalDate receiptDate = parseReceiptDate(receipt.receiptDate())
+                .orElseGet(() -> deriveDateFromInstant(receipt.updatedAt()));
+            if (receiptDate == null) {
+                continue;
+            }
 
-                // Update yearly discount total
-                if (discountAmount != null && discountAmount.compareTo(BigDecimal.ZERO) > 0) {
-                    yearlyDiscounts.merge(year, discountAmount, BigDecimal::add);
-                }
+            int year = receiptDate.getYear();
+            Month month = receiptDate.getMonth();
 
-                // Update monthly discount total for the year
-                if (discountAmount != null && discountAmount.compareTo(BigDecimal.ZERO) > 0) {
-                    monthlyDiscountsByYear.computeIfAbsent(year, k -> new TreeMap<>())
-                        .merge(month, discountAmount, BigDecimal::add);
-                }
-
-                // Update yearly general discount total
-                if (generalDiscountAmount != null && generalDiscountAmount.compareTo(BigDecimal.ZERO) > 0) {
-                    yearlyGeneralDiscounts.merge(year, generalDiscountAmount, BigDecimal::add);
-                }
+            // Update yearly total
+            if (amount != null) {
+                yearlyTotals.merge(year, amount, BigDecimal::add);
+            }
 
-                // Update monthly general discount total for the year
-                if (generalDiscountAmount != null && generalDiscountAmount.compareTo(BigDecimal.ZERO) > 0) {
-                    monthlyGeneralDiscountsByYear.computeIfAbsent(year, k -> new TreeMap<>())
-                        .merge(month, generalDiscountAmount, BigDecimal::add);
-                }
+            // Update monthly total for the year
+            if (amount != null) {
+                monthlyByYear.computeIfAbsent(year, k -> new TreeMap<>())
+                    .merge(month, amount, BigDecimal::add);
+            }
 
-                // Update reconciled counts
-                if ("COMPLETE".equalsIgnoreCase(reconciliationStatus)) {
-                    yearlyReconciled.merge(year, 1L, Long::sum);
-                    monthlyReconciledByYear.computeIfAbsent(year, k -> new TreeMap<>())
-                        .merge(month, 1L, Long::sum);
-                }
+            // Update yearly discount total
+            if (discountAmount != null && discountAmount.compareTo(BigDecimal.ZERO) > 0) {
+                yearlyDiscounts.merge(year, discountAmount, BigDecimal::add);
             }
 
-            // Convert the nested maps to immutable maps while preserving order
-            Map<Integer, Map<Month, BigDecimal>> unmodifiableMonthly = new TreeMap<>(Comparator.reverseOrder());
-            for (Map.Entry<Integer, Map<Month, BigDecimal>> entry : monthlyByYear.entrySet()) {
-                unmodifiableMonthly.put(entry.getKey(), Collections.unmodifiableMap(new TreeMap<>(entry.getValue())));
+            // Update monthly discount total for the year
+            if (discountAmount != null && discountAmount.compareTo(BigDecimal.ZERO) > 0) {
+                monthlyDiscountsByYear.computeIfAbsent(year, k -> new TreeMap<>())
+                    .merge(month, discountAmount, BigDecimal::add);
             }
 
-            Map<Integer, Map<Month, BigDecimal>> unmodifiableMonthlyDiscounts = new TreeMap<>(Comparator.reverseOrder());
-            for (Map.Entry<Integer, Map<Month, BigDecimal>> entry : monthlyDiscountsByYear.entrySet()) {
-                unmodifiableMonthlyDiscounts.put(entry.getKey(), Collections.unmodifiableMap(new TreeMap<>(entry.getValue())));
+            // Update yearly general discount total
+            if (generalDiscountAmount != null && generalDiscountAmount.compareTo(BigDecimal.ZERO) > 0) {
+                yearlyGeneralDiscounts.merge(year, generalDiscountAmount, BigDecimal::add);
             }
 
-            Map<Integer, Map<Month, BigDecimal>> unmodifiableMonthlyGeneralDiscounts = new TreeMap<>(Comparator.reverseOrder());
-            for (Map.Entry<Integer, Map<Month, BigDecimal>> entry : monthlyGeneralDiscountsByYear.entrySet()) {
-                unmodifiableMonthlyGeneralDiscounts.put(entry.getKey(), Collections.unmodifiableMap(new TreeMap<>(entry.getValue())));
+            // Update monthly general discount total for the year
+            if (generalDiscountAmount != null && generalDiscountAmount.compareTo(BigDecimal.ZERO) > 0) {
+                monthlyGeneralDiscountsByYear.computeIfAbsent(year, k -> new TreeMap<>())
+                    .merge(month, generalDiscountAmount, BigDecimal::add);
             }
 
-            Map<Integer, Map<Month, Long>> unmodifiableMonthlyReconciled = new TreeMap<>(Comparator.reverseOrder());
-            for (Map.Entry<Integer, Map<Month, Long>> entry : monthlyReconciledByYear.entrySet()) {
-                unmodifiableMonthlyReconciled.put(entry.getKey(), Collections.unmodifiableMap(new TreeMap<>(entry.getValue())));
+            // Update reconciled counts
+            if ("COMPLETE".equalsIgnoreCase(reconciliationStatus)) {
+                yearlyReconciled.merge(year, 1L, Long::sum);
+                monthlyReconciledByYear.computeIfAbsent(year, k -> new TreeMap<>())
+                    .merge(month, 1L, Long::sum);
             }
+        }
 
-            return new YearlyStatistics(
-                true,
-                Collections.unmodifiableMap(yearlyTotals),
-                Collections.unmodifiableMap(unmodifiableMonthly),
-                Collections.unmodifiableMap(yearlyDiscounts),
-                Collections.unmodifiableMap(unmodifiableMonthlyDiscounts),
-                Collections.unmodifiableMap(yearlyGeneralDiscounts),
-                Collections.unmodifiableMap(unmodifiableMonthlyGeneralDiscounts),
-                Collections.unmodifiableMap(yearlyReconciled),
-                Collections.unmodifiableMap(unmodifiableMonthlyReconciled)
-            );
-        } catch (ReceiptExtractionAccessException ex) {
-            log.warn("Unable to load yearly statistics for dashboard.", ex);
-            return YearlyStatistics.unavailable();
+        // Convert the nested maps to immutable maps while preserving order
+        Map<Integer, Map<Month, BigDecimal>> unmodifiableMonthly = new TreeMap<>(Comparator.reverseOrder());
+        for (Map.Entry<Integer, Map<Month, BigDecimal>> entry : monthlyByYear.entrySet()) {
+            unmodifiableMonthly.put(entry.getKey(), Collections.unmodifiableMap(new TreeMap<>(entry.getValue())));
+        }
+
+        Map<Integer, Map<Month, BigDecimal>> unmodifiableMonthlyDiscounts = new TreeMap<>(Comparator.reverseOrder());
+        for (Map.Entry<Integer, Map<Month, BigDecimal>> entry : monthlyDiscountsByYear.entrySet()) {
+            unmodifiableMonthlyDiscounts.put(entry.getKey(), Collections.unmodifiableMap(new TreeMap<>(entry.getValue())));
         }
+
+        Map<Integer, Map<Month, BigDecimal>> unmodifiableMonthlyGeneralDiscounts = new TreeMap<>(Comparator.reverseOrder());
+        for (Map.Entry<Integer, Map<Month, BigDecimal>> entry : monthlyGeneralDiscountsByYear.entrySet()) {
+            unmodifiableMonthlyGeneralDiscounts.put(entry.getKey(), Collections.unmodifiableMap(new TreeMap<>(entry.getValue())));
+        }
+
+        Map<Integer, Map<Month, Long>> unmodifiableMonthlyReconciled = new TreeMap<>(Comparator.reverseOrder());
+        for (Map.Entry<Integer, Map<Month, Long>> entry : monthlyReconciledByYear.entrySet()) {
+            unmodifiableMonthlyReconciled.put(entry.getKey(), Collections.unmodifiableMap(new TreeMap<>(entry.getValue())));
+        }
+
+        return new YearlyStatistics(
+            true,
+            Collections.unmodifiableMap(yearlyTotals),
+            Collections.unmodifiableMap(unmodifiableMonthly),
+            Collections.unmodifiableMap(yearlyDiscounts),
+            Collections.unmodifiableMap(unmodifiableMonthlyDiscounts),
+            Collections.unmodifiableMap(yearlyGeneralDiscounts),
+            Collections.unmodifiableMap(unmodifiableMonthlyGeneralDiscounts),
+            Collections.unmodifiableMap(yearlyReconciled),
+            Collections.unmodifiableMap(unmodifiableMonthlyReconciled)
+        );
     }
 
     private record PersonalTotals(boolean available, BigDecimal lastMonth, BigDecimal currentMonth) {
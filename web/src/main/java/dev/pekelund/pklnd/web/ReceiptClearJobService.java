@@ -0,0 +1,207 @@
+package dev.pekelund.pklnd.web;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import dev.pekelund.pklnd.firestore.ReceiptDataVersionService;
+import dev.pekelund.pklnd.firestore.ReceiptExtractionAccessException;
+import dev.pekelund.pklnd.firestore.ReceiptExtractionService;
+import dev.pekelund.pklnd.storage.ReceiptOwner;
+import dev.pekelund.pklnd.storage.ReceiptStorageException;
+import dev.pekelund.pklnd.storage.ReceiptStorageService;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Clears an owner's uploaded files and parsed receipt data in the background, so {@code /receipts/clear}
+ * answers right away instead of holding the request until every object and document is gone. Storage and
+ * Firestore cleanup run in parallel. Each owner has at most one running job; starting another returns the
+ * running one. Finished jobs stay queryable for an hour.
+ */
+@Service
+public class ReceiptClearJobService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReceiptClearJobService.class);
+    private static final Duration JOB_RETENTION = Duration.ofHours(1);
+    private static final int MAX_RETAINED_JOBS = 1000;
+
+    private final Optional<ReceiptStorageService> receiptStorageService;
+    private final Optional<ReceiptExtractionService> receiptExtractionService;
+    private final Optional<ReceiptDataVersionService> receiptDataVersionService;
+    private final ExecutorService executor;
+    private final Cache<String, ReceiptClearJob> jobs = CacheBuilder.newBuilder()
+        .maximumSize(MAX_RETAINED_JOBS)
+        .expireAfterWrite(JOB_RETENTION)
+        .build();
+    private final ConcurrentMap<String, String> runningJobsByOwner = new ConcurrentHashMap<>();
+
+    public ReceiptClearJobService(
+        @Autowired(required = false) ReceiptStorageService receiptStorageService,
+        @Autowired(required = false) ReceiptExtractionService receiptExtractionService,
+        @Autowired(required = false) ReceiptDataVersionService receiptDataVersionService
+    ) {
+        this.receiptStorageService = Optional.ofNullable(receiptStorageService);
+        this.receiptExtractionService = Optional.ofNullable(receiptExtractionService);
+        this.receiptDataVersionService = Optional.ofNullable(receiptDataVersionService);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "receipt-clear-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return storageEnabled() || parsedReceiptsEnabled();
+    }
+
+    /**
+     * Starts clearing the owner's receipt data, or returns the owner's job that is still running.
+     */
+    public ReceiptClearJob start(ReceiptOwner owner) {
+        String ownerId = owner.id();
+        ReceiptClearJob job = ReceiptClearJob.running(UUID.randomUUID().toString(), ownerId);
+        String runningJobId = runningJobsByOwner.putIfAbsent(ownerId, job.id());
+        if (runningJobId != null) {
+            ReceiptClearJob running = jobs.getIfPresent(runningJobId);
+            if (running != null) {
+                return running;
+            }
+            runningJobsByOwner.put(ownerId, job.id());
+        }
+        jobs.put(job.id(), job);
+
+        CompletableFuture<PartOutcome> storage = storageEnabled()
+            ? CompletableFuture.supplyAsync(() -> clearStorage(owner), executor)
+            : CompletableFuture.completedFuture(PartOutcome.SKIPPED);
+        CompletableFuture<PartOutcome> parsed = parsedReceiptsEnabled()
+            ? CompletableFuture.supplyAsync(() -> clearParsedReceipts(owner), executor)
+            : CompletableFuture.completedFuture(PartOutcome.SKIPPED);
+
+        storage.thenCombine(parsed, List::of).whenComplete((outcomes, failure) -> {
+            if (failure != null) {
+                LOGGER.error("Receipt clear job {} failed", job.id(), failure);
+                outcomes = List.of(PartOutcome.failed("Failed to clear receipt data: " + failure.getMessage()));
+            }
+            jobs.put(job.id(), job.finish(outcomes));
+            runningJobsByOwner.remove(ownerId, job.id());
+        });
+        return job;
+    }
+
+    /**
+     * Returns the job with the given id when it belongs to {@code ownerId}.
+     */
+    public Optional<ReceiptClearJob> find(String jobId, String ownerId) {
+        if (jobId == null || ownerId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(jobs.getIfPresent(jobId))
+            .filter(job -> ownerId.equals(job.ownerId()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private PartOutcome clearStorage(ReceiptOwner owner) {
+        try {
+            receiptStorageService.get().deleteReceiptsForOwner(owner);
+            receiptDataVersionService.ifPresent(service -> service.bump(owner.id()));
+            return PartOutcome.cleared("uploaded receipts");
+        } catch (ReceiptStorageException ex) {
+            LOGGER.error("Failed to clear uploaded receipts", ex);
+            return PartOutcome.failed("Failed to clear uploaded receipts: " + ex.getMessage());
+        }
+    }
+
+    private PartOutcome clearParsedReceipts(ReceiptOwner owner) {
+        try {
+            receiptExtractionService.get().deleteReceiptsForOwner(owner);
+            return PartOutcome.cleared("parsed receipt data");
+        } catch (ReceiptExtractionAccessException ex) {
+            LOGGER.error("Failed to clear parsed receipts", ex);
+            return PartOutcome.failed("Failed to clear parsed receipt data: " + ex.getMessage());
+        }
+    }
+
+    private boolean storageEnabled() {
+        return receiptStorageService.isPresent() && receiptStorageService.get().isEnabled();
+    }
+
+    private boolean parsedReceiptsEnabled() {
+        return receiptExtractionService.isPresent() && receiptExtractionService.get().isEnabled();
+    }
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    /**
+     * Snapshot of a clear job. Messages are set once the job has finished.
+     */
+    public record ReceiptClearJob(
+        String id,
+        String ownerId,
+        Status status,
+        Instant startedAt,
+        Instant finishedAt,
+        String successMessage,
+        String errorMessage
+    ) {
+
+        static ReceiptClearJob running(String id, String ownerId) {
+            return new ReceiptClearJob(id, ownerId, Status.RUNNING, Instant.now(), null, null, null);
+        }
+
+        ReceiptClearJob finish(List<PartOutcome> outcomes) {
+            List<String> successes = new ArrayList<>();
+            List<String> errors = new ArrayList<>();
+            for (PartOutcome outcome : outcomes) {
+                if (outcome.cleared() != null) {
+                    successes.add(outcome.cleared());
+                }
+                if (outcome.error() != null) {
+                    errors.add(outcome.error());
+                }
+            }
+            String successMessage = successes.isEmpty() ? null : "Cleared " + String.join(" and ", successes) + ".";
+            String errorMessage = errors.isEmpty() ? null : String.join(" ", errors);
+            if (successMessage == null && errorMessage == null) {
+                errorMessage = "No receipt data was cleared.";
+            }
+            Status status = successMessage == null ? Status.FAILED : Status.COMPLETED;
+            return new ReceiptClearJob(id, ownerId, status, startedAt, Instant.now(), successMessage, errorMessage);
+        }
+
+        public boolean finished() {
+            return status != Status.RUNNING;
+        }
+    }
+
+    private record PartOutcome(String cleared, String error) {
+
+        static final PartOutcome SKIPPED = new PartOutcome(null, null);
+
+        static PartOutcome cleared(String what) {
+            return new PartOutcome(what, null);
+        }
+
+        static PartOutcome failed(String error) {
+            return new PartOutcome(null, error);
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package dev.pekelund.pklnd.web;
 
+import dev.pekelund.pklnd.firestore.Category;
+import dev.pekelund.pklnd.firestore.ItemCategoryMapping;
+import dev.pekelund.pklnd.firestore.ItemTag;
+import dev.pekelund.pklnd.firestore.ItemTagMapping;
 import dev.pekelund.pklnd.firestore.ParsedReceipt;
 import dev.pekelund.pklnd.firestore.ReceiptExtractionAccessException;
+import dev.pekelund.pklnd.firestore.ReceiptDataVersionService;
 import dev.pekelund.pklnd.firestore.ReceiptExtractionService;
+import dev.pekelund.pklnd.firestore.ReceiptSummary;
+import dev.pekelund.pklnd.receipts.ReceiptItemConstants;
 import dev.pekelund.pklnd.receipts.ReceiptProcessingClient;
 import dev.pekelund.pklnd.config.DemoAuthentication;
 import dev.pekelund.pklnd.web.DemoSessionService;
+import dev.pekelund.pklnd.web.ReceiptClearJobService.ReceiptClearJob;
 import dev.pekelund.pklnd.storage.ReceiptFile;
 import dev.pekelund.pklnd.storage.ReceiptOwner;
 import dev.pekelund.pklnd.storage.ReceiptOwnerMatcher;
 import dev.pekelund.pklnd.storage.ReceiptStorageException;
 import dev.pekelund.pklnd.storage.ReceiptStorageService;
+import dev.pekelund.pklnd.storage.StoredReceiptReference;
 import dev.pekelund.pklnd.web.receipts.ReceiptViewScope;
+import jakarta.servlet.http.HttpServletResponse;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -24,6 +34,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -31,6 +43,8 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -44,6 +58,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
@@ -67,6 +82,8 @@ public class ReceiptController {
     );
     private static final String SCOPE_MY = "my";
     private static final String SCOPE_ALL = "all";
+    private static final String CLEARING_DISABLED_MESSAGE = "Receipt storage and parsing are disabled.";
+    private static final String CLEARING_STARTED_MESSAGE = "Clearing receipt data in the background.";
 
     private final Optional<ReceiptStorageService> receiptStorageService;
     private final Optional<ReceiptExtractionService> receiptExtractionService;
@@ -76,6 +93,8 @@ public class ReceiptController {
     private final Optional<dev.pekelund.pklnd.firestore.CategoryService> categoryService;
     private final Optional<dev.pekelund.pklnd.firestore.TagService> tagService;
     private final Optional<dev.pekelund.pklnd.firestore.ItemCategorizationService> itemCategorizationService;
+    private final Optional<ReceiptDataVersionService> receiptDataVersionService;
+    private final Optional<ReceiptClearJobService> receiptClearJobService;
 
     public ReceiptController(
         @Autowired(required = false) ReceiptStorageService receiptStorageService,
@@ -85,7 +104,9 @@ public class ReceiptController {
         DashboardStatisticsService dashboardStatisticsService,
         @Autowired(required = false) dev.pekelund.pklnd.firestore.CategoryService categoryService,
         @Autowired(required = false) dev.pekelund.pklnd.firestore.TagService tagService,
-        @Autowired(required = false) dev.pekelund.pklnd.firestore.ItemCategorizationService itemCategorizationService
+        @Autowired(required = false) dev.pekelund.pklnd.firestore.ItemCategorizationService itemCategorizationService,
+        @Autowired(required = false) ReceiptDataVersionService receiptDataVersionService,
+        @Autowired(required = false) ReceiptClearJobService receiptClearJobService
     ) {
         this.receiptStorageService = Optional.ofNullable(receiptStorageService);
         this.receiptExtractionService = Optional.ofNullable(receiptExtractionService);
@@ -95,6 +116,8 @@ public class ReceiptController {
         this.categoryService = Optional.ofNullable(categoryService);
         this.tagService = Optional.ofNullable(tagService);
         this.itemCategorizationService = Optional.ofNullable(itemCategorizationService);
+        this.receiptDataVersionService = Optional.ofNullable(receiptDataVersionService);
+        this.receiptClearJobService = Optional.ofNullable(receiptClearJobService);
     }
 
     @GetMapping("/receipts")
@@ -165,6 +188,9 @@ public class ReceiptController {
                 if (StringUtils.hasText(receipt.bucket()) && StringUtils.hasText(receipt.objectName())) {
                     receiptExtractionService.get().prepareReceiptForReparse(receipt);
                     receiptProcessingClient.get().reparseReceipt(receipt.bucket(), receipt.objectName(), receipt.owner());
+                    receiptExtractionService.get().notifyReceiptsProcessed(
+                        List.of(new StoredReceiptReference(receipt.bucket(), receipt.objectName(), receipt.owner()))
+                    );
                     redirectAttributes.addFlashAttribute("successMessage", "Receipt re-parsing started.");
                 } else {
                     redirectAttributes.addFlashAttribute("errorMessage", "Receipt missing storage location info.");
@@ -184,9 +210,19 @@ public class ReceiptController {
     @ResponseBody
     public ReceiptDashboardResponse receiptsDashboard(
         @RequestParam(value = "scope", required = false) String scopeParam,
-        Authentication authentication
+        Authentication authentication,
+        WebRequest webRequest,
+        HttpServletResponse response
     ) {
         ReceiptViewScope scope = resolveScope(scopeParam, authentication);
+        Optional<String> entityTag = dashboardEntityTag(authentication, scope);
+        if (entityTag.isPresent()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+            if (webRequest.checkNotModified(entityTag.get())) {
+                return null;
+            }
+        }
+
         ReceiptPageData pageData = loadReceiptPageData(authentication, scope);
         boolean canViewAll = isAdmin(authentication);
 
@@ -211,6 +247,28 @@ public class ReceiptController {
         );
     }
 
+    private Optional<String> dashboardEntityTag(Authentication authentication, ReceiptViewScope scope) {
+        if (receiptDataVersionService.isEmpty() || authentication instanceof DemoAuthentication) {
+            return Optional.empty();
+        }
+        String scopeKey;
+        if (isViewingAll(scope, authentication)) {
+            scopeKey = ReceiptItemConstants.GLOBAL_OWNER_ID;
+        } else {
+            ReceiptOwner owner = receiptOwnerResolver.resolve(authentication);
+            if (owner == null) {
+                return Optional.empty();
+            }
+            scopeKey = owner.id();
+        }
+        return receiptDataVersionService.get().entityTag(
+            scopeKey,
+            "dashboard",
+            authentication != null ? authentication.getName() : null,
+            isAdmin(authentication)
+        );
+    }
+
     private ReceiptPageData loadReceiptPageData(Authentication authentication, ReceiptViewScope scope) {
         boolean storageEnabled = receiptStorageService.isPresent() && receiptStorageService.get().isEnabled();
         List<ReceiptFile> receiptFiles = List.of();
@@ -227,7 +285,7 @@ public class ReceiptController {
         }
 
         boolean parsedReceiptsEnabled = receiptExtractionService.isPresent() && receiptExtractionService.get().isEnabled();
-        List<ParsedReceipt> parsedReceipts = List.of();
+        List<ReceiptSummary> parsedReceipts = List.of();
         String parsedListingError = null;
 
         ReceiptOwner currentOwner = receiptOwnerResolver.resolve(authentication);
@@ -243,11 +301,11 @@ public class ReceiptController {
             if (parsedReceiptsEnabled) {
                 try {
                     if (viewingAll) {
-                        parsedReceipts = receiptExtractionService.get().listAllReceipts();
+                        parsedReceipts = receiptExtractionService.get().listAllReceiptSummaries();
                     } else {
-                        parsedReceipts = receiptExtractionService.get().listReceiptsForOwner(currentOwner);
+                        parsedReceipts = receiptExtractionService.get().listReceiptSummariesForOwner(currentOwner);
                         if (parsedReceipts.isEmpty() && authentication instanceof DemoAuthentication) {
-                            parsedReceipts = receiptExtractionService.get().listAllReceipts().stream()
+                            parsedReceipts = receiptExtractionService.get().listAllReceiptSummaries().stream()
                                 .limit(DemoSessionService.DEMO_PREVIEW_LIMIT)
                                 .toList();
                         }
@@ -259,10 +317,10 @@ public class ReceiptController {
             }
         }
 
-        Map<String, ParsedReceipt> fileStatuses = parsedReceipts.stream()
+        Map<String, ReceiptSummary> fileStatuses = parsedReceipts.stream()
             .filter(parsed -> parsed != null && StringUtils.hasText(parsed.objectName()))
             .collect(Collectors.toMap(
-                ParsedReceipt::objectName,
+                ReceiptSummary::objectName,
                 Function.identity(),
                 (existing, replacement) -> replacement,
                 LinkedHashMap::new
@@ -280,8 +338,8 @@ public class ReceiptController {
         );
     }
 
-    private ReceiptFileEntry toReceiptFileEntry(ReceiptFile file, Map<String, ParsedReceipt> fileStatuses) {
-        ParsedReceipt status = fileStatuses.getOrDefault(file.name(), null);
+    private ReceiptFileEntry toReceiptFileEntry(ReceiptFile file, Map<String, ReceiptSummary> fileStatuses) {
+        ReceiptSummary status = fileStatuses.getOrDefault(file.name(), null);
         String updated = formatInstant(file.updated());
 
         String statusBadgeClass = status != null ? status.statusBadgeClass() : "bg-secondary-subtle text-secondary";
@@ -302,7 +360,7 @@ public class ReceiptController {
         );
     }
 
-    private ParsedReceiptEntry toParsedReceiptEntry(ParsedReceipt parsed) {
+    private ParsedReceiptEntry toParsedReceiptEntry(ReceiptSummary parsed) {
         String displayName = parsed.displayName() != null ? parsed.displayName() : parsed.objectPath();
         String updatedAt = formatInstant(parsed.updatedAt());
         String detailsUrl = parsed.id() != null ? "/receipts/" + parsed.id() : null;
@@ -337,9 +395,9 @@ public class ReceiptController {
         List<ReceiptFile> files,
         String listingError,
         boolean parsedReceiptsEnabled,
-        List<ParsedReceipt> parsedReceipts,
+        List<ReceiptSummary> parsedReceipts,
         String parsedListingError,
-        Map<String, ParsedReceipt> fileStatuses,
+        Map<String, ReceiptSummary> fileStatuses,
         boolean viewingAll
     ) {
     }
@@ -389,10 +447,21 @@ public class ReceiptController {
     ) {
     }
 
-    private record ReceiptClearResponse(String successMessage, String errorMessage) {
-    }
+    private record ReceiptClearResponse(
+        String successMessage,
+        String errorMessage,
+        String jobId,
+        ReceiptClearJobService.Status status
+    ) {
+
+        static ReceiptClearResponse of(ReceiptClearJob job) {
+            String successMessage = job.finished() ? job.successMessage() : CLEARING_STARTED_MESSAGE;
+            return new ReceiptClearResponse(successMessage, job.errorMessage(), job.id(), job.status());
+        }
 
-    private record ClearOutcome(String successMessage, String errorMessage) {
+        static ReceiptClearResponse error(String errorMessage) {
+            return new ReceiptClearResponse(null, errorMessage, null, null);
+        }
     }
 
     @GetMapping("/receipts/{documentId}")
@@ -412,7 +481,7 @@ public class ReceiptController {
 
         ParsedReceipt receipt = receiptExtractionService
             .get()
-            .findById(documentId)
+            .findDetailedById(documentId)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Receipt not found."));
 
         ReceiptOwner currentOwner = receiptOwnerResolver.resolve(authentication);
@@ -428,47 +497,58 @@ public class ReceiptController {
             effectiveScope = ReceiptViewScope.ALL;
         }
 
+        // Everything below depends on the receipt only through its id and items, so all reads are issued
+        // together and the page waits for the slowest one rather than for their sum.
         ReceiptOwner statsOwner = viewingAll ? null : receipt.owner();
         Set<String> normalizedEans = receipt.displayItems().stream()
             .map(this::extractItemEan)
             .filter(StringUtils::hasText)
             .collect(Collectors.toCollection(LinkedHashSet::new));
-        Map<String, Long> itemOccurrences = resolveItemOccurrences(receipt, normalizedEans, statsOwner, viewingAll);
+        CompletableFuture<Map<String, Long>> itemOccurrencesFuture =
+            resolveItemOccurrences(receipt, normalizedEans, statsOwner, viewingAll);
+
+        boolean categoriesEnabled = categoryService.isPresent() && categoryService.get().isEnabled();
+        CompletableFuture<List<Category>> categoriesFuture = categoriesEnabled
+            ? categoryService.get().listCategoriesAsync()
+            : CompletableFuture.completedFuture(List.of());
+        CompletableFuture<List<ItemTag>> tagsFuture = tagService.isPresent() && tagService.get().isEnabled()
+            ? tagService.get().listTagsAsync()
+            : CompletableFuture.completedFuture(List.of());
+
+        boolean categorizationEnabled = itemCategorizationService.isPresent() && itemCategorizationService.get().isEnabled();
+        CompletableFuture<List<ItemCategoryMapping>> categoryMappingsFuture = categorizationEnabled
+            ? itemCategorizationService.get().getCategoriesForReceiptAsync(documentId)
+            : CompletableFuture.completedFuture(List.of());
+        CompletableFuture<List<ItemTagMapping>> tagMappingsFuture = categorizationEnabled
+            ? itemCategorizationService.get().getTagsForReceiptAsync(documentId)
+            : CompletableFuture.completedFuture(List.of());
+
+        Map<String, Long> itemOccurrences = join(itemOccurrencesFuture);
         List<Map<String, Object>> receiptItems = prepareReceiptItems(receipt.displayItems(), itemOccurrences);
 
         // Load categories and tags data
-        if (categoryService.isPresent() && categoryService.get().isEnabled()) {
-            model.addAttribute("categoriesHierarchy", categoryService.get().getCategoriesHierarchy());
-            model.addAttribute("categories", categoryService.get().listCategories());
-        } else {
-            model.addAttribute("categoriesHierarchy", Map.of());
-            model.addAttribute("categories", List.of());
-        }
-        
-        if (tagService.isPresent() && tagService.get().isEnabled()) {
-            model.addAttribute("tags", tagService.get().listTags());
-        } else {
-            model.addAttribute("tags", List.of());
-        }
+        List<Category> categories = join(categoriesFuture);
+        model.addAttribute("categoriesHierarchy",
+            categoriesEnabled ? categoryService.get().getCategoriesHierarchy(categories) : Map.of());
+        model.addAttribute("categories", categories);
+        model.addAttribute("tags", join(tagsFuture));
         
         // Load categorization data for this receipt
         Map<String, String> itemCategoryMap = new HashMap<>();
         Map<String, List<String>> itemTagsMap = new HashMap<>();
         
-        if (itemCategorizationService.isPresent() && itemCategorizationService.get().isEnabled()) {
-            List<dev.pekelund.pklnd.firestore.ItemCategoryMapping> categoryMappings = 
-                itemCategorizationService.get().getCategoriesForReceipt(documentId);
-            List<dev.pekelund.pklnd.firestore.ItemTagMapping> tagMappings = 
-                itemCategorizationService.get().getTagsForReceipt(documentId);
+        if (categorizationEnabled) {
+            List<ItemCategoryMapping> categoryMappings = join(categoryMappingsFuture);
+            List<ItemTagMapping> tagMappings = join(tagMappingsFuture);
             
             // Build map of item identifier -> category ID
-            for (dev.pekelund.pklnd.firestore.ItemCategoryMapping mapping : categoryMappings) {
+            for (ItemCategoryMapping mapping : categoryMappings) {
                 String itemId = mapping.itemEan() != null ? mapping.itemEan() : mapping.itemIndex();
                 itemCategoryMap.put(itemId, mapping.categoryId());
             }
             
             // Build map of item identifier -> list of tag IDs
-            for (dev.pekelund.pklnd.firestore.ItemTagMapping mapping : tagMappings) {
+            for (ItemTagMapping mapping : tagMappings) {
                 String itemId = mapping.itemEan() != null ? mapping.itemEan() : mapping.itemIndex();
                 itemTagsMap.computeIfAbsent(itemId, k -> new ArrayList<>()).add(mapping.tagId());
             }
@@ -501,11 +581,11 @@ public class ReceiptController {
         return "receipt-detail";
     }
 
-    private Map<String, Long> resolveItemOccurrences(ParsedReceipt receipt, Set<String> normalizedEans,
-        ReceiptOwner statsOwner, boolean viewingAll) {
+    private CompletableFuture<Map<String, Long>> resolveItemOccurrences(ParsedReceipt receipt,
+        Set<String> normalizedEans, ReceiptOwner statsOwner, boolean viewingAll) {
 
         if (normalizedEans == null || normalizedEans.isEmpty()) {
-            return Map.of();
+            return CompletableFuture.completedFuture(Map.of());
         }
 
         ParsedReceipt.ReceiptItemHistory history = receipt.itemHistory();
@@ -516,10 +596,21 @@ public class ReceiptController {
                 long count = history.countFor(ean, useGlobal);
                 occurrences.put(ean, count);
             }
-            return Map.copyOf(occurrences);
+            return CompletableFuture.completedFuture(Map.copyOf(occurrences));
         }
 
-        return receiptExtractionService.get().loadItemOccurrences(normalizedEans, statsOwner, viewingAll);
+        return receiptExtractionService.get().loadItemOccurrencesAsync(normalizedEans, statsOwner, viewingAll);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
     }
 
     private List<Map<String, Object>> prepareReceiptItems(List<Map<String, Object>> items, Map<String, Long> occurrences) {
@@ -606,83 +697,54 @@ public class ReceiptController {
             return "redirect:/receipts";
         }
 
-        ClearOutcome outcome = clearReceiptData(owner);
-
-        if (outcome.successMessage() != null) {
-            redirectAttributes.addFlashAttribute("successMessage", outcome.successMessage());
-        }
-
-        if (outcome.errorMessage() != null) {
-            redirectAttributes.addFlashAttribute("errorMessage", outcome.errorMessage());
+        if (!isClearingEnabled()) {
+            redirectAttributes.addFlashAttribute("errorMessage", CLEARING_DISABLED_MESSAGE);
+            return "redirect:/receipts";
         }
 
+        receiptClearJobService.get().start(owner);
+        redirectAttributes.addFlashAttribute("successMessage", CLEARING_STARTED_MESSAGE);
         return "redirect:/receipts";
     }
 
+    /**
+     * Starts clearing the caller's receipt data and answers 202 with the job to poll at
+     * {@code /receipts/clear/{jobId}}.
+     */
     @PostMapping(value = "/receipts/clear", produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseBody
     public ResponseEntity<ReceiptClearResponse> clearReceiptsJson(Authentication authentication) {
         ReceiptOwner owner = receiptOwnerResolver.resolve(authentication);
         if (owner == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                .body(new ReceiptClearResponse(null, "Unable to determine the current user."));
+                .body(ReceiptClearResponse.error("Unable to determine the current user."));
         }
 
-        ClearOutcome outcome = clearReceiptData(owner);
-        HttpStatus status = outcome.successMessage() == null && outcome.errorMessage() != null
-            ? HttpStatus.BAD_REQUEST
-            : HttpStatus.OK;
-
-        return ResponseEntity.status(status)
-            .body(new ReceiptClearResponse(outcome.successMessage(), outcome.errorMessage()));
-    }
-
-    private ClearOutcome clearReceiptData(ReceiptOwner owner) {
-        boolean storageEnabled = receiptStorageService.isPresent() && receiptStorageService.get().isEnabled();
-        boolean parsedReceiptsEnabled = receiptExtractionService.isPresent() && receiptExtractionService.get().isEnabled();
-
-        if (!storageEnabled && !parsedReceiptsEnabled) {
-            return new ClearOutcome(null, "Receipt storage and parsing are disabled.");
-        }
-
-        List<String> successes = new ArrayList<>();
-        List<String> errors = new ArrayList<>();
-
-        if (storageEnabled) {
-            try {
-                receiptStorageService.get().deleteReceiptsForOwner(owner);
-                successes.add("uploaded receipts");
-            } catch (ReceiptStorageException ex) {
-                errors.add("Failed to clear uploaded receipts: " + ex.getMessage());
-                LOGGER.error("Failed to clear uploaded receipts", ex);
-            }
-        }
-
-        if (parsedReceiptsEnabled) {
-            try {
-                receiptExtractionService.get().deleteReceiptsForOwner(owner);
-                successes.add("parsed receipt data");
-            } catch (ReceiptExtractionAccessException ex) {
-                errors.add("Failed to clear parsed receipt data: " + ex.getMessage());
-                LOGGER.error("Failed to clear parsed receipts", ex);
-            }
-        }
-
-        String successMessage = null;
-        if (!successes.isEmpty()) {
-            successMessage = "Cleared " + String.join(" and ", successes) + ".";
+        if (!isClearingEnabled()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ReceiptClearResponse.error(CLEARING_DISABLED_MESSAGE));
         }
 
-        String errorMessage = null;
-        if (!errors.isEmpty()) {
-            errorMessage = String.join(" ", errors);
-        }
+        ReceiptClearJob job = receiptClearJobService.get().start(owner);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ReceiptClearResponse.of(job));
+    }
 
-        if (successMessage == null && errorMessage == null) {
-            errorMessage = "No receipt data was cleared.";
-        }
+    @GetMapping(value = "/receipts/clear/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<ReceiptClearResponse> clearReceiptsStatus(
+        @PathVariable("jobId") String jobId,
+        Authentication authentication
+    ) {
+        ReceiptOwner owner = receiptOwnerResolver.resolve(authentication);
+        return receiptClearJobService
+            .flatMap(service -> service.find(jobId, owner != null ? owner.id() : null))
+            .map(job -> ResponseEntity.ok(ReceiptClearResponse.of(job)))
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ReceiptClearResponse.error("Clear job not found.")));
+    }
 
-        return new ClearOutcome(successMessage, errorMessage);
+    private boolean isClearingEnabled() {
+        return receiptClearJobService.isPresent() && receiptClearJobService.get().isEnabled();
     }
 
     private ReceiptViewScope resolveScope(String scopeParam, Authentication authentication) {
@@ -2,8 +2,10 @@ package dev.pekelund.pklnd.web.receipts;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.pekelund.pklnd.firestore.ItemPriceHistory;
 import dev.pekelund.pklnd.firestore.ParsedReceipt;
 import dev.pekelund.pklnd.firestore.ReceiptExtractionService;
+import dev.pekelund.pklnd.receipts.ReceiptItemPrices;
 import dev.pekelund.pklnd.storage.ReceiptOwner;
 import dev.pekelund.pklnd.web.ReceiptOwnerResolver;
 import java.math.BigDecimal;
@@ -39,7 +41,8 @@ public class ReceiptItemController {
     private static final Logger LOGGER = LoggerFactory.getLogger(ReceiptItemController.class);
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     private static final Pattern EAN_PATTERN = Pattern.compile("(\\d{8,14})");
-    private static final Pattern QUANTITY_VALUE_PATTERN = Pattern.compile("([-+]?\\d+(?:[.,]\\d+)?)");
+    // Purchases listed on the item page; the price chart covers all of them through the price history series.
+    private static final int PURCHASES_PAGE_SIZE = 50;
     private static final List<String> POSSIBLE_EAN_KEYS = List.of(
         "eanCode", "ean", "barcode", "barCode", "ean_code", "EAN", "gtin", "itemEan", "sku"
     );
@@ -81,32 +84,28 @@ public class ReceiptItemController {
         }
 
         String trimmedEanCode = eanCode.trim();
-        List<ReceiptExtractionService.ReceiptItemReference> itemReferences = receiptExtractionService.get()
-            .findReceiptItemReferences(trimmedEanCode, viewingAll ? null : currentOwner, viewingAll);
+        ReceiptExtractionService service = receiptExtractionService.get();
+        List<ReceiptExtractionService.ReceiptItemReference> itemReferences = service
+            .findReceiptItemReferences(trimmedEanCode, viewingAll ? null : currentOwner, viewingAll, PURCHASES_PAGE_SIZE);
 
         ReceiptExtractionService.ReceiptItemReference sourceReference = null;
-        if (StringUtils.hasText(sourceReceiptId)) {
-            sourceReference = findReferenceByReceiptId(itemReferences, sourceReceiptId);
-            if (!viewingAll && canViewAll && sourceReference == null) {
-                List<ReceiptExtractionService.ReceiptItemReference> expandedReferences = receiptExtractionService
-                    .get()
-                    .findReceiptItemReferences(trimmedEanCode, null, true);
-                ReceiptExtractionService.ReceiptItemReference expandedSourceReference = findReferenceByReceiptId(
-                    expandedReferences,
-                    sourceReceiptId
-                );
-                if (expandedSourceReference != null
-                    && !belongsToCurrentOwner(expandedSourceReference.ownerId(), currentOwner)) {
+        ParsedReceipt sourceReceipt = null;
+        String sourceReceiptIdentifier = StringUtils.hasText(sourceReceiptId) ? sourceReceiptId.trim() : null;
+        if (sourceReceiptIdentifier != null) {
+            sourceReference = findReferenceByReceiptId(itemReferences, sourceReceiptIdentifier);
+            if (sourceReference == null) {
+                sourceReceipt = service.findById(sourceReceiptIdentifier).orElse(null);
+                if (!viewingAll && canViewAll && sourceReceipt != null
+                    && !belongsToCurrentOwner(sourceReceipt.owner() != null ? sourceReceipt.owner().id() : null,
+                        currentOwner)) {
                     viewingAll = true;
                     effectiveScope = ReceiptViewScope.ALL;
-                    itemReferences = expandedReferences;
-                    sourceReference = expandedSourceReference;
+                    itemReferences = service.findReceiptItemReferences(trimmedEanCode, null, true, PURCHASES_PAGE_SIZE);
+                    sourceReference = findReferenceByReceiptId(itemReferences, sourceReceiptIdentifier);
                 }
             }
         }
 
-        ParsedReceipt sourceReceipt = null;
-        String sourceReceiptIdentifier = StringUtils.hasText(sourceReceiptId) ? sourceReceiptId.trim() : null;
         String sourceReceiptName = sourceReference != null
             ? resolveReceiptDisplayName(
                 sourceReference.receiptDisplayName(),
@@ -117,14 +116,13 @@ public class ReceiptItemController {
 
         List<ItemPurchaseView> purchases = buildItemPurchasesFromReferences(trimmedEanCode, itemReferences);
 
-        if (StringUtils.hasText(sourceReceiptIdentifier)) {
+        if (sourceReceiptIdentifier != null) {
             boolean includedInReferences = purchases.stream()
                 .anyMatch(purchase -> sourceReceiptIdentifier.equals(purchase.receiptId()));
             if (!includedInReferences) {
-                sourceReceipt = receiptExtractionService
-                    .get()
-                    .findById(sourceReceiptIdentifier)
-                    .orElse(null);
+                if (sourceReceipt == null) {
+                    sourceReceipt = service.findById(sourceReceiptIdentifier).orElse(null);
+                }
                 if (sourceReceipt != null) {
                     List<ItemPurchaseView> fallback = buildItemPurchasesFromReceipts(trimmedEanCode,
                         List.of(sourceReceipt));
@@ -151,7 +149,13 @@ public class ReceiptItemController {
             .findFirst()
             .orElse("EAN " + trimmedEanCode);
         String displayEanCode = purchases.get(0).itemEanCode();
-        List<Map<String, Object>> priceHistory = buildPriceHistory(purchases);
+        Optional<ItemPriceHistory> series = service.findPriceHistory(trimmedEanCode,
+            viewingAll ? null : currentOwner, viewingAll);
+        List<ItemPurchaseView> listedPurchases = purchases;
+        List<Map<String, Object>> priceHistory = series
+            .map(this::buildPriceHistory)
+            .orElseGet(() -> buildPriceHistory(listedPurchases));
+        int purchaseCount = Math.max(purchases.size(), series.map(ItemPriceHistory::purchaseCount).orElse(0));
         String priceHistoryJson = serializePriceHistory(priceHistory);
         boolean hasPriceHistory = !priceHistory.isEmpty();
 
@@ -159,7 +163,7 @@ public class ReceiptItemController {
         model.addAttribute("itemName", displayItemName);
         model.addAttribute("itemEan", displayEanCode);
         model.addAttribute("purchases", purchases);
-        model.addAttribute("purchaseCount", purchases.size());
+        model.addAttribute("purchaseCount", purchaseCount);
         model.addAttribute("priceHistoryJson", priceHistoryJson);
         model.addAttribute("hasPriceHistory", hasPriceHistory);
         model.addAttribute("canViewAll", canViewAll);
@@ -206,8 +210,8 @@ public class ReceiptItemController {
 
                 String itemName = extractDisplayName(item.get("name"));
 
-                BigDecimal totalPrice = resolveTotalPrice(item);
-                BigDecimal unitPrice = resolveUnitPrice(item, totalPrice);
+                BigDecimal totalPrice = ReceiptItemPrices.totalPrice(item);
+                BigDecimal unitPrice = ReceiptItemPrices.unitPrice(item, totalPrice);
                 String priceLabel = determinePriceLabel(item, unitPrice, totalPrice);
                 BigDecimal resolvedPrice = unitPrice != null ? unitPrice : totalPrice;
                 BigDecimal priceValue = resolvedPrice != null ? resolvedPrice.setScale(2, RoundingMode.HALF_UP) : null;
@@ -255,8 +259,8 @@ public class ReceiptItemController {
             }
 
             String itemName = extractDisplayName(item.get("name"));
-            BigDecimal totalPrice = resolveTotalPrice(item);
-            BigDecimal unitPrice = resolveUnitPrice(item, totalPrice);
+            BigDecimal totalPrice = ReceiptItemPrices.totalPrice(item);
+            BigDecimal unitPrice = ReceiptItemPrices.unitPrice(item, totalPrice);
             String priceLabel = determinePriceLabel(item, unitPrice, totalPrice);
             BigDecimal resolvedPrice = unitPrice != null ? unitPrice : totalPrice;
             BigDecimal priceValue = resolvedPrice != null ? resolvedPrice.setScale(2, RoundingMode.HALF_UP) : null;
@@ -341,63 +345,15 @@ public class ReceiptItemController {
             .toList();
     }
 
-    private BigDecimal resolveTotalPrice(Map<String, Object> item) {
-        BigDecimal totalPrice = parseBigDecimal(item.get("totalPrice"));
-        if (totalPrice == null) {
-            totalPrice = parseBigDecimal(item.get("displayTotalPrice"));
-        }
-        return totalPrice;
-    }
-
-    private BigDecimal resolveUnitPrice(Map<String, Object> item, BigDecimal totalPrice) {
-        BigDecimal unitPrice = parseBigDecimal(item.get("unitPrice"));
-        if (unitPrice == null) {
-            unitPrice = parseBigDecimal(item.get("displayUnitPrice"));
-        }
-        if (unitPrice != null) {
-            return unitPrice;
-        }
-
-        BigDecimal effectiveTotal = totalPrice != null ? totalPrice : resolveTotalPrice(item);
-        if (effectiveTotal == null) {
-            return null;
-        }
-
-        BigDecimal quantity = parseQuantityValue(item.get("quantity"));
-        if (quantity == null || quantity.compareTo(BigDecimal.ZERO) == 0) {
-            quantity = parseQuantityValue(item.get("displayQuantity"));
-        }
-        if (quantity == null || quantity.compareTo(BigDecimal.ZERO) == 0) {
-            return null;
-        }
-
-        try {
-            return effectiveTotal.divide(quantity, 2, RoundingMode.HALF_UP);
-        } catch (ArithmeticException ex) {
-            return null;
-        }
-    }
-
-    private BigDecimal parseQuantityValue(Object rawQuantity) {
-        if (rawQuantity == null) {
-            return null;
-        }
-        String text = rawQuantity.toString().replace('\u00A0', ' ').trim();
-        if (text.isEmpty()) {
-            return null;
-        }
-
-        Matcher matcher = QUANTITY_VALUE_PATTERN.matcher(text);
-        if (!matcher.find()) {
-            return null;
-        }
-
-        String numeric = matcher.group(1).replace(" ", "").replace(',', '.');
-        try {
-            return new BigDecimal(numeric);
-        } catch (NumberFormatException ex) {
-            return null;
-        }
+    private List<Map<String, Object>> buildPriceHistory(ItemPriceHistory series) {
+        return series.points().stream()
+            .map(entry -> {
+                Map<String, Object> point = new LinkedHashMap<>();
+                point.put("date", entry.date());
+                point.put("price", entry.price());
+                return point;
+            })
+            .toList();
     }
 
     private String serializePriceHistory(List<Map<String, Object>> priceHistory) {
@@ -462,33 +418,6 @@ public class ReceiptItemController {
         return text.isEmpty() ? null : text;
     }
 
-    private BigDecimal parseBigDecimal(Object value) {
-        if (value instanceof BigDecimal bigDecimal) {
-            return bigDecimal;
-        }
-        if (value instanceof Number number) {
-            try {
-                return new BigDecimal(number.toString());
-            } catch (NumberFormatException ex) {
-                return null;
-            }
-        }
-        if (value instanceof String stringValue) {
-            String normalized = stringValue.replace('\u00A0', ' ').trim();
-            if (normalized.isEmpty()) {
-                return null;
-            }
-            normalized = normalized.replace(" ", "");
-            normalized = normalized.replace(',', '.');
-            try {
-                return new BigDecimal(normalized);
-            } catch (NumberFormatException ex) {
-                return null;
-            }
-        }
-        return null;
-    }
-
     private String formatAmount(BigDecimal value) {
         if (value == null) {
             return null;
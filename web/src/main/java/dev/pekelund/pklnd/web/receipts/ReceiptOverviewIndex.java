@@ -0,0 +1,897 @@
+package dev.pekelund.pklnd.web.receipts;
+
+import dev.pekelund.pklnd.firestore.ParsedReceipt;
+import dev.pekelund.pklnd.firestore.ReceiptChangeEvent;
+import dev.pekelund.pklnd.firestore.ReceiptExtractionAccessException;
+import dev.pekelund.pklnd.firestore.ReceiptExtractionService;
+import dev.pekelund.pklnd.receipts.ReceiptItemConstants;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * In-memory week and month bucket index over parsed receipt items, keyed by receipt scope (an owner id or
+ * the all-owners scope). A scope is indexed once from the receipt listing and then kept current through
+ * {@link ReceiptChangeEvent}s, so switching periods in the overview only walks the items of the requested
+ * period and never touches Firestore or Cloud Storage.
+ *
+ * <p>Receipts parsed on behalf of another instance are not announced to this one, so indexes are also
+ * rebuilt once they reach {@link #MAX_INDEX_AGE}.</p>
+ */
+@Component
+public class ReceiptOverviewIndex {
+
+    static final String ALL_OWNERS_KEY = ReceiptItemConstants.GLOBAL_OWNER_ID;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReceiptOverviewIndex.class);
+    private static final int MAX_INDEXED_SCOPES = 200;
+    private static final Duration MAX_INDEX_AGE = Duration.ofMinutes(5);
+    private static final String GENERATION_EPOCH = UUID.randomUUID().toString().substring(0, 8);
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+    private static final Pattern EAN_PATTERN = Pattern.compile("(\\d{8,14})");
+    private static final Pattern QUANTITY_VALUE_PATTERN = Pattern.compile("([-+]?\\d+(?:[.,]\\d+)?)");
+    private static final List<String> POSSIBLE_EAN_KEYS = List.of(
+        "eanCode", "ean", "barcode", "barCode", "ean_code", "EAN", "gtin", "itemEan", "sku"
+    );
+
+    enum PeriodType {
+        WEEK,
+        MONTH
+    }
+
+    private final Optional<ReceiptExtractionService> receiptExtractionService;
+    private final Map<String, ScopeIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> changeSequences = new ConcurrentHashMap<>();
+
+    public ReceiptOverviewIndex(@Autowired(required = false) ReceiptExtractionService receiptExtractionService) {
+        this.receiptExtractionService = Optional.ofNullable(receiptExtractionService);
+    }
+
+    /**
+     * Returns the cached index for the scope, building it from {@code loader} when it is missing or expired.
+     * If receipts of the scope change while the index is being built the result is served once but not cached.
+     */
+    ScopeIndex resolve(String scopeKey, String scopeParam, Supplier<List<ParsedReceipt>> loader) {
+        Instant now = Instant.now();
+        ScopeIndex existing = indexes.get(scopeKey);
+        if (existing != null && !existing.isExpired(now)) {
+            existing.touch(now);
+            return existing;
+        }
+
+        AtomicLong changeSequence = changeSequences.computeIfAbsent(scopeKey, key -> new AtomicLong());
+        long sequence = changeSequence.get();
+        ScopeIndex built = build(scopeParam, loader.get());
+        if (changeSequence.get() == sequence) {
+            indexes.put(scopeKey, built);
+            evictLeastRecentlyUsed();
+        } else {
+            indexes.remove(scopeKey);
+        }
+        return built;
+    }
+
+    /**
+     * Returns the generation of the cached index for the scope, or empty when the next {@link #resolve} would
+     * build a new one.
+     */
+    Optional<String> cachedGeneration(String scopeKey) {
+        ScopeIndex existing = indexes.get(scopeKey);
+        if (existing == null || existing.isExpired(Instant.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(existing.generation());
+    }
+
+    /**
+     * Builds an index that is not cached, for scopes whose receipt selection is not owner based.
+     */
+    ScopeIndex build(String scopeParam, List<ParsedReceipt> receipts) {
+        ScopeIndex index = new ScopeIndex(scopeParam, Instant.now());
+        if (receipts != null) {
+            for (ParsedReceipt receipt : receipts) {
+                index.upsert(receipt);
+            }
+        }
+        return index;
+    }
+
+    @EventListener
+    public void onReceiptChange(ReceiptChangeEvent event) {
+        if (event == null) {
+            return;
+        }
+        String ownerId = StringUtils.hasText(event.ownerId()) ? event.ownerId() : null;
+        markChanged(ownerId);
+        markChanged(ALL_OWNERS_KEY);
+
+        switch (event.kind()) {
+            case OWNER_CLEARED -> {
+                if (ownerId != null) {
+                    indexes.remove(ownerId);
+                    ScopeIndex allOwners = indexes.get(ALL_OWNERS_KEY);
+                    if (allOwners != null) {
+                        allOwners.removeOwner(ownerId);
+                    }
+                }
+            }
+            case REMOVED -> affectedIndexes(ownerId).forEach(index -> event.receiptIds().forEach(index::remove));
+            case UPDATED -> applyUpdates(ownerId, event.receiptIds());
+        }
+    }
+
+    private void markChanged(String scopeKey) {
+        AtomicLong changeSequence = scopeKey != null ? changeSequences.get(scopeKey) : null;
+        if (changeSequence != null) {
+            changeSequence.incrementAndGet();
+        }
+    }
+
+    private void applyUpdates(String ownerId, Set<String> receiptIds) {
+        List<ScopeIndex> targets = affectedIndexes(ownerId);
+        if (targets.isEmpty() || receiptIds.isEmpty()) {
+            return;
+        }
+
+        if (receiptExtractionService.isEmpty() || !receiptExtractionService.get().isEnabled()) {
+            invalidate(ownerId);
+            return;
+        }
+
+        List<ParsedReceipt> receipts;
+        try {
+            receipts = receiptExtractionService.get().findByIds(receiptIds);
+        } catch (ReceiptExtractionAccessException ex) {
+            LOGGER.warn("Failed to reload {} updated receipt(s); dropping overview index", receiptIds.size(), ex);
+            invalidate(ownerId);
+            return;
+        }
+
+        Set<String> missing = new HashSet<>(receiptIds);
+        for (ParsedReceipt receipt : receipts) {
+            missing.remove(receipt.id());
+        }
+        for (ScopeIndex target : targets) {
+            receipts.forEach(target::upsert);
+            missing.forEach(target::remove);
+        }
+    }
+
+    private List<ScopeIndex> affectedIndexes(String ownerId) {
+        List<ScopeIndex> targets = new ArrayList<>(2);
+        if (ownerId != null) {
+            ScopeIndex ownerIndex = indexes.get(ownerId);
+            if (ownerIndex != null) {
+                targets.add(ownerIndex);
+            }
+        }
+        ScopeIndex allOwners = indexes.get(ALL_OWNERS_KEY);
+        if (allOwners != null) {
+            targets.add(allOwners);
+        }
+        return targets;
+    }
+
+    private void invalidate(String ownerId) {
+        if (ownerId != null) {
+            indexes.remove(ownerId);
+        }
+        indexes.remove(ALL_OWNERS_KEY);
+    }
+
+    private void evictLeastRecentlyUsed() {
+        while (indexes.size() > MAX_INDEXED_SCOPES) {
+            indexes.entrySet().stream()
+                .min(Comparator.comparing(entry -> entry.getValue().lastAccess()))
+                .ifPresent(entry -> indexes.remove(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    static String weekIdentifier(LocalDate date) {
+        WeekFields weekFields = WeekFields.ISO;
+        int week = date.get(weekFields.weekOfWeekBasedYear());
+        int year = date.get(weekFields.weekBasedYear());
+        return String.format("%04d-W%02d", year, week);
+    }
+
+    static String monthIdentifier(LocalDate date) {
+        return YearMonth.from(date).toString();
+    }
+
+    // -------------------------------------------------------------------------
+    // Index structures
+    // -------------------------------------------------------------------------
+
+    static final class ScopeIndex {
+
+        private final String scopeParam;
+        private final Instant builtAt;
+        private volatile Instant lastAccess;
+        private volatile long generation = GENERATIONS.incrementAndGet();
+        private final Map<String, IndexedReceipt> receipts = new HashMap<>();
+        private final Map<String, PeriodBucket> weekBuckets = new HashMap<>();
+        private final Map<String, PeriodBucket> monthBuckets = new HashMap<>();
+        private final TreeMap<String, Integer> receiptDates = new TreeMap<>();
+
+        private ScopeIndex(String scopeParam, Instant builtAt) {
+            this.scopeParam = scopeParam;
+            this.builtAt = builtAt;
+            this.lastAccess = builtAt;
+        }
+
+        synchronized PeriodOverview overview(PeriodSelection selection) {
+            if (selection == null) {
+                return new PeriodOverview(
+                    null, null, null, null, null, null, null, null, 0, List.of(), List.of(), null
+                );
+            }
+
+            Map<String, PeriodBucket> buckets = selection.type() == PeriodType.WEEK ? weekBuckets : monthBuckets;
+            PeriodBucket bucket = buckets.get(selection.identifier());
+            PeriodContents contents = bucket != null ? bucket.contents() : PeriodContents.EMPTY;
+
+            return new PeriodOverview(
+                selection.type(),
+                selection.identifier(),
+                selection.startDate().toString(),
+                selection.endDate().toString(),
+                selection.weekNumber(),
+                selection.weekYear(),
+                selection.month(),
+                selection.year(),
+                contents.items().size(),
+                contents.items(),
+                contents.groups(),
+                contents.summary()
+            );
+        }
+
+        synchronized List<String> receiptDates() {
+            return List.copyOf(receiptDates.keySet());
+        }
+
+        synchronized void upsert(ParsedReceipt receipt) {
+            if (receipt == null || !StringUtils.hasText(receipt.id())) {
+                return;
+            }
+            remove(receipt.id());
+            IndexedReceipt indexed = toIndexedReceipt(receipt, scopeParam);
+            if (indexed == null) {
+                return;
+            }
+            receipts.put(indexed.id(), indexed);
+            generation = GENERATIONS.incrementAndGet();
+            receiptDates.merge(indexed.entryDate().toString(), 1, Integer::sum);
+            weekBuckets.computeIfAbsent(weekIdentifier(indexed.entryDate()), key -> new PeriodBucket()).add(indexed);
+            monthBuckets.computeIfAbsent(monthIdentifier(indexed.entryDate()), key -> new PeriodBucket()).add(indexed);
+        }
+
+        synchronized void remove(String receiptId) {
+            IndexedReceipt existing = receipts.remove(receiptId);
+            if (existing == null) {
+                return;
+            }
+            generation = GENERATIONS.incrementAndGet();
+            receiptDates.computeIfPresent(existing.entryDate().toString(), (date, count) -> count > 1 ? count - 1 : null);
+            removeFromBucket(weekBuckets, weekIdentifier(existing.entryDate()), receiptId);
+            removeFromBucket(monthBuckets, monthIdentifier(existing.entryDate()), receiptId);
+        }
+
+        synchronized void removeOwner(String ownerId) {
+            List<String> owned = receipts.values().stream()
+                .filter(receipt -> ownerId.equals(receipt.ownerId()))
+                .map(IndexedReceipt::id)
+                .toList();
+            owned.forEach(this::remove);
+        }
+
+        private void removeFromBucket(Map<String, PeriodBucket> buckets, String key, String receiptId) {
+            PeriodBucket bucket = buckets.get(key);
+            if (bucket != null && bucket.remove(receiptId)) {
+                buckets.remove(key);
+            }
+        }
+
+        /**
+         * Identifies the contents of this index; it changes whenever a receipt is added or removed and is
+         * unique across instances, so responses built from the index can carry it in their entity tag.
+         */
+        String generation() {
+            return GENERATION_EPOCH + "." + generation;
+        }
+
+        boolean isExpired(Instant now) {
+            return builtAt.plus(MAX_INDEX_AGE).isBefore(now);
+        }
+
+        void touch(Instant now) {
+            lastAccess = now;
+        }
+
+        Instant lastAccess() {
+            return lastAccess;
+        }
+    }
+
+    /**
+     * Receipts whose items fall in one week or month, with the aggregated view computed lazily and kept
+     * until the bucket changes.
+     */
+    private static final class PeriodBucket {
+
+        private final Map<String, IndexedReceipt> receipts = new HashMap<>();
+        private PeriodContents contents;
+
+        void add(IndexedReceipt receipt) {
+            receipts.put(receipt.id(), receipt);
+            contents = null;
+        }
+
+        /**
+         * Removes the receipt and reports whether the bucket is now empty.
+         */
+        boolean remove(String receiptId) {
+            if (receipts.remove(receiptId) != null) {
+                contents = null;
+            }
+            return receipts.isEmpty();
+        }
+
+        PeriodContents contents() {
+            if (contents == null) {
+                contents = PeriodContents.of(receipts.values());
+            }
+            return contents;
+        }
+    }
+
+    private record PeriodContents(List<ItemOverviewEntry> items, List<GroupSummaryEntry> groups, PeriodSummary summary) {
+
+        static final PeriodContents EMPTY = new PeriodContents(List.of(), List.of(), new PeriodSummary(0, 0, null, null));
+
+        static PeriodContents of(Iterable<IndexedReceipt> receipts) {
+            List<IndexedReceipt> ordered = new ArrayList<>();
+            receipts.forEach(ordered::add);
+            ordered.sort(Comparator.comparing(IndexedReceipt::updatedAt, Comparator.nullsLast(Comparator.reverseOrder())));
+
+            List<ItemOverviewEntry> items = new ArrayList<>();
+            for (IndexedReceipt receipt : ordered) {
+                items.addAll(receipt.items());
+            }
+            items.sort(Comparator.comparing(ItemOverviewEntry::sortTimestamp, Comparator.nullsLast(Comparator.reverseOrder())));
+
+            Map<String, GroupAccumulator> groupAccumulators = new LinkedHashMap<>();
+            Set<String> receiptIds = new HashSet<>();
+            Set<String> storeNames = new HashSet<>();
+            BigDecimal totalPrice = null;
+            BigDecimal totalQuantity = null;
+
+            for (ItemOverviewEntry item : items) {
+                if (StringUtils.hasText(item.ean())) {
+                    groupAccumulators.computeIfAbsent(item.ean(), GroupAccumulator::new).accept(item);
+                }
+                if (StringUtils.hasText(item.receiptId())) {
+                    receiptIds.add(item.receiptId());
+                }
+                if (StringUtils.hasText(item.store())) {
+                    storeNames.add(item.store());
+                }
+                if (item.totalPriceValue() != null) {
+                    totalPrice = totalPrice == null ? item.totalPriceValue() : totalPrice.add(item.totalPriceValue());
+                }
+                if (item.quantityValue() != null) {
+                    totalQuantity = totalQuantity == null
+                        ? item.quantityValue()
+                        : totalQuantity.add(item.quantityValue());
+                }
+            }
+
+            List<GroupSummaryEntry> groups = groupAccumulators.values().stream()
+                .map(GroupAccumulator::toSummary)
+                .toList();
+
+            PeriodSummary summary = new PeriodSummary(
+                receiptIds.size(),
+                storeNames.size(),
+                totalPrice != null ? totalPrice.setScale(2, RoundingMode.HALF_UP) : null,
+                totalQuantity != null ? totalQuantity.setScale(2, RoundingMode.HALF_UP) : null
+            );
+            return new PeriodContents(List.copyOf(items), groups, summary);
+        }
+    }
+
+    private record IndexedReceipt(
+        String id,
+        String ownerId,
+        Instant updatedAt,
+        LocalDate entryDate,
+        List<ItemOverviewEntry> items
+    ) {
+    }
+
+    // -------------------------------------------------------------------------
+    // Receipt to item conversion
+    // -------------------------------------------------------------------------
+
+    private static IndexedReceipt toIndexedReceipt(ParsedReceipt receipt, String scopeParam) {
+        LocalDate entryDate = resolveEntryDate(receipt);
+        if (entryDate == null) {
+            return null;
+        }
+
+        List<Map<String, Object>> displayItems = receipt.displayItems();
+        if (displayItems == null || displayItems.isEmpty()) {
+            return null;
+        }
+
+        Instant sortInstant = determineSortInstant(parseReceiptDate(receipt.receiptDate()), receipt.updatedAt());
+        String dateLabel = determineDateLabel(receipt.receiptDate(), receipt.updatedAt());
+        String dateIso = entryDate.toString();
+        Long sortTimestamp = sortInstant != null ? sortInstant.toEpochMilli() : null;
+        String receiptName = resolveReceiptDisplayName(receipt);
+        String receiptUrl = buildReceiptUrl(receipt.id(), scopeParam);
+        String storeName = extractDisplayName(receipt.storeName());
+
+        List<ItemOverviewEntry> items = new ArrayList<>(displayItems.size());
+        int counter = 0;
+        for (Map<String, Object> item : displayItems) {
+            if (item == null || item.isEmpty()) {
+                continue;
+            }
+
+            String itemName = extractDisplayName(item.get("name"));
+            String ean = extractItemEan(item);
+            BigDecimal totalPriceValue = resolveTotalPrice(item);
+            if (totalPriceValue != null) {
+                totalPriceValue = totalPriceValue.setScale(2, RoundingMode.HALF_UP);
+            }
+            BigDecimal unitPriceValue = resolveUnitPrice(item, totalPriceValue);
+            if (unitPriceValue != null) {
+                unitPriceValue = unitPriceValue.setScale(2, RoundingMode.HALF_UP);
+            }
+            BigDecimal quantityValue = parseQuantityValue(item.get("displayQuantity"));
+            if (quantityValue == null) {
+                quantityValue = parseQuantityValue(item.get("quantity"));
+            }
+            String quantityLabel = determineQuantityLabel(item);
+
+            items.add(new ItemOverviewEntry(
+                receipt.id() + ":" + (++counter),
+                itemName,
+                ean,
+                storeName,
+                receipt.id(),
+                receiptName,
+                receiptUrl,
+                dateLabel,
+                dateIso,
+                sortTimestamp,
+                unitPriceValue,
+                totalPriceValue,
+                quantityValue,
+                quantityLabel
+            ));
+        }
+
+        String ownerId = receipt.owner() != null ? receipt.owner().id() : null;
+        return new IndexedReceipt(receipt.id(), ownerId, receipt.updatedAt(), entryDate, List.copyOf(items));
+    }
+
+    private static LocalDate resolveEntryDate(ParsedReceipt receipt) {
+        LocalDate parsed = parseReceiptDate(receipt.receiptDate());
+        if (parsed != null) {
+            return parsed;
+        }
+        Instant updatedAt = receipt.updatedAt();
+        if (updatedAt == null) {
+            return null;
+        }
+        return updatedAt.atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static String determineQuantityLabel(Map<String, Object> item) {
+        Object displayQuantity = item.get("displayQuantity");
+        if (displayQuantity != null) {
+            String text = displayQuantity.toString().trim();
+            if (!text.isEmpty()) {
+                return text;
+            }
+        }
+
+        Object rawQuantity = item.get("quantity");
+        if (rawQuantity != null) {
+            String text = rawQuantity.toString().trim();
+            if (!text.isEmpty()) {
+                return text;
+            }
+        }
+        return null;
+    }
+
+    private static String buildReceiptUrl(String receiptId, String scopeParam) {
+        if (!StringUtils.hasText(receiptId)) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder("/receipts/");
+        builder.append(receiptId);
+        if (StringUtils.hasText(scopeParam)) {
+            builder.append("?scope=").append(scopeParam);
+        }
+        return builder.toString();
+    }
+
+    private static BigDecimal resolveTotalPrice(Map<String, Object> item) {
+        BigDecimal totalPrice = parseBigDecimal(item.get("totalPrice"));
+        if (totalPrice == null) {
+            totalPrice = parseBigDecimal(item.get("displayTotalPrice"));
+        }
+        return totalPrice;
+    }
+
+    private static BigDecimal resolveUnitPrice(Map<String, Object> item, BigDecimal totalPrice) {
+        BigDecimal unitPrice = parseBigDecimal(item.get("unitPrice"));
+        if (unitPrice == null) {
+            unitPrice = parseBigDecimal(item.get("displayUnitPrice"));
+        }
+        if (unitPrice != null) {
+            return unitPrice;
+        }
+
+        BigDecimal effectiveTotal = totalPrice != null ? totalPrice : resolveTotalPrice(item);
+        if (effectiveTotal == null) {
+            return null;
+        }
+
+        BigDecimal quantity = parseQuantityValue(item.get("quantity"));
+        if (quantity == null || quantity.compareTo(BigDecimal.ZERO) == 0) {
+            quantity = parseQuantityValue(item.get("displayQuantity"));
+        }
+        if (quantity == null || quantity.compareTo(BigDecimal.ZERO) == 0) {
+            return null;
+        }
+
+        try {
+            return effectiveTotal.divide(quantity, 2, RoundingMode.HALF_UP);
+        } catch (ArithmeticException ex) {
+            return null;
+        }
+    }
+
+    private static BigDecimal parseQuantityValue(Object rawQuantity) {
+        if (rawQuantity == null) {
+            return null;
+        }
+        String text = rawQuantity.toString().replace('\u00A0', ' ').trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+
+        Matcher matcher = QUANTITY_VALUE_PATTERN.matcher(text);
+        if (!matcher.find()) {
+            return null;
+        }
+
+        String numeric = matcher.group(1).replace(" ", "").replace(',', '.');
+        try {
+            return new BigDecimal(numeric);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static String extractItemEan(Map<String, Object> item) {
+        for (String key : POSSIBLE_EAN_KEYS) {
+            Object raw = item.get(key);
+            String normalized = extractEanCode(raw);
+            if (normalized != null) {
+                return normalized;
+            }
+        }
+        return null;
+    }
+
+    private static String extractEanCode(Object rawValue) {
+        if (rawValue == null) {
+            return null;
+        }
+
+        String text = rawValue.toString().trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+
+        Matcher matcher = EAN_PATTERN.matcher(text);
+        if (matcher.find()) {
+            return matcher.group(1);
+        }
+
+        String digitsOnly = text.replaceAll("\\D+", "");
+        if (digitsOnly.length() >= 8 && digitsOnly.length() <= 14) {
+            return digitsOnly;
+        }
+
+        if (text.chars().allMatch(Character::isDigit) && text.length() >= 8 && text.length() <= 14) {
+            return text;
+        }
+
+        return null;
+    }
+
+    private static String extractDisplayName(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static BigDecimal parseBigDecimal(Object value) {
+        if (value instanceof BigDecimal bigDecimal) {
+            return bigDecimal;
+        }
+        if (value instanceof Number number) {
+            try {
+                return new BigDecimal(number.toString());
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+        if (value instanceof String stringValue) {
+            String normalized = stringValue.replace('\u00A0', ' ').trim();
+            if (normalized.isEmpty()) {
+                return null;
+            }
+            normalized = normalized.replace(" ", "");
+            normalized = normalized.replace(',', '.');
+            try {
+                return new BigDecimal(normalized);
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static LocalDate parseReceiptDate(String rawDate) {
+        if (!StringUtils.hasText(rawDate)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(rawDate);
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    private static Instant determineSortInstant(LocalDate receiptDate, Instant updatedAt) {
+        if (receiptDate != null) {
+            return receiptDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
+        }
+        return updatedAt;
+    }
+
+    private static String determineDateLabel(String rawReceiptDate, Instant updatedAt) {
+        if (StringUtils.hasText(rawReceiptDate)) {
+            return rawReceiptDate;
+        }
+        return updatedAt != null ? updatedAt.toString() : null;
+    }
+
+    private static String resolveReceiptDisplayName(ParsedReceipt receipt) {
+        if (StringUtils.hasText(receipt.displayName())) {
+            return receipt.displayName();
+        }
+        if (StringUtils.hasText(receipt.storeName())) {
+            return receipt.storeName();
+        }
+        if (StringUtils.hasText(receipt.objectName())) {
+            return receipt.objectName();
+        }
+        if (StringUtils.hasText(receipt.objectPath())) {
+            return receipt.objectPath();
+        }
+        return receipt.id();
+    }
+
+    // -------------------------------------------------------------------------
+    // Records
+    // -------------------------------------------------------------------------
+
+    record PeriodSelection(
+        PeriodType type,
+        String identifier,
+        LocalDate startDate,
+        LocalDate endDate,
+        Integer weekNumber,
+        Integer weekYear,
+        Integer month,
+        Integer year
+    ) {
+    }
+
+    record PeriodOverview(
+        PeriodType type,
+        String identifier,
+        String startDate,
+        String endDate,
+        Integer weekNumber,
+        Integer weekYear,
+        Integer month,
+        Integer year,
+        int totalItems,
+        List<ItemOverviewEntry> items,
+        List<GroupSummaryEntry> groups,
+        PeriodSummary summary
+    ) {
+    }
+
+    record PeriodSummary(
+        int receiptCount,
+        int storeCount,
+        BigDecimal totalPriceValue,
+        BigDecimal totalQuantityValue
+    ) {
+    }
+
+    record ItemOverviewEntry(
+        String itemId,
+        String name,
+        String ean,
+        String store,
+        String receiptId,
+        String receiptName,
+        String receiptUrl,
+        String dateLabel,
+        String dateIso,
+        Long sortTimestamp,
+        BigDecimal unitPriceValue,
+        BigDecimal totalPriceValue,
+        BigDecimal quantityValue,
+        String quantityLabel
+    ) {
+    }
+
+    record GroupSummaryEntry(
+        String ean,
+        String displayName,
+        int itemCount,
+        BigDecimal minUnitPriceValue,
+        BigDecimal maxUnitPriceValue,
+        BigDecimal minTotalPriceValue,
+        BigDecimal maxTotalPriceValue,
+        BigDecimal totalQuantityValue,
+        int storeCount,
+        String earliestDateIso,
+        String latestDateIso,
+        Long earliestTimestamp,
+        Long latestTimestamp
+    ) {
+    }
+
+    private static final class GroupAccumulator {
+
+        private final String ean;
+        private String displayName;
+        private int itemCount;
+        private BigDecimal minUnitPrice;
+        private BigDecimal maxUnitPrice;
+        private BigDecimal minTotalPrice;
+        private BigDecimal maxTotalPrice;
+        private BigDecimal quantityTotal;
+        private final Set<String> stores = new HashSet<>();
+        private Long earliestTimestamp;
+        private Long latestTimestamp;
+        private String earliestDateIso;
+        private String latestDateIso;
+
+        GroupAccumulator(String ean) {
+            this.ean = ean;
+        }
+
+        void accept(ItemOverviewEntry item) {
+            itemCount++;
+            if (!StringUtils.hasText(displayName) && StringUtils.hasText(item.name())) {
+                displayName = item.name();
+            }
+
+            BigDecimal unitPrice = item.unitPriceValue();
+            if (unitPrice != null) {
+                if (minUnitPrice == null || unitPrice.compareTo(minUnitPrice) < 0) {
+                    minUnitPrice = unitPrice;
+                }
+                if (maxUnitPrice == null || unitPrice.compareTo(maxUnitPrice) > 0) {
+                    maxUnitPrice = unitPrice;
+                }
+            }
+
+            BigDecimal totalPrice = item.totalPriceValue();
+            if (totalPrice != null) {
+                if (minTotalPrice == null || totalPrice.compareTo(minTotalPrice) < 0) {
+                    minTotalPrice = totalPrice;
+                }
+                if (maxTotalPrice == null || totalPrice.compareTo(maxTotalPrice) > 0) {
+                    maxTotalPrice = totalPrice;
+                }
+            }
+
+            if (item.quantityValue() != null) {
+                if (quantityTotal == null) {
+                    quantityTotal = item.quantityValue();
+                } else {
+                    quantityTotal = quantityTotal.add(item.quantityValue());
+                }
+            }
+
+            if (StringUtils.hasText(item.store())) {
+                stores.add(item.store());
+            }
+
+            if (item.sortTimestamp() != null) {
+                long timestamp = item.sortTimestamp();
+                if (earliestTimestamp == null || timestamp < earliestTimestamp) {
+                    earliestTimestamp = timestamp;
+                    earliestDateIso = item.dateIso();
+                }
+                if (latestTimestamp == null || timestamp > latestTimestamp) {
+                    latestTimestamp = timestamp;
+                    latestDateIso = item.dateIso();
+                }
+            } else if (item.dateIso() != null) {
+                if (earliestDateIso == null) {
+                    earliestDateIso = item.dateIso();
+                }
+                latestDateIso = item.dateIso();
+            }
+        }
+
+        GroupSummaryEntry toSummary() {
+            BigDecimal minUnit = minUnitPrice != null ? minUnitPrice.setScale(2, RoundingMode.HALF_UP) : null;
+            BigDecimal maxUnit = maxUnitPrice != null ? maxUnitPrice.setScale(2, RoundingMode.HALF_UP) : null;
+            BigDecimal minTotal = minTotalPrice != null ? minTotalPrice.setScale(2, RoundingMode.HALF_UP) : null;
+            BigDecimal maxTotal = maxTotalPrice != null ? maxTotalPrice.setScale(2, RoundingMode.HALF_UP) : null;
+            return new GroupSummaryEntry(
+                ean,
+                displayName,
+                itemCount,
+                minUnit,
+                maxUnit,
+                minTotal,
+                maxTotal,
+                quantityTotal,
+                stores.size(),
+                earliestDateIso,
+                latestDateIso,
+                earliestTimestamp,
+                latestTimestamp
+            );
+        }
+    }
+}
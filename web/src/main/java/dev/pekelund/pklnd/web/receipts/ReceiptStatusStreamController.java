@@ -0,0 +1,48 @@
+package dev.pekelund.pklnd.web.receipts;
+
+import dev.pekelund.pklnd.storage.ReceiptOwner;
+import dev.pekelund.pklnd.web.ReceiptOwnerResolver;
+import java.util.Optional;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Controller
+public class ReceiptStatusStreamController {
+
+    private final ReceiptStatusStreams statusStreams;
+    private final ReceiptOwnerResolver receiptOwnerResolver;
+
+    public ReceiptStatusStreamController(ReceiptStatusStreams statusStreams, ReceiptOwnerResolver receiptOwnerResolver) {
+        this.statusStreams = statusStreams;
+        this.receiptOwnerResolver = receiptOwnerResolver;
+    }
+
+    /**
+     * Streams status changes of the current user's receipts. Answers 204 when streaming is unavailable,
+     * which tells browsers not to reconnect so the page keeps polling instead.
+     */
+    @GetMapping(value = "/receipts/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamStatus(Authentication authentication) {
+        ReceiptOwner owner = receiptOwnerResolver.resolve(authentication);
+        if (!statusStreams.isEnabled() || owner == null || !StringUtils.hasText(owner.id())) {
+            return ResponseEntity.noContent().build();
+        }
+
+        Optional<SseEmitter> emitter = statusStreams.open(owner.id());
+        if (emitter.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.noCache())
+            .header("X-Accel-Buffering", "no")
+            .body(emitter.get());
+    }
+}
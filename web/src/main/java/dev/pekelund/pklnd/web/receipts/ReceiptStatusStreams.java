@@ -0,0 +1,158 @@
+package dev.pekelund.pklnd.web.receipts;
+
+import dev.pekelund.pklnd.firestore.ReceiptStatusFeed;
+import dev.pekelund.pklnd.firestore.ReceiptStatusFeed.StatusChange;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Keeps the open Server-Sent Events connections that push receipt status changes to browsers. Emitters
+ * are served asynchronously, so an idle connection holds no request thread. A single scheduler thread
+ * sends heartbeats, which also detects connections the browser has dropped.
+ */
+@Component
+public class ReceiptStatusStreams {
+
+    static final int MAX_CONNECTIONS = 200;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReceiptStatusStreams.class);
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(20);
+    // Below the default Cloud Run request timeout; browsers reconnect on their own once the stream ends.
+    private static final Duration STREAM_TIMEOUT = Duration.ofMinutes(4);
+    private static final long RECONNECT_DELAY_MILLIS = 5_000L;
+
+    private final Optional<ReceiptStatusFeed> statusFeed;
+    private final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ScheduledExecutorService heartbeatScheduler;
+
+    public ReceiptStatusStreams(@Autowired(required = false) ReceiptStatusFeed statusFeed) {
+        this.statusFeed = Optional.ofNullable(statusFeed);
+        this.heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "receipt-status-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = HEARTBEAT_INTERVAL.toMillis();
+        heartbeatScheduler.scheduleAtFixedRate(this::sendHeartbeats, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return statusFeed.isPresent() && statusFeed.get().isEnabled();
+    }
+
+    /**
+     * Opens a stream for the owner, or returns empty when the per-instance connection cap is reached.
+     */
+    Optional<SseEmitter> open(String ownerId) {
+        if (connections.incrementAndGet() > MAX_CONNECTIONS) {
+            connections.decrementAndGet();
+            LOGGER.warn("Rejecting receipt status stream; {} connections already open", MAX_CONNECTIONS);
+            return Optional.empty();
+        }
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT.toMillis());
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicReference<Runnable> unsubscribe = new AtomicReference<>();
+        Runnable cleanup = () -> {
+            if (closed.compareAndSet(false, true)) {
+                emitters.remove(emitter);
+                connections.decrementAndGet();
+                Runnable handle = unsubscribe.getAndSet(null);
+                if (handle != null) {
+                    handle.run();
+                }
+            }
+        };
+        emitter.onCompletion(cleanup);
+        emitter.onTimeout(cleanup);
+        emitter.onError(error -> cleanup.run());
+
+        try {
+            unsubscribe.set(statusFeed.orElseThrow().subscribe(ownerId, new ReceiptStatusFeed.Subscriber() {
+                @Override
+                public void onStatusChange(StatusChange change) {
+                    send(emitter, SseEmitter.event()
+                        .name("status")
+                        .id(change.receiptId())
+                        .data(toEvent(change), MediaType.APPLICATION_JSON));
+                }
+
+                @Override
+                public void onFeedClosed() {
+                    emitter.complete();
+                }
+            }));
+            if (closed.get()) {
+                Runnable handle = unsubscribe.getAndSet(null);
+                if (handle != null) {
+                    handle.run();
+                }
+                return Optional.of(emitter);
+            }
+            emitters.add(emitter);
+            emitter.send(SseEmitter.event().comment("connected").reconnectTime(RECONNECT_DELAY_MILLIS));
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.warn("Failed to open receipt status stream for owner {}", ownerId, ex);
+            cleanup.run();
+            emitter.completeWithError(ex);
+        }
+        return Optional.of(emitter);
+    }
+
+    private void sendHeartbeats() {
+        for (SseEmitter emitter : emitters) {
+            send(emitter, SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    private void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException ex) {
+            LOGGER.debug("Dropping receipt status stream after failed send", ex);
+            emitter.completeWithError(ex);
+        }
+    }
+
+    private ReceiptStatusEvent toEvent(StatusChange change) {
+        return new ReceiptStatusEvent(
+            change.receiptId(),
+            change.objectName(),
+            change.status(),
+            change.statusMessage(),
+            change.updatedAt() != null ? change.updatedAt().toString() : null
+        );
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeatScheduler.shutdownNow();
+        emitters.forEach(SseEmitter::complete);
+    }
+
+    record ReceiptStatusEvent(
+        String receiptId,
+        String objectName,
+        String status,
+        String statusMessage,
+        String updatedAt
+    ) {
+    }
+}
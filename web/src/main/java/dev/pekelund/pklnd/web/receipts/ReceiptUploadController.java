@@ -1,8 +1,8 @@
 package dev.pekelund.pklnd.web.receipts;
 
-import dev.pekelund.pklnd.firestore.ParsedReceipt;
 import dev.pekelund.pklnd.firestore.ReceiptExtractionAccessException;
 import dev.pekelund.pklnd.firestore.ReceiptExtractionService;
+import dev.pekelund.pklnd.firestore.ReceiptSummary;
 import dev.pekelund.pklnd.receipts.ReceiptProcessingClient;
 import dev.pekelund.pklnd.receipts.ReceiptProcessingClient.ProcessingFailure;
 import dev.pekelund.pklnd.receipts.ReceiptProcessingClient.ProcessingResult;
@@ -231,6 +231,10 @@ public class ReceiptUploadController {
                 }
             }
 
+            if (uploadedCount > 0) {
+                receiptExtractionService.ifPresent(service -> service.notifyReceiptsProcessed(uploadedReferences));
+            }
+
             if (!relevantFailures.isEmpty()) {
                 String uploadErrors = formatUploadFailures(relevantFailures);
                 errorMessage = errorMessage != null ? errorMessage + " " + uploadErrors : uploadErrors;
@@ -317,7 +321,7 @@ public class ReceiptUploadController {
         }
 
         boolean parsedReceiptsEnabled = receiptExtractionService.isPresent() && receiptExtractionService.get().isEnabled();
-        List<ParsedReceipt> parsedReceipts = List.of();
+        List<ReceiptSummary> parsedReceipts = List.of();
         String parsedListingError = null;
 
         ReceiptOwner currentOwner = receiptOwnerResolver.resolve(authentication);
@@ -333,8 +337,8 @@ public class ReceiptUploadController {
             if (parsedReceiptsEnabled) {
                 try {
                     parsedReceipts = viewingAll
-                        ? receiptExtractionService.get().listAllReceipts()
-                        : receiptExtractionService.get().listReceiptsForOwner(currentOwner);
+                        ? receiptExtractionService.get().listAllReceiptSummaries()
+                        : receiptExtractionService.get().listReceiptSummariesForOwner(currentOwner);
                 } catch (ReceiptExtractionAccessException ex) {
                     parsedListingError = ex.getMessage();
                     LOGGER.warn("Failed to list parsed receipts", ex);
@@ -342,10 +346,10 @@ public class ReceiptUploadController {
             }
         }
 
-        Map<String, ParsedReceipt> fileStatuses = parsedReceipts.stream()
+        Map<String, ReceiptSummary> fileStatuses = parsedReceipts.stream()
             .filter(parsed -> parsed != null && StringUtils.hasText(parsed.objectName()))
             .collect(Collectors.toMap(
-                ParsedReceipt::objectName,
+                ReceiptSummary::objectName,
                 Function.identity(),
                 (existing, replacement) -> replacement,
                 LinkedHashMap::new
@@ -375,9 +379,9 @@ public class ReceiptUploadController {
         List<ReceiptFile> files,
         String listingError,
         boolean parsedReceiptsEnabled,
-        List<ParsedReceipt> parsedReceipts,
+        List<ReceiptSummary> parsedReceipts,
         String parsedListingError,
-        Map<String, ParsedReceipt> fileStatuses,
+        Map<String, ReceiptSummary> fileStatuses,
         boolean viewingAll
     ) {
     }
@@ -4,7 +4,7 @@ import dev.pekelund.pklnd.firestore.ItemCategorizationService;
 import dev.pekelund.pklnd.firestore.ItemTag;
 import dev.pekelund.pklnd.firestore.FirestoreUserService;
 import dev.pekelund.pklnd.firestore.ParsedReceipt;
-import dev.pekelund.pklnd.firestore.ReceiptExtractionService;
+import dev.pekelund.pklnd.firestore.ReceiptBatchLoader;
 import dev.pekelund.pklnd.firestore.TagService;
 import dev.pekelund.pklnd.storage.ReceiptOwner;
 import dev.pekelund.pklnd.web.DashboardStatisticsService;
@@ -39,7 +39,7 @@ public class StatisticsController {
     private final DashboardStatisticsService dashboardStatisticsService;
     private final TagService tagService;
     private final ItemCategorizationService itemCategorizationService;
-    private final ReceiptExtractionService receiptExtractionService;
+    private final ReceiptBatchLoader receiptBatchLoader;
     private final TagStatisticsService tagStatisticsService;
     private final ReceiptOwnerResolver receiptOwnerResolver;
     private final FirestoreUserService firestoreUserService;
@@ -47,14 +47,14 @@ public class StatisticsController {
     public StatisticsController(DashboardStatisticsService dashboardStatisticsService,
                                 TagService tagService,
                                 ItemCategorizationService itemCategorizationService,
-                                ReceiptExtractionService receiptExtractionService,
+                                ReceiptBatchLoader receiptBatchLoader,
                                 TagStatisticsService tagStatisticsService,
                                 ReceiptOwnerResolver receiptOwnerResolver,
                                 FirestoreUserService firestoreUserService) {
         this.dashboardStatisticsService = dashboardStatisticsService;
         this.tagService = tagService;
         this.itemCategorizationService = itemCategorizationService;
-        this.receiptExtractionService = receiptExtractionService;
+        this.receiptBatchLoader = receiptBatchLoader;
         this.tagStatisticsService = tagStatisticsService;
         this.receiptOwnerResolver = receiptOwnerResolver;
         this.firestoreUserService = firestoreUserService;
@@ -218,15 +218,10 @@ public class StatisticsController {
             taggedItems.stream()
                 .collect(Collectors.groupingBy(ItemCategorizationService.TaggedItemInfo::receiptId));
 
-        List<ReceiptWithTaggedItems> receiptsWithItems = itemsByReceipt.entrySet().stream()
-            .map(entry -> {
-                String receiptId = entry.getKey();
-                List<ItemCategorizationService.TaggedItemInfo> items = entry.getValue();
-
-                ParsedReceipt receipt = receiptExtractionService.findById(receiptId).orElse(null);
+        Map<String, ParsedReceipt> receipts = receiptBatchLoader.loadAll(itemsByReceipt.keySet());
 
-                return new ReceiptWithTaggedItems(receipt, items);
-            })
+        List<ReceiptWithTaggedItems> receiptsWithItems = itemsByReceipt.entrySet().stream()
+            .map(entry -> new ReceiptWithTaggedItems(receipts.get(entry.getKey()), entry.getValue()))
             .filter(r -> r.receipt() != null)
             .sorted((a, b) -> {
                 String dateA = a.receipt().receiptDate();
@@ -0,0 +1,61 @@
+package dev.pekelund.pklnd.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class LocalRateLimitStoreTests {
+
+    private final AtomicLong clock = new AtomicLong(1_000L);
+    private final RateLimitPolicy policy = new RateLimitPolicy("auth", 2, Duration.ofSeconds(2));
+
+    @Test
+    void refillsTokensGraduallyInsteadOfResettingAWindow() {
+        LocalRateLimitStore store = new LocalRateLimitStore(100, clock::get);
+
+        assertThat(store.tryAcquire("client", policy)).isTrue();
+        assertThat(store.tryAcquire("client", policy)).isTrue();
+        assertThat(store.tryAcquire("client", policy)).isFalse();
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(store.tryAcquire("client", policy)).isTrue();
+        assertThat(store.tryAcquire("client", policy)).isFalse();
+    }
+
+    @Test
+    void keepsClientsApart() {
+        LocalRateLimitStore store = new LocalRateLimitStore(100, clock::get);
+        RateLimitPolicy single = new RateLimitPolicy("single", 1, Duration.ofMinutes(1));
+
+        assertThat(store.tryAcquire("a", single)).isTrue();
+        assertThat(store.tryAcquire("a", single)).isFalse();
+        assertThat(store.tryAcquire("b", single)).isTrue();
+    }
+
+    @Test
+    void forgetsRefilledBucketsBeforeActiveOnes() {
+        LocalRateLimitStore store = new LocalRateLimitStore(2, clock::get);
+        RateLimitPolicy single = new RateLimitPolicy("single", 1, Duration.ofSeconds(1));
+        store.tryAcquire("idle", single);
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        store.tryAcquire("active", single);
+
+        store.tryAcquire("new", single);
+
+        assertThat(store.tryAcquire("active", single)).isFalse();
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    void boundsTheNumberOfTrackedClients() {
+        LocalRateLimitStore store = new LocalRateLimitStore(10, clock::get);
+
+        for (int i = 0; i < 1_000; i++) {
+            store.tryAcquire("10.0.0." + i, policy);
+        }
+
+        assertThat(store.size()).isLessThanOrEqualTo(10);
+    }
+}
@@ -1,5 +1,6 @@
 package dev.pekelund.pklnd.config;
 
+import java.time.Duration;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -55,4 +56,24 @@ class RateLimitingInterceptorTest {
         assertThat(interceptor.preHandle(request1, response1, new Object())).isTrue();
         assertThat(interceptor.preHandle(request2, response2, new Object())).isTrue();
     }
+
+    @Test
+    void routePoliciesSharingAStoreKeepSeparateBucketsPerClient() throws Exception {
+        LocalRateLimitStore store = new LocalRateLimitStore(100);
+        RateLimitingInterceptor auth = new RateLimitingInterceptor(
+            new RateLimitPolicy("auth", 1, Duration.ofMinutes(1)), store);
+        RateLimitingInterceptor search = new RateLimitingInterceptor(
+            new RateLimitPolicy("search", 1, Duration.ofMinutes(1)), store);
+
+        MockHttpServletRequest login = new MockHttpServletRequest("GET", "/login");
+        login.setRemoteAddr("10.0.0.1");
+        MockHttpServletRequest query = new MockHttpServletRequest("GET", "/receipts/search");
+        query.setRemoteAddr("10.0.0.1");
+
+        assertThat(auth.preHandle(login, new MockHttpServletResponse(), new Object())).isTrue();
+        assertThat(auth.preHandle(login, new MockHttpServletResponse(), new Object())).isFalse();
+        // The same client still has its own search budget.
+        assertThat(search.preHandle(query, new MockHttpServletResponse(), new Object())).isTrue();
+        assertThat(search.preHandle(query, new MockHttpServletResponse(), new Object())).isFalse();
+    }
 }
@@ -0,0 +1,104 @@
+package dev.pekelund.pklnd.firestore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.EventListener;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+
+class CategoryServiceTests {
+
+    private Query query;
+    private CategoryService service;
+
+    @BeforeEach
+    void setUp() {
+        Firestore firestore = mock(Firestore.class);
+        CollectionReference collection = mock(CollectionReference.class);
+        query = mock(Query.class);
+        when(firestore.collection("categories")).thenReturn(collection);
+        when(collection.orderBy("name")).thenReturn(query);
+        when(query.addSnapshotListener(any())).thenReturn(mock(ListenerRegistration.class));
+
+        QuerySnapshot snapshot = snapshotOf(
+            category("food", "Food", null),
+            category("dairy", "Dairy", "food"),
+            category("cheese", "Cheese", "dairy")
+        );
+        when(query.get()).thenReturn(ApiFutures.immediateFuture(snapshot));
+
+        @SuppressWarnings("unchecked")
+        ObjectProvider<Firestore> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(firestore);
+        service = new CategoryService(provider, mock(FirestoreReadRecorder.class));
+    }
+
+    @Test
+    void servesRepeatedLookupsFromTheCache() {
+        List<Category> categories = service.listCategories();
+        Map<Category, List<Category>> hierarchy = service.getCategoriesHierarchy(categories);
+
+        assertThat(service.listCategories()).isSameAs(categories);
+        assertThat(service.findById("dairy")).map(Category::name).contains("Dairy");
+        assertThat(hierarchy.keySet()).extracting(Category::id).containsExactly("food");
+        assertThat(hierarchy.values().iterator().next()).extracting(Category::id).containsExactly("dairy");
+        verify(query, times(1)).get();
+    }
+
+    @Test
+    void rejectsMovingACategoryBelowItsOwnDescendant() {
+        assertThatThrownBy(() -> service.updateCategory("food", null, "cheese"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("descendant");
+    }
+
+    @Test
+    void appliesListenerUpdatesWithoutQuerying() {
+        service.listCategories();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<EventListener<QuerySnapshot>> listener = ArgumentCaptor.forClass(EventListener.class);
+        verify(query).addSnapshotListener(listener.capture());
+        listener.getValue().onEvent(snapshotOf(category("drinks", "Drinks", null)), null);
+
+        assertThat(service.listCategories()).extracting(Category::id).containsExactly("drinks");
+        verify(query, times(1)).get();
+    }
+
+    private static QuerySnapshot snapshotOf(QueryDocumentSnapshot... documents) {
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.getDocuments()).thenReturn(Arrays.asList(documents));
+        when(snapshot.size()).thenReturn(documents.length);
+        return snapshot;
+    }
+
+    private static QueryDocumentSnapshot category(String id, String name, String parentId) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("name", name);
+        data.put("parentId", parentId);
+        QueryDocumentSnapshot document = mock(QueryDocumentSnapshot.class);
+        when(document.getId()).thenReturn(id);
+        when(document.exists()).thenReturn(true);
+        when(document.getData()).thenReturn(data);
+        return document;
+    }
+}
@@ -0,0 +1,151 @@
+package dev.pekelund.pklnd.firestore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.CollectionGroup;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QueryPartition;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteResult;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DocumentMigrationEngineTests {
+
+    private final FirestoreProperties properties = new FirestoreProperties();
+    private final FirestoreReadRecorder readRecorder = mock(FirestoreReadRecorder.class);
+    private final Firestore firestore = mock(Firestore.class);
+    private final CollectionGroup items = mock(CollectionGroup.class, RETURNS_SELF);
+    private final DocumentMigrationEngine engine = new DocumentMigrationEngine(properties, readRecorder);
+
+    private final DocumentMigration migration = new DocumentMigration() {
+        @Override
+        public int version() {
+            return 7;
+        }
+
+        @Override
+        public String description() {
+            return "Backfill owner prefix";
+        }
+
+        @Override
+        public String collectionGroup() {
+            return "receiptItems";
+        }
+
+        @Override
+        public void migrate(QueryDocumentSnapshot document, MigrationWriter writer) {
+            if (document.getString("owner") == null) {
+                writer.merge(document.getReference(), Map.of("owner", "unknown"));
+            }
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        properties.setMigrationPageSize(2);
+        when(firestore.collectionGroup("receiptItems")).thenReturn(items);
+    }
+
+    @Test
+    void dryRunCountsScannedDocumentsAndWritesWithoutWriting() {
+        when(items.getPartitions(anyLong()))
+            .thenReturn(ApiFutures.immediateFuture(List.of(new QueryPartition(items, null, null))));
+        QuerySnapshot firstPage = page(document("receiptItems/a", null), document("receiptItems/b", "owner"));
+        QuerySnapshot lastPage = page(document("receiptItems/c", null));
+        when(items.get()).thenReturn(ApiFutures.immediateFuture(firstPage), ApiFutures.immediateFuture(lastPage));
+
+        DocumentMigrationEngine.MigrationResult result = engine.run(firestore, migration, null, true);
+
+        assertThat(result.scanned()).isEqualTo(3);
+        assertThat(result.writes()).isEqualTo(2);
+        assertThat(result.dryRun()).isTrue();
+        verify(firestore, never()).bulkWriter();
+        verify(firestore, never()).collection(anyString());
+    }
+
+    @Test
+    void resumesAfterStoredCursorAndCheckpointsFlushedPages() {
+        CollectionReference checkpoints = mock(CollectionReference.class);
+        DocumentReference checkpointDocument = mock(DocumentReference.class);
+        CollectionReference migrations = mock(CollectionReference.class);
+        DocumentReference versionDocument = mock(DocumentReference.class);
+        when(firestore.collection(DocumentMigrationEngine.MIGRATIONS_COLLECTION)).thenReturn(migrations);
+        when(migrations.document("7")).thenReturn(versionDocument);
+        when(versionDocument.collection(DocumentMigrationEngine.CHECKPOINTS_COLLECTION)).thenReturn(checkpoints);
+        when(checkpoints.document("0")).thenReturn(checkpointDocument);
+        when(checkpointDocument.set(anyMap())).thenReturn(ApiFutures.immediateFuture(mock(WriteResult.class)));
+
+        QueryDocumentSnapshot stored = mock(QueryDocumentSnapshot.class);
+        when(stored.getLong("partition")).thenReturn(0L);
+        when(stored.getString("lastDocument")).thenReturn("receiptItems/b");
+        when(stored.getLong("scanned")).thenReturn(2L);
+        when(stored.getLong("writes")).thenReturn(1L);
+        when(stored.getBoolean("completed")).thenReturn(false);
+        QuerySnapshot storedCheckpoints = page(stored);
+        when(checkpoints.get()).thenReturn(ApiFutures.immediateFuture(storedCheckpoints));
+
+        DocumentReference cursor = mock(DocumentReference.class);
+        when(firestore.document("receiptItems/b")).thenReturn(cursor);
+        QuerySnapshot lastPage = page(document("receiptItems/c", null));
+        when(items.get()).thenReturn(ApiFutures.immediateFuture(lastPage));
+
+        BulkWriter bulkWriter = mock(BulkWriter.class);
+        when(firestore.bulkWriter()).thenReturn(bulkWriter);
+        when(bulkWriter.set(any(DocumentReference.class), anyMap(), any(SetOptions.class)))
+            .thenReturn(ApiFutures.immediateFuture(mock(WriteResult.class)));
+        when(bulkWriter.flush()).thenReturn(ApiFutures.immediateFuture(null));
+
+        MigrationLease lease = mock(MigrationLease.class);
+        DocumentMigrationEngine.MigrationResult result = engine.run(firestore, migration, lease, false);
+
+        assertThat(result.scanned()).isEqualTo(3);
+        assertThat(result.writes()).isEqualTo(2);
+        verify(items).startAfter(cursor);
+        verify(items, never()).getPartitions(anyLong());
+        verify(bulkWriter).flush();
+        verify(checkpointDocument).set(argThat((Map<String, Object> payload) ->
+            Boolean.TRUE.equals(payload.get("completed"))
+                && "receiptItems/c".equals(payload.get("lastDocument"))
+                && Long.valueOf(3).equals(payload.get("scanned"))));
+        verify(lease).renewIfDue();
+        verify(readRecorder).record(eq("Migration page"), eq(1L), anyLong());
+    }
+
+    private static QuerySnapshot page(QueryDocumentSnapshot... documents) {
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.getDocuments()).thenReturn(List.of(documents));
+        when(snapshot.size()).thenReturn(documents.length);
+        when(snapshot.isEmpty()).thenReturn(documents.length == 0);
+        return snapshot;
+    }
+
+    private static QueryDocumentSnapshot document(String path, String owner) {
+        QueryDocumentSnapshot document = mock(QueryDocumentSnapshot.class);
+        DocumentReference reference = mock(DocumentReference.class);
+        when(reference.getPath()).thenReturn(path);
+        when(document.getReference()).thenReturn(reference);
+        when(document.getString("owner")).thenReturn(owner);
+        return document;
+    }
+}
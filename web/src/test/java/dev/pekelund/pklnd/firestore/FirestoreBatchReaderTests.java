@@ -0,0 +1,107 @@
+package dev.pekelund.pklnd.firestore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+class FirestoreBatchReaderTests {
+
+    @Test
+    void deduplicatesIdsAndReturnsExistingDocumentsInRequestOrder() throws Exception {
+        Firestore firestore = mockFirestore();
+        FirestoreReadRecorder recorder = mock(FirestoreReadRecorder.class);
+        FirestoreBatchReader reader = reader(firestore, 2, 8, recorder);
+
+        Map<String, DocumentSnapshot> documents = reader.getAll("receipts",
+            List.of("c", "a", "c", " ", "missing", "b"), "Load receipts");
+
+        assertThat(documents.keySet()).containsExactly("c", "a", "b");
+        verify(firestore, times(2)).getAll(any(DocumentReference[].class));
+        verify(recorder).record(isNull(), eq("Load receipts"), eq(2L), anyLong());
+        verify(recorder).record(isNull(), eq("Load receipts"), eq(1L), anyLong());
+    }
+
+    @Test
+    void processesAllChunksWhenMoreChunksThanInFlightLimit() throws Exception {
+        Firestore firestore = mockFirestore();
+        FirestoreBatchReader reader = reader(firestore, 1, 2, mock(FirestoreReadRecorder.class));
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            ids.add("doc-" + i);
+        }
+        Map<String, DocumentSnapshot> documents = reader.getAll("receipts", ids, "Load receipts");
+
+        assertThat(documents.keySet()).containsExactlyElementsOf(ids);
+        verify(firestore, times(7)).getAll(any(DocumentReference[].class));
+    }
+
+    @Test
+    void failsWhenAnyChunkFails() {
+        Firestore firestore = mockFirestore();
+        when(firestore.getAll(any(DocumentReference[].class)))
+            .thenReturn(ApiFutures.immediateFailedFuture(new IllegalStateException("unavailable")));
+        FirestoreBatchReader reader = reader(firestore, 10, 8, mock(FirestoreReadRecorder.class));
+
+        assertThatThrownBy(() -> reader.getAll("receipts", List.of("a"), "Load receipts"))
+            .isInstanceOf(ExecutionException.class)
+            .hasRootCauseMessage("unavailable");
+    }
+
+    private static FirestoreBatchReader reader(Firestore firestore, int chunkSize, int maxInFlight,
+        FirestoreReadRecorder recorder) {
+        FirestoreProperties properties = new FirestoreProperties();
+        properties.setBatchGetChunkSize(chunkSize);
+        properties.setBatchGetMaxInFlight(maxInFlight);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<Firestore> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(firestore);
+        return new FirestoreBatchReader(provider, properties, recorder);
+    }
+
+    private static Firestore mockFirestore() {
+        Firestore firestore = mock(Firestore.class);
+        CollectionReference collection = mock(CollectionReference.class);
+        when(firestore.collection(anyString())).thenReturn(collection);
+        when(collection.document(anyString())).thenAnswer(invocation -> {
+            DocumentReference reference = mock(DocumentReference.class);
+            when(reference.getId()).thenReturn(invocation.getArgument(0));
+            return reference;
+        });
+        when(firestore.getAll(any(DocumentReference[].class))).thenAnswer(invocation -> {
+            List<DocumentSnapshot> snapshots = Arrays.stream(invocation.getArguments())
+                .map(DocumentReference.class::cast)
+                .map(DocumentReference::getId)
+                .map(id -> {
+                    DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+                    when(snapshot.getId()).thenReturn(id);
+                    when(snapshot.exists()).thenReturn(!"missing".equals(id));
+                    return snapshot;
+                })
+                .toList();
+            return ApiFutures.immediateFuture(snapshots);
+        });
+        return firestore;
+    }
+}
@@ -0,0 +1,50 @@
+package dev.pekelund.pklnd.firestore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.firestore.AggregateQuery;
+import com.google.cloud.firestore.AggregateQuerySnapshot;
+import com.google.cloud.firestore.Query;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class FirestoreCounterTests {
+
+    private final FirestoreProperties properties = new FirestoreProperties();
+    private final FirestoreCounter counter = new FirestoreCounter(properties, mock(FirestoreReadRecorder.class));
+    private final Query query = mock(Query.class);
+    private final AggregateQuery countQuery = mock(AggregateQuery.class);
+
+    @Test
+    void countsReadBeforeTheCacheWasClearedAreNotCached() throws Exception {
+        properties.setCountCacheTtl(Duration.ofMinutes(1));
+        SettableApiFuture<AggregateQuerySnapshot> staleRead = SettableApiFuture.create();
+        when(query.count()).thenReturn(countQuery);
+        when(countQuery.get())
+            .thenReturn(staleRead)
+            .thenReturn(ApiFutures.immediateFuture(countSnapshot(4)));
+
+        CompletableFuture<Long> stale = counter.countAsync("receipts", query, "Count receipts");
+        counter.onReceiptChange(ReceiptChangeEvent.removed("owner-1", List.of("receipt-1")));
+        staleRead.set(countSnapshot(5));
+
+        assertThat(stale.get()).isEqualTo(5L);
+        assertThat(counter.count("receipts", query, "Count receipts")).isEqualTo(4L);
+        assertThat(counter.count("receipts", query, "Count receipts")).isEqualTo(4L);
+        verify(countQuery, times(2)).get();
+    }
+
+    private static AggregateQuerySnapshot countSnapshot(long count) {
+        AggregateQuerySnapshot snapshot = mock(AggregateQuerySnapshot.class);
+        when(snapshot.getCount()).thenReturn(count);
+        return snapshot;
+    }
+}
@@ -0,0 +1,105 @@
+package dev.pekelund.pklnd.firestore;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Transaction;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+class FirestoreMigrationRunnerTests {
+
+    private final FirestoreProperties properties = new FirestoreProperties();
+    private final Firestore firestore = mock(Firestore.class);
+    private final CollectionReference migrations = mock(CollectionReference.class);
+    private final DocumentReference leaseDocument = mock(DocumentReference.class);
+    private final DocumentReference versionDocument = mock(DocumentReference.class);
+    private final Transaction transaction = mock(Transaction.class);
+    private final FirestoreMigration migration = mock(FirestoreMigration.class);
+    private FirestoreMigrationRunner runner;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setMigrationLeasePollInterval(Duration.ZERO);
+        when(migration.version()).thenReturn(3);
+        when(firestore.collection(DocumentMigrationEngine.MIGRATIONS_COLLECTION)).thenReturn(migrations);
+        when(migrations.document("lease")).thenReturn(leaseDocument);
+        when(migrations.document("3")).thenReturn(versionDocument);
+        when(firestore.runTransaction(any(Transaction.Function.class))).thenAnswer(invocation ->
+            ApiFutures.immediateFuture(((Transaction.Function<Object>) invocation.getArgument(0))
+                .updateCallback(transaction)));
+
+        ObjectProvider<Firestore> firestoreProvider = mock(ObjectProvider.class);
+        when(firestoreProvider.getIfAvailable()).thenReturn(firestore);
+        runner = new FirestoreMigrationRunner(
+            properties, firestoreProvider, List.of(migration), mock(DocumentMigrationEngine.class)
+        );
+    }
+
+    @Test
+    void waitsForTheLeaseHolderInsteadOfReportingMigrationsDone() throws Exception {
+        DocumentSnapshot heldLease = leaseSnapshot(Timestamp.ofTimeSecondsAndNanos(Timestamp.now().getSeconds() + 60, 0));
+        when(transaction.get(leaseDocument)).thenReturn(ApiFutures.immediateFuture(heldLease));
+        DocumentSnapshot pending = versionSnapshot(false);
+        DocumentSnapshot applied = versionSnapshot(true);
+        when(firestore.getAll(any(DocumentReference[].class)))
+            .thenReturn(ApiFutures.immediateFuture(List.of(pending)))
+            .thenReturn(ApiFutures.immediateFuture(List.of(pending)))
+            .thenReturn(ApiFutures.immediateFuture(List.of(applied)));
+
+        runner.runMigrations();
+
+        verify(firestore, times(3)).getAll(any(DocumentReference[].class));
+        verify(firestore, times(2)).runTransaction(any(Transaction.Function.class));
+        verify(migration, never()).apply(any());
+    }
+
+    @Test
+    void takesTheLeaseOverOnceItExpiresAndAppliesPendingMigrations() throws Exception {
+        DocumentSnapshot heldLease = leaseSnapshot(Timestamp.ofTimeSecondsAndNanos(Timestamp.now().getSeconds() + 60, 0));
+        DocumentSnapshot expiredLease = leaseSnapshot(Timestamp.ofTimeSecondsAndNanos(Timestamp.now().getSeconds() - 60, 0));
+        when(transaction.get(leaseDocument))
+            .thenReturn(ApiFutures.immediateFuture(heldLease))
+            .thenReturn(ApiFutures.immediateFuture(expiredLease));
+        DocumentSnapshot pending = versionSnapshot(false);
+        when(firestore.getAll(any(DocumentReference[].class))).thenReturn(ApiFutures.immediateFuture(List.of(pending)));
+        when(versionDocument.set(anyMap())).thenReturn(ApiFutures.immediateFuture(null));
+
+        runner.runMigrations();
+
+        verify(migration).apply(firestore);
+        verify(versionDocument).set(anyMap());
+    }
+
+    private static DocumentSnapshot leaseSnapshot(Timestamp expiresAt) {
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.exists()).thenReturn(true);
+        when(snapshot.getString(anyString())).thenReturn("other-instance");
+        when(snapshot.getTimestamp("expiresAt")).thenReturn(expiresAt);
+        return snapshot;
+    }
+
+    private static DocumentSnapshot versionSnapshot(boolean exists) {
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.exists()).thenReturn(exists);
+        when(snapshot.getId()).thenReturn("3");
+        return snapshot;
+    }
+}
@@ -3,9 +3,14 @@ package dev.pekelund.pklnd.firestore;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.ObjectProvider;
@@ -31,7 +36,7 @@ class FirestoreReadRecorderTests {
         ObjectProvider<FirestoreReadTracker> provider = mock(ObjectProvider.class);
         when(provider.getIfAvailable()).thenReturn(tracker);
 
-        FirestoreReadRecorder recorder = new FirestoreReadRecorder(provider, totals);
+        FirestoreReadRecorder recorder = new FirestoreReadRecorder(provider, totals, new FirestoreReadMetrics(new SimpleMeterRegistry()));
         recorder.record("Test operation", 5L);
 
         assertThat(tracker.getReadCount()).isEqualTo(5L);
@@ -49,10 +54,13 @@ class FirestoreReadRecorderTests {
         ObjectProvider<FirestoreReadTracker> provider = mock(ObjectProvider.class);
         when(provider.getIfAvailable()).thenReturn(null);
 
-        FirestoreReadRecorder recorder = new FirestoreReadRecorder(provider, totals);
+        FirestoreReadRecorder recorder = new FirestoreReadRecorder(provider, totals, new FirestoreReadMetrics(new SimpleMeterRegistry()));
         recorder.record("Request task", 3L);
 
         assertThat(totals.getTotalReads()).isEqualTo(3L);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        totals.bindTo(registry);
+        assertThat(registry.get(FirestoreReadTotals.TOTAL_READS).functionCounter().count()).isEqualTo(3.0);
     }
 
     @Test
@@ -61,10 +69,73 @@ class FirestoreReadRecorderTests {
         @SuppressWarnings("unchecked")
         ObjectProvider<FirestoreReadTracker> provider = mock(ObjectProvider.class);
 
-        FirestoreReadRecorder recorder = new FirestoreReadRecorder(provider, totals);
+        FirestoreReadRecorder recorder = new FirestoreReadRecorder(provider, totals, new FirestoreReadMetrics(new SimpleMeterRegistry()));
         recorder.record("Background task", 3L);
 
         assertThat(totals.getTotalReads()).isEqualTo(3L);
         verify(provider, never()).getIfAvailable();
     }
+
+    @Test
+    void billsAggregationsPerStartedThousandMatches() {
+        FirestoreReadTotals totals = new FirestoreReadTotals();
+        @SuppressWarnings("unchecked")
+        ObjectProvider<FirestoreReadTracker> provider = mock(ObjectProvider.class);
+
+        FirestoreReadRecorder recorder = new FirestoreReadRecorder(provider, totals, new FirestoreReadMetrics(new SimpleMeterRegistry()));
+        recorder.recordAggregation("Count nothing", 0L);
+        recorder.recordAggregation("Count users", 1000L);
+        recorder.recordAggregation("Count receipts", 2001L);
+
+        assertThat(totals.getTotalReads()).isEqualTo(5L);
+    }
+
+    @Test
+    void resolvesTheRequestTrackerOncePerRequest() {
+        RequestContextHolder.setRequestAttributes(
+            new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        FirestoreReadTotals totals = new FirestoreReadTotals();
+        FirestoreReadTracker tracker = new FirestoreReadTracker(totals);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<FirestoreReadTracker> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(tracker);
+
+        FirestoreReadRecorder recorder = new FirestoreReadRecorder(provider, totals,
+            new FirestoreReadMetrics(new SimpleMeterRegistry()));
+        recorder.record("Load receipt", 1L);
+        recorder.record("Load receipt", 1L);
+        recorder.record("Load item stats", 4L);
+
+        verify(provider, times(1)).getIfAvailable();
+        assertThat(tracker.getReadOperations())
+            .extracting(FirestoreReadTracker.ReadOperation::calls)
+            .containsExactly(2L, 1L);
+    }
+
+    @Test
+    void publishesReadsAndLatencyPerOperation() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        @SuppressWarnings("unchecked")
+        ObjectProvider<FirestoreReadTracker> provider = mock(ObjectProvider.class);
+
+        FirestoreReadRecorder recorder = new FirestoreReadRecorder(provider, new FirestoreReadTotals(),
+            new FirestoreReadMetrics(registry));
+        recorder.record("Load receipt", 1L, TimeUnit.MILLISECONDS.toNanos(5));
+        recorder.record("Load receipt", 1L, TimeUnit.MILLISECONDS.toNanos(7));
+        recorder.record("Load item stats", 30L);
+
+        DistributionSummary receiptReads = registry.get(FirestoreReadMetrics.OPERATION_READS)
+            .tag("operation", "Load receipt").summary();
+        assertThat(receiptReads.count()).isEqualTo(2L);
+        assertThat(receiptReads.totalAmount()).isEqualTo(2.0);
+        Timer receiptLatency = registry.get(FirestoreReadMetrics.OPERATION_LATENCY)
+            .tag("operation", "Load receipt").timer();
+        assertThat(receiptLatency.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(12.0);
+        assertThat(registry.get(FirestoreReadMetrics.OPERATION_LATENCY)
+            .tag("operation", "Load item stats").timer().count()).isZero();
+        // Per-operation meters publish a few fixed buckets rather than a full percentile histogram.
+        assertThat(receiptReads.takeSnapshot().histogramCounts()).hasSize(4);
+        assertThat(receiptLatency.takeSnapshot().histogramCounts()).hasSize(4);
+    }
 }
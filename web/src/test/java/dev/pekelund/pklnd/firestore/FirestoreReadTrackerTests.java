@@ -2,6 +2,11 @@ package dev.pekelund.pklnd.firestore;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.jupiter.api.Test;
 
 class FirestoreReadTrackerTests {
@@ -24,4 +29,25 @@ class FirestoreReadTrackerTests {
             .extracting(FirestoreReadTracker.ReadOperation::readUnits)
             .containsExactly(1L, 5L, 0L);
     }
+
+    @Test
+    void recordReadKeepsEveryReadFromConcurrentCallbacks() {
+        FirestoreReadTotals totals = new FirestoreReadTotals();
+        FirestoreReadTracker tracker = new FirestoreReadTracker(totals);
+
+        try (ExecutorService callbacks = Executors.newFixedThreadPool(8)) {
+            List<CompletableFuture<Void>> reads = new ArrayList<>();
+            for (int chunk = 0; chunk < 8; chunk++) {
+                reads.add(CompletableFuture.runAsync(() -> {
+                    for (int read = 0; read < 1_000; read++) {
+                        tracker.recordRead("Chunk read");
+                    }
+                }, callbacks));
+            }
+            CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new)).join();
+        }
+
+        assertThat(tracker.getReadCount()).isEqualTo(8_000);
+        assertThat(totals.getTotalReads()).isEqualTo(8_000);
+    }
 }
@@ -0,0 +1,42 @@
+package dev.pekelund.pklnd.firestore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.boot.actuate.health.Status;
+
+class FirestoreStartupTasksTests {
+
+    private final FirestoreMigrationRunner migrationRunner = mock(FirestoreMigrationRunner.class);
+    private final CategoryTagInitializer categoryTagInitializer = mock(CategoryTagInitializer.class);
+    private final FirestoreStartupTasks tasks = new FirestoreStartupTasks(migrationRunner, categoryTagInitializer);
+
+    @Test
+    void migratesBeforeSeedingAndReportsCompletion() {
+        assertThat(tasks.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        tasks.runTasks();
+
+        InOrder order = inOrder(migrationRunner, categoryTagInitializer);
+        order.verify(migrationRunner).runMigrations();
+        order.verify(categoryTagInitializer).initializePredefinedData();
+        assertThat(tasks.health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    void failedMigrationsSkipSeedingAndReportDown() {
+        doThrow(new IllegalStateException("Firestore migration failed")).when(migrationRunner).runMigrations();
+
+        tasks.runTasks();
+
+        verify(categoryTagInitializer, never()).initializePredefinedData();
+        assertThat(tasks.health().getStatus()).isEqualTo(Status.DOWN);
+        assertThat(tasks.health().getDetails()).containsEntry("error", "Firestore migration failed");
+    }
+}
@@ -0,0 +1,87 @@
+package dev.pekelund.pklnd.firestore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+
+class FirestoreUserAuthoritiesMapperTests {
+
+    private Query byEmail;
+    private UserProfileCache profileCache;
+    private FirestoreUserAuthoritiesMapper mapper;
+
+    @BeforeEach
+    void setUp() {
+        Firestore firestore = mock(Firestore.class);
+        CollectionReference users = mock(CollectionReference.class);
+        byEmail = mock(Query.class);
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        QueryDocumentSnapshot document = mock(QueryDocumentSnapshot.class);
+        when(firestore.collection("users")).thenReturn(users);
+        when(users.whereEqualTo("email", "user@example.com")).thenReturn(byEmail);
+        when(byEmail.limit(1)).thenReturn(byEmail);
+        when(byEmail.get()).thenReturn(ApiFutures.immediateFuture(snapshot));
+        when(snapshot.isEmpty()).thenReturn(false);
+        when(snapshot.size()).thenReturn(1);
+        when(snapshot.getDocuments()).thenReturn(List.of(document));
+        when(document.getId()).thenReturn("user-1");
+        when(document.get("roles")).thenReturn(List.of("ROLE_USER", "ROLE_EDITOR"));
+        when(document.getString("fullName")).thenReturn("Example User");
+
+        @SuppressWarnings("unchecked")
+        ObjectProvider<Firestore> firestoreProvider = mock(ObjectProvider.class);
+        when(firestoreProvider.getIfAvailable()).thenReturn(firestore);
+        FirestoreProperties properties = new FirestoreProperties();
+        properties.setEnabled(true);
+        profileCache = new UserProfileCache(properties);
+        mapper = new FirestoreUserAuthoritiesMapper(properties, firestoreProvider,
+            mock(FirestoreReadRecorder.class), profileCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mapper.shutdown();
+    }
+
+    @Test
+    void returningUsersAreMappedFromTheCache() {
+        Collection<? extends GrantedAuthority> first = mapper.mapAuthorities(oauthLogin());
+        Collection<? extends GrantedAuthority> second = mapper.mapAuthorities(oauthLogin());
+
+        assertThat(AuthorityUtils.authorityListToSet(second)).contains("ROLE_USER", "ROLE_EDITOR");
+        assertThat(AuthorityUtils.authorityListToSet(second)).isEqualTo(AuthorityUtils.authorityListToSet(first));
+        verify(byEmail, times(1)).get();
+    }
+
+    @Test
+    void invalidatedUsersAreLoadedAgain() {
+        mapper.mapAuthorities(oauthLogin());
+        profileCache.invalidate("user@example.com");
+        mapper.mapAuthorities(oauthLogin());
+
+        verify(byEmail, times(2)).get();
+    }
+
+    private static List<GrantedAuthority> oauthLogin() {
+        return List.of(new OAuth2UserAuthority(Map.of("email", "User@Example.com", "name", "Example User")));
+    }
+}
@@ -0,0 +1,55 @@
+package dev.pekelund.pklnd.firestore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class ReceiptBatchLoaderTests {
+
+    @Test
+    void fetchesPrimedAndRequestedIdsInOneBatch() {
+        ReceiptExtractionService receiptExtractionService = mock(ReceiptExtractionService.class);
+        ParsedReceipt first = receipt("receipt-1");
+        ParsedReceipt second = receipt("receipt-2");
+        when(receiptExtractionService.findByIds(any())).thenReturn(List.of(second, first));
+        ReceiptBatchLoader loader = new ReceiptBatchLoader(receiptExtractionService);
+
+        loader.prime(List.of("receipt-1", "missing"));
+        Map<String, ParsedReceipt> receipts = loader.loadAll(List.of("receipt-2", "receipt-1"));
+
+        assertThat(receipts.keySet()).containsExactly("receipt-2", "receipt-1");
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(receiptExtractionService).findByIds(ids.capture());
+        assertThat(ids.getValue()).containsExactly("receipt-1", "missing", "receipt-2");
+    }
+
+    @Test
+    void servesRepeatedAndMissingIdsFromMemory() {
+        ReceiptExtractionService receiptExtractionService = mock(ReceiptExtractionService.class);
+        ParsedReceipt receipt = receipt("receipt-1");
+        when(receiptExtractionService.findByIds(any())).thenReturn(List.of(receipt));
+        ReceiptBatchLoader loader = new ReceiptBatchLoader(receiptExtractionService);
+
+        loader.loadAll(List.of("receipt-1", "missing"));
+
+        assertThat(loader.load("receipt-1")).map(ParsedReceipt::id).contains("receipt-1");
+        assertThat(loader.load("missing")).isEmpty();
+        verify(receiptExtractionService, times(1)).findByIds(any());
+    }
+
+    private static ParsedReceipt receipt(String id) {
+        ParsedReceipt receipt = mock(ParsedReceipt.class);
+        when(receipt.id()).thenReturn(id);
+        return receipt;
+    }
+}
@@ -0,0 +1,41 @@
+package dev.pekelund.pklnd.firestore;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ReceiptItemCountMigrationTests {
+
+    private final ReceiptItemCountMigration migration = new ReceiptItemCountMigration(new FirestoreProperties());
+    private final MigrationWriter writer = mock(MigrationWriter.class);
+
+    @Test
+    void storesTheNumberOfListedItems() {
+        QueryDocumentSnapshot receipt = mock(QueryDocumentSnapshot.class);
+        DocumentReference reference = mock(DocumentReference.class);
+        when(receipt.getReference()).thenReturn(reference);
+        when(receipt.get("data.items")).thenReturn(List.of(Map.of("name", "Mjölk"), Map.of(), Map.of("name", "Bröd")));
+
+        migration.migrate(receipt, writer);
+
+        verify(writer).update(reference, Map.of("itemCount", 3L));
+    }
+
+    @Test
+    void leavesReceiptsThatAlreadyHaveACountAlone() {
+        QueryDocumentSnapshot receipt = mock(QueryDocumentSnapshot.class);
+        when(receipt.contains("itemCount")).thenReturn(true);
+
+        migration.migrate(receipt, writer);
+
+        verify(writer, never()).update(any(), any());
+    }
+}
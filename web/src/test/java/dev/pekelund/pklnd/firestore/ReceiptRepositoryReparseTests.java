@@ -0,0 +1,64 @@
+package dev.pekelund.pklnd.firestore;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteBatch;
+import dev.pekelund.pklnd.storage.ReceiptOwner;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+
+class ReceiptRepositoryReparseTests {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reparseResetsTheReceiptWithoutTouchingItsItems() {
+        Firestore firestore = mock(Firestore.class);
+        CollectionReference receipts = mock(CollectionReference.class);
+        CollectionReference payloads = mock(CollectionReference.class);
+        DocumentReference receipt = mock(DocumentReference.class);
+        DocumentReference payload = mock(DocumentReference.class);
+        WriteBatch batch = mock(WriteBatch.class);
+        when(firestore.collection("receiptExtractions")).thenReturn(receipts);
+        when(firestore.collection("receiptPayloads")).thenReturn(payloads);
+        when(receipts.document("receipt-1")).thenReturn(receipt);
+        when(payloads.document("receipt-1")).thenReturn(payload);
+        when(firestore.batch()).thenReturn(batch);
+        when(batch.commit()).thenReturn(ApiFutures.immediateFuture(List.of()));
+
+        FirestoreProperties properties = new FirestoreProperties();
+        properties.setReceiptsCollection("receiptExtractions");
+        properties.setReceiptPayloadsCollection("receiptPayloads");
+        ObjectProvider<Firestore> firestoreProvider = mock(ObjectProvider.class);
+        when(firestoreProvider.getIfAvailable()).thenReturn(firestore);
+        ReceiptRepository repository = new ReceiptRepository(properties, firestoreProvider,
+            mock(FirestoreReadRecorder.class), mock(FirestoreBatchReader.class), mock(FirestoreCounter.class),
+            mock(ApplicationEventPublisher.class));
+
+        repository.prepareReceiptForReparse(receipt("receipt-1"));
+
+        verify(batch).set(eq(receipt), anyMap(), any(SetOptions.class));
+        verify(batch).delete(payload);
+        verify(firestore, never()).collection(properties.getReceiptItemsCollection());
+        verify(firestore, never()).collection(properties.getItemStatsCollection());
+        verify(firestore, never()).collection(properties.getPriceHistoryCollection());
+    }
+
+    private static ParsedReceipt receipt(String id) {
+        return new ParsedReceipt(id, "bucket", "receipt.pdf", "gs://bucket/receipt.pdf",
+            new ReceiptOwner("owner-1", "Owner", "owner@example.com"), "COMPLETED", null, null, null, null, null,
+            null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,88 @@
+package dev.pekelund.pklnd.firestore;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.EventListener;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Query;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+class ReceiptStatusFeedTests {
+
+    private Query byOwner;
+    private ListenerRegistration registration;
+    private ObjectProvider<Firestore> firestoreProvider;
+    private ReceiptStatusFeed feed;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        Firestore firestore = mock(Firestore.class);
+        CollectionReference receipts = mock(CollectionReference.class);
+        byOwner = mock(Query.class);
+        registration = mock(ListenerRegistration.class);
+        when(firestore.collection("receiptExtractions")).thenReturn(receipts);
+        when(receipts.whereEqualTo("owner.id", "owner-1")).thenReturn(byOwner);
+        when(byOwner.addSnapshotListener(any(EventListener.class))).thenReturn(registration);
+
+        firestoreProvider = mock(ObjectProvider.class);
+        when(firestoreProvider.getIfAvailable()).thenReturn(firestore);
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.shutdown();
+    }
+
+    @Test
+    void reconnectWithinTheGracePeriodReusesTheListener() {
+        feed = newFeed(Duration.ofMinutes(1));
+
+        feed.subscribe("owner-1", subscriber()).run();
+        feed.subscribe("owner-1", subscriber());
+
+        verify(byOwner, times(1)).addSnapshotListener(any(EventListener.class));
+        verify(registration, never()).remove();
+    }
+
+    @Test
+    void listenerIsRemovedOnceTheGracePeriodPassesWithoutSubscribers() {
+        feed = newFeed(Duration.ofMillis(20));
+
+        feed.subscribe("owner-1", subscriber()).run();
+
+        verify(registration, timeout(2_000)).remove();
+        feed.subscribe("owner-1", subscriber());
+        verify(byOwner, times(2)).addSnapshotListener(any(EventListener.class));
+    }
+
+    private ReceiptStatusFeed newFeed(Duration gracePeriod) {
+        FirestoreProperties properties = new FirestoreProperties();
+        properties.setReceiptsCollection("receiptExtractions");
+        return new ReceiptStatusFeed(firestoreProvider, properties, mock(FirestoreReadRecorder.class), gracePeriod);
+    }
+
+    private static ReceiptStatusFeed.Subscriber subscriber() {
+        return new ReceiptStatusFeed.Subscriber() {
+            @Override
+            public void onStatusChange(ReceiptStatusFeed.StatusChange change) {
+            }
+
+            @Override
+            public void onFeedClosed() {
+            }
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package dev.pekelund.pklnd.firestore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ReceiptSummaryTest {
+
+    @Test
+    void formatsTotalsWrittenAsSwedishDecimalText() {
+        ReceiptSummary summary = summary(Map.of("storeName", "ICA Nära", "totalAmount", "1 234,5"));
+
+        assertThat(summary.totalAmountValue()).isEqualByComparingTo(new BigDecimal("1234.5"));
+        assertThat(summary.formattedTotalAmount()).isEqualTo("1234.50");
+        assertThat(summary.displayName()).isEqualTo("ICA Nära");
+    }
+
+    @Test
+    void fallsBackToFileAndObjectNamesWithoutStoreName() {
+        assertThat(summary(Map.of("fileName", "kvitto.pdf")).displayName()).isEqualTo("kvitto.pdf");
+        assertThat(summary(Map.of()).displayName()).isEqualTo("receipts/kvitto.pdf");
+        assertThat(summary(Map.of()).formattedTotalAmount()).isNull();
+    }
+
+    @Test
+    void matchesStatusBadgesOfParsedReceipts() {
+        ReceiptSummary summary = new ReceiptSummary("id", "bucket", "receipts/kvitto.pdf", "gs://bucket/receipts/kvitto.pdf",
+            null, "failed", null, Instant.now(), Map.of());
+
+        assertThat(summary.statusBadgeClass()).isEqualTo("bg-danger-subtle text-danger");
+    }
+
+    private ReceiptSummary summary(Map<String, Object> general) {
+        return new ReceiptSummary("id", "bucket", "receipts/kvitto.pdf", "gs://bucket/receipts/kvitto.pdf",
+            null, "COMPLETED", null, Instant.now(), general);
+    }
+}
@@ -0,0 +1,67 @@
+package dev.pekelund.pklnd.firestore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.EventListener;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReferenceDataCacheTests {
+
+    private final AtomicReference<EventListener<QuerySnapshot>> listener = new AtomicReference<>();
+    private ReferenceDataCache<Integer> cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        Query query = mock(Query.class);
+        QuerySnapshot loaded = snapshot(2);
+        when(query.get()).thenReturn(ApiFutures.immediateFuture(loaded));
+        when(query.addSnapshotListener(any(EventListener.class))).thenAnswer(invocation -> {
+            listener.set(invocation.getArgument(0));
+            return mock(ListenerRegistration.class);
+        });
+        cache = new ReferenceDataCache<>("Categories", query, List::size, mock(FirestoreReadRecorder.class));
+    }
+
+    @Test
+    void listenerSnapshotsRefreshTheView() {
+        assertThat(cache.get().join()).isEqualTo(2);
+
+        listener.get().onEvent(snapshot(3), null);
+
+        assertThat(cache.peek()).isEqualTo(3);
+    }
+
+    @Test
+    void firstSnapshotAfterAnInvalidationIsNotCached() {
+        cache.get().join();
+        cache.invalidate();
+
+        listener.get().onEvent(snapshot(2), null);
+        assertThat(cache.peek()).isNull();
+
+        listener.get().onEvent(snapshot(3), null);
+        assertThat(cache.peek()).isEqualTo(3);
+    }
+
+    private static QuerySnapshot snapshot(int documents) {
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        List<QueryDocumentSnapshot> docs = Collections.nCopies(documents, mock(QueryDocumentSnapshot.class));
+        when(snapshot.getDocuments()).thenReturn(docs);
+        when(snapshot.getDocumentChanges()).thenReturn(List.of());
+        when(snapshot.size()).thenReturn(documents);
+        return snapshot;
+    }
+}
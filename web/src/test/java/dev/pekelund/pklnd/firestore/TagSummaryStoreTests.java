@@ -0,0 +1,241 @@
+package dev.pekelund.pklnd.firestore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.Transaction;
+import com.google.cloud.firestore.WriteBatch;
+import dev.pekelund.pklnd.storage.ReceiptOwner;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+
+class TagSummaryStoreTests {
+
+    private Firestore firestore;
+    private WriteBatch batch;
+    private DocumentReference mappingReference;
+    private DocumentReference summaryReference;
+    private QuerySnapshot mappingSnapshot;
+    private Query byTag;
+    private ReceiptExtractionService receiptExtractionService;
+    private TagSummaryStore store;
+
+    @BeforeEach
+    void setUp() {
+        firestore = mock(Firestore.class);
+        batch = mock(WriteBatch.class);
+        when(firestore.batch()).thenReturn(batch);
+        when(batch.commit()).thenReturn(ApiFutures.immediateFuture(List.of()));
+
+        CollectionReference summaries = mock(CollectionReference.class);
+        summaryReference = mock(DocumentReference.class);
+        when(firestore.collection("tagSummaries")).thenReturn(summaries);
+        when(summaries.document("user-1:tag-1")).thenReturn(summaryReference);
+
+        mappingReference = mock(DocumentReference.class);
+        QueryDocumentSnapshot mapping = mock(QueryDocumentSnapshot.class);
+        when(mapping.getReference()).thenReturn(mappingReference);
+        when(mapping.getUpdateTime()).thenReturn(Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 0));
+        when(mapping.exists()).thenReturn(true);
+        when(mapping.getString("receiptId")).thenReturn("receipt-1");
+        when(mapping.getString("itemIndex")).thenReturn("0");
+        when(mapping.getString("ownerId")).thenReturn("user-1");
+        when(mapping.getString("tagId")).thenReturn("tag-1");
+        when(mapping.get("counted")).thenReturn(true);
+        when(mapping.getBoolean("counted")).thenReturn(true);
+        when(mapping.get("itemTotal")).thenReturn("10.50");
+        when(mapping.getString("storeName")).thenReturn("ICA");
+
+        CollectionReference mappings = mock(CollectionReference.class);
+        Query byReceipt = mock(Query.class);
+        mappingSnapshot = mock(QuerySnapshot.class);
+        when(mappingSnapshot.getDocuments()).thenReturn(List.of(mapping));
+        when(firestore.collection("item_tags")).thenReturn(mappings);
+        when(mappings.whereIn("receiptId", List.of("receipt-1"))).thenReturn(byReceipt);
+        when(byReceipt.get()).thenReturn(ApiFutures.immediateFuture(mappingSnapshot));
+        Query byOwner = mock(Query.class);
+        byTag = mock(Query.class);
+        when(mappings.whereEqualTo("tagId", "tag-1")).thenReturn(byOwner);
+        when(byOwner.whereEqualTo("ownerId", "user-1")).thenReturn(byTag);
+        when(byTag.get()).thenReturn(ApiFutures.immediateFuture(mappingSnapshot));
+
+        @SuppressWarnings("unchecked")
+        ObjectProvider<Firestore> firestoreProvider = mock(ObjectProvider.class);
+        when(firestoreProvider.getIfAvailable()).thenReturn(firestore);
+        receiptExtractionService = mock(ReceiptExtractionService.class);
+        when(receiptExtractionService.isEnabled()).thenReturn(true);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<ReceiptExtractionService> receiptExtractionProvider = mock(ObjectProvider.class);
+        when(receiptExtractionProvider.getIfAvailable()).thenReturn(receiptExtractionService);
+
+        FirestoreProperties properties = new FirestoreProperties();
+        FirestoreReadRecorder readRecorder = mock(FirestoreReadRecorder.class);
+        store = new TagSummaryStore(firestoreProvider, properties, readRecorder,
+            new FirestoreBatchReader(firestoreProvider, properties, readRecorder), receiptExtractionProvider);
+    }
+
+    @Test
+    void removedReceiptsSubtractTheirTaggedItemsFromTheSummary() {
+        store.onReceiptChange(ReceiptChangeEvent.removed("user-1", List.of("receipt-1")));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> mappingFields = ArgumentCaptor.forClass(Map.class);
+        verify(batch).update(eq(mappingReference), mappingFields.capture(), any(Precondition.class));
+        assertThat(mappingFields.getValue()).containsEntry("counted", false).containsEntry("itemTotal", null);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> increments = ArgumentCaptor.forClass(Map.class);
+        verify(batch).set(eq(summaryReference), increments.capture(), eq(SetOptions.merge()));
+        assertThat(increments.getValue())
+            .containsEntry("itemCount", FieldValue.increment(-1L))
+            .containsEntry("totalAmountMinor", FieldValue.increment(-1050L))
+            .containsEntry("stores", Map.of("ICA", FieldValue.increment(-1L)))
+            .doesNotContainKey("schemaVersion");
+        verify(batch).commit();
+    }
+
+    @Test
+    void reparsedReceiptsOnlyWriteTheDifference() {
+        when(receiptExtractionService.findByIds(any())).thenReturn(List.of(receipt("12.00")));
+
+        store.onReceiptChange(ReceiptChangeEvent.updated("user-1", List.of("receipt-1")));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> increments = ArgumentCaptor.forClass(Map.class);
+        verify(batch).set(eq(summaryReference), increments.capture(), eq(SetOptions.merge()));
+        assertThat(increments.getValue())
+            .containsEntry("itemCount", FieldValue.increment(0L))
+            .containsEntry("totalAmountMinor", FieldValue.increment(150L))
+            .doesNotContainKey("stores");
+    }
+
+    @Test
+    void unchangedReceiptsWriteNothing() {
+        when(receiptExtractionService.findByIds(any())).thenReturn(List.of(receipt("10.50")));
+
+        store.onReceiptChange(ReceiptChangeEvent.updated("user-1", List.of("receipt-1")));
+
+        verify(batch, never()).set(any(DocumentReference.class), anyMap(), any(SetOptions.class));
+        verify(batch, never()).update(any(DocumentReference.class), anyMap(), any(Precondition.class));
+        verify(batch, never()).commit();
+    }
+
+    @Test
+    void mappingsChangedByATagAssignmentAreReadAgainBeforeRetrying() {
+        ApiException conflict = failedPrecondition();
+        when(batch.commit())
+            .thenReturn(ApiFutures.immediateFailedFuture(conflict))
+            .thenReturn(ApiFutures.immediateFuture(List.of()));
+        DocumentSnapshot removedMapping = mock(DocumentSnapshot.class);
+        when(removedMapping.exists()).thenReturn(false);
+        when(firestore.getAll(mappingReference)).thenReturn(ApiFutures.immediateFuture(List.of(removedMapping)));
+
+        store.onReceiptChange(ReceiptChangeEvent.removed("user-1", List.of("receipt-1")));
+
+        // The mapping was untagged meanwhile, so the retry has nothing left to write.
+        verify(firestore).getAll(mappingReference);
+        verify(batch, times(1)).commit();
+    }
+
+    @Test
+    void rebuildKeepsASummaryAnotherInstanceRebuiltFirst() throws Exception {
+        Transaction transaction = mockTransaction();
+        DocumentSnapshot rebuilt = mock(DocumentSnapshot.class);
+        when(rebuilt.exists()).thenReturn(true);
+        when(rebuilt.getLong("schemaVersion")).thenReturn(2L);
+        when(rebuilt.getLong("itemCount")).thenReturn(5L);
+        when(rebuilt.getLong("totalAmountMinor")).thenReturn(5250L);
+        when(transaction.get(summaryReference)).thenReturn(ApiFutures.immediateFuture(rebuilt));
+
+        Map<String, TagSummaryStore.TagTotals> totals = store.loadSummaries("user-1", List.of("tag-1"));
+
+        assertThat(totals.get("tag-1").itemCount()).isEqualTo(5);
+        verify(transaction, never()).set(any(DocumentReference.class), anyMap());
+    }
+
+    @Test
+    void rebuildSumsTheMappingsReadInTheTransaction() throws Exception {
+        Transaction transaction = mockTransaction();
+        DocumentSnapshot missing = mock(DocumentSnapshot.class);
+        when(transaction.get(summaryReference)).thenReturn(ApiFutures.immediateFuture(missing));
+        when(transaction.get(byTag)).thenReturn(ApiFutures.immediateFuture(mappingSnapshot));
+
+        Map<String, TagSummaryStore.TagTotals> totals = store.loadSummaries("user-1", List.of("tag-1"));
+
+        assertThat(totals.get("tag-1").itemCount()).isEqualTo(1);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> payload = ArgumentCaptor.forClass(Map.class);
+        verify(transaction).set(eq(summaryReference), payload.capture());
+        assertThat(payload.getValue())
+            .containsEntry("itemCount", 1L)
+            .containsEntry("totalAmountMinor", 1050L)
+            .containsEntry("schemaVersion", 2L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Transaction mockTransaction() {
+        when(receiptExtractionService.findByIds(any())).thenReturn(List.of(receipt("10.50")));
+        when(firestore.getAll(summaryReference)).thenReturn(ApiFutures.immediateFuture(List.of()));
+        Transaction transaction = mock(Transaction.class);
+        when(firestore.runTransaction(any(Transaction.Function.class))).thenAnswer(invocation ->
+            ApiFutures.immediateFuture(((Transaction.Function<Object>) invocation.getArgument(0))
+                .updateCallback(transaction)));
+        return transaction;
+    }
+
+    private static ApiException failedPrecondition() {
+        StatusCode statusCode = mock(StatusCode.class);
+        when(statusCode.getCode()).thenReturn(StatusCode.Code.FAILED_PRECONDITION);
+        return new ApiException(new IllegalStateException("Mapping was updated"), statusCode, false);
+    }
+
+    private static ParsedReceipt receipt(String totalPrice) {
+        return new ParsedReceipt(
+            "receipt-1",
+            null,
+            null,
+            null,
+            new ReceiptOwner("user-1", null, null),
+            null,
+            null,
+            Instant.now(),
+            Map.of("storeName", "ICA"),
+            List.of(Map.of("totalPrice", new BigDecimal(totalPrice))),
+            null,
+            List.of(),
+            List.of(),
+            List.of(),
+            null,
+            null,
+            null,
+            null
+        );
+    }
+}
@@ -1,8 +1,14 @@
 package dev.pekelund.pklnd.web;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import dev.pekelund.pklnd.firestore.FirestoreUserService;
@@ -18,9 +24,11 @@ import java.time.Month;
 import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
 class DashboardStatisticsServiceTest {
 
@@ -38,7 +46,7 @@ class DashboardStatisticsServiceTest {
         tagService = mock(TagService.class);
 
         when(firestoreUserService.isEnabled()).thenReturn(true);
-        when(firestoreUserService.countUsers()).thenReturn(10L);
+        when(firestoreUserService.countUsersAsync()).thenReturn(completedFuture(10L));
 
         service = new DashboardStatisticsService(
             firestoreUserService,
@@ -64,7 +72,7 @@ class DashboardStatisticsServiceTest {
             createReceipt("2023-11-05", new BigDecimal("50.00"))
         );
 
-        when(receiptExtractionService.listReceiptsForOwner(owner)).thenReturn(receipts);
+        when(receiptExtractionService.listReceiptsForOwnerAsync(owner)).thenReturn(completedFuture(receipts));
 
         // Act
         DashboardStatistics stats = service.loadStatistics(auth);
@@ -92,7 +100,7 @@ class DashboardStatisticsServiceTest {
             createReceipt("2023-12-25", new BigDecimal("200.00"))
         );
 
-        when(receiptExtractionService.listReceiptsForOwner(owner)).thenReturn(receipts);
+        when(receiptExtractionService.listReceiptsForOwnerAsync(owner)).thenReturn(completedFuture(receipts));
 
         // Act
         DashboardStatistics stats = service.loadStatistics(auth);
@@ -119,7 +127,7 @@ class DashboardStatisticsServiceTest {
 
         when(receiptOwnerResolver.resolve(auth)).thenReturn(owner);
         when(receiptExtractionService.isEnabled()).thenReturn(true);
-        when(receiptExtractionService.listReceiptsForOwner(owner)).thenReturn(List.of());
+        when(receiptExtractionService.listReceiptsForOwnerAsync(owner)).thenReturn(completedFuture(List.of()));
 
         // Act
         DashboardStatistics stats = service.loadStatistics(auth);
@@ -144,7 +152,7 @@ class DashboardStatisticsServiceTest {
             createReceipt("2024-02-20", new BigDecimal("100.00"))
         );
 
-        when(receiptExtractionService.listReceiptsForOwner(owner)).thenReturn(receipts);
+        when(receiptExtractionService.listReceiptsForOwnerAsync(owner)).thenReturn(completedFuture(receipts));
 
         // Act
         DashboardStatistics stats = service.loadStatistics(auth);
@@ -169,6 +177,70 @@ class DashboardStatisticsServiceTest {
         assertThat(stats.monthlyTotals()).isEmpty();
     }
 
+    @Test
+    void countsGlobalTotalsWithAggregationsForAdministrators() {
+        Authentication auth = mock(Authentication.class);
+        doReturn(List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))).when(auth).getAuthorities();
+        when(receiptExtractionService.isEnabled()).thenReturn(true);
+        when(receiptExtractionService.countAllReceiptsAsync()).thenReturn(completedFuture(42L));
+        when(receiptExtractionService.countAllItemsAsync()).thenReturn(completedFuture(310L));
+        when(receiptExtractionService.countAllFailedReceiptsAsync()).thenReturn(completedFuture(2L));
+        when(receiptExtractionService.listAllReceiptSummariesAsync()).thenReturn(completedFuture(List.of()));
+
+        DashboardStatistics stats = service.loadStatistics(auth);
+
+        assertThat(stats.totalReceipts()).isEqualTo(42L);
+        assertThat(stats.totalItems()).isEqualTo(310L);
+        assertThat(stats.failedReceipts()).isEqualTo(2L);
+        verify(receiptExtractionService, never()).listAllReceiptsAsync();
+    }
+
+    @Test
+    void skipsGlobalTotalsForRegularUsers() {
+        Authentication auth = mock(Authentication.class);
+        when(receiptExtractionService.isEnabled()).thenReturn(true);
+
+        DashboardStatistics stats = service.loadStatistics(auth);
+
+        assertThat(stats.totalReceipts()).isZero();
+        verify(receiptExtractionService, never()).countAllReceiptsAsync();
+        verify(receiptExtractionService, never()).listAllReceiptSummariesAsync();
+    }
+
+    @Test
+    void startsEveryReadBeforeWaitingForAnyOfThem() {
+        ReceiptOwner owner = new ReceiptOwner("user1", "Test User", "user1@example.com");
+        Authentication auth = mock(Authentication.class);
+        doReturn(List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))).when(auth).getAuthorities();
+        when(receiptOwnerResolver.resolve(auth)).thenReturn(owner);
+        when(receiptExtractionService.isEnabled()).thenReturn(true);
+        CompletableFuture<Long> userCount = new CompletableFuture<>();
+        CompletableFuture<Long> receiptCount = new CompletableFuture<>();
+        CompletableFuture<List<ParsedReceipt>> personalReceipts = new CompletableFuture<>();
+        when(firestoreUserService.countUsersAsync()).thenReturn(userCount);
+        when(receiptExtractionService.countAllReceiptsAsync()).thenReturn(receiptCount);
+        when(receiptExtractionService.countAllItemsAsync()).thenReturn(completedFuture(5L));
+        when(receiptExtractionService.countAllFailedReceiptsAsync()).thenReturn(completedFuture(0L));
+        when(receiptExtractionService.listAllReceiptSummariesAsync()).thenReturn(completedFuture(List.of()));
+        when(receiptExtractionService.listReceiptsForOwnerAsync(owner)).thenReturn(personalReceipts);
+
+        CompletableFuture<DashboardStatistics> stats = CompletableFuture.supplyAsync(() -> service.loadStatistics(auth));
+
+        verify(receiptExtractionService, timeout(5000)).listReceiptsForOwnerAsync(owner);
+        verify(receiptExtractionService, timeout(5000)).countAllReceiptsAsync();
+        assertThat(stats).isNotDone();
+        userCount.complete(3L);
+        receiptCount.complete(7L);
+        personalReceipts.complete(List.of(createReceipt("2024-01-15", new BigDecimal("100.00"))));
+
+        DashboardStatistics result = stats.join();
+        assertThat(result.totalUsers()).isEqualTo(3L);
+        assertThat(result.totalReceipts()).isEqualTo(7L);
+        assertThat(result.personalReceiptCount()).isEqualTo(1L);
+        assertThat(result.yearlyTotals().get(2024)).isEqualByComparingTo(new BigDecimal("100.00"));
+        verify(receiptExtractionService, times(1)).listReceiptsForOwnerAsync(owner);
+    }
+
     private ParsedReceipt createReceipt(String date, BigDecimal totalAmount) {
         Map<String, Object> general = totalAmount != null
             ? Map.of("receiptDate", date, "totalAmount", totalAmount)
@@ -0,0 +1,81 @@
+package dev.pekelund.pklnd.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import dev.pekelund.pklnd.firestore.ReceiptExtractionAccessException;
+import dev.pekelund.pklnd.firestore.ReceiptExtractionService;
+import dev.pekelund.pklnd.storage.ReceiptOwner;
+import dev.pekelund.pklnd.storage.ReceiptStorageService;
+import dev.pekelund.pklnd.web.ReceiptClearJobService.ReceiptClearJob;
+import dev.pekelund.pklnd.web.ReceiptClearJobService.Status;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ReceiptClearJobServiceTests {
+
+    private final ReceiptOwner owner = new ReceiptOwner("owner-1", "Owner", "owner@example.com");
+    private final ReceiptStorageService storageService = mock(ReceiptStorageService.class);
+    private final ReceiptExtractionService extractionService = mock(ReceiptExtractionService.class);
+    private final ReceiptClearJobService service =
+        new ReceiptClearJobService(storageService, extractionService, null);
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void clearsStorageAndParsedDataInParallelAndReusesTheRunningJob() throws Exception {
+        when(storageService.isEnabled()).thenReturn(true);
+        when(extractionService.isEnabled()).thenReturn(true);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        doAnswer(invocation -> awaitOther(bothStarted)).when(storageService).deleteReceiptsForOwner(owner);
+        doAnswer(invocation -> awaitOther(bothStarted)).when(extractionService).deleteReceiptsForOwner(owner);
+
+        ReceiptClearJob job = service.start(owner);
+        assertThat(service.start(owner).id()).isEqualTo(job.id());
+
+        ReceiptClearJob finished = awaitFinished(job);
+        assertThat(finished.status()).isEqualTo(Status.COMPLETED);
+        assertThat(finished.successMessage()).isEqualTo("Cleared uploaded receipts and parsed receipt data.");
+        assertThat(finished.errorMessage()).isNull();
+        assertThat(service.find(job.id(), "someone-else")).isEmpty();
+    }
+
+    @Test
+    void reportsFailedPartWithoutHidingTheOther() throws Exception {
+        when(storageService.isEnabled()).thenReturn(true);
+        when(extractionService.isEnabled()).thenReturn(true);
+        doThrow(new ReceiptExtractionAccessException("Firestore unavailable"))
+            .when(extractionService).deleteReceiptsForOwner(owner);
+
+        ReceiptClearJob finished = awaitFinished(service.start(owner));
+
+        assertThat(finished.status()).isEqualTo(Status.COMPLETED);
+        assertThat(finished.successMessage()).isEqualTo("Cleared uploaded receipts.");
+        assertThat(finished.errorMessage()).isEqualTo("Failed to clear parsed receipt data: Firestore unavailable");
+    }
+
+    private ReceiptClearJob awaitFinished(ReceiptClearJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        ReceiptClearJob current = service.find(job.id(), owner.id()).orElseThrow();
+        while (!current.finished() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            current = service.find(job.id(), owner.id()).orElseThrow();
+        }
+        assertThat(current.finished()).isTrue();
+        return current;
+    }
+
+    private static Object awaitOther(CountDownLatch latch) throws InterruptedException {
+        latch.countDown();
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        return null;
+    }
+}
@@ -16,6 +16,7 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -25,7 +26,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(ReceiptController.class)
 @ContextConfiguration(classes = PknldApplication.class)
-@Import(ViteManifest.class)
+@Import({ViteManifest.class, ReceiptClearJobService.class})
 class ReceiptControllerClearTests {
 
     @Autowired
@@ -62,7 +63,7 @@ class ReceiptControllerClearTests {
                 .andExpect(redirectedUrl("/receipts"));
 
         // Assert
-        verify(receiptStorageService).deleteReceiptsForOwner(owner);
-        verify(receiptExtractionService).deleteReceiptsForOwner(owner);
+        verify(receiptStorageService, timeout(5000)).deleteReceiptsForOwner(owner);
+        verify(receiptExtractionService, timeout(5000)).deleteReceiptsForOwner(owner);
     }
 }
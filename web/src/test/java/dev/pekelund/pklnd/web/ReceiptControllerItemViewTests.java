@@ -2,6 +2,7 @@ package dev.pekelund.pklnd.web;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
@@ -10,10 +11,12 @@ import static org.mockito.Mockito.when;
 
 import dev.pekelund.pklnd.web.receipts.ReceiptItemController;
 import dev.pekelund.pklnd.web.receipts.ReceiptScopeHelper;
+import dev.pekelund.pklnd.firestore.ItemPriceHistory;
 import dev.pekelund.pklnd.firestore.ParsedReceipt;
 import dev.pekelund.pklnd.firestore.ReceiptExtractionService;
 import dev.pekelund.pklnd.firestore.ReceiptExtractionService.ReceiptItemReference;
 import dev.pekelund.pklnd.storage.ReceiptOwner;
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
@@ -69,7 +72,7 @@ class ReceiptControllerItemViewTests {
             )
         );
 
-        when(receiptExtractionService.findReceiptItemReferences(eq(ean), eq(owner), eq(false)))
+        when(receiptExtractionService.findReceiptItemReferences(eq(ean), eq(owner), eq(false), anyInt()))
             .thenReturn(List.of(reference));
 
         Model model = new ExtendedModelMap();
@@ -87,7 +90,7 @@ class ReceiptControllerItemViewTests {
     void viewItemPurchasesFallsBackToSourceReceiptWhenIndexMissing() {
         String ean = "7310867001823";
 
-        when(receiptExtractionService.findReceiptItemReferences(eq(ean), eq(owner), eq(false)))
+        when(receiptExtractionService.findReceiptItemReferences(eq(ean), eq(owner), eq(false), anyInt()))
             .thenReturn(List.of());
 
         Map<String, Object> general = Map.of(
@@ -134,5 +137,40 @@ class ReceiptControllerItemViewTests {
         verify(receiptExtractionService, never()).findByIds(anyCollection());
         verify(receiptExtractionService).findById("receipt-2");
     }
-}
 
+    @Test
+    void viewItemPurchasesChartsPrecomputedPriceHistory() {
+        String ean = "7310867001823";
+        ReceiptItemReference reference = new ReceiptItemReference(
+            "receipt-1",
+            owner.id(),
+            Instant.parse("2024-10-01T10:15:30Z"),
+            "2024-09-30",
+            "ICA Kvantum",
+            "ICA Kvantum",
+            "receipt-1.pdf",
+            Map.of(
+                "name", "Mjölk",
+                "eanCode", ean,
+                "totalPrice", "15.90"
+            )
+        );
+
+        when(receiptExtractionService.findReceiptItemReferences(eq(ean), eq(owner), eq(false), anyInt()))
+            .thenReturn(List.of(reference));
+        when(receiptExtractionService.findPriceHistory(ean, owner, false)).thenReturn(Optional.of(
+            new ItemPriceHistory(List.of(
+                new ItemPriceHistory.PricePoint("receipt-0", "2024-08-01", new BigDecimal("14.90"), "ICA Kvantum"),
+                new ItemPriceHistory.PricePoint("receipt-1", "2024-09-30", new BigDecimal("15.90"), "ICA Kvantum")
+            ))
+        ));
+
+        Model model = new ExtendedModelMap();
+        controller.viewItemPurchases(ean, null, "my", model, authentication);
+
+        assertThat(model.getAttribute("purchaseCount")).isEqualTo(2);
+        assertThat(model.getAttribute("hasPriceHistory")).isEqualTo(true);
+        assertThat((String) model.getAttribute("priceHistoryJson"))
+            .isEqualTo("[{\"date\":\"2024-08-01\",\"price\":14.90},{\"date\":\"2024-09-30\",\"price\":15.90}]");
+    }
+}
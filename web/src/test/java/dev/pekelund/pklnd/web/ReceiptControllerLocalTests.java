@@ -17,6 +17,7 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -27,7 +28,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(ReceiptController.class)
 @ContextConfiguration(classes = PknldApplication.class)
-@Import(ViteManifest.class)
+@Import({ViteManifest.class, ReceiptClearJobService.class})
 class ReceiptControllerLocalTests {
 
     @Autowired
@@ -67,10 +68,10 @@ class ReceiptControllerLocalTests {
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/receipts"))
                 .andExpect(flash().attributeExists("successMessage"))
-                .andExpect(flash().attribute("successMessage", "Cleared parsed receipt data."));
+                .andExpect(flash().attribute("successMessage", "Clearing receipt data in the background."));
 
         // Assert
         verify(receiptStorageService, never()).deleteReceiptsForOwner(any());
-        verify(receiptExtractionService).deleteReceiptsForOwner(owner);
+        verify(receiptExtractionService, timeout(5000)).deleteReceiptsForOwner(owner);
     }
 }
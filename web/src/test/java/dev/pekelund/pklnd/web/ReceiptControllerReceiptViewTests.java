@@ -16,6 +16,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -41,7 +42,7 @@ class ReceiptControllerReceiptViewTests {
 
     @BeforeEach
     void setUp() {
-        controller = new ReceiptController(null, receiptExtractionService, receiptOwnerResolver, null, null, null, null, null);
+        controller = new ReceiptController(null, receiptExtractionService, receiptOwnerResolver, null, null, null, null, null, null, null);
         authentication = new TestingAuthenticationToken("user", "password", "ROLE_USER");
         owner = new ReceiptOwner("owner-1", "Test User", "user@example.com");
 
@@ -86,7 +87,7 @@ class ReceiptControllerReceiptViewTests {
             null
         );
 
-        when(receiptExtractionService.findById("receipt-1")).thenReturn(Optional.of(receipt));
+        when(receiptExtractionService.findDetailedById("receipt-1")).thenReturn(Optional.of(receipt));
 
         Model model = new ExtendedModelMap();
         String viewName = controller.viewParsedReceipt("receipt-1", "my", model, authentication);
@@ -97,7 +98,7 @@ class ReceiptControllerReceiptViewTests {
         assertThat(occurrences)
             .containsEntry("7310865004703", 3L)
             .containsEntry("7310867001823", 2L);
-        verify(receiptExtractionService, never()).loadItemOccurrences(any(), any(), anyBoolean());
+        verify(receiptExtractionService, never()).loadItemOccurrencesAsync(any(), any(), anyBoolean());
     }
 
     @Test
@@ -134,14 +135,17 @@ class ReceiptControllerReceiptViewTests {
             null
         );
 
-        when(receiptExtractionService.findById("receipt-1")).thenReturn(Optional.of(receipt));
-        when(receiptExtractionService.loadItemOccurrences(any(), any(), anyBoolean()))
-            .thenReturn(Map.of("7310865004703", 3L, "7310867001823", 2L));
+        when(receiptExtractionService.findDetailedById("receipt-1")).thenReturn(Optional.of(receipt));
+        when(receiptExtractionService.loadItemOccurrencesAsync(any(), any(), anyBoolean()))
+            .thenReturn(CompletableFuture.completedFuture(Map.of("7310865004703", 3L, "7310867001823", 2L)));
 
         Model model = new ExtendedModelMap();
         String viewName = controller.viewParsedReceipt("receipt-1", "my", model, authentication);
 
         assertThat(viewName).isEqualTo("receipt-detail");
-        verify(receiptExtractionService).loadItemOccurrences(any(), eq(owner), eq(false));
+        verify(receiptExtractionService).loadItemOccurrencesAsync(any(), eq(owner), eq(false));
+        @SuppressWarnings("unchecked")
+        Map<String, Long> occurrences = (Map<String, Long>) model.getAttribute("itemOccurrences");
+        assertThat(occurrences).containsEntry("7310867001823", 2L);
     }
 }
@@ -1,26 +1,37 @@
 package dev.pekelund.pklnd.web;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import dev.pekelund.pklnd.PknldApplication;
 import dev.pekelund.pklnd.firestore.FirestoreReadTotals;
 import dev.pekelund.pklnd.firestore.ParsedReceipt;
+import dev.pekelund.pklnd.firestore.ReceiptChangeEvent;
+import dev.pekelund.pklnd.firestore.ReceiptDataVersionService;
 import dev.pekelund.pklnd.firestore.ReceiptExtractionService;
 import dev.pekelund.pklnd.storage.ReceiptOwner;
 import dev.pekelund.pklnd.storage.ReceiptStorageService;
 import dev.pekelund.pklnd.web.assets.ViteManifest;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -28,7 +39,8 @@ import org.springframework.test.web.servlet.MockMvc;
 
 @WebMvcTest(dev.pekelund.pklnd.web.receipts.ReceiptOverviewController.class)
 @ContextConfiguration(classes = PknldApplication.class)
-@Import({FirestoreReadTotals.class, ViteManifest.class, dev.pekelund.pklnd.web.receipts.ReceiptScopeHelper.class})
+@Import({FirestoreReadTotals.class, ViteManifest.class, dev.pekelund.pklnd.web.receipts.ReceiptScopeHelper.class,
+    dev.pekelund.pklnd.web.receipts.ReceiptOverviewIndex.class})
 class ReceiptOverviewControllerTests {
 
     @Autowired
@@ -46,6 +58,12 @@ class ReceiptOverviewControllerTests {
     @MockitoBean
     private DashboardStatisticsService dashboardStatisticsService;
 
+    @MockitoBean
+    private ReceiptDataVersionService receiptDataVersionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Test
     void overviewDataReturnsItemsForSelectedWeek() throws Exception {
         when(receiptStorageService.isEnabled()).thenReturn(false);
@@ -178,6 +196,153 @@ class ReceiptOverviewControllerTests {
             .andExpect(jsonPath("$.receiptDates[2]").value("2024-05-08"));
     }
 
+    @Test
+    void overviewDataServesPeriodSwitchesFromIndexAndAppliesChanges() throws Exception {
+        when(receiptStorageService.isEnabled()).thenReturn(false);
+        when(receiptExtractionService.isEnabled()).thenReturn(true);
+
+        ReceiptOwner owner = new ReceiptOwner("user-7", "Eva", "eva@example.com");
+        when(receiptOwnerResolver.resolve(any())).thenReturn(owner);
+
+        ParsedReceipt weekTwenty = createReceipt(
+            "receipt-20",
+            owner,
+            "2024-05-14",
+            "Butik A",
+            List.of(createItem("Mjölk", "7312340001111", new BigDecimal("12.50"), "1"))
+        );
+        ParsedReceipt weekNineteen = createReceipt(
+            "receipt-19",
+            owner,
+            "2024-05-06",
+            "Butik C",
+            List.of(createItem("Smör", "7311110003333", new BigDecimal("48.00"), "1"))
+        );
+        when(receiptExtractionService.listReceiptsForOwner(owner)).thenReturn(List.of(weekTwenty, weekNineteen));
+
+        mockMvc.perform(get("/receipts/overview/data")
+                .param("periodType", "week")
+                .param("primary", "2024-W20")
+                .with(user("eva").roles("USER")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.primary.totalItems").value(1));
+
+        mockMvc.perform(get("/receipts/overview/data")
+                .param("periodType", "month")
+                .param("primary", "2024-05")
+                .with(user("eva").roles("USER")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.primary.totalItems").value(2));
+
+        ParsedReceipt addedReceipt = createReceipt(
+            "receipt-21",
+            owner,
+            "2024-05-21",
+            "Butik B",
+            List.of(createItem("Bröd", "7355550002222", new BigDecimal("25.00"), "1"))
+        );
+        when(receiptExtractionService.findByIds(any())).thenReturn(List.of(addedReceipt));
+        eventPublisher.publishEvent(ReceiptChangeEvent.updated(owner.id(), List.of("receipt-21")));
+        eventPublisher.publishEvent(ReceiptChangeEvent.removed(owner.id(), List.of("receipt-19")));
+
+        mockMvc.perform(get("/receipts/overview/data")
+                .param("periodType", "month")
+                .param("primary", "2024-05")
+                .with(user("eva").roles("USER")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.primary.totalItems").value(2))
+            .andExpect(jsonPath("$.primary.items[0].name").value("Bröd"))
+            .andExpect(jsonPath("$.primary.items[1].name").value("Mjölk"))
+            .andExpect(jsonPath("$.receiptDates.length()").value(2))
+            .andExpect(jsonPath("$.receiptDates[1]").value("2024-05-21"));
+
+        verify(receiptExtractionService, times(1)).listReceiptsForOwner(owner);
+    }
+
+    @Test
+    void overviewDataAnswersNotModifiedWhenDataVersionIsUnchanged() throws Exception {
+        when(receiptStorageService.isEnabled()).thenReturn(false);
+        when(receiptExtractionService.isEnabled()).thenReturn(true);
+
+        ReceiptOwner owner = new ReceiptOwner("user-9", "Olle", "olle@example.com");
+        when(receiptOwnerResolver.resolve(any())).thenReturn(owner);
+        when(receiptDataVersionService.entityTag(eq("user-9"), any(Object[].class)))
+            .thenReturn(Optional.of("\"1a2b-7\""));
+
+        mockMvc.perform(get("/receipts/overview/data")
+                .param("periodType", "week")
+                .param("primary", "2024-W20")
+                .header("If-None-Match", "\"1a2b-7\"")
+                .with(user("olle").roles("USER")))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"1a2b-7\""));
+
+        verify(receiptExtractionService, never()).listReceiptsForOwner(any());
+    }
+
+    @Test
+    void overviewDataChangesEntityTagWhenTheIndexCatchesUpWithTheDataVersion() throws Exception {
+        when(receiptStorageService.isEnabled()).thenReturn(false);
+        when(receiptExtractionService.isEnabled()).thenReturn(true);
+
+        ReceiptOwner owner = new ReceiptOwner("user-11", "Stina", "stina@example.com");
+        when(receiptOwnerResolver.resolve(any())).thenReturn(owner);
+        ParsedReceipt weekTwenty = createReceipt(
+            "receipt-20",
+            owner,
+            "2024-05-14",
+            "Butik A",
+            List.of(createItem("Mjölk", "7312340001111", new BigDecimal("12.50"), "1"))
+        );
+        when(receiptExtractionService.listReceiptsForOwner(owner)).thenReturn(List.of(weekTwenty));
+        AtomicReference<String> dataVersion = new AtomicReference<>("7");
+        when(receiptDataVersionService.entityTag(eq("user-11"), any(Object[].class))).thenAnswer(invocation ->
+            Optional.of("\"" + Arrays.deepHashCode(invocation.getArguments()) + "-" + dataVersion.get() + "\""));
+
+        String initialTag = mockMvc.perform(get("/receipts/overview/data")
+                .param("periodType", "week")
+                .param("primary", "2024-W20")
+                .with(user("stina").roles("USER")))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/receipts/overview/data")
+                .param("periodType", "week")
+                .param("primary", "2024-W20")
+                .header("If-None-Match", initialTag)
+                .with(user("stina").roles("USER")))
+            .andExpect(status().isNotModified());
+
+        // Another instance parsed a receipt: the version moves before this instance's index does.
+        dataVersion.set("8");
+        String staleIndexTag = mockMvc.perform(get("/receipts/overview/data")
+                .param("periodType", "week")
+                .param("primary", "2024-W20")
+                .header("If-None-Match", initialTag)
+                .with(user("stina").roles("USER")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.primary.totalItems").value(1))
+            .andReturn().getResponse().getHeader("ETag");
+
+        ParsedReceipt addedReceipt = createReceipt(
+            "receipt-21",
+            owner,
+            "2024-05-15",
+            "Butik B",
+            List.of(createItem("Bröd", "7355550002222", new BigDecimal("25.00"), "1"))
+        );
+        when(receiptExtractionService.findByIds(any())).thenReturn(List.of(addedReceipt));
+        eventPublisher.publishEvent(ReceiptChangeEvent.updated(owner.id(), List.of("receipt-21")));
+
+        mockMvc.perform(get("/receipts/overview/data")
+                .param("periodType", "week")
+                .param("primary", "2024-W20")
+                .header("If-None-Match", staleIndexTag)
+                .with(user("stina").roles("USER")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.primary.totalItems").value(2));
+    }
+
     private ParsedReceipt createReceipt(
         String id,
         ReceiptOwner owner,
@@ -24,7 +24,8 @@ import org.springframework.test.web.servlet.MockMvc;
 
 @WebMvcTest(dev.pekelund.pklnd.web.receipts.ReceiptOverviewController.class)
 @ContextConfiguration(classes = PknldApplication.class)
-@Import({FirestoreReadTotals.class, ViteManifest.class, dev.pekelund.pklnd.web.receipts.ReceiptScopeHelper.class})
+@Import({FirestoreReadTotals.class, ViteManifest.class, dev.pekelund.pklnd.web.receipts.ReceiptScopeHelper.class,
+    dev.pekelund.pklnd.web.receipts.ReceiptOverviewIndex.class})
 class ReceiptOverviewPageTests {
 
     @Autowired
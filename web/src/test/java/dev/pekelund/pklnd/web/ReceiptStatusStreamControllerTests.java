@@ -0,0 +1,75 @@
+package dev.pekelund.pklnd.web;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import dev.pekelund.pklnd.PknldApplication;
+import dev.pekelund.pklnd.firestore.FirestoreReadTotals;
+import dev.pekelund.pklnd.firestore.ReceiptStatusFeed;
+import dev.pekelund.pklnd.storage.ReceiptOwner;
+import dev.pekelund.pklnd.web.assets.ViteManifest;
+import dev.pekelund.pklnd.web.receipts.ReceiptStatusStreamController;
+import dev.pekelund.pklnd.web.receipts.ReceiptStatusStreams;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+@WebMvcTest(ReceiptStatusStreamController.class)
+@ContextConfiguration(classes = PknldApplication.class)
+@Import({FirestoreReadTotals.class, ViteManifest.class, ReceiptStatusStreams.class})
+class ReceiptStatusStreamControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ReceiptStatusFeed receiptStatusFeed;
+
+    @MockitoBean
+    private ReceiptOwnerResolver receiptOwnerResolver;
+
+    @MockitoBean
+    private DashboardStatisticsService dashboardStatisticsService;
+
+    @Test
+    void streamSubscribesToCurrentOwnersReceipts() throws Exception {
+        when(receiptStatusFeed.isEnabled()).thenReturn(true);
+        when(receiptStatusFeed.subscribe(eq("user-5"), any())).thenReturn(() -> { });
+        when(receiptOwnerResolver.resolve(any())).thenReturn(new ReceiptOwner("user-5", "Test", "test@example.com"));
+
+        mockMvc.perform(get("/receipts/status/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .with(user("test").roles("USER")))
+            .andExpect(status().isOk())
+            .andExpect(request().asyncStarted())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM));
+
+        verify(receiptStatusFeed).subscribe(eq("user-5"), any());
+    }
+
+    @Test
+    void streamAnswersNoContentWhenFeedIsDisabled() throws Exception {
+        when(receiptStatusFeed.isEnabled()).thenReturn(false);
+        when(receiptOwnerResolver.resolve(any())).thenReturn(new ReceiptOwner("user-5", "Test", "test@example.com"));
+
+        mockMvc.perform(get("/receipts/status/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .with(user("test").roles("USER")))
+            .andExpect(status().isNoContent());
+
+        verify(receiptStatusFeed, never()).subscribe(any(), any());
+    }
+}
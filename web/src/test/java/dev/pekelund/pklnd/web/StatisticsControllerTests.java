@@ -4,6 +4,7 @@ import dev.pekelund.pklnd.PknldApplication;
 import dev.pekelund.pklnd.firestore.FirestoreReadTotals;
 import dev.pekelund.pklnd.firestore.FirestoreUserService;
 import dev.pekelund.pklnd.firestore.ItemCategorizationService;
+import dev.pekelund.pklnd.firestore.ReceiptBatchLoader;
 import dev.pekelund.pklnd.firestore.ReceiptExtractionService;
 import dev.pekelund.pklnd.firestore.TagService;
 import dev.pekelund.pklnd.web.DashboardStatisticsService.DashboardStatistics;
@@ -48,6 +49,9 @@ class StatisticsControllerTests {
     @MockitoBean
     private ReceiptExtractionService receiptExtractionService;
 
+    @MockitoBean
+    private ReceiptBatchLoader receiptBatchLoader;
+
     @MockitoBean
     private TagStatisticsService tagStatisticsService;
 
@@ -1,31 +1,40 @@
 package dev.pekelund.pklnd.web;
 
-import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutures;
-import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
-import dev.pekelund.pklnd.firestore.ItemCategorizationService;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.Transaction;
+import com.google.cloud.firestore.WriteBatch;
+import dev.pekelund.pklnd.firestore.FirestoreBatchReader;
 import dev.pekelund.pklnd.firestore.FirestoreProperties;
+import dev.pekelund.pklnd.firestore.FirestoreReadRecorder;
+import dev.pekelund.pklnd.firestore.ItemCategorizationService;
 import dev.pekelund.pklnd.firestore.ItemTag;
 import dev.pekelund.pklnd.firestore.ParsedReceipt;
 import dev.pekelund.pklnd.firestore.ReceiptExtractionService;
+import dev.pekelund.pklnd.firestore.TagSummaryStore;
 import dev.pekelund.pklnd.storage.ReceiptOwner;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.security.core.Authentication;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -35,177 +44,207 @@ import static org.mockito.Mockito.when;
 class TagStatisticsServiceTest {
 
     @Test
-    void summarizeTags_ShouldAggregateCountsAndTotals() {
-        ItemCategorizationService categorizationService = mock(ItemCategorizationService.class);
-        ReceiptExtractionService receiptExtractionService = mock(ReceiptExtractionService.class);
-
-        when(categorizationService.isEnabled()).thenReturn(true);
-        when(receiptExtractionService.isEnabled()).thenReturn(true);
-
-        ReceiptOwner owner = new ReceiptOwner("user-1", "User", "user@example.com");
-        ParsedReceipt receipt = new ParsedReceipt(
-            "receipt-1",
-            null,
-            null,
-            null,
-            owner,
-            null,
-            null,
-            Instant.now(),
-            Map.of("storeName", "ICA"),
-            List.of(Map.of("totalPrice", new BigDecimal("10.50"), "normalizedEan", "12345678")),
-            null,
-            List.of(),
-            List.of(),
-            List.of(),
-            null,
-            null,
-            null,
-            null
-        );
-
-        when(receiptExtractionService.findById("receipt-1")).thenReturn(Optional.of(receipt));
-        when(categorizationService.getItemsByTag("tag-1", "user-1")).thenReturn(List.of(
-            new ItemCategorizationService.TaggedItemInfo("receipt-1", "0", null, Instant.now())
-        ));
-
-        FirestoreProperties properties = new FirestoreProperties();
-        @SuppressWarnings("unchecked")
-        ObjectProvider<com.google.cloud.firestore.Firestore> firestoreProvider = mock(ObjectProvider.class);
-        when(firestoreProvider.getIfAvailable()).thenReturn(null);
-        ReceiptOwnerResolver receiptOwnerResolver = mock(ReceiptOwnerResolver.class);
-        Authentication authentication = mock(Authentication.class);
-        when(receiptOwnerResolver.resolve(authentication)).thenReturn(owner);
-
-        TagStatisticsService service = new TagStatisticsService(
-            properties,
-            firestoreProvider,
-            receiptOwnerResolver,
-            java.util.Optional.of(categorizationService),
-            java.util.Optional.of(receiptExtractionService)
-        );
-
-        ItemTag tag = ItemTag.builder().id("tag-1").name("Frys").build();
-        Map<String, TagStatisticsService.TagSummary> summaries = service.summarizeTags(List.of(tag), authentication);
-
-        TagStatisticsService.TagSummary summary = summaries.get("tag-1");
-        assertThat(summary).isNotNull();
-        assertThat(summary.itemCount()).isEqualTo(1);
-        assertThat(summary.storeCount()).isEqualTo(1);
-        assertThat(summary.totalAmount()).isEqualByComparingTo(new BigDecimal("10.50"));
-    }
-
-    @Test
-    void summarizeTags_ShouldUseCachedSummaryWhenFresh() throws Exception {
-        ItemCategorizationService categorizationService = mock(ItemCategorizationService.class);
-        when(categorizationService.isEnabled()).thenReturn(true);
-        ReceiptExtractionService receiptExtractionService = mock(ReceiptExtractionService.class);
-        when(receiptExtractionService.isEnabled()).thenReturn(true);
-
-        FirestoreProperties properties = new FirestoreProperties();
-        properties.setEnabled(true);
-
-        Authentication authentication = mock(Authentication.class);
-        ReceiptOwnerResolver receiptOwnerResolver = mock(ReceiptOwnerResolver.class);
-        when(receiptOwnerResolver.resolve(authentication)).thenReturn(new ReceiptOwner("user-1", null, null));
-
+    void summarizeTags_ShouldReadMaintainedSummaries() {
         Firestore firestore = mock(Firestore.class);
-        CollectionReference summariesCollection = mock(CollectionReference.class);
-        DocumentReference summaryDocument = mock(DocumentReference.class);
-        DocumentSnapshot summarySnapshot = mock(DocumentSnapshot.class);
-        ApiFuture<DocumentSnapshot> summaryFuture = ApiFutures.immediateFuture(summarySnapshot);
+        CollectionReference collection = mock(CollectionReference.class);
+        when(firestore.collection(anyString())).thenReturn(collection);
+        when(collection.document(anyString())).thenReturn(mock(DocumentReference.class));
 
+        DocumentSnapshot summarySnapshot = mock(DocumentSnapshot.class);
         when(summarySnapshot.exists()).thenReturn(true);
         when(summarySnapshot.getId()).thenReturn("user-1:tag-1");
-        when(summarySnapshot.get("computedAt")).thenReturn(Timestamp.now());
-        when(summarySnapshot.get("itemCount")).thenReturn(3);
-        when(summarySnapshot.get("storeCount")).thenReturn(2);
-        when(summarySnapshot.get("totalAmount")).thenReturn("25.00");
-        when(firestore.collection(properties.getTagSummariesCollection())).thenReturn(summariesCollection);
-        when(summariesCollection.document("user-1:tag-1")).thenReturn(summaryDocument);
-        when(summaryDocument.get()).thenReturn(summaryFuture);
-
-        CollectionReference metaCollection = mock(CollectionReference.class);
-        DocumentReference metaDocument = mock(DocumentReference.class);
-        DocumentSnapshot metaSnapshot = mock(DocumentSnapshot.class);
-        ApiFuture<DocumentSnapshot> metaFuture = ApiFutures.immediateFuture(metaSnapshot);
-        when(metaSnapshot.exists()).thenReturn(false);
-        when(metaSnapshot.getId()).thenReturn("user-1:tag-1");
-        when(firestore.collection(properties.getTagSummaryMetaCollection())).thenReturn(metaCollection);
-        when(metaCollection.document("user-1:tag-1")).thenReturn(metaDocument);
-        when(metaDocument.get()).thenReturn(metaFuture);
-
-        ApiFuture<List<DocumentSnapshot>> metaBatchFuture = ApiFutures.immediateFuture(List.of(metaSnapshot));
-        ApiFuture<List<DocumentSnapshot>> summaryBatchFuture = ApiFutures.immediateFuture(List.of(summarySnapshot));
-        when(firestore.getAll(any(DocumentReference[].class))).thenReturn(metaBatchFuture, summaryBatchFuture);
+        when(summarySnapshot.getLong("schemaVersion")).thenReturn(2L);
+        when(summarySnapshot.getLong("itemCount")).thenReturn(3L);
+        when(summarySnapshot.getLong("totalAmountMinor")).thenReturn(2500L);
+        when(summarySnapshot.get("stores")).thenReturn(Map.of("ICA", 2L, "Coop", 1L, "Lidl", 0L));
+        when(firestore.getAll(any(DocumentReference[].class)))
+            .thenReturn(ApiFutures.immediateFuture(List.of(summarySnapshot)));
 
-        @SuppressWarnings("unchecked")
-        ObjectProvider<Firestore> firestoreProvider = mock(ObjectProvider.class);
-        when(firestoreProvider.getIfAvailable()).thenReturn(firestore);
-
-        TagStatisticsService service = new TagStatisticsService(
-            properties,
-            firestoreProvider,
-            receiptOwnerResolver,
-            Optional.of(categorizationService),
-            Optional.of(receiptExtractionService)
-        );
+        TagStatisticsService service = service(firestore, mock(ReceiptExtractionService.class));
 
         ItemTag tag = ItemTag.builder().id("tag-1").name("Frys").build();
-        Map<String, TagStatisticsService.TagSummary> summaries = service.summarizeTags(List.of(tag), authentication);
+        Map<String, TagStatisticsService.TagSummary> summaries = service.summarizeTags(List.of(tag), authentication());
 
         TagStatisticsService.TagSummary summary = summaries.get("tag-1");
         assertThat(summary).isNotNull();
         assertThat(summary.itemCount()).isEqualTo(3);
         assertThat(summary.storeCount()).isEqualTo(2);
         assertThat(summary.totalAmount()).isEqualByComparingTo(new BigDecimal("25.00"));
-        verify(categorizationService, never()).getItemsByTag(any(), any());
+        verify(collection, never()).whereEqualTo(anyString(), any());
     }
 
     @Test
-    void summarizeTags_ShouldBatchFirestoreReads() throws Exception {
-        ItemCategorizationService categorizationService = mock(ItemCategorizationService.class);
-        when(categorizationService.isEnabled()).thenReturn(true);
-        when(categorizationService.getItemsByTag(any(), any())).thenReturn(List.of());
+    void summarizeTags_ShouldRebuildSummariesWrittenBeforeIncrementalUpdates() throws Exception {
+        Firestore firestore = mock(Firestore.class);
+        CollectionReference summaries = mock(CollectionReference.class);
+        CollectionReference mappings = mock(CollectionReference.class);
+        DocumentReference summaryDocument = mock(DocumentReference.class);
+        when(firestore.collection("tagSummaries")).thenReturn(summaries);
+        when(firestore.collection("item_tags")).thenReturn(mappings);
+        when(summaries.document(anyString())).thenReturn(summaryDocument);
+
+        DocumentSnapshot legacySummary = mock(DocumentSnapshot.class);
+        when(legacySummary.exists()).thenReturn(true);
+        when(legacySummary.getId()).thenReturn("user-1:tag-1");
+        when(firestore.getAll(any(DocumentReference[].class)))
+            .thenReturn(ApiFutures.immediateFuture(List.of(legacySummary)));
+
+        QueryDocumentSnapshot mapping = mock(QueryDocumentSnapshot.class);
+        when(mapping.getId()).thenReturn("receipt-1_0_tag-1");
+        when(mapping.exists()).thenReturn(true);
+        when(mapping.getReference()).thenReturn(mock(DocumentReference.class));
+        when(mapping.getString("receiptId")).thenReturn("receipt-1");
+        when(mapping.getString("itemIndex")).thenReturn("0");
+        when(mapping.getString("ownerId")).thenReturn("user-1");
+        when(mapping.getString("tagId")).thenReturn("tag-1");
+        Query byTag = mock(Query.class);
+        Query byOwner = mock(Query.class);
+        QuerySnapshot mappingSnapshot = mock(QuerySnapshot.class);
+        when(mappingSnapshot.getDocuments()).thenReturn(List.of(mapping));
+        when(mappings.whereEqualTo("tagId", "tag-1")).thenReturn(byTag);
+        when(byTag.whereEqualTo("ownerId", "user-1")).thenReturn(byOwner);
+        when(byOwner.get()).thenReturn(ApiFutures.immediateFuture(mappingSnapshot));
+
+        WriteBatch batch = mock(WriteBatch.class);
+        when(firestore.batch()).thenReturn(batch);
+        when(batch.commit()).thenReturn(ApiFutures.immediateFuture(List.of()));
+
+        // The transaction reads the mapping again, now carrying the contribution recorded by the batch.
+        QueryDocumentSnapshot reconciledMapping = mock(QueryDocumentSnapshot.class);
+        when(reconciledMapping.exists()).thenReturn(true);
+        when(reconciledMapping.getBoolean("counted")).thenReturn(true);
+        when(reconciledMapping.get("itemTotal")).thenReturn("10.50");
+        when(reconciledMapping.getString("storeName")).thenReturn("ICA");
+        QuerySnapshot reconciledSnapshot = mock(QuerySnapshot.class);
+        when(reconciledSnapshot.getDocuments()).thenReturn(List.of(reconciledMapping));
+        Transaction transaction = mock(Transaction.class);
+        when(transaction.get(summaryDocument)).thenReturn(ApiFutures.immediateFuture(legacySummary));
+        when(transaction.get(byOwner)).thenReturn(ApiFutures.immediateFuture(reconciledSnapshot));
+        when(firestore.runTransaction(any(Transaction.Function.class))).thenAnswer(invocation ->
+            ApiFutures.immediateFuture(((Transaction.Function<?>) invocation.getArgument(0))
+                .updateCallback(transaction)));
 
         ReceiptExtractionService receiptExtractionService = mock(ReceiptExtractionService.class);
-        when(receiptExtractionService.isEnabled()).thenReturn(true);
+        when(receiptExtractionService.findByIds(any())).thenReturn(List.of(receipt()));
 
-        FirestoreProperties properties = new FirestoreProperties();
-        properties.setEnabled(true);
+        TagStatisticsService service = service(firestore, receiptExtractionService);
 
-        Authentication authentication = mock(Authentication.class);
-        ReceiptOwnerResolver receiptOwnerResolver = mock(ReceiptOwnerResolver.class);
-        when(receiptOwnerResolver.resolve(authentication)).thenReturn(new ReceiptOwner("user-1", null, null));
+        ItemTag tag = ItemTag.builder().id("tag-1").name("Frys").build();
+        TagStatisticsService.TagSummary summary = service.summarizeTags(List.of(tag), authentication()).get("tag-1");
+
+        assertThat(summary.itemCount()).isEqualTo(1);
+        assertThat(summary.storeCount()).isEqualTo(1);
+        assertThat(summary.totalAmount()).isEqualByComparingTo(new BigDecimal("10.50"));
 
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> payload = ArgumentCaptor.forClass(Map.class);
+        verify(transaction).set(eq(summaryDocument), payload.capture());
+        assertThat(payload.getValue())
+            .containsEntry("schemaVersion", 2L)
+            .containsEntry("itemCount", 1L)
+            .containsEntry("totalAmountMinor", 1050L)
+            .containsEntry("stores", Map.of("ICA", 1L));
+        verify(batch).commit();
+    }
+
+    @Test
+    void summarizeTags_ShouldBatchFirestoreReads() {
         Firestore firestore = mock(Firestore.class);
         CollectionReference collection = mock(CollectionReference.class);
-        DocumentReference document = mock(DocumentReference.class);
         when(firestore.collection(anyString())).thenReturn(collection);
-        when(collection.document(anyString())).thenReturn(document);
+        when(collection.document(anyString())).thenAnswer(invocation -> {
+            DocumentReference reference = mock(DocumentReference.class);
+            when(reference.getId()).thenReturn(invocation.getArgument(0));
+            return reference;
+        });
+        when(firestore.getAll(any(DocumentReference[].class))).thenAnswer(invocation -> {
+            List<DocumentSnapshot> snapshots = Arrays.stream(invocation.getArguments())
+                .map(DocumentReference.class::cast)
+                .map(DocumentReference::getId)
+                .map(id -> {
+                    DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+                    when(snapshot.getId()).thenReturn(id);
+                    when(snapshot.exists()).thenReturn(true);
+                    when(snapshot.getLong("schemaVersion")).thenReturn(2L);
+                    return snapshot;
+                })
+                .toList();
+            return ApiFutures.immediateFuture(snapshots);
+        });
+
+        TagStatisticsService service = service(firestore, mock(ReceiptExtractionService.class));
+
+        List<ItemTag> tags = new ArrayList<>();
+        for (int i = 0; i < 301; i++) {
+            tags.add(ItemTag.builder().id("tag-" + i).name("Tagg " + i).build());
+        }
 
-        ApiFuture<List<DocumentSnapshot>> batchFuture = ApiFutures.immediateFuture(List.of());
-        when(firestore.getAll(any(DocumentReference[].class))).thenReturn(batchFuture);
+        Map<String, TagStatisticsService.TagSummary> summaries = service.summarizeTags(tags, authentication());
+
+        assertThat(summaries).hasSize(301);
+        verify(firestore, times(2)).getAll(any(DocumentReference[].class));
+        verify(collection, never()).whereEqualTo(anyString(), any());
+    }
+
+    private static TagStatisticsService service(Firestore firestore, ReceiptExtractionService receiptExtractionService) {
+        FirestoreProperties properties = new FirestoreProperties();
+        properties.setEnabled(true);
 
         @SuppressWarnings("unchecked")
         ObjectProvider<Firestore> firestoreProvider = mock(ObjectProvider.class);
         when(firestoreProvider.getIfAvailable()).thenReturn(firestore);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<ReceiptExtractionService> receiptExtractionProvider = mock(ObjectProvider.class);
+        when(receiptExtractionProvider.getIfAvailable()).thenReturn(receiptExtractionService);
+        when(receiptExtractionService.isEnabled()).thenReturn(true);
 
-        TagStatisticsService service = new TagStatisticsService(
-            properties,
+        FirestoreReadRecorder readRecorder = mock(FirestoreReadRecorder.class);
+        TagSummaryStore tagSummaryStore = new TagSummaryStore(
             firestoreProvider,
+            properties,
+            readRecorder,
+            new FirestoreBatchReader(firestoreProvider, properties, readRecorder),
+            receiptExtractionProvider
+        );
+
+        ItemCategorizationService categorizationService = mock(ItemCategorizationService.class);
+        when(categorizationService.isEnabled()).thenReturn(true);
+
+        ReceiptOwnerResolver receiptOwnerResolver = mock(ReceiptOwnerResolver.class);
+        when(receiptOwnerResolver.resolve(any())).thenReturn(new ReceiptOwner("user-1", "User", "user@example.com"));
+
+        return new TagStatisticsService(
+            tagSummaryStore,
             receiptOwnerResolver,
             Optional.of(categorizationService),
             Optional.of(receiptExtractionService)
         );
+    }
 
-        List<ItemTag> tags = new ArrayList<>();
-        for (int i = 0; i < 301; i++) {
-            tags.add(ItemTag.builder().id("tag-" + i).name("Tagg " + i).build());
-        }
-
-        service.summarizeTags(tags, authentication);
+    private static Authentication authentication() {
+        return mock(Authentication.class);
+    }
 
-        verify(firestore, times(4)).getAll(any(DocumentReference[].class));
+    private static ParsedReceipt receipt() {
+        return new ParsedReceipt(
+            "receipt-1",
+            null,
+            null,
+            null,
+            new ReceiptOwner("user-1", "User", "user@example.com"),
+            null,
+            null,
+            Instant.now(),
+            Map.of("storeName", "ICA"),
+            List.of(Map.of("totalPrice", new BigDecimal("10.50"), "normalizedEan", "12345678")),
+            null,
+            List.of(),
+            List.of(),
+            List.of(),
+            null,
+            null,
+            null,
+            null
+        );
     }
 }
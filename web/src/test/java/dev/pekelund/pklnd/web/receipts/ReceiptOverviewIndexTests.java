@@ -0,0 +1,63 @@
+package dev.pekelund.pklnd.web.receipts;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.pekelund.pklnd.firestore.ParsedReceipt;
+import dev.pekelund.pklnd.firestore.ReceiptChangeEvent;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+class ReceiptOverviewIndexTests {
+
+    private final ReceiptOverviewIndex index = new ReceiptOverviewIndex(null);
+
+    @Test
+    void changesToAnotherOwnerDoNotKeepAnIndexFromBeingCached() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<ParsedReceipt>> loader = () -> {
+            if (loads.incrementAndGet() == 1) {
+                index.onReceiptChange(ReceiptChangeEvent.removed("owner-b", List.of("receipt-1")));
+            }
+            return List.of();
+        };
+
+        index.resolve("owner-a", "mine", loader);
+        index.resolve("owner-a", "mine", loader);
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void changesToAnyOwnerKeepTheAllOwnersIndexFromBeingCached() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<ParsedReceipt>> loader = () -> {
+            if (loads.incrementAndGet() == 1) {
+                index.onReceiptChange(ReceiptChangeEvent.removed("owner-b", List.of("receipt-1")));
+            }
+            return List.of();
+        };
+
+        index.resolve(ReceiptOverviewIndex.ALL_OWNERS_KEY, "all", loader);
+        index.resolve(ReceiptOverviewIndex.ALL_OWNERS_KEY, "all", loader);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void changesToTheOwnerKeepItsIndexFromBeingCached() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<ParsedReceipt>> loader = () -> {
+            if (loads.incrementAndGet() == 1) {
+                index.onReceiptChange(ReceiptChangeEvent.ownerCleared("owner-a"));
+            }
+            return List.of();
+        };
+
+        index.resolve("owner-a", "mine", loader);
+        index.resolve("owner-a", "mine", loader);
+
+        assertThat(loads).hasValue(2);
+    }
+}